@@ -0,0 +1,125 @@
+package org.eclipse.birt.core.archive.cache;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class SharedBlockCacheTest extends TestCase
+{
+	@Test
+    public void testHitAndMiss( )
+	{
+		SharedBlockCache cache = new SharedBlockCache( 4096 * 16, 1 );
+		Object file = SharedBlockCache.createFileKey( "a", 1, 4096 );
+		assertNull( cache.getBlock( file, 1 ) );
+		assertEquals( 1, cache.getMissCount( ) );
+
+		byte[] block = new byte[4096];
+		cache.putBlock( file, 1, block );
+		assertSame( block, cache.getBlock( file, 1 ) );
+		assertEquals( 1, cache.getHitCount( ) );
+		assertEquals( 4096, cache.getUsedCacheSize( ) );
+
+		// another version of the same file
+		Object newFile = SharedBlockCache.createFileKey( "a", 2, 4096 );
+		assertNull( cache.getBlock( newFile, 1 ) );
+		assertEquals( 2, cache.getMissCount( ) );
+
+		cache.resetStatistics( );
+		assertEquals( 0, cache.getHitCount( ) );
+		assertEquals( 0, cache.getMissCount( ) );
+	}
+
+	@Test
+    public void testClockEviction( )
+	{
+		SharedBlockCache cache = new SharedBlockCache( 4096 * 4, 1 );
+		Object file = SharedBlockCache.createFileKey( "a", 1, 4096 * 8 );
+		for ( int i = 0; i < 4; i++ )
+		{
+			cache.putBlock( file, i, new byte[4096] );
+		}
+		assertEquals( 4, cache.getBlockCount( ) );
+		assertEquals( 0, cache.getEvictionCount( ) );
+
+		// block 0 is referenced, so block 1 is released instead of it
+		assertNotNull( cache.getBlock( file, 0 ) );
+		cache.putBlock( file, 4, new byte[4096] );
+		assertEquals( 4, cache.getBlockCount( ) );
+		assertEquals( 1, cache.getEvictionCount( ) );
+		assertNotNull( cache.getBlock( file, 0 ) );
+		assertNull( cache.getBlock( file, 1 ) );
+		assertNotNull( cache.getBlock( file, 4 ) );
+		assertTrue( cache.getUsedCacheSize( ) <= 4096 * 4 );
+	}
+
+	@Test
+    public void testRemoveFile( )
+	{
+		SharedBlockCache cache = new SharedBlockCache( 4096 * 16 );
+		Object fileA = SharedBlockCache.createFileKey( "a", 1, 4096 );
+		Object fileB = SharedBlockCache.createFileKey( "b", 1, 4096 );
+		cache.putBlock( fileA, 1, new byte[4096] );
+		cache.putBlock( fileA, 2, new byte[4096] );
+		cache.putBlock( fileB, 1, new byte[4096] );
+
+		cache.removeFile( "a" );
+		assertNull( cache.getBlock( fileA, 1 ) );
+		assertNull( cache.getBlock( fileA, 2 ) );
+		assertNotNull( cache.getBlock( fileB, 1 ) );
+		assertEquals( 4096, cache.getUsedCacheSize( ) );
+
+		cache.setMaxCacheSize( 0 );
+		assertFalse( cache.isEnabled( ) );
+		assertEquals( 0, cache.getBlockCount( ) );
+		assertEquals( 0, cache.getUsedCacheSize( ) );
+		cache.putBlock( fileB, 1, new byte[4096] );
+		assertEquals( 0, cache.getBlockCount( ) );
+	}
+
+	@Test
+    public void testConcurrentAccess( ) throws Exception
+	{
+		final SharedBlockCache cache = new SharedBlockCache( 4096 * 64 );
+		final Object file = SharedBlockCache.createFileKey( "a", 1, 4096 * 256 );
+		Thread[] threads = new Thread[8];
+		final Throwable[] errors = new Throwable[threads.length];
+		for ( int i = 0; i < threads.length; i++ )
+		{
+			final int index = i;
+			threads[i] = new Thread( ) {
+
+				public void run( )
+				{
+					try
+					{
+						for ( int j = 0; j < 10000; j++ )
+						{
+							int blockId = ( j * 7 + index ) % 256;
+							byte[] block = cache.getBlock( file, blockId );
+							if ( block == null )
+							{
+								block = new byte[4096];
+								block[0] = (byte) blockId;
+								cache.putBlock( file, blockId, block );
+							}
+							assertEquals( (byte) blockId, block[0] );
+						}
+					}
+					catch ( Throwable ex )
+					{
+						errors[index] = ex;
+					}
+				}
+			};
+			threads[i].start( );
+		}
+		for ( int i = 0; i < threads.length; i++ )
+		{
+			threads[i].join( );
+			assertNull( errors[i] );
+		}
+		assertTrue( cache.getUsedCacheSize( ) <= 4096 * 64 );
+		assertEquals( 8 * 10000, cache.getHitCount( ) + cache.getMissCount( ) );
+	}
+}
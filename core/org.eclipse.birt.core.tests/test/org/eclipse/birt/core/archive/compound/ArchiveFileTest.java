@@ -56,6 +56,74 @@ public class ArchiveFileTest extends TestCase
 		archive.close( );
 	}
 	@Test
+    public void testMemoryMapped( ) throws IOException
+	{
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		ArchiveEntry entry = archive.createEntry( "/mapped" );
+		byte[] b = new byte[10000];
+		for ( int i = 0; i < b.length; i++ )
+		{
+			b[i] = (byte) i;
+		}
+		entry.write( 0, b, 0, b.length );
+		entry.close( );
+		createArchive( archive );
+		archive.close( );
+
+		archive = new ArchiveFile( ARCHIVE_FILE, "rm" );
+		checkArchive( archive );
+		entry = archive.openEntry( "/mapped" );
+		byte[] r = new byte[b.length];
+		assertEquals( b.length, entry.read( 0, r, 0, r.length ) );
+		for ( int i = 0; i < b.length; i++ )
+		{
+			assertEquals( b[i], r[i] );
+		}
+		entry.close( );
+		archive.close( );
+		// the file is unmapped when it is closed
+		assertTrue( new File( ARCHIVE_FILE ).delete( ) );
+	}
+	@Test
+    public void testSharedCache( ) throws IOException
+	{
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		createArchive( archive );
+		archive.close( );
+
+		long cacheSize = ArchiveFile.getSharedCacheSize( );
+		ArchiveFile.setSharedCacheSize( 16 * 1024 * 1024 );
+		try
+		{
+			ArchiveFile.sharedBlockCache.resetStatistics( );
+			ArchiveFile reader1 = new ArchiveFile( ARCHIVE_FILE, "r" );
+			ArchiveFile reader2 = new ArchiveFile( ARCHIVE_FILE, "r" );
+			readArchive( reader1 );
+			long missCount = ArchiveFile.sharedBlockCache.getMissCount( );
+			assertTrue( missCount > 0 );
+			// the second reader gets the blocks loaded by the first one
+			readArchive( reader2 );
+			assertEquals( missCount, ArchiveFile.sharedBlockCache
+					.getMissCount( ) );
+			assertTrue( ArchiveFile.sharedBlockCache.getHitCount( ) > 0 );
+			assertTrue( ArchiveFile.getTotalUsedSharedCache( ) > 0 );
+			reader1.close( );
+			reader2.close( );
+
+			// the blocks of the old file are released once it is changed
+			archive = new ArchiveFile( ARCHIVE_FILE, "rw+" );
+			ArchiveEntry entry = archive.createEntry( "/append" );
+			entry.write( 0, new byte[1], 0, 1 );
+			entry.close( );
+			archive.close( );
+			assertEquals( 0, ArchiveFile.getTotalUsedSharedCache( ) );
+		}
+		finally
+		{
+			ArchiveFile.setSharedCacheSize( cacheSize );
+		}
+	}
+	@Test
     public void testArchiveFileNoCache( ) throws IOException
 	{
 		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
@@ -173,6 +241,23 @@ public class ArchiveFileTest extends TestCase
 			}
 		}
 	}
+	void readArchive( ArchiveFile archive ) throws IOException
+	{
+		int entryCount = 1024;
+		byte[] b = new byte[entryCount];
+		for ( int i = 0; i < entryCount; i++ )
+		{
+			ArchiveEntry entry = archive.openEntry( "/entry/" + i );
+			try
+			{
+				assertEquals( i, entry.read( 0, b, 0, i ) );
+			}
+			finally
+			{
+				entry.close( );
+			}
+		}
+	}
 	@Test
     public void testSetTempFileFolder( ) throws IOException
 	{
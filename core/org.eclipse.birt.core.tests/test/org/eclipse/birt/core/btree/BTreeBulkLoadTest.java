@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2008,2010 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.btree;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class BTreeBulkLoadTest extends BTreeTestCase
+{
+
+	@Test
+    public void testBulkLoad( ) throws Exception
+	{
+		// keep one slab in memory, the others are saved in the overflow file
+		OffHeapBTreeFile file = new OffHeapBTreeFile(
+				OffHeapBTreeFile.SLAB_SIZE, null );
+		BTreeOption<Integer, Integer> option = new BTreeOption<Integer, Integer>( );
+		option.setKeySize( 4 );
+		option.setValueSize( 4 );
+		option.setKeySerializer( new IntegerSerializer( ) );
+		option.setValueSerializer( new IntegerSerializer( ) );
+		option.setFile( file, true );
+
+		TreeMap<Integer, Integer> input = new TreeMap<Integer, Integer>( );
+		for ( int i = 0; i < 200000; i++ )
+		{
+			input.put( Integer.valueOf( i * 2 ), Integer.valueOf( i ) );
+		}
+
+		BTree<Integer, Integer> btree = new BTree<Integer, Integer>( option );
+		btree.bulkLoad( input.entrySet( ).iterator( ) );
+		assertEquals( 200000, btree.getTotalKeys( ) );
+		assertEquals( 200000, btree.getTotalValues( ) );
+		btree.close( );
+		assertTrue( file.isOverflowed( ) );
+
+		// re-open the btree and test it is correct
+		btree = new BTree<Integer, Integer>( option );
+		assertEquals( 200000, btree.getTotalKeys( ) );
+		for ( int i = 0; i < 200000; i += 7 )
+		{
+			assertEquals( Integer.valueOf( i ), btree.getValue( Integer
+					.valueOf( i * 2 ) ) );
+			assertFalse( btree.exist( Integer.valueOf( i * 2 + 1 ) ) );
+		}
+		assertFalse( btree.exist( Integer.valueOf( -1 ) ) );
+
+		BTreeCursor<Integer, Integer> cursor = btree.createCursor( );
+		int count = 0;
+		while ( cursor.next( ) )
+		{
+			assertEquals( Integer.valueOf( count * 2 ), cursor.getKey( ) );
+			count++;
+		}
+		assertEquals( 200000, count );
+		while ( cursor.previous( ) )
+		{
+			count--;
+			assertEquals( Integer.valueOf( count * 2 ), cursor.getKey( ) );
+		}
+		assertEquals( 0, count );
+		cursor.close( );
+
+		// the loaded tree can be changed as usual
+		btree.insert( Integer.valueOf( 1 ), Integer.valueOf( 1 ) );
+		assertTrue( btree.exist( Integer.valueOf( 1 ) ) );
+		btree.close( );
+		file.close( );
+	}
+
+	@Test
+    public void testBulkLoadDuplicate( ) throws Exception
+	{
+		BTreeOption<String, Integer> option = new BTreeOption<String, Integer>( );
+		option.setAllowDuplicate( true );
+		option.setFile( new OffHeapBTreeFile( ) );
+
+		ArrayList<Map.Entry<String, Integer>> input = new ArrayList<Map.Entry<String, Integer>>( );
+		for ( int i = 0; i < 1000; i++ )
+		{
+			String key = String.valueOf( 1000 + i );
+			// the values of the last keys are saved in the value nodes
+			int valueCount = i < 990 ? 3 : 2000;
+			for ( int j = 0; j < valueCount; j++ )
+			{
+				TreeMap<String, Integer> entry = new TreeMap<String, Integer>( );
+				entry.put( key, Integer.valueOf( j ) );
+				input.add( entry.entrySet( ).iterator( ).next( ) );
+			}
+		}
+
+		BTree<String, Integer> btree = new BTree<String, Integer>( option );
+		btree.bulkLoad( input.iterator( ) );
+		assertEquals( 1000, btree.getTotalKeys( ) );
+		assertEquals( 990 * 3 + 10 * 2000, btree.getTotalValues( ) );
+
+		Collection<Integer> values = btree.getValues( "1000" );
+		assertEquals( 3, values.size( ) );
+		values = btree.getValues( "1999" );
+		assertEquals( 2000, values.size( ) );
+		int value = 0;
+		for ( Integer v : values )
+		{
+			assertEquals( Integer.valueOf( value++ ), v );
+		}
+		btree.close( );
+	}
+
+	@Test
+    public void testBulkLoadUnsorted( ) throws Exception
+	{
+		BTreeOption<Integer, Integer> option = new BTreeOption<Integer, Integer>( );
+		option.setFile( new RAMBTreeFile( ) );
+		BTree<Integer, Integer> btree = new BTree<Integer, Integer>( option );
+
+		TreeMap<Integer, Integer> input = new TreeMap<Integer, Integer>( );
+		input.put( Integer.valueOf( 1 ), Integer.valueOf( 1 ) );
+		input.put( Integer.valueOf( 2 ), Integer.valueOf( 2 ) );
+		try
+		{
+			btree.bulkLoad( input.descendingMap( ).entrySet( ).iterator( ) );
+			fail( "should throw exception for the unsorted keys" );
+		}
+		catch ( IllegalArgumentException ex )
+		{
+		}
+
+		option.setFile( new RAMBTreeFile( ) );
+		btree = new BTree<Integer, Integer>( option );
+		btree.insert( Integer.valueOf( 0 ), Integer.valueOf( 0 ) );
+		try
+		{
+			btree.bulkLoad( input.entrySet( ).iterator( ) );
+			fail( "should throw exception for the non empty tree" );
+		}
+		catch ( IllegalStateException ex )
+		{
+		}
+	}
+
+	@Test
+    public void testOverflowFileDeleted( ) throws Exception
+	{
+		File overflowFile = File.createTempFile( "btree", ".overflow" );
+		OffHeapBTreeFile file = new OffHeapBTreeFile( 0,
+				overflowFile.getPath( ) );
+		for ( int i = 0; i < OffHeapBTreeFile.SLAB_BLOCK_COUNT * 2; i++ )
+		{
+			file.allocBlock( );
+		}
+		assertTrue( file.isOverflowed( ) );
+		file.close( );
+		// the slabs are unmapped, so the file can be deleted on any platform
+		assertTrue( overflowFile.delete( ) );
+	}
+}
@@ -33,6 +33,18 @@ public class FileArchiveReader extends ArchiveReader
 		super( fileName );
 	}
 
+	/**
+	 * @param fileName -
+	 *            the absolute name of the file archive
+	 * @param memoryMapped -
+	 *            if the file is mapped into memory
+	 */
+	public FileArchiveReader( String fileName, boolean memoryMapped )
+			throws IOException
+	{
+		super( fileName, memoryMapped );
+	}
+
 	/**
 	 * Explode the existing compound file archive to a folder that contains
 	 * corresponding files in it. NOTE: The original file archive will NOT be
@@ -0,0 +1,444 @@
+/*******************************************************************************
+ * Copyright (c) 2009 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive.cache;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A block cache shared by all the read only archive files opened in the JVM.
+ * The blocks of the same file are shared by all the readers of the file, so the
+ * file is read from the disk only once no matter how many readers there are.
+ *
+ * The cached blocks are immutable, a block is never changed once it is put into
+ * the cache. The lookup doesn't lock anything. The insertion locks one of the
+ * segments selected by the hash of the key, and each segment releases its
+ * blocks by the CLOCK algorithm once it uses more than its share of the
+ * budget.
+ *
+ * The file is identified by its name, last modified time and length, so the
+ * blocks of the older version are never returned after the file is changed.
+ */
+public class SharedBlockCache
+{
+
+	static final int DEFAULT_SEGMENT_COUNT = 16;
+
+	/**
+	 * all the cached blocks
+	 */
+	private final ConcurrentHashMap<BlockKey, BlockEntry> blocks;
+	private final Segment[] segments;
+	private final int segmentMask;
+
+	/**
+	 * the max bytes used by the cache, 0 means the cache is disabled.
+	 */
+	private volatile long maxCacheSize;
+
+	private final AtomicLong hitCount = new AtomicLong( );
+	private final AtomicLong missCount = new AtomicLong( );
+	private final AtomicLong evictionCount = new AtomicLong( );
+
+	public SharedBlockCache( )
+	{
+		this( 0 );
+	}
+
+	public SharedBlockCache( long maxCacheSize )
+	{
+		this( maxCacheSize, DEFAULT_SEGMENT_COUNT );
+	}
+
+	/**
+	 * @param maxCacheSize
+	 *            the max bytes used by the cache.
+	 * @param segmentCount
+	 *            the count of the locks, it is rounded up to a power of 2.
+	 */
+	public SharedBlockCache( long maxCacheSize, int segmentCount )
+	{
+		int count = 1;
+		while ( count < segmentCount )
+		{
+			count <<= 1;
+		}
+		this.segments = new Segment[count];
+		for ( int i = 0; i < count; i++ )
+		{
+			segments[i] = new Segment( );
+		}
+		this.segmentMask = count - 1;
+		this.blocks = new ConcurrentHashMap<BlockKey, BlockEntry>( 256, 0.75f,
+				count );
+		this.maxCacheSize = maxCacheSize < 0 ? 0 : maxCacheSize;
+	}
+
+	/**
+	 * set the max bytes used by the cache. The cache is disabled if the size is
+	 * 0, and the cached blocks are released at once if the size is reduced.
+	 *
+	 * @param size
+	 */
+	public void setMaxCacheSize( long size )
+	{
+		maxCacheSize = size < 0 ? 0 : size;
+		for ( Segment segment : segments )
+		{
+			segment.evict( );
+		}
+	}
+
+	public long getMaxCacheSize( )
+	{
+		return maxCacheSize;
+	}
+
+	public boolean isEnabled( )
+	{
+		return maxCacheSize > 0;
+	}
+
+	/**
+	 * @return the bytes used by the cached blocks.
+	 */
+	public long getUsedCacheSize( )
+	{
+		long size = 0;
+		for ( Segment segment : segments )
+		{
+			size += segment.getUsedSize( );
+		}
+		return size;
+	}
+
+	public int getBlockCount( )
+	{
+		return blocks.size( );
+	}
+
+	public long getHitCount( )
+	{
+		return hitCount.get( );
+	}
+
+	public long getMissCount( )
+	{
+		return missCount.get( );
+	}
+
+	public long getEvictionCount( )
+	{
+		return evictionCount.get( );
+	}
+
+	/**
+	 * reset the hit, miss and eviction count.
+	 */
+	public void resetStatistics( )
+	{
+		hitCount.set( 0 );
+		missCount.set( 0 );
+		evictionCount.set( 0 );
+	}
+
+	/**
+	 * create the key which identifies the current version of the file.
+	 *
+	 * @param fileName
+	 *            the canonical file name
+	 * @param lastModified
+	 * @param length
+	 * @return the file key
+	 */
+	public static Object createFileKey( String fileName, long lastModified,
+			long length )
+	{
+		return new FileKey( fileName, lastModified, length );
+	}
+
+	/**
+	 * get the cached block. The returned bytes must not be changed.
+	 *
+	 * @param fileKey
+	 *            the key created by createFileKey
+	 * @param blockId
+	 * @return the block content, null if it is not cached.
+	 */
+	public byte[] getBlock( Object fileKey, int blockId )
+	{
+		BlockEntry entry = blocks.get( new BlockKey( fileKey, blockId ) );
+		if ( entry == null )
+		{
+			missCount.incrementAndGet( );
+			return null;
+		}
+		entry.referenced = true;
+		hitCount.incrementAndGet( );
+		return entry.data;
+	}
+
+	/**
+	 * add the block into the cache. The cache keeps the bytes, so the caller
+	 * must not change them after the call.
+	 *
+	 * @param fileKey
+	 *            the key created by createFileKey
+	 * @param blockId
+	 * @param data
+	 *            the block content
+	 */
+	public void putBlock( Object fileKey, int blockId, byte[] data )
+	{
+		if ( maxCacheSize <= 0 )
+		{
+			return;
+		}
+		BlockKey key = new BlockKey( fileKey, blockId );
+		segments[spread( key.hashCode( ) ) & segmentMask].add( key, data );
+	}
+
+	/**
+	 * release all the blocks of the file, no matter which version it is. It
+	 * should be called once the file is changed.
+	 *
+	 * @param fileName
+	 *            the canonical file name
+	 */
+	public void removeFile( String fileName )
+	{
+		Iterator<BlockKey> iter = blocks.keySet( ).iterator( );
+		while ( iter.hasNext( ) )
+		{
+			BlockKey key = iter.next( );
+			if ( key.fileKey instanceof FileKey
+					&& ( (FileKey) key.fileKey ).fileName.equals( fileName ) )
+			{
+				BlockEntry entry = blocks.get( key );
+				if ( entry != null )
+				{
+					segments[spread( key.hashCode( ) ) & segmentMask]
+							.remove( entry );
+				}
+			}
+		}
+	}
+
+	/**
+	 * release all the cached blocks.
+	 */
+	public void clear( )
+	{
+		for ( Segment segment : segments )
+		{
+			segment.clear( );
+		}
+	}
+
+	private static int spread( int h )
+	{
+		h ^= ( h >>> 20 ) ^ ( h >>> 12 );
+		return h ^ ( h >>> 7 ) ^ ( h >>> 4 );
+	}
+
+	/**
+	 * the blocks inserted through the same segment are linked in a ring, and
+	 * the hand of the clock moves along the ring to find the blocks which are
+	 * not referenced since the last visit.
+	 */
+	private class Segment
+	{
+
+		private BlockEntry hand;
+		private long usedSize;
+
+		synchronized long getUsedSize( )
+		{
+			return usedSize;
+		}
+
+		synchronized void add( BlockKey key, byte[] data )
+		{
+			BlockEntry entry = new BlockEntry( key, data );
+			if ( blocks.putIfAbsent( key, entry ) != null )
+			{
+				// loaded by another reader at the same time
+				return;
+			}
+			if ( hand == null )
+			{
+				entry.prev = entry;
+				entry.next = entry;
+				hand = entry;
+			}
+			else
+			{
+				// insert it just behind the hand, so it is the last one visited
+				entry.next = hand;
+				entry.prev = hand.prev;
+				hand.prev.next = entry;
+				hand.prev = entry;
+			}
+			usedSize += data.length;
+			evict( );
+		}
+
+		synchronized void evict( )
+		{
+			long segmentSize = maxCacheSize / segments.length;
+			while ( hand != null && usedSize > segmentSize )
+			{
+				if ( hand.referenced )
+				{
+					hand.referenced = false;
+					hand = hand.next;
+				}
+				else
+				{
+					BlockEntry victim = hand;
+					unlink( victim );
+					evictionCount.incrementAndGet( );
+				}
+			}
+		}
+
+		synchronized void remove( BlockEntry entry )
+		{
+			// the entry may has been released by the clock
+			if ( entry.next != null )
+			{
+				unlink( entry );
+			}
+		}
+
+		synchronized void clear( )
+		{
+			while ( hand != null )
+			{
+				unlink( hand );
+			}
+		}
+
+		private void unlink( BlockEntry entry )
+		{
+			if ( entry.next == entry )
+			{
+				hand = null;
+			}
+			else
+			{
+				entry.prev.next = entry.next;
+				entry.next.prev = entry.prev;
+				if ( hand == entry )
+				{
+					hand = entry.next;
+				}
+			}
+			entry.prev = null;
+			entry.next = null;
+			usedSize -= entry.data.length;
+			blocks.remove( entry.key, entry );
+		}
+	}
+
+	private static class BlockEntry
+	{
+
+		final BlockKey key;
+		final byte[] data;
+		volatile boolean referenced;
+		// guarded by the segment
+		BlockEntry prev;
+		BlockEntry next;
+
+		BlockEntry( BlockKey key, byte[] data )
+		{
+			this.key = key;
+			this.data = data;
+		}
+	}
+
+	private static class BlockKey
+	{
+
+		final Object fileKey;
+		final int blockId;
+		final int hash;
+
+		BlockKey( Object fileKey, int blockId )
+		{
+			this.fileKey = fileKey;
+			this.blockId = blockId;
+			this.hash = fileKey.hashCode( ) * 31 + blockId;
+		}
+
+		public int hashCode( )
+		{
+			return hash;
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( this == obj )
+			{
+				return true;
+			}
+			if ( !( obj instanceof BlockKey ) )
+			{
+				return false;
+			}
+			BlockKey key = (BlockKey) obj;
+			return blockId == key.blockId && fileKey.equals( key.fileKey );
+		}
+	}
+
+	private static class FileKey
+	{
+
+		final String fileName;
+		final long lastModified;
+		final long length;
+
+		FileKey( String fileName, long lastModified, long length )
+		{
+			this.fileName = fileName;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		public int hashCode( )
+		{
+			return fileName.hashCode( ) ^ (int) ( lastModified ^ length );
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( this == obj )
+			{
+				return true;
+			}
+			if ( !( obj instanceof FileKey ) )
+			{
+				return false;
+			}
+			FileKey key = (FileKey) obj;
+			return lastModified == key.lastModified && length == key.length
+					&& fileName.equals( key.fileName );
+		}
+
+		public String toString( )
+		{
+			return fileName;
+		}
+	}
+}
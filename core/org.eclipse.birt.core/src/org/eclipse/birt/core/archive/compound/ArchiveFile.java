@@ -22,6 +22,7 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.eclipse.birt.core.archive.FolderArchiveFile;
+import org.eclipse.birt.core.archive.cache.SharedBlockCache;
 import org.eclipse.birt.core.archive.cache.SystemCacheManager;
 import org.eclipse.birt.core.archive.compound.v3.Ext2FileSystem;
 import org.eclipse.birt.core.i18n.CoreMessages;
@@ -39,6 +40,11 @@ public class ArchiveFile implements IArchiveFile
 			1024 );
 	public static final boolean enableFileCache = true;
 	public static final int FILE_CACHE_SIZE = 1024;
+	/**
+	 * the block cache shared by the readers of the same file, it is disabled
+	 * until the size is set by setSharedCacheSize.
+	 */
+	public static final SharedBlockCache sharedBlockCache = new SharedBlockCache( );
 
 	static final long ARCHIVE_V2_TAG = ArchiveConstants.DOCUMENT_TAG;
 	static final long ARCHIVE_V3_TAG = Ext2FileSystem.EXT2_MAGIC_TAG;
@@ -56,6 +62,11 @@ public class ArchiveFile implements IArchiveFile
 
 	protected IArchiveFile af;
 
+	/**
+	 * if the compound file is mapped into memory in read mode
+	 */
+	private boolean memoryMapped;
+
 	public ArchiveFile( String fileName, String mode ) throws IOException
 	{
 		// set blank string as the default system id of the archive file.
@@ -78,6 +89,12 @@ public class ArchiveFile implements IArchiveFile
 		{
 			openArchiveForReading( );
 		}
+		else if ( "rm".equals( mode ) )
+		{
+			// read only, the compound file is mapped into memory
+			memoryMapped = true;
+			openArchiveForReading( );
+		}
 		else if ( "rw+".equals( mode ) )
 		{
 			openArchiveForAppending( );
@@ -121,7 +138,9 @@ public class ArchiveFile implements IArchiveFile
 			}
 			else if ( magicTag == ARCHIVE_V3_TAG )
 			{
-				ArchiveFileV3 fs = new ArchiveFileV3( archiveName, rf, "r" );
+				ArchiveFileV3 fs = new ArchiveFileV3( archiveName,
+						rf,
+						getReadMode( ) );
 				upgradeSystemId( fs );
 				af = fs;
 			}
@@ -129,7 +148,8 @@ public class ArchiveFile implements IArchiveFile
 			{
 				tmpFileName = getTmpFileName( );
 				unzip( archiveName, tmpFileName );
-				ArchiveFileV3 fs = new ArchiveFileV3( tmpFileName, "r" );
+				ArchiveFileV3 fs = new ArchiveFileV3( tmpFileName,
+						getReadMode( ) );
 				af = fs;
 			}
 			else
@@ -144,6 +164,11 @@ public class ArchiveFile implements IArchiveFile
 		}
 	}
 
+	private String getReadMode( )
+	{
+		return memoryMapped ? "rm" : "r";
+	}
+
 	protected void openArchiveForAppending( ) throws IOException
 	{
 		// we need upgrade the document
@@ -278,6 +303,28 @@ public class ArchiveFile implements IArchiveFile
 		}
 	}
 
+	/**
+	 * set the max bytes of the block cache shared by all the archives opened
+	 * in "r" mode. 0 disables the shared cache.
+	 * 
+	 * @param size
+	 *            the max bytes
+	 */
+	static public void setSharedCacheSize( long size )
+	{
+		sharedBlockCache.setMaxCacheSize( size );
+	}
+
+	static public long getSharedCacheSize( )
+	{
+		return sharedBlockCache.getMaxCacheSize( );
+	}
+
+	static public long getTotalUsedSharedCache( )
+	{
+		return sharedBlockCache.getUsedCacheSize( );
+	}
+
 	public void saveAs( String fileName ) throws IOException
 	{
 		ArchiveFileV3 file = new ArchiveFileV3( fileName, "rw" );
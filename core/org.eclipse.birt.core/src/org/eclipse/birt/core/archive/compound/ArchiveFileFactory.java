@@ -67,8 +67,9 @@ public class ArchiveFileFactory implements IArchiveFileFactory
 	 *  - r		read 
 	 *  - rw	read & write (Here should first create a new file)
 	 *  - rw+	read & append
+	 *  - rm	read, the file is mapped into memory
 	 *  
-	 *  1. in "r" mode
+	 *  1. in "r" or "rm" mode
 	 *  	a. view: open view in r mode, and open archive in r mode at the same time.
 	 *  	b. archive: open archive in r mode directly.
 	 *  
@@ -88,7 +89,8 @@ public class ArchiveFileFactory implements IArchiveFileFactory
 		String dependId = file.getDependId( );
 		if ( dependId != null && dependId.length( ) > 0 )
 		{
-			IArchiveFile archive = openArchive( dependId, "r" );
+			IArchiveFile archive = openArchive( dependId,
+					"rm".equals( mode ) ? "rm" : "r" );
 			return new ArchiveView( file, archive, false );
 		}
 		return file;
@@ -46,6 +46,7 @@ public class ArchiveFileV3 implements IArchiveFile
 		{
 			fs.setCacheSize( ArchiveFile.FILE_CACHE_SIZE );
 		}
+		fs.setSharedCache( ArchiveFile.sharedBlockCache );
 	}
 
 	synchronized public void close( ) throws IOException
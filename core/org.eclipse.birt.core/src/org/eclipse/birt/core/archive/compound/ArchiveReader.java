@@ -36,6 +36,20 @@ public class ArchiveReader implements IDocArchiveReader
 	}
 
 	public ArchiveReader( String archiveName ) throws IOException
+	{
+		this( archiveName, false );
+	}
+
+	/**
+	 * @param archiveName
+	 *            the archive file name
+	 * @param memoryMapped
+	 *            if the archive is mapped into memory, which saves the file
+	 *            reads for large documents
+	 * @throws IOException
+	 */
+	public ArchiveReader( String archiveName, boolean memoryMapped )
+			throws IOException
 	{
 		if ( archiveName == null || archiveName.length( ) == 0 )
 		{
@@ -54,7 +68,7 @@ public class ArchiveReader implements IDocArchiveReader
 		// absolute path
 
 		shareArchive = false;
-		archive = new ArchiveFile( archiveName, "r" );
+		archive = new ArchiveFile( archiveName, memoryMapped ? "rm" : "r" );
 	}
 
 	public void close( ) throws IOException
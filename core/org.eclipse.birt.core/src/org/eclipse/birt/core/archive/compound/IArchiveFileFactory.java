@@ -21,6 +21,8 @@ public interface IArchiveFileFactory
 	 * 	- "r" 	the archive file is opened for read only. 
 	 * 	- "rw" 	the archive file is opened for read and write.
 	 *  - "rw+"	the archive file is opened for read and append.
+	 *  - "rm"	the archive file is opened for read only, and is mapped into
+	 *  		memory. The depend archive is opened in the same mode.
 	 * 
 	 * 1. in "r" mode
 	 * 		a. view: open view in r mode, and open archive in r mode at the same time.
@@ -12,6 +12,7 @@
 package org.eclipse.birt.core.archive.compound.v3;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.eclipse.birt.core.i18n.CoreMessages;
 import org.eclipse.birt.core.i18n.ResourceConstants;
@@ -184,7 +185,10 @@ public class Ext2File
 			return 0;
 		}
 
-		if ( enableCache )
+		// the mapped file is read directly, the block cache only adds a copy.
+		// the shared blocks are cached by the file system.
+		if ( enableCache && !fs.isMemoryMapped( )
+				&& !fs.isSharedCacheEnabled( ) )
 		{
 			return read_with_cache( buffer, off, size );
 		}
@@ -211,11 +215,11 @@ public class Ext2File
 		int fileBlockId = getDataBlock( blockId );
 		if ( size <= blockSize )
 		{
-			fs.readBlock( fileBlockId, blockOff, buffer, off, size );
+			readDataBlock( fileBlockId, blockOff, buffer, off, size );
 		}
 		else
 		{
-			fs.readBlock( fileBlockId, blockOff, buffer, off, blockSize );
+			readDataBlock( fileBlockId, blockOff, buffer, off, blockSize );
 			off += blockSize;
 			int remainSize = size - blockSize;
 			int wholeBlocks = remainSize >> BLOCK_SIZE_BITS;
@@ -223,10 +227,7 @@ public class Ext2File
 			{
 				blockId++;
 				fileBlockId = getDataBlock( blockId );
-				if ( fileBlockId != -1 )
-				{
-					fs.readBlock( fileBlockId, 0, buffer, off, BLOCK_SIZE );
-				}
+				readDataBlock( fileBlockId, 0, buffer, off, BLOCK_SIZE );
 				off += BLOCK_SIZE;
 			}
 			remainSize = remainSize & BLOCK_OFFSET_MASK;
@@ -234,16 +235,30 @@ public class Ext2File
 			{
 				blockId++;
 				fileBlockId = getDataBlock( blockId );
-				if ( fileBlockId != -1 )
-				{
-					fs.readBlock( fileBlockId, 0, buffer, off, remainSize );
-				}
+				readDataBlock( fileBlockId, 0, buffer, off, remainSize );
 			}
 		}
 		position += size;
 		return size;
 	}
 
+	/**
+	 * A file opened read only has no data block for the blocks which are
+	 * never written, getDataBlock returns -1 for them. They are read as
+	 * zeros, the same as the read only block of the cached read, instead of
+	 * reading the file system at a negative position.
+	 */
+	private void readDataBlock( int fileBlockId, int blockOff, byte[] buffer,
+			int off, int size ) throws IOException
+	{
+		if ( fileBlockId == -1 )
+		{
+			Arrays.fill( buffer, off, off + size, (byte) 0 );
+			return;
+		}
+		fs.readBlock( fileBlockId, blockOff, buffer, off, size );
+	}
+
 	private int read_with_cache( byte[] buffer, int off, int size )
 			throws IOException
 	{
@@ -27,6 +27,7 @@ import java.util.Map.Entry;
 import org.eclipse.birt.core.archive.cache.CacheListener;
 import org.eclipse.birt.core.archive.cache.Cacheable;
 import org.eclipse.birt.core.archive.cache.FileCacheManager;
+import org.eclipse.birt.core.archive.cache.SharedBlockCache;
 import org.eclipse.birt.core.archive.cache.SystemCacheManager;
 import org.eclipse.birt.core.i18n.CoreMessages;
 import org.eclipse.birt.core.i18n.ResourceConstants;
@@ -49,6 +50,19 @@ public class Ext2FileSystem
 	private boolean readOnly;
 	private boolean removeOnExit;
 
+	/**
+	 * the file content mapped into memory, only used in "rm" mode
+	 */
+	private volatile MappedBlockBuffer mappedBuffer;
+	private boolean memoryMapped;
+
+	/**
+	 * the block cache shared by all the readers of the file in the JVM, the
+	 * key is only created in "r" mode
+	 */
+	private volatile SharedBlockCache sharedCache;
+	private volatile Object sharedCacheKey;
+
 	/**
 	 * properties saved in the file header
 	 */
@@ -81,7 +95,9 @@ public class Ext2FileSystem
 	 *            mode, if the file exist, create a empty one. "rw+": read write
 	 *            mode, if the file exist, open the exits file. "rwt": read
 	 *            write cache mode, if the file exist, create a empty one. the
-	 *            file is removed after the file is closed.
+	 *            file is removed after the file is closed. "rm": read mode,
+	 *            the file is mapped into memory and the data is read from
+	 *            the mapped buffers directly.
 	 * @throws IOException
 	 */
 	public Ext2FileSystem( String filePath, String mode ) throws IOException
@@ -127,6 +143,15 @@ public class Ext2FileSystem
 			return;
 		}
 
+		if ( "rm".equals( mode ) )
+		{
+			readOnly = true;
+			removeOnExit = false;
+			memoryMapped = true;
+			openFileSystem( );
+			return;
+		}
+
 		if ( "rwt".equals( mode ) )
 		{
 			readOnly = false;
@@ -153,6 +178,10 @@ public class Ext2FileSystem
 		}
 		length = rf.length( );
 		maxBlockId = (int) ( ( length + BLOCK_SIZE - 1 ) / BLOCK_SIZE ) + 1;
+		if ( memoryMapped )
+		{
+			mappedBuffer = new MappedBlockBuffer( rf.getChannel( ), length );
+		}
 
 		readHeader( );
 		nodeTable.read( );
@@ -210,6 +239,11 @@ public class Ext2FileSystem
 				nodeTable.write( NodeTable.INODE_FREE_TABLE );
 				cacheManager.touchAllCaches( );
 				writeHeader( );
+				// the blocks read before the change are out of date
+				if ( sharedCache != null && sharedCache.isEnabled( ) )
+				{
+					sharedCache.removeFile( fileName );
+				}
 			}
 
 			properties.clear( );
@@ -220,6 +254,11 @@ public class Ext2FileSystem
 		}
 		finally
 		{
+			if ( mappedBuffer != null )
+			{
+				mappedBuffer.close( );
+				mappedBuffer = null;
+			}
 			if ( rf != null )
 			{
 				rf.close( );
@@ -284,6 +323,43 @@ public class Ext2FileSystem
 		return removeOnExit;
 	}
 
+	/**
+	 * @return true if the file is opened in "rm" mode
+	 */
+	public boolean isMemoryMapped( )
+	{
+		return memoryMapped;
+	}
+
+	/**
+	 * use the block cache shared with the other readers of the same file. The
+	 * blocks are only shared in "r" mode, the other modes just release the
+	 * shared blocks of the file once the file is changed.
+	 * 
+	 * @param cache
+	 *            the shared cache
+	 */
+	synchronized public void setSharedCache( SharedBlockCache cache )
+	{
+		sharedCache = cache;
+		sharedCacheKey = null;
+		if ( cache != null && readOnly && !memoryMapped && rf != null )
+		{
+			File file = new File( fileName );
+			sharedCacheKey = SharedBlockCache.createFileKey( fileName, file
+					.lastModified( ), length );
+		}
+	}
+
+	/**
+	 * @return true if the blocks are read through the shared cache.
+	 */
+	public boolean isSharedCacheEnabled( )
+	{
+		SharedBlockCache cache = sharedCache;
+		return sharedCacheKey != null && cache != null && cache.isEnabled( );
+	}
+
 	synchronized void registerOpenedFile( Ext2File file )
 	{
 		openedFiles.add( file );
@@ -587,8 +663,8 @@ public class Ext2FileSystem
 		readBlock( blockId, offset, buffer, offset, size );
 	}
 
-	synchronized void readBlock( int blockId, int blockOff, byte[] buffer,
-			int offset, int size ) throws IOException
+	void readBlock( int blockId, int blockOff, byte[] buffer, int offset,
+			int size ) throws IOException
 	{
 		assert buffer != null;
 		assert blockId >= 0;
@@ -598,6 +674,51 @@ public class Ext2FileSystem
 		assert blockOff + size <= BLOCK_SIZE;
 
 		long position = ( ( (long) blockId ) << BLOCK_SIZE_BITS ) + blockOff;
+		if ( memoryMapped )
+		{
+			// the mapped buffer needn't lock the file system
+			MappedBlockBuffer buffers = mappedBuffer;
+			if ( buffers == null )
+			{
+				throw new IOException(
+						CoreMessages.getString( ResourceConstants.FILE_HAS_BEEN_CLOSED ) );
+			}
+			if ( position < length )
+			{
+				buffers.read( position, buffer, offset, size );
+			}
+			return;
+		}
+		if ( isSharedCacheEnabled( ) )
+		{
+			readSharedBlock( blockId, blockOff, buffer, offset, size );
+			return;
+		}
+		readFileBlock( position, buffer, offset, size );
+	}
+
+	/**
+	 * read the block from the shared cache, the whole block is loaded into the
+	 * cache if it is not cached yet. Only a miss locks the file system.
+	 */
+	private void readSharedBlock( int blockId, int blockOff, byte[] buffer,
+			int offset, int size ) throws IOException
+	{
+		SharedBlockCache cache = sharedCache;
+		byte[] block = cache.getBlock( sharedCacheKey, blockId );
+		if ( block == null )
+		{
+			block = new byte[BLOCK_SIZE];
+			readFileBlock( ( (long) blockId ) << BLOCK_SIZE_BITS, block, 0,
+					BLOCK_SIZE );
+			cache.putBlock( sharedCacheKey, blockId, block );
+		}
+		System.arraycopy( block, blockOff, buffer, offset, size );
+	}
+
+	synchronized private void readFileBlock( long position, byte[] buffer,
+			int offset, int size ) throws IOException
+	{
 		if ( position < length )
 		{
 			long remainSize = length - position;
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2009 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive.compound.v3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.birt.core.i18n.CoreMessages;
+import org.eclipse.birt.core.i18n.ResourceConstants;
+import org.eclipse.birt.core.util.MappedBufferUtil;
+
+/**
+ * The read only content of a file which is mapped into memory in chunks. The
+ * chunk size is a multiple of the block size, so a block is always in one
+ * chunk. The reads don't change the state of the mapped buffers, so they
+ * only share a read lock, which keeps the buffers from being unmapped while
+ * they are read.
+ */
+class MappedBlockBuffer
+{
+
+	static final int CHUNK_SIZE_BITS = 26;
+	static final int CHUNK_SIZE = 1 << CHUNK_SIZE_BITS;
+	static final int CHUNK_OFFSET_MASK = CHUNK_SIZE - 1;
+
+	private final long length;
+	private volatile ByteBuffer[] chunks;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock( );
+
+	/**
+	 * map the first length bytes of the file.
+	 *
+	 * @param channel
+	 * @param length
+	 * @throws IOException
+	 */
+	MappedBlockBuffer( FileChannel channel, long length ) throws IOException
+	{
+		this.length = length;
+		int chunkCount = (int) ( ( length + CHUNK_SIZE - 1 ) >>> CHUNK_SIZE_BITS );
+		ByteBuffer[] buffers = new ByteBuffer[chunkCount];
+		for ( int i = 0; i < chunkCount; i++ )
+		{
+			long position = ( (long) i ) << CHUNK_SIZE_BITS;
+			long size = Math.min( CHUNK_SIZE, length - position );
+			buffers[i] = channel.map( FileChannel.MapMode.READ_ONLY,
+					position,
+					size );
+		}
+		this.chunks = buffers;
+	}
+
+	/**
+	 * read the bytes at the position. The bytes after the end of file are
+	 * not changed.
+	 *
+	 * @param position
+	 * @param buffer
+	 * @param offset
+	 * @param size
+	 * @throws IOException
+	 */
+	void read( long position, byte[] buffer, int offset, int size )
+			throws IOException
+	{
+		lock.readLock( ).lock( );
+		try
+		{
+			ByteBuffer[] buffers = chunks;
+			if ( buffers == null )
+			{
+				throw new IOException(
+						CoreMessages.getString( ResourceConstants.FILE_HAS_BEEN_CLOSED ) );
+			}
+			if ( position + size > length )
+			{
+				size = (int) ( length - position );
+			}
+			while ( size > 0 )
+			{
+				int chunkIndex = (int) ( position >>> CHUNK_SIZE_BITS );
+				int chunkOffset = (int) ( position & CHUNK_OFFSET_MASK );
+				ByteBuffer chunk = buffers[chunkIndex].duplicate( );
+				int readSize = Math.min( size, chunk.limit( ) - chunkOffset );
+				chunk.position( chunkOffset );
+				chunk.get( buffer, offset, readSize );
+				position += readSize;
+				offset += readSize;
+				size -= readSize;
+			}
+		}
+		finally
+		{
+			lock.readLock( ).unlock( );
+		}
+	}
+
+	/**
+	 * unmap the buffers once the pending reads finish, the file can be
+	 * removed after that.
+	 */
+	void close( )
+	{
+		lock.writeLock( ).lock( );
+		try
+		{
+			ByteBuffer[] buffers = chunks;
+			chunks = null;
+			if ( buffers != null )
+			{
+				for ( int i = 0; i < buffers.length; i++ )
+				{
+					MappedBufferUtil.unmap( buffers[i] );
+				}
+			}
+		}
+		finally
+		{
+			lock.writeLock( ).unlock( );
+		}
+	}
+}
@@ -463,6 +463,208 @@ public class BTree<K, V> implements BTreeConstants
 		insertEntry( k, vs );
 	}
 
+	/**
+	 * build the tree from the sorted entries. The nodes are filled one by one
+	 * from the leaves up to the root, which is much faster than inserting the
+	 * keys one by one and leaves no half filled nodes.
+	 * <p>
+	 * The tree must be empty and the entries must be sorted by the comparator
+	 * of the tree. The values of the same key are merged if the tree allows
+	 * duplicate values, otherwise the last value is kept.
+	 * 
+	 * @param entries
+	 *            the sorted entries
+	 * @throws IOException
+	 */
+	public void bulkLoad( Iterator<? extends Map.Entry<K, V>> entries )
+			throws IOException
+	{
+		if ( readOnly )
+		{
+			throw new IOException(
+					CoreMessages.getString( ResourceConstants.READ_ONLY_TREE ) );
+		}
+		if ( rootNodeId != -1 )
+		{
+			throw new IllegalStateException( "The tree is not empty" );
+		}
+		if ( !entries.hasNext( ) )
+		{
+			return;
+		}
+
+		// the first key of each leaf, which is indexed by the upper level
+		ArrayList<IndexEntry<K, V>> children = new ArrayList<IndexEntry<K, V>>( );
+		LeafNode<K, V> leaf = null;
+		try
+		{
+			Map.Entry<K, V> entry = entries.next( );
+			K lastKey = entry.getKey( );
+			BTreeValues<V> lastValues = createValues( null, entry.getValue( ) );
+			while ( entries.hasNext( ) )
+			{
+				entry = entries.next( );
+				K key = entry.getKey( );
+				int result = compareKey( lastKey, key );
+				if ( result > 0 )
+				{
+					throw new IllegalArgumentException( "The keys are not sorted" );
+				}
+				if ( result == 0 )
+				{
+					lastValues = createValues( lastValues, entry.getValue( ) );
+					continue;
+				}
+				leaf = appendLeafEntry( leaf, children, lastKey, lastValues );
+				lastKey = key;
+				lastValues = createValues( null, entry.getValue( ) );
+			}
+			leaf = appendLeafEntry( leaf, children, lastKey, lastValues );
+		}
+		finally
+		{
+			if ( leaf != null )
+			{
+				leaf.unlock( );
+			}
+		}
+		totalLevels = 1;
+
+		// build the index levels until there is only one node
+		while ( children.size( ) > 1 )
+		{
+			ArrayList<IndexEntry<K, V>> parents = new ArrayList<IndexEntry<K, V>>( );
+			IndexNode<K, V> node = null;
+			try
+			{
+				int childCount = children.size( );
+				for ( int i = 0; i < childCount; i++ )
+				{
+					IndexEntry<K, V> child = children.get( i );
+					// never leave the last child alone in a node
+					if ( node != null
+							&& ( i == childCount - 1 || node
+									.canAppendIndex( child.getKey( ) ) ) )
+					{
+						node.appendIndex( child.getKey( ), child
+								.getChildNodeId( ) );
+						continue;
+					}
+					IndexNode<K, V> newNode = createIndexNode( );
+					newNode.setNextNodeId( -1 );
+					newNode.setFirstChild( child.getChildNodeId( ) );
+					if ( node == null )
+					{
+						newNode.setPrevNodeId( -1 );
+					}
+					else
+					{
+						newNode.setPrevNodeId( node.getNodeId( ) );
+						node.setNextNodeId( newNode.getNodeId( ) );
+						node.unlock( );
+					}
+					node = newNode;
+					parents.add( new IndexEntry<K, V>( null, child.getKey( ),
+							node.getNodeId( ) ) );
+				}
+			}
+			finally
+			{
+				if ( node != null )
+				{
+					node.unlock( );
+				}
+			}
+			children = parents;
+			totalLevels++;
+		}
+		rootNodeId = children.get( 0 ).getChildNodeId( );
+	}
+
+	private LeafNode<K, V> appendLeafEntry( LeafNode<K, V> leaf,
+			ArrayList<IndexEntry<K, V>> children, K k, BTreeValues<V> values )
+			throws IOException
+	{
+		if ( k == null && !allowNullKey )
+		{
+			throw new NullPointerException( "key can not be null" );
+		}
+		if ( values != null && values.getValueSize( ) > MAX_NODE_SIZE / 2 )
+		{
+			values = createExternalValueList( values );
+		}
+		BTreeValue<K> key = createKey( k );
+		if ( leaf == null || !leaf.canAppend( key, values ) )
+		{
+			LeafNode<K, V> newLeaf = createLeafNode( );
+			newLeaf.setNextNodeId( -1 );
+			if ( leaf == null )
+			{
+				newLeaf.setPrevNodeId( -1 );
+			}
+			else
+			{
+				newLeaf.setPrevNodeId( leaf.getNodeId( ) );
+				leaf.setNextNodeId( newLeaf.getNodeId( ) );
+				leaf.unlock( );
+			}
+			leaf = newLeaf;
+			children.add( new IndexEntry<K, V>( null, key, leaf.getNodeId( ) ) );
+		}
+		leaf.append( key, values );
+		totalKeys++;
+		if ( values != null )
+		{
+			totalValues += values.getValueCount( );
+		}
+		return leaf;
+	}
+
+	/**
+	 * add the value into the values of the same key.
+	 * 
+	 * @param values
+	 *            the values of the key, null for the first value.
+	 * @param v
+	 * @return the values including the value
+	 * @throws IOException
+	 */
+	private BTreeValues<V> createValues( BTreeValues<V> values, V v )
+			throws IOException
+	{
+		if ( !hasValue )
+		{
+			return null;
+		}
+		if ( !allowDuplicate )
+		{
+			return new SingleValueList<K, V>( this, createValue( v ) );
+		}
+		if ( values == null )
+		{
+			values = new InlineValueList<K, V>( this );
+		}
+		values.append( createValue( v ) );
+		return values;
+	}
+
+	private int compareKey( K key1, K key2 )
+	{
+		if ( key1 == key2 )
+		{
+			return 0;
+		}
+		if ( key1 == null )
+		{
+			return -1;
+		}
+		if ( key2 == null )
+		{
+			return 1;
+		}
+		return comparator.compare( key1, key2 );
+	}
+
 	public void remove( K key ) throws IOException
 	{
 		LeafEntry<K, V> entry = findEntry( key );
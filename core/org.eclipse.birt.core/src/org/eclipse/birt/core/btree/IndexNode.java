@@ -270,6 +270,39 @@ public class IndexNode<K, V> extends BTreeNode<K, V>
 		return;
 	}
 
+	/**
+	 * test if the index can be appended without exceeding the node size.
+	 * 
+	 * @param key
+	 * @return true if the node has enough room for the index
+	 */
+	boolean canAppendIndex( BTreeValue<K> key )
+	{
+		if ( entries.size( ) <= MIN_ENTRY_COUNT )
+		{
+			return true;
+		}
+		return nodeSize + 4 + btree.getKeySize( key ) <= MAX_NODE_SIZE;
+	}
+
+	/**
+	 * append the index after the last index of this node. It is used to build
+	 * the tree from the sorted keys, the caller must ensure the key is greater
+	 * than the existing keys.
+	 * 
+	 * @param key
+	 *            the first key of the child
+	 * @param childNodeId
+	 */
+	void appendIndex( BTreeValue<K> key, int childNodeId )
+	{
+		IndexEntry<K, V> newEntry = new IndexEntry<K, V>( this, key,
+				childNodeId );
+		entries.add( newEntry );
+		nodeSize += getEntrySize( newEntry );
+		dirty = true;
+	}
+
 	public boolean needSplit( )
 	{
 		return nodeSize > MAX_NODE_SIZE && entries.size( ) > MIN_ENTRY_COUNT;
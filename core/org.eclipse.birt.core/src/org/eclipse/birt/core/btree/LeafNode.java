@@ -273,6 +273,41 @@ class LeafNode<K, V> extends BTreeNode<K, V>
 		nodeSize += getEntrySize( entry );
 	}
 
+	/**
+	 * test if the entry can be appended without exceeding the node size.
+	 * 
+	 * @param key
+	 * @param values
+	 * @return true if the node has enough room for the entry
+	 */
+	boolean canAppend( BTreeValue<K> key, BTreeValues<V> values )
+	{
+		if ( entries.size( ) <= MIN_ENTRY_COUNT )
+		{
+			return true;
+		}
+		return nodeSize + getEntrySize( key, values ) <= MAX_NODE_SIZE;
+	}
+
+	/**
+	 * append the entry after the last entry of this node. It is used to build
+	 * the tree from the sorted keys, the caller must ensure the key is greater
+	 * than the existing keys.
+	 * 
+	 * @param key
+	 * @param values
+	 * @return the appended entry
+	 * @throws IOException
+	 */
+	LeafEntry<K, V> append( BTreeValue<K> key, BTreeValues<V> values )
+			throws IOException
+	{
+		dirty = true;
+		LeafEntry<K, V> entry = new LeafEntry<K, V>( this, key, values );
+		insert( entries.size( ), entry );
+		return entry;
+	}
+
 	public boolean needSplit( )
 	{
 		return nodeSize > MAX_NODE_SIZE && entries.size( ) > MIN_ENTRY_COUNT;
@@ -384,10 +419,14 @@ class LeafNode<K, V> extends BTreeNode<K, V>
 
 	private int getEntrySize( LeafEntry<K, V> entry )
 	{
-		int keySize = btree.getKeySize( entry.getKey( ) );
+		return getEntrySize( entry.getKey( ), entry.getValues( ) );
+	}
+
+	private int getEntrySize( BTreeValue<K> key, BTreeValues<V> values )
+	{
+		int keySize = btree.getKeySize( key );
 		if ( btree.hasValue( ) )
 		{
-			BTreeValues<V> values = entry.getValues( );
 			if ( btree.allowDuplicate( ) )
 			{
 				return keySize + 4 + values.getValueSize( );
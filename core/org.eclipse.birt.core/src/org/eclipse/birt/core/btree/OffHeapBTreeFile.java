@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2008,2010 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.btree;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+
+import org.eclipse.birt.core.i18n.CoreMessages;
+import org.eclipse.birt.core.i18n.ResourceConstants;
+import org.eclipse.birt.core.util.MappedBufferUtil;
+
+/**
+ * A btree file which saves the blocks out of the java heap. The blocks are
+ * allocated in slabs of direct byte buffers. Once the slabs use up the memory
+ * limit, the following slabs are mapped from the overflow file, so a large
+ * tree neither uses the heap nor pays the cost of a file seek per block.
+ *
+ * The file is a temporary storage, the content is lost after it is closed.
+ */
+public class OffHeapBTreeFile implements NodeFile
+{
+
+	static final int SLAB_BLOCK_BITS = 8;
+	static final int SLAB_BLOCK_COUNT = 1 << SLAB_BLOCK_BITS;
+	static final int SLAB_BLOCK_MASK = SLAB_BLOCK_COUNT - 1;
+	static final int SLAB_SIZE = SLAB_BLOCK_COUNT * BLOCK_SIZE;
+
+	/**
+	 * the max slabs allocated in the direct memory
+	 */
+	private int maxMemorySlabs;
+	private String overflowFileName;
+	private boolean removeOverflowFile;
+
+	private ArrayList<ByteBuffer> slabs = new ArrayList<ByteBuffer>( );
+	private int totalBlock;
+
+	private RandomAccessFile overflowFile;
+	private FileChannel overflowChannel;
+
+	/**
+	 * create a file which saves all the blocks in the direct memory.
+	 */
+	public OffHeapBTreeFile( )
+	{
+		this( Long.MAX_VALUE, null );
+	}
+
+	/**
+	 * @param maxMemorySize
+	 *            the max bytes allocated in the direct memory.
+	 * @param overflowFileName
+	 *            the file used once the memory is used up. If it is null, a
+	 *            temporary file is created and removed after closed.
+	 */
+	public OffHeapBTreeFile( long maxMemorySize, String overflowFileName )
+	{
+		long memorySlabs = maxMemorySize / SLAB_SIZE;
+		this.maxMemorySlabs = memorySlabs > Integer.MAX_VALUE
+				? Integer.MAX_VALUE
+				: (int) memorySlabs;
+		this.overflowFileName = overflowFileName;
+	}
+
+	public void close( ) throws IOException
+	{
+		// the mapped slabs must be unmapped before the overflow file can be
+		// deleted on some platforms, the direct slabs are released as well
+		for ( int i = 0; i < slabs.size( ); i++ )
+		{
+			MappedBufferUtil.unmap( slabs.get( i ) );
+		}
+		slabs.clear( );
+		totalBlock = 0;
+		if ( overflowFile != null )
+		{
+			try
+			{
+				overflowChannel = null;
+				overflowFile.close( );
+			}
+			finally
+			{
+				overflowFile = null;
+				if ( removeOverflowFile )
+				{
+					new File( overflowFileName ).delete( );
+				}
+			}
+		}
+	}
+
+	public int getTotalBlock( )
+	{
+		return totalBlock;
+	}
+
+	/**
+	 * @return the bytes allocated in the direct memory.
+	 */
+	public long getUsedMemory( )
+	{
+		return (long) Math.min( slabs.size( ), maxMemorySlabs ) * SLAB_SIZE;
+	}
+
+	/**
+	 * @return if some blocks are saved in the overflow file.
+	 */
+	public boolean isOverflowed( )
+	{
+		return overflowFile != null;
+	}
+
+	public int allocBlock( ) throws IOException
+	{
+		int blockId = totalBlock;
+		ensureBlock( blockId );
+		ByteBuffer slab = getSlab( blockId );
+		slab.putInt( ( blockId & SLAB_BLOCK_MASK ) * BLOCK_SIZE, -1 );
+		return blockId;
+	}
+
+	public void freeBlock( int blockId ) throws IOException
+	{
+
+	}
+
+	public void readBlock( int blockId, byte[] bytes ) throws IOException
+	{
+		if ( bytes == null )
+		{
+			throw new NullPointerException( );
+		}
+
+		if ( blockId >= totalBlock )
+		{
+			throw new EOFException( CoreMessages.getFormattedString(
+					ResourceConstants.EXCEED_MAX_BLOCK, new Object[]{blockId,
+							totalBlock} ) );
+		}
+
+		ByteBuffer slab = getSlab( blockId ).duplicate( );
+		int length = bytes.length > BLOCK_SIZE ? BLOCK_SIZE : bytes.length;
+		slab.position( ( blockId & SLAB_BLOCK_MASK ) * BLOCK_SIZE );
+		slab.get( bytes, 0, length );
+	}
+
+	public void writeBlock( int blockId, byte[] bytes ) throws IOException
+	{
+		if ( bytes == null )
+		{
+			throw new NullPointerException( );
+		}
+
+		if ( blockId >= totalBlock )
+		{
+			int firstBlock = totalBlock;
+			ensureBlock( blockId );
+			for ( int i = firstBlock; i < blockId; i++ )
+			{
+				getSlab( i ).putInt( ( i & SLAB_BLOCK_MASK ) * BLOCK_SIZE, -1 );
+			}
+		}
+
+		ByteBuffer slab = getSlab( blockId ).duplicate( );
+		int length = bytes.length > BLOCK_SIZE ? BLOCK_SIZE : bytes.length;
+		slab.position( ( blockId & SLAB_BLOCK_MASK ) * BLOCK_SIZE );
+		slab.put( bytes, 0, length );
+	}
+
+	public Object lock( ) throws IOException
+	{
+		return this;
+	}
+
+	public void unlock( Object lock ) throws IOException
+	{
+	}
+
+	private ByteBuffer getSlab( int blockId )
+	{
+		return slabs.get( blockId >>> SLAB_BLOCK_BITS );
+	}
+
+	/**
+	 * allocate the slabs to contain the block.
+	 */
+	private void ensureBlock( int blockId ) throws IOException
+	{
+		int slabIndex = blockId >>> SLAB_BLOCK_BITS;
+		while ( slabs.size( ) <= slabIndex )
+		{
+			slabs.add( createSlab( slabs.size( ) ) );
+		}
+		if ( blockId >= totalBlock )
+		{
+			totalBlock = blockId + 1;
+		}
+	}
+
+	private ByteBuffer createSlab( int slabIndex ) throws IOException
+	{
+		if ( slabIndex < maxMemorySlabs )
+		{
+			return ByteBuffer.allocateDirect( SLAB_SIZE );
+		}
+		if ( overflowFile == null )
+		{
+			openOverflowFile( );
+		}
+		long position = (long) ( slabIndex - maxMemorySlabs ) * SLAB_SIZE;
+		return overflowChannel.map( FileChannel.MapMode.READ_WRITE, position,
+				SLAB_SIZE );
+	}
+
+	private void openOverflowFile( ) throws IOException
+	{
+		File file;
+		if ( overflowFileName == null )
+		{
+			file = File.createTempFile( "btree", ".tmp" );
+			overflowFileName = file.getPath( );
+			removeOverflowFile = true;
+		}
+		else
+		{
+			file = new File( overflowFileName );
+			File parent = file.getAbsoluteFile( ).getParentFile( );
+			if ( parent != null )
+			{
+				parent.mkdirs( );
+			}
+		}
+		overflowFile = new RandomAccessFile( file, "rw" );
+		overflowFile.setLength( 0 );
+		overflowChannel = overflowFile.getChannel( );
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Releases the memory of the mapped and direct byte buffers without waiting
+ * for the garbage collection. A mapped file can't be deleted on some
+ * platforms before its buffers are released.
+ *
+ * The buffer must not be used after it is released, the caller guarantees no
+ * other thread is reading it.
+ */
+public class MappedBufferUtil
+{
+
+	protected static Logger logger = Logger.getLogger( MappedBufferUtil.class
+			.getName( ) );
+
+	/**
+	 * the Unsafe instance and its invokeCleaner method since Java 9
+	 */
+	private static Object unsafe;
+	private static Method invokeCleaner;
+
+	static
+	{
+		try
+		{
+			Class unsafeClass = Class.forName( "sun.misc.Unsafe" );
+			invokeCleaner = unsafeClass.getMethod( "invokeCleaner",
+					new Class[]{ByteBuffer.class} );
+			Field field = unsafeClass.getDeclaredField( "theUnsafe" );
+			field.setAccessible( true );
+			unsafe = field.get( null );
+		}
+		catch ( Exception ex )
+		{
+			// before Java 9, the buffer's own cleaner is used
+			invokeCleaner = null;
+			unsafe = null;
+		}
+	}
+
+	/**
+	 * release the memory of the buffer. The buffer is left to the garbage
+	 * collection if it can't be released.
+	 *
+	 * @param buffer
+	 *            a mapped or direct buffer, not a slice or duplicate of it.
+	 */
+	public static void unmap( ByteBuffer buffer )
+	{
+		if ( buffer == null || !buffer.isDirect( ) )
+		{
+			return;
+		}
+		try
+		{
+			if ( invokeCleaner != null )
+			{
+				invokeCleaner.invoke( unsafe, new Object[]{buffer} );
+				return;
+			}
+			Method cleanerMethod = buffer.getClass( ).getMethod( "cleaner",
+					new Class[0] );
+			cleanerMethod.setAccessible( true );
+			Object cleaner = cleanerMethod.invoke( buffer, new Object[0] );
+			if ( cleaner != null )
+			{
+				Method cleanMethod = cleaner.getClass( ).getMethod( "clean",
+						new Class[0] );
+				cleanMethod.setAccessible( true );
+				cleanMethod.invoke( cleaner, new Object[0] );
+			}
+		}
+		catch ( Exception ex )
+		{
+			logger.log( Level.FINE, "failed to unmap the buffer", ex );
+		}
+	}
+}
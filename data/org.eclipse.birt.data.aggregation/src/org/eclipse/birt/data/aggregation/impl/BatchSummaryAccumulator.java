@@ -0,0 +1,118 @@
+/*
+ *************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *
+ *************************************************************************
+ */
+
+package org.eclipse.birt.data.aggregation.impl;
+
+import java.util.List;
+
+import org.eclipse.birt.data.aggregation.calculator.ICalculator;
+import org.eclipse.birt.data.engine.api.aggregation.IBatchAccumulator;
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * Represents the built-in summary accumulator which accumulates the primitive
+ * values of a batch. The derived class only handles the rows of one group, and
+ * keeps the result in the same fields used by onRow(), so the batch and the
+ * row by row calls can be mixed in a group.
+ */
+public abstract class BatchSummaryAccumulator extends SummaryAccumulator
+		implements
+			IBatchAccumulator
+{
+
+	public BatchSummaryAccumulator( )
+	{
+		super( );
+	}
+
+	public BatchSummaryAccumulator( ICalculator calc )
+	{
+		super( calc );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.birt.data.engine.api.aggregation.IBatchAccumulator#isBatchSupported(java.lang.Class)
+	 */
+	public boolean isBatchSupported( Class valueClass )
+	{
+		return Number.class.isAssignableFrom( valueClass );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.birt.data.engine.api.aggregation.IBatchAccumulator#onBatch(double[], boolean[], int, int[], int, java.util.List)
+	 */
+	public void onBatch( double[] values, boolean[] nulls, int rowCount,
+			int[] groupEnds, int groupCount, List results )
+			throws DataException
+	{
+		int from = 0;
+		for ( int i = 0; i < groupCount; i++ )
+		{
+			onBatchRows( values, nulls, from, groupEnds[i] );
+			finish( );
+			results.add( getValue( ) );
+			start( );
+			from = groupEnds[i];
+		}
+		onBatchRows( values, nulls, from, rowCount );
+	}
+
+	/**
+	 * accumulates the rows of the current group.
+	 *
+	 * @param values
+	 * @param nulls
+	 * @param from
+	 *            the first row
+	 * @param to
+	 *            the end row (exclusive)
+	 * @throws DataException
+	 */
+	protected abstract void onBatchRows( double[] values, boolean[] nulls,
+			int from, int to ) throws DataException;
+
+	/**
+	 * adds the values in the same way as the NumberCalculator: the result is
+	 * NaN if one of the values is NaN or infinity.
+	 */
+	protected static double add( double a, double b )
+	{
+		if ( isNaNorInfinity( a ) || isNaNorInfinity( b ) )
+		{
+			return Double.NaN;
+		}
+		return a + b;
+	}
+
+	/**
+	 * multiplies the values in the same way as the NumberCalculator.
+	 */
+	protected static double multiply( double a, double b )
+	{
+		if ( isNaNorInfinity( a ) || isNaNorInfinity( b ) )
+		{
+			return Double.NaN;
+		}
+		return a * b;
+	}
+
+	protected static boolean isNaNorInfinity( double a )
+	{
+		return Double.isNaN( a ) || Double.isInfinite( a );
+	}
+}
@@ -69,7 +69,7 @@ public class TotalCount extends AggrFunction
 		return new MyAccumulator( );
 	}
 
-	private static class MyAccumulator extends SummaryAccumulator
+	private static class MyAccumulator extends BatchSummaryAccumulator
 	{
 
 		private int count = 0;
@@ -97,6 +97,28 @@ public class TotalCount extends AggrFunction
 			}
 		}
 
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.eclipse.birt.data.aggregation.impl.BatchSummaryAccumulator#onBatchRows(double[], boolean[], int, int)
+		 */
+		protected void onBatchRows( double[] values, boolean[] nulls,
+				int from, int to )
+		{
+			if ( !countByColumn )
+			{
+				count += to - from;
+				return;
+			}
+			for ( int i = from; i < to; i++ )
+			{
+				if ( !nulls[i] )
+				{
+					++count;
+				}
+			}
+		}
+
 		/*
 		 * (non-Javadoc)
 		 * 
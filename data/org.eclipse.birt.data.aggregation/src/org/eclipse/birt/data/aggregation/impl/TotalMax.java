@@ -82,7 +82,7 @@ public class TotalMax extends AggrFunction
         return new MyAccumulator();
     }
 
-    private static class MyAccumulator extends SummaryAccumulator
+    private static class MyAccumulator extends BatchSummaryAccumulator
     {
         private Object max = null;
 
@@ -128,6 +128,41 @@ public class TotalMax extends AggrFunction
             return max;
         }
 
+        /*
+         * Only the double values are compared in the batch, so the result
+         * has the same type as the argument.
+         * 
+         * @see org.eclipse.birt.data.aggregation.impl.BatchSummaryAccumulator#isBatchSupported(java.lang.Class)
+         */
+        public boolean isBatchSupported( Class valueClass )
+        {
+            return valueClass == Double.class;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see org.eclipse.birt.data.aggregation.impl.BatchSummaryAccumulator#onBatchRows(double[], boolean[], int, int)
+         */
+        protected void onBatchRows( double[] values, boolean[] nulls,
+                int from, int to )
+        {
+            double maxValue = isRowAvailable ? ( (Double) max ).doubleValue( ) : 0D;
+            for ( int i = from; i < to; i++ )
+            {
+                if ( !nulls[i]
+                        && ( !isRowAvailable || Double.compare( values[i], maxValue ) > 0 ) )
+                {
+                    maxValue = values[i];
+                    isRowAvailable = true;
+                }
+            }
+            if ( isRowAvailable )
+            {
+                max = Double.valueOf( maxValue );
+            }
+        }
+
         private boolean isGreaterThan(Object origin, Object target)
         {
             if((origin instanceof Comparable)&&(target instanceof Comparable))
@@ -82,7 +82,7 @@ public class TotalMin extends AggrFunction
         return new MyAccumulator();
     }
 
-    private static class MyAccumulator extends SummaryAccumulator
+    private static class MyAccumulator extends BatchSummaryAccumulator
     {
         private Object min = null;
 
@@ -114,6 +114,42 @@ public class TotalMin extends AggrFunction
 
         }
         
+        /*
+         * Only the double values are compared in the batch, so the result
+         * has the same type as the argument.
+         * 
+         * @see org.eclipse.birt.data.aggregation.impl.BatchSummaryAccumulator#isBatchSupported(java.lang.Class)
+         */
+        public boolean isBatchSupported( Class valueClass )
+        {
+            return valueClass == Double.class;
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see org.eclipse.birt.data.aggregation.impl.BatchSummaryAccumulator#onBatchRows(double[], boolean[], int, int)
+         */
+        protected void onBatchRows( double[] values, boolean[] nulls,
+                int from, int to )
+        {
+            boolean hasValue = min != null;
+            double minValue = hasValue ? ( (Double) min ).doubleValue( ) : 0D;
+            for ( int i = from; i < to; i++ )
+            {
+                if ( !nulls[i]
+                        && ( !hasValue || Double.compare( values[i], minValue ) < 0 ) )
+                {
+                    minValue = values[i];
+                    hasValue = true;
+                }
+            }
+            if ( hasValue )
+            {
+                min = Double.valueOf( minValue );
+            }
+        }
+
         private boolean isLessThan(Object origin, Object target)
         {
             if((origin instanceof Comparable)&&(target instanceof Comparable))
@@ -87,7 +87,7 @@ public class TotalSum extends AggrFunction
 		return new MyAccumulator( CalculatorFactory.getCalculator( getDataType( ) ) );
 	}
 
-	private static class MyAccumulator extends SummaryAccumulator
+	private static class MyAccumulator extends BatchSummaryAccumulator
 	{
 		private Number sum = null;
 
@@ -118,6 +118,30 @@ public class TotalSum extends AggrFunction
 			}
 		}
 
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.eclipse.birt.data.aggregation.impl.BatchSummaryAccumulator#onBatchRows(double[], boolean[], int, int)
+		 */
+		protected void onBatchRows( double[] values, boolean[] nulls,
+				int from, int to )
+		{
+			boolean hasValue = sum != null;
+			double total = hasValue ? sum.doubleValue( ) : 0D;
+			for ( int i = from; i < to; i++ )
+			{
+				if ( !nulls[i] )
+				{
+					total = hasValue ? add( total, values[i] ) : values[i];
+					hasValue = true;
+				}
+			}
+			if ( hasValue )
+			{
+				sum = Double.valueOf( total );
+			}
+		}
+
 		/*
 		 * (non-Javadoc)
 		 * 
@@ -88,7 +88,7 @@ public class TotalVariance extends AggrFunction
 		return new MyAccumulator( CalculatorFactory.getCalculator( getDataType( ) ) );
 	}
 
-	private static class MyAccumulator extends SummaryAccumulator
+	private static class MyAccumulator extends BatchSummaryAccumulator
 	{
 
 		private Number sum = 0.0D;
@@ -128,6 +128,30 @@ public class TotalVariance extends AggrFunction
 			}
 		}
 
+		/*
+		 * (non-Javadoc)
+		 * 
+		 * @see org.eclipse.birt.data.aggregation.impl.BatchSummaryAccumulator#onBatchRows(double[], boolean[], int, int)
+		 */
+		protected void onBatchRows( double[] values, boolean[] nulls,
+				int from, int to )
+		{
+			double total = sum.doubleValue( );
+			double squareTotal = squareSum.doubleValue( );
+			for ( int i = from; i < to; i++ )
+			{
+				if ( !nulls[i] )
+				{
+					double value = values[i];
+					total = add( total, value );
+					squareTotal = add( squareTotal, multiply( value, value ) );
+					count++;
+				}
+			}
+			sum = Double.valueOf( total );
+			squareSum = Double.valueOf( squareTotal );
+		}
+
 		/*
 		 * (non-Javadoc)
 		 * 
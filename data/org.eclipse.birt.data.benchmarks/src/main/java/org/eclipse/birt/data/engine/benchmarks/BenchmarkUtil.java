@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2010 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.birt.core.archive.IDocArchiveReader;
+import org.eclipse.birt.core.archive.IDocArchiveWriter;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.framework.Platform;
+import org.eclipse.birt.core.framework.PlatformConfig;
+import org.eclipse.birt.core.script.ScriptContext;
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.DataEngineContext;
+
+/**
+ * The utilities shared by the benchmarks. The BIRT platform is started in the
+ * class path mode, so no OSGi framework and no external database is needed.
+ */
+public class BenchmarkUtil
+{
+
+	private BenchmarkUtil( )
+	{
+	}
+
+	/**
+	 * starts the BIRT platform, it does nothing if the platform is started.
+	 *
+	 * @throws BirtException
+	 */
+	public static void startup( ) throws BirtException
+	{
+		Platform.startup( new PlatformConfig( ) );
+	}
+
+	/**
+	 * creates an empty temporary directory.
+	 *
+	 * @param prefix
+	 * @return the path ended with the file separator
+	 * @throws IOException
+	 */
+	public static String createTempDir( String prefix ) throws IOException
+	{
+		File dir = File.createTempFile( prefix, "" ); //$NON-NLS-1$
+		if ( !dir.delete( ) || !dir.mkdirs( ) )
+		{
+			throw new IOException( "can not create " + dir ); //$NON-NLS-1$
+		}
+		return dir.getAbsolutePath( ) + File.separator;
+	}
+
+	/**
+	 * deletes the directory and the files in it.
+	 *
+	 * @param path
+	 */
+	public static void delete( String path )
+	{
+		delete( new File( path ) );
+	}
+
+	private static void delete( File file )
+	{
+		File[] files = file.listFiles( );
+		if ( files != null )
+		{
+			for ( int i = 0; i < files.length; i++ )
+			{
+				delete( files[i] );
+			}
+		}
+		file.delete( );
+	}
+
+	/**
+	 * creates a data engine in the direct presentation mode.
+	 *
+	 * @param scriptContext
+	 * @param tempDir
+	 * @return
+	 * @throws BirtException
+	 */
+	public static DataEngine createDataEngine( ScriptContext scriptContext,
+			String tempDir ) throws BirtException
+	{
+		DataEngineContext context = DataEngineContext.newInstance( DataEngineContext.DIRECT_PRESENTATION,
+				scriptContext,
+				(IDocArchiveReader) null,
+				(IDocArchiveWriter) null,
+				(ClassLoader) null );
+		context.setTmpdir( tempDir );
+		return DataEngine.newDataEngine( context );
+	}
+}
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2010 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
+import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.data.api.DimLevel;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
+import org.eclipse.birt.data.engine.olap.data.api.IDimensionSortDefn;
+import org.eclipse.birt.data.engine.olap.data.api.cube.IDatasetIterator;
+import org.eclipse.birt.data.engine.olap.data.api.cube.ILevelDefn;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationFunctionDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationExecutor;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.DataSetFromOriginalCube;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionFactory;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionResultIterator;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.LevelDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTable;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableAccessor;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableRowIterator;
+import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks AggregationExecutor on a synthetic cube of two dimensions. The
+ * cube is built once per trial, and each invocation aggregates the measure on
+ * the first dimension, on both dimensions and the grand total.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CubeAggregationBenchmark
+{
+
+	private static final String DIM1 = "dim1"; //$NON-NLS-1$
+	private static final String DIM2 = "dim2"; //$NON-NLS-1$
+	private static final String LEVEL1 = "level1"; //$NON-NLS-1$
+	private static final String LEVEL2 = "level2"; //$NON-NLS-1$
+	private static final String MEASURE = "amount"; //$NON-NLS-1$
+
+	private static final int DIM1_MEMBERS = 100;
+	private static final int DIM2_MEMBERS = 1000;
+
+	@Param({"100000", "1000000"})
+	public int rows;
+
+	/**
+	 * the memory cache size of the aggregation in MB.
+	 */
+	@Param({"10", "100"})
+	public int memory;
+
+	/**
+	 * the count of threads aggregating the fact rows.
+	 */
+	@Param({"1", "4"})
+	public int parallelism;
+
+	private String tempDir;
+	private IDocumentManager documentManager;
+	private Dimension[] dimensions;
+	private FactTable factTable;
+
+	@Setup(Level.Trial)
+	public void setUp( ) throws Exception
+	{
+		BenchmarkUtil.startup( );
+		tempDir = BenchmarkUtil.createTempDir( "CubeAggregationBenchmark" ); //$NON-NLS-1$
+		documentManager = DocumentManagerFactory.createFileDocumentManager( tempDir );
+
+		dimensions = new Dimension[2];
+		dimensions[0] = createDimension( DIM1, LEVEL1, DIM1_MEMBERS );
+		dimensions[1] = createDimension( DIM2, LEVEL2, DIM2_MEMBERS );
+
+		String[][] keyColumns = new String[][]{
+				{
+					LEVEL1
+				}, {
+					LEVEL2
+				}
+		};
+		FactTableAccessor accessor = new FactTableAccessor( documentManager );
+		accessor.saveFactTable( "fact", //$NON-NLS-1$
+				keyColumns,
+				keyColumns,
+				new FactIterator( rows ),
+				dimensions,
+				new String[]{
+					MEASURE
+				},
+				new StopSign( ) );
+		factTable = accessor.load( "fact", new StopSign( ) ); //$NON-NLS-1$
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown( ) throws IOException
+	{
+		documentManager.close( );
+		BenchmarkUtil.delete( tempDir );
+	}
+
+	@Benchmark
+	public void aggregate( Blackhole blackhole ) throws Exception
+	{
+		String[] dimensionNames = new String[]{
+				DIM1, DIM2
+		};
+		IDiskArray[] positions = new IDiskArray[2];
+		DimensionResultIterator[] dimensionIterators = new DimensionResultIterator[2];
+		for ( int i = 0; i < 2; i++ )
+		{
+			positions[i] = dimensions[i].findAll( );
+			dimensionIterators[i] = new DimensionResultIterator( dimensions[i],
+					positions[i],
+					new StopSign( ) );
+		}
+		FactTableRowIterator factIterator = new FactTableRowIterator( factTable,
+				dimensionNames,
+				positions,
+				new StopSign( ) );
+
+		DimLevel level1 = new DimLevel( DIM1, LEVEL1 );
+		DimLevel level2 = new DimLevel( DIM2, LEVEL2 );
+		AggregationFunctionDefinition[] functions = new AggregationFunctionDefinition[]{
+			new AggregationFunctionDefinition( "total", //$NON-NLS-1$
+					MEASURE,
+					IBuildInAggregation.TOTAL_SUM_FUNC )
+		};
+		AggregationDefinition[] aggregations = new AggregationDefinition[]{
+				new AggregationDefinition( new DimLevel[]{
+					level1
+				}, new int[]{
+					IDimensionSortDefn.SORT_ASC
+				}, functions ),
+				new AggregationDefinition( new DimLevel[]{
+						level1, level2
+				}, new int[]{
+						IDimensionSortDefn.SORT_ASC,
+						IDimensionSortDefn.SORT_ASC
+				}, functions ),
+				new AggregationDefinition( null, null, functions )
+		};
+
+		AggregationExecutor executor = new AggregationExecutor( null,
+				new DataSetFromOriginalCube( factIterator,
+						dimensionIterators,
+						null ),
+				aggregations,
+				memory * 1024L * 1024L );
+		executor.setParallelism( parallelism );
+		IAggregationResultSet[] resultSets = executor.execute( new StopSign( ) );
+		for ( int i = 0; i < resultSets.length; i++ )
+		{
+			blackhole.consume( resultSets[i].length( ) );
+			resultSets[i].close( );
+		}
+	}
+
+	private Dimension createDimension( String name, String levelName,
+			int memberCount ) throws IOException, BirtException
+	{
+		ILevelDefn[] levelDefns = new ILevelDefn[]{
+			new LevelDefinition( levelName, new String[]{
+				levelName
+			}, null )
+		};
+		return (Dimension) DimensionFactory.createDimension( name,
+				documentManager,
+				new MemberIterator( levelName, memberCount ),
+				levelDefns,
+				false,
+				new StopSign( ) );
+	}
+
+	/**
+	 * iterates the members 0, 1, ... count - 1 of a level.
+	 */
+	private static class MemberIterator implements IDatasetIterator
+	{
+
+		private String levelName;
+		private int count;
+		private int current = -1;
+
+		MemberIterator( String levelName, int count )
+		{
+			this.levelName = levelName;
+			this.count = count;
+		}
+
+		public int getFieldIndex( String name ) throws BirtException
+		{
+			return levelName.equals( name ) ? 0 : -1;
+		}
+
+		public int getFieldType( String name ) throws BirtException
+		{
+			return DataType.INTEGER_TYPE;
+		}
+
+		public boolean next( ) throws BirtException
+		{
+			current++;
+			return current < count;
+		}
+
+		public Object getValue( int fieldIndex ) throws BirtException
+		{
+			return Integer.valueOf( current );
+		}
+
+		public void close( ) throws BirtException
+		{
+		}
+	}
+
+	/**
+	 * iterates the fact rows, the keys of both dimensions and the measure are
+	 * spread over the rows.
+	 */
+	private static class FactIterator implements IDatasetIterator
+	{
+
+		private int count;
+		private int current = -1;
+
+		FactIterator( int count )
+		{
+			this.count = count;
+		}
+
+		public int getFieldIndex( String name ) throws BirtException
+		{
+			if ( LEVEL1.equals( name ) )
+			{
+				return 0;
+			}
+			if ( LEVEL2.equals( name ) )
+			{
+				return 1;
+			}
+			if ( MEASURE.equals( name ) )
+			{
+				return 2;
+			}
+			return -1;
+		}
+
+		public int getFieldType( String name ) throws BirtException
+		{
+			return MEASURE.equals( name )
+					? DataType.DOUBLE_TYPE : DataType.INTEGER_TYPE;
+		}
+
+		public boolean next( ) throws BirtException
+		{
+			current++;
+			return current < count;
+		}
+
+		public Object getValue( int fieldIndex ) throws BirtException
+		{
+			switch ( fieldIndex )
+			{
+				case 0 :
+					return Integer.valueOf( current % DIM1_MEMBERS );
+				case 1 :
+					return Integer.valueOf( ( current / DIM1_MEMBERS )
+							% DIM2_MEMBERS );
+				default :
+					return Double.valueOf( ( current * 7919 ) % 10007 );
+			}
+		}
+
+		public void close( ) throws BirtException
+		{
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2010 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.script.ScriptContext;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+import org.eclipse.birt.data.engine.expression.CompiledExpression;
+import org.eclipse.birt.data.engine.expression.ExprEvaluateUtil;
+import org.eclipse.birt.data.engine.expression.ExpressionCompiler;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the evaluation of a row expression on synthetic rows: "raw"
+ * evaluates the JavaScript text by ExprEvaluateUtil, as it is done for the
+ * expressions which are not compiled, and "compiled" evaluates the
+ * BytecodeExpression produced by ExpressionCompiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExpressionBenchmark
+{
+
+	private static final int ROWS = 1000;
+
+	@Param({"row.ID * 2 + row.AMOUNT", //$NON-NLS-1$
+			"row.AMOUNT > 5000 ? \"high\" : \"low\"", //$NON-NLS-1$
+			"Math.round( row.AMOUNT / ( row.ID + 1 ) )"}) //$NON-NLS-1$
+	public String expression;
+
+	private ScriptContext scriptContext;
+	private Scriptable[] scopes;
+	private ScriptExpression rawExpression;
+	private CompiledExpression compiledExpression;
+
+	@Setup(Level.Trial)
+	public void setUp( ) throws BirtException
+	{
+		BenchmarkUtil.startup( );
+		scriptContext = new ScriptContext( );
+		// enter the script context of this thread
+		scriptContext.compile( "javascript", null, 0, "1==1" ); //$NON-NLS-1$ //$NON-NLS-2$
+		Context cx = Context.getCurrentContext( );
+		ScriptableObject sharedScope = cx.initStandardObjects( );
+		scopes = new Scriptable[ROWS];
+		for ( int i = 0; i < ROWS; i++ )
+		{
+			Scriptable scope = cx.newObject( sharedScope );
+			scope.setPrototype( sharedScope );
+			scope.setParentScope( null );
+			Scriptable row = cx.newObject( sharedScope );
+			row.put( "ID", row, Integer.valueOf( i ) ); //$NON-NLS-1$
+			row.put( "AMOUNT", row, Double.valueOf( ( i * 7919 ) % 10007 ) ); //$NON-NLS-1$
+			scope.put( "row", scope, row ); //$NON-NLS-1$
+			scopes[i] = scope;
+		}
+		rawExpression = new ScriptExpression( expression );
+		compiledExpression = new ExpressionCompiler( ).compile( expression,
+				null,
+				scriptContext );
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown( )
+	{
+		scriptContext.close( );
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void raw( Blackhole blackhole ) throws BirtException
+	{
+		for ( int i = 0; i < ROWS; i++ )
+		{
+			blackhole.consume( ExprEvaluateUtil.evaluateRawExpression( rawExpression,
+					scopes[i],
+					scriptContext ) );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void compiled( Blackhole blackhole ) throws BirtException
+	{
+		for ( int i = 0; i < ROWS; i++ )
+		{
+			blackhole.consume( compiledExpression.evaluate( scriptContext,
+					scopes[i] ) );
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2010 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.script.ScriptContext;
+import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.IQueryResults;
+import org.eclipse.birt.data.engine.api.IResultIterator;
+import org.eclipse.birt.data.engine.api.ISortDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.Binding;
+import org.eclipse.birt.data.engine.api.querydefn.ColumnDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.GroupDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSetDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptDataSourceDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+import org.eclipse.birt.data.engine.api.querydefn.SortDefinition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the table queries on a synthetic scripted data set.
+ * <p>
+ * The "scan" benchmark is the baseline which only fetches the rows; "group"
+ * adds the grouping and the group aggregation of ResultSetPopulator; "sort"
+ * sorts the rows. The cache parameter selects whether SmartCache keeps the
+ * rows in memory or in the disk cache, in which case the rows are sorted by
+ * the external merge sort (MergeSortImpl).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResultSetBenchmark
+{
+
+	private static final String DATA_SOURCE = "source"; //$NON-NLS-1$
+	private static final String DATA_SET = "rows"; //$NON-NLS-1$
+
+	@Param({"10000", "100000", "1000000"})
+	public int rows;
+
+	@Param({"memory", "disk"})
+	public String cache;
+
+	private String tempDir;
+	private ScriptContext scriptContext;
+	private DataEngine dataEngine;
+	private Map appContext;
+
+	@Setup(Level.Trial)
+	public void setUp( ) throws Exception
+	{
+		BenchmarkUtil.startup( );
+		tempDir = BenchmarkUtil.createTempDir( "ResultSetBenchmark" ); //$NON-NLS-1$
+		scriptContext = new ScriptContext( );
+		dataEngine = BenchmarkUtil.createDataEngine( scriptContext, tempDir );
+
+		ScriptDataSourceDesign dataSource = new ScriptDataSourceDesign( DATA_SOURCE );
+		ScriptDataSetDesign dataSet = new ScriptDataSetDesign( DATA_SET );
+		dataSet.setDataSource( DATA_SOURCE );
+		dataSet.setOpenScript( "i = 0;" ); //$NON-NLS-1$
+		dataSet.setFetchScript( "if ( i >= " + rows + " ) return false; " //$NON-NLS-1$ //$NON-NLS-2$
+				+ "row.GRP = i % 100; " //$NON-NLS-1$
+				+ "row.ID = i; " //$NON-NLS-1$
+				+ "row.AMOUNT = ( i * 7919 ) % 10007; " //$NON-NLS-1$
+				+ "i++; return true;" ); //$NON-NLS-1$
+		addColumn( dataSet, "GRP", DataType.INTEGER_TYPE ); //$NON-NLS-1$
+		addColumn( dataSet, "ID", DataType.INTEGER_TYPE ); //$NON-NLS-1$
+		addColumn( dataSet, "AMOUNT", DataType.DOUBLE_TYPE ); //$NON-NLS-1$
+		dataEngine.defineDataSource( dataSource );
+		dataEngine.defineDataSet( dataSet );
+
+		// the memory buffer is 1M in the disk mode, 0 means no limit
+		appContext = new HashMap( );
+		appContext.put( DataEngine.MEMORY_BUFFER_SIZE, "disk".equals( cache ) //$NON-NLS-1$
+				? "1" : "0" ); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown( )
+	{
+		dataEngine.shutdown( );
+		scriptContext.close( );
+		BenchmarkUtil.delete( tempDir );
+	}
+
+	@Benchmark
+	public void scan( Blackhole blackhole ) throws BirtException
+	{
+		QueryDefinition query = newQuery( );
+		run( query, "ID", blackhole ); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public void group( Blackhole blackhole ) throws BirtException
+	{
+		QueryDefinition query = newQuery( );
+		GroupDefinition group = new GroupDefinition( "grp" ); //$NON-NLS-1$
+		group.setKeyExpression( "row[\"GRP\"]" ); //$NON-NLS-1$
+		query.addGroup( group );
+		Binding total = new Binding( "TOTAL", //$NON-NLS-1$
+				new ScriptExpression( "dataSetRow[\"AMOUNT\"]" ) ); //$NON-NLS-1$
+		total.setAggrFunction( IBuildInAggregation.TOTAL_SUM_FUNC );
+		total.addAggregateOn( "grp" ); //$NON-NLS-1$
+		query.addBinding( total );
+		run( query, "TOTAL", blackhole ); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public void sort( Blackhole blackhole ) throws BirtException
+	{
+		QueryDefinition query = newQuery( );
+		SortDefinition sort = new SortDefinition( );
+		sort.setExpression( "row[\"AMOUNT\"]" ); //$NON-NLS-1$
+		sort.setSortDirection( ISortDefinition.SORT_DESC );
+		query.addSort( sort );
+		run( query, "ID", blackhole ); //$NON-NLS-1$
+	}
+
+	private QueryDefinition newQuery( ) throws BirtException
+	{
+		QueryDefinition query = new QueryDefinition( );
+		query.setDataSetName( DATA_SET );
+		query.addBinding( new Binding( "GRP", //$NON-NLS-1$
+				new ScriptExpression( "dataSetRow[\"GRP\"]" ) ) ); //$NON-NLS-1$
+		query.addBinding( new Binding( "ID", //$NON-NLS-1$
+				new ScriptExpression( "dataSetRow[\"ID\"]" ) ) ); //$NON-NLS-1$
+		query.addBinding( new Binding( "AMOUNT", //$NON-NLS-1$
+				new ScriptExpression( "dataSetRow[\"AMOUNT\"]" ) ) ); //$NON-NLS-1$
+		return query;
+	}
+
+	private void run( QueryDefinition query, String binding,
+			Blackhole blackhole ) throws BirtException
+	{
+		IQueryResults results = dataEngine.prepare( query, appContext )
+				.execute( null );
+		IResultIterator iterator = results.getResultIterator( );
+		while ( iterator.next( ) )
+		{
+			blackhole.consume( iterator.getValue( binding ) );
+		}
+		results.close( );
+	}
+
+	private static void addColumn( ScriptDataSetDesign dataSet, String name,
+			int type )
+	{
+		ColumnDefinition column = new ColumnDefinition( name );
+		column.setDataType( type );
+		dataSet.getResultSetHints( ).add( column );
+	}
+}
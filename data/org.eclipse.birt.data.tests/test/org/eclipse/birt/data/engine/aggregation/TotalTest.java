@@ -3,15 +3,18 @@ package org.eclipse.birt.data.engine.aggregation;
 
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 
 
 import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
 import org.eclipse.birt.data.aggregation.impl.BuildInAggregationFactory;
 import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
 import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
+import org.eclipse.birt.data.engine.api.aggregation.IBatchAccumulator;
 import org.eclipse.birt.data.engine.core.DataException;
 
 import org.junit.After;
@@ -2287,4 +2290,99 @@ public class TotalTest {
         assertEquals( new Integer( 8 ), ac.getValue( ) );
     }
 
+	@Test
+    public void testBatchAccumulator() throws Exception
+    {
+        String[] names = new String[]{
+                "sum", "ave", "count", "min", "max", "stddev", "variance"
+        };
+        // the groups are [0, 3), [3, 3) and [3, 8)
+        int[] groupEnds = new int[]{3, 3, 8};
+        double[] values = new double[doubleArray3.length];
+        boolean[] nulls = new boolean[doubleArray3.length];
+        for ( int i = 0; i < doubleArray3.length; i++ )
+        {
+            nulls[i] = doubleArray3[i] == null;
+            values[i] = nulls[i] ? 0 : doubleArray3[i].doubleValue( );
+        }
+
+        for ( int n = 0; n < names.length; n++ )
+        {
+            IAggrFunction ag = buildInAggrFactory.getAggregation( names[n] );
+
+            List expected = new ArrayList( );
+            Accumulator ac = ag.newAccumulator( );
+            int row = 0;
+            for ( int i = 0; i < groupEnds.length; i++ )
+            {
+                ac.start( );
+                for ( ; row < groupEnds[i]; row++ )
+                {
+                    ac.onRow( new Object[]{doubleArray3[row]} );
+                }
+                ac.finish( );
+                expected.add( ac.getValue( ) );
+            }
+
+            // the last group is continued by the second batch
+            List results = new ArrayList( );
+            ac = ag.newAccumulator( );
+            assertTrue( ac instanceof IBatchAccumulator );
+            IBatchAccumulator batch = (IBatchAccumulator) ac;
+            assertTrue( batch.isBatchSupported( Double.class ) );
+            ac.start( );
+            batch.onBatch( values, nulls, 5, groupEnds, 2, results );
+            assertEquals( 2, results.size( ) );
+            double[] values2 = new double[3];
+            boolean[] nulls2 = new boolean[3];
+            System.arraycopy( values, 5, values2, 0, 3 );
+            System.arraycopy( nulls, 5, nulls2, 0, 3 );
+            batch.onBatch( values2, nulls2, 3, new int[0], 0, results );
+            ac.finish( );
+            results.add( ac.getValue( ) );
+            assertEquals( names[n], expected, results );
+        }
+
+        // the min and max keep the type of the argument
+        IBatchAccumulator batch = (IBatchAccumulator) buildInAggrFactory.getAggregation( "min" )
+                .newAccumulator( );
+        assertFalse( batch.isBatchSupported( Integer.class ) );
+        batch = (IBatchAccumulator) buildInAggrFactory.getAggregation( "sum" )
+                .newAccumulator( );
+        assertTrue( batch.isBatchSupported( Integer.class ) );
+        assertTrue( batch.isBatchSupported( BigDecimal.class ) );
+    }
+
+    @Test
+    public void testBatchAccumulatorMixed() throws Exception
+    {
+        // the rows accumulated by onRow() and onBatch() are in the same group
+        IAggrFunction ag = buildInAggrFactory.getAggregation( "sum" );
+        Accumulator ac = ag.newAccumulator( );
+        ac.start( );
+        ac.onRow( new Object[]{new Double( 1 )} );
+        ( (IBatchAccumulator) ac ).onBatch( new double[]{2, Double.NaN},
+                new boolean[]{false, true},
+                2,
+                new int[0],
+                0,
+                new ArrayList( ) );
+        ac.onRow( new Object[]{new Double( 3 )} );
+        ac.finish( );
+        assertEquals( new Double( 6 ), ac.getValue( ) );
+
+        // NaN and infinity are handled in the same way as onRow()
+        ac.start( );
+        ac.onRow( new Object[]{new Double( Double.POSITIVE_INFINITY )} );
+        ac.onRow( new Object[]{new Double( 1 )} );
+        ac.finish( );
+        Object expected = ac.getValue( );
+        ac.start( );
+        ( (IBatchAccumulator) ac ).onBatch( new double[]{
+                Double.POSITIVE_INFINITY, 1
+        }, new boolean[2], 2, new int[0], 0, new ArrayList( ) );
+        ac.finish( );
+        assertEquals( expected, ac.getValue( ) );
+    }
+
 }
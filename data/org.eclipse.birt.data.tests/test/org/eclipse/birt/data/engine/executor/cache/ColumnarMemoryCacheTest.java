@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.ResultClass;
+import org.eclipse.birt.data.engine.executor.ResultFieldMetadata;
+import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test the columnar memory cache against the values of the original rows.
+ */
+public class ColumnarMemoryCacheTest {
+	private IResultClass resultClass;
+	private IResultObject[] resultObjects;
+
+	@Before
+    public void columnarMemoryCacheSetUp() throws DataException
+	{
+		List columnsList = new ArrayList( );
+		columnsList.add( new ResultFieldMetadata( 1,
+				"col1",
+				"col1",
+				DataType.getClass( DataType.INTEGER_TYPE ),
+				"Integer" /* nativeTypeName */,
+				false ) );
+		columnsList.add( new ResultFieldMetadata( 2,
+				"col2",
+				"col2",
+				DataType.getClass( DataType.DOUBLE_TYPE ),
+				"Double" /* nativeTypeName */,
+				false ) );
+		columnsList.add( new ResultFieldMetadata( 3,
+				"col3",
+				"col3",
+				DataType.getClass( DataType.STRING_TYPE ),
+				"String" /* nativeTypeName */,
+				false ) );
+		columnsList.add( new ResultFieldMetadata( 4,
+				"col4",
+				"col4",
+				DataType.getClass( DataType.DATE_TYPE ),
+				"Date" /* nativeTypeName */,
+				false ) );
+		columnsList.add( new ResultFieldMetadata( 5,
+				"col5",
+				"col5",
+				DataType.getClass( DataType.BOOLEAN_TYPE ),
+				"Boolean" /* nativeTypeName */,
+				true ) );
+		resultClass = new ResultClass( columnsList );
+
+		resultObjects = new ResultObject[]{
+				new ResultObject( resultClass, new Object[]{
+						Integer.valueOf( 3 ),
+						Double.valueOf( 1.5 ),
+						"abc",
+						new Date( 1000L ),
+						Boolean.TRUE
+				} ),
+				new ResultObject( resultClass, new Object[]{
+						null, null, null, null, null
+				} ),
+				new ResultObject( resultClass, new Object[]{
+						Integer.valueOf( 1 ),
+						Double.valueOf( -2.25 ),
+						"abc",
+						new Date( 2000L ),
+						Boolean.FALSE
+				} ),
+				new ResultObject( resultClass, new Object[]{
+						Integer.valueOf( 2 ),
+						Double.valueOf( 0 ),
+						"def",
+						new Date( 3000L ),
+						Boolean.TRUE
+				} )
+		};
+	}
+
+	/**
+	 * Test the supported result classes
+	 */
+	@Test
+    public void testIsSupported( ) throws DataException
+	{
+		assertTrue( ColumnarMemoryCache.isSupported( resultClass ) );
+
+		List columnsList = new ArrayList( );
+		columnsList.add( new ResultFieldMetadata( 1,
+				"col1",
+				"col1",
+				DataType.getClass( DataType.DECIMAL_TYPE ),
+				"BigDecimal" /* nativeTypeName */,
+				false ) );
+		assertFalse( ColumnarMemoryCache.isSupported( new ResultClass( columnsList ) ) );
+	}
+
+	/**
+	 * Test the values read back through next
+	 */
+	@Test
+    public void testNext( ) throws DataException
+	{
+		ColumnarMemoryCache cache = new ColumnarMemoryCache( resultObjects,
+				resultClass,
+				null );
+		assertEquals( 4, cache.getCount( ) );
+		assertEquals( -1, cache.getCurrentIndex( ) );
+
+		int i = 0;
+		while ( cache.next( ) )
+		{
+			assertEquals( i, cache.getCurrentIndex( ) );
+			assertEquals( resultObjects[i], cache.getCurrentResult( ) );
+			for ( int j = 1; j <= resultClass.getFieldCount( ); j++ )
+			{
+				assertEquals( resultObjects[i].getFieldValue( j ),
+						cache.getCurrentResult( ).getFieldValue( j ) );
+			}
+			i++;
+		}
+		assertEquals( 4, i );
+
+		for ( i = 0; i < 5; i++ )
+		{
+			assertFalse( cache.next( ) );
+			assertEquals( 4, cache.getCurrentIndex( ) );
+			assertNull( cache.getCurrentResult( ) );
+		}
+
+		cache.moveTo( 2 );
+		assertEquals( "abc", cache.getCurrentResult( ).getFieldValue( "col3" ) );
+		cache.reset( );
+		assertEquals( resultObjects[0], cache.fetch( ) );
+	}
+
+	/**
+	 * Test sorting
+	 */
+	@Test
+    public void testSort( ) throws DataException
+	{
+		Comparator comparator = new Comparator( ) {
+
+			public int compare( Object o1, Object o2 )
+			{
+				try
+				{
+					Integer i1 = (Integer) ( (IResultObject) o1 ).getFieldValue( 1 );
+					Integer i2 = (Integer) ( (IResultObject) o2 ).getFieldValue( 1 );
+					if ( i1 == null || i2 == null )
+						return i1 == null ? ( i2 == null ? 0 : -1 ) : 1;
+					return i1.compareTo( i2 );
+				}
+				catch ( DataException e )
+				{
+					return 0;
+				}
+			}
+		};
+		ColumnarMemoryCache cache = new ColumnarMemoryCache( resultObjects,
+				resultClass,
+				comparator );
+
+		int[] expected = new int[]{ 1, 2, 3, 0 };
+		for ( int i = 0; i < expected.length; i++ )
+		{
+			assertEquals( resultObjects[expected[i]], cache.fetch( ) );
+		}
+		assertNull( cache.fetch( ) );
+	}
+
+	/**
+	 * Test custom field values which do not fit the column encoding
+	 */
+	@Test
+    public void testSetCustomFieldValue( ) throws DataException
+	{
+		ColumnarMemoryCache cache = new ColumnarMemoryCache( resultObjects,
+				resultClass,
+				null );
+		cache.moveTo( 0 );
+		cache.getCurrentResult( ).setCustomFieldValue( 5, Boolean.FALSE );
+		assertEquals( Boolean.FALSE, cache.getCurrentResult( ).getFieldValue( 5 ) );
+
+		cache.getCurrentResult( ).setCustomFieldValue( 5, new BigDecimal( "1.1" ) );
+		assertEquals( new BigDecimal( "1.1" ), cache.getCurrentResult( ).getFieldValue( 5 ) );
+
+		cache.moveTo( 3 );
+		assertEquals( Boolean.TRUE, cache.getCurrentResult( ).getFieldValue( 5 ) );
+
+		try
+		{
+			cache.getCurrentResult( ).setCustomFieldValue( 1, Integer.valueOf( 5 ) );
+			fail( "Should not arrive here" );
+		}
+		catch ( DataException e )
+		{
+		}
+	}
+
+	/**
+	 * Test timestamp values keep their nanoseconds
+	 */
+	@Test
+    public void testTimestamp( ) throws DataException
+	{
+		Timestamp timestamp = new Timestamp( 5000L );
+		timestamp.setNanos( 123456789 );
+		IResultObject[] rows = new IResultObject[]{
+				new ResultObject( resultClass, new Object[]{
+						null, null, null, timestamp, null
+				} )
+		};
+		ColumnarMemoryCache cache = new ColumnarMemoryCache( rows,
+				resultClass,
+				null );
+		Object value = cache.fetch( ).getFieldValue( 4 );
+		assertTrue( value instanceof Timestamp );
+		assertEquals( timestamp, value );
+	}
+
+	/**
+	 * Test a timestamp column given other date values
+	 */
+	@Test
+    public void testMixedDateAndTimestamp( ) throws DataException
+	{
+		List columnsList = new ArrayList( );
+		columnsList.add( new ResultFieldMetadata( 1,
+				"col1",
+				"col1",
+				Timestamp.class,
+				"Timestamp" /* nativeTypeName */,
+				false ) );
+		IResultClass timestampClass = new ResultClass( columnsList );
+		Timestamp timestamp = new Timestamp( 5000L );
+		timestamp.setNanos( 123456789 );
+		Object[] values = new Object[]{
+				new Date( 1000L ),
+				new java.sql.Date( 2000L ),
+				timestamp,
+				null
+		};
+		IResultObject[] rows = new IResultObject[values.length];
+		for ( int i = 0; i < values.length; i++ )
+		{
+			rows[i] = new ResultObject( timestampClass, new Object[]{
+				values[i]
+			} );
+		}
+		ColumnarMemoryCache cache = new ColumnarMemoryCache( rows,
+				timestampClass,
+				null );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			Object value = cache.fetch( ).getFieldValue( 1 );
+			assertEquals( values[i], value );
+			if ( values[i] != null )
+				assertEquals( values[i].getClass( ), value.getClass( ) );
+		}
+	}
+
+	/**
+	 * Test the rows are handed over in order and released from the store
+	 */
+	@Test
+    public void testRemoveRows( ) throws DataException
+	{
+		ColumnarRowStore store = new ColumnarRowStore( resultClass );
+		int rowCount = 5000;
+		for ( int i = 0; i < rowCount; i++ )
+		{
+			store.add( new ResultObject( resultClass, new Object[]{
+					Integer.valueOf( i ),
+					Double.valueOf( i / 2.0 ),
+					"row" + i,
+					new Date( i * 1000L ),
+					Boolean.valueOf( i % 2 == 0 )
+			} ) );
+		}
+		IRowResultSet rs = store.removeRows( );
+		assertEquals( resultClass, rs.getMetaData( ) );
+		for ( int i = 0; i < rowCount; i++ )
+		{
+			if ( i == rowCount * 3 / 4 )
+				assertTrue( store.size( ) < rowCount );
+			IResultObject row = rs.next( );
+			assertEquals( i, rs.getIndex( ) );
+			assertEquals( Integer.valueOf( i ), row.getFieldValue( 1 ) );
+			assertEquals( "row" + i, row.getFieldValue( 3 ) );
+			assertEquals( new Date( i * 1000L ), row.getFieldValue( 4 ) );
+		}
+		assertNull( rs.next( ) );
+		assertEquals( 0, store.size( ) );
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.executor.cache.disk;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test the compression of spill file blocks
+ */
+public class BlockCompressorTest {
+
+	/**
+	 * Test random, repeated and short bytes can be restored
+	 */
+	@Test
+    public void testRoundTrip( ) throws IOException
+	{
+		Random random = new Random( 0 );
+		int[] hashTable = new int[1 << BlockCompressor.HASH_LOG];
+		int[] lengths = new int[]{ 0, 1, 12, 13, 100, 4096, 70000 };
+		for ( int i = 0; i < lengths.length; i++ )
+		{
+			for ( int mode = 0; mode < 3; mode++ )
+			{
+				byte[] src = new byte[lengths[i]];
+				for ( int j = 0; j < src.length; j++ )
+				{
+					if ( mode == 0 )
+						src[j] = (byte) random.nextInt( 256 );
+					else if ( mode == 1 )
+						src[j] = (byte) random.nextInt( 4 );
+					else
+						src[j] = (byte) ( j % 17 );
+				}
+				byte[] compressed = new byte[BlockCompressor.maxCompressedLength( src.length )];
+				int length = BlockCompressor.compress( src,
+						src.length,
+						compressed,
+						hashTable );
+				byte[] restored = new byte[src.length];
+				BlockCompressor.decompress( compressed,
+						length,
+						restored,
+						restored.length );
+				assertArrayEquals( src, restored );
+				if ( mode == 2 && src.length > 100 )
+					assertTrue( length < src.length / 10 );
+			}
+		}
+	}
+
+	/**
+	 * Test corrupted bytes are reported
+	 */
+	@Test
+    public void testCorrupted( )
+	{
+		byte[] src = new byte[1000];
+		byte[] compressed = new byte[BlockCompressor.maxCompressedLength( src.length )];
+		int length = BlockCompressor.compress( src,
+				src.length,
+				compressed,
+				new int[1 << BlockCompressor.HASH_LOG] );
+		try
+		{
+			BlockCompressor.decompress( compressed,
+					length,
+					new byte[src.length - 1],
+					src.length - 1 );
+			fail( "Should not arrive here" );
+		}
+		catch ( IOException e )
+		{
+		}
+	}
+}
@@ -11,11 +11,16 @@
 package org.eclipse.birt.data.engine.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.core.script.ScriptContext;
 import org.eclipse.birt.data.engine.api.APITestCase;
+import org.eclipse.birt.data.engine.api.DataEngine;
 import org.eclipse.birt.data.engine.api.IGroupDefinition;
 import org.eclipse.birt.data.engine.api.IJoinCondition;
 import org.eclipse.birt.data.engine.api.IJointDataSetDesign;
@@ -57,6 +62,8 @@ public class JointDataSetTest extends APITestCase
 	//
 	private static int CARTESIAN_POPULATOR = 0;
 	private static int BINARY_TREE_POPULATOR = 1;
+	private static int HASH_JOIN_POPULATOR = 2;
+	private static int SPILLED_HASH_JOIN_POPULATOR = 3;
 	private static boolean ADD_FETCH_LIMIT = false;
 	private ScriptContext cx;
 	/*
@@ -216,6 +223,127 @@ public class JointDataSetTest extends APITestCase
 		checkOutputFile();
 	}
 	
+	/**
+	 * The hash join returns the same rows in the same order as the binary tree
+	 * join.
+	 */
+	@Test
+    public void testInnerJoin_HASH( ) throws Exception
+	{
+		String s = basicJoinTest( IJointDataSetDesign.INNER_JOIN, HASH_JOIN_POPULATOR );
+		this.testPrint( s );
+		checkOutputFile( );
+	}
+	
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+    public void testLeftOuterJoin_HASH( ) throws Exception
+	{
+		String s = basicJoinTest( IJointDataSetDesign.LEFT_OUTER_JOIN, HASH_JOIN_POPULATOR );
+		this.testPrint( s );
+		checkOutputFile( );
+	}
+	
+	/**
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+    public void testRightOuterJoin_HASH( ) throws Exception
+	{
+		String s = basicJoinTest( IJointDataSetDesign.RIGHT_OUTER_JOIN, HASH_JOIN_POPULATOR );
+		this.testPrint( s );
+		checkOutputFile( );
+	}
+	
+	/**
+	 * The spilled hash join returns the same rows as the in-memory hash join,
+	 * in the order of the partitions.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+    public void testSpilledHashJoin( ) throws Exception
+	{
+		int[] joinTypes = new int[]{
+				IJointDataSetDesign.INNER_JOIN,
+				IJointDataSetDesign.LEFT_OUTER_JOIN,
+				IJointDataSetDesign.RIGHT_OUTER_JOIN,
+				IJointDataSetDesign.FULL_OUTER_JOIN
+		};
+		for ( int i = 0; i < joinTypes.length; i++ )
+		{
+			List expected = toSortedLines( basicJoinTest( joinTypes[i], HASH_JOIN_POPULATOR ) );
+			List actual = toSortedLines( basicJoinTest( joinTypes[i], SPILLED_HASH_JOIN_POPULATOR ) );
+			assertEquals( expected, actual );
+		}
+	}
+	
+	/**
+	 * The hash join doesn't sort the data sets by the join keys, it returns
+	 * the same rows as the merge join for the unsorted data sets. The merge
+	 * join is used by default.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+    public void testUnsortedHashJoin( ) throws Exception
+	{
+		Map hashJoinContext = new HashMap( );
+		hashJoinContext.put( DataEngine.JOINT_DATA_SET_HASH_JOIN, "true" );
+		int[] joinTypes = new int[]{
+				IJointDataSetDesign.INNER_JOIN,
+				IJointDataSetDesign.LEFT_OUTER_JOIN,
+				IJointDataSetDesign.RIGHT_OUTER_JOIN
+		};
+		for ( int i = 0; i < joinTypes.length; i++ )
+		{
+			List expected = toSortedLines( unsortedJoinTest( joinTypes[i], new HashMap( ) ) );
+			List actual = toSortedLines( unsortedJoinTest( joinTypes[i], hashJoinContext ) );
+			assertEquals( expected, actual );
+		}
+	}
+	
+	private String unsortedJoinTest( int joinType, Map appContext ) throws Exception
+	{
+		OdaDataSetDesign dset1 = newDataSet( "dset1", "Select ID, CITY, STORE FROM "
+				+ this.getTestTableName( ) + " where ID > 4 and ID <> 7 and ID <> 9 order by ID desc");
+		OdaDataSetDesign dset2 = newDataSet( "dset2", "Select ID, SKU, CATEGORY, PRICE FROM "
+				+ this.getTestTableName( ) + " where ID < 20 and ID <> 10 and ID <> 13 order by ID desc");
+		List a = new ArrayList();
+		a.add( new JoinCondition(new ScriptExpression("dataSetRow.ID"),new ScriptExpression("dataSetRow.ID"),IJoinCondition.OP_EQ) );
+		JointDataSetDesign dset3 = new JointDataSetDesign( "dset3", dset1.getName( ), dset2.getName( ), joinType, a );
+		dataEngine.defineDataSet( dset3 );
+		
+		QueryDefinition query = this.newReportQuery( dset3 );
+		IPreparedQuery preparedQuery = this.dataEngine.prepare( query, appContext );
+		IQueryResults qr = preparedQuery.execute( null );
+		IResultIterator ri = ((ResultIterator)qr.getResultIterator( )).getOdiResult( );
+		
+		String s = "";
+		do 
+		{
+			IResultObject ro = ri.getCurrentResult( );
+			for( int i = 0; i < ri.getResultClass( ).getFieldCount( ); i++)
+			{
+				s += ro.getFieldValue( i+1 ) + "\t";
+			}
+			s += "\n";
+		}while ( ri.next( ));
+		qr.close( );
+		return s;
+	}
+	
+	private List toSortedLines( String s )
+	{
+		List lines = new ArrayList( Arrays.asList( s.split( "\n" ) ) );
+		Collections.sort( lines );
+		return lines;
+	}
+	
 	/**
 	 * 
 	 * @throws Exception
@@ -432,6 +560,10 @@ public class JointDataSetTest extends APITestCase
 		
 		if( populateType == BINARY_TREE_POPULATOR) 
 			populator = JointDataSetPopulatorFactory.getBinaryTreeDataSetPopulator(it1, it2, meta, matcher, joinType, ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit);
+		else if( populateType == HASH_JOIN_POPULATOR )
+			populator = JointDataSetPopulatorFactory.getHashJoinDataSetPopulator(it1, it2, meta, matcher, joinType, ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit, 0);
+		else if( populateType == SPILLED_HASH_JOIN_POPULATOR )
+			populator = JointDataSetPopulatorFactory.getHashJoinDataSetPopulator(it1, it2, meta, matcher, joinType, ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit, 1);
 		else 
 			populator = JointDataSetPopulatorFactory.getCartesianJointDataSetPopulator(it1, it2, meta, matcher, joinType,  ((DataEngineImpl)this.dataEngine).getSession( ), fetchRowLimit);
 		
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.jointdataset;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the join keys equal in the merge join have the same hash.
+ */
+
+public class HashJoinResultObjectSeekerTest
+{
+
+	/**
+	 * 
+	 */
+	@Test
+	public void testNumberKeys( )
+	{
+		int hash = HashJoinResultObjectSeeker.hashKey( new Object[]{
+			Double.valueOf( 0.0 )
+		} );
+		assertEquals( hash,
+				HashJoinResultObjectSeeker.hashKey( new Object[]{
+					Double.valueOf( -0.0 )
+				} ) );
+		assertEquals( hash,
+				HashJoinResultObjectSeeker.hashKey( new Object[]{
+					Integer.valueOf( 0 )
+				} ) );
+		assertEquals( HashJoinResultObjectSeeker.hashKey( new Object[]{
+			Integer.valueOf( 5 )
+		} ), HashJoinResultObjectSeeker.hashKey( new Object[]{
+			new BigDecimal( "5.0" )
+		} ) );
+	}
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.cursor.CubeUtility;
+import org.eclipse.birt.data.engine.olap.data.api.cube.ILevelDefn;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionFactory;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionForTest;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.LevelDefinition;
+import org.eclipse.birt.data.engine.olap.data.util.BufferedPrimitiveDiskArray;
+import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the fact table rows found by the bitmap indexes are the same as the
+ * rows found by reading the segments sequentially.
+ */
+
+public class FactTableBitmapIndexTest
+{
+	private static final String FACT_TABLE_NAME = "bitmapIndexThreeDimensions";
+
+	/**
+	 *
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	@Test
+	public void testBitmapIndex( ) throws IOException, BirtException
+	{
+		IDocumentManager plainManager = createDocumentManager( "plainCube" );
+		IDocumentManager indexedManager = createDocumentManager( "indexedCube" );
+		try
+		{
+			FactTable plainFactTable = saveFactTable( plainManager,
+					createDimensions( plainManager ),
+					false );
+			FactTable indexedFactTable = saveFactTable( indexedManager,
+					createDimensions( indexedManager ),
+					true );
+			String FTSUName = FactTableAccessor.FTSUDocumentObjectNamingUtil.getDocumentObjectName( NamingUtil.getFactTableName( indexedFactTable.getName( ) ),
+					new int[indexedFactTable.getDimensionInfo( ).length] );
+			assertTrue( indexedManager.exist( NamingUtil.getFTSUBitmapIndexName( FTSUName ) ) );
+			assertFalse( plainManager.exist( NamingUtil.getFTSUBitmapIndexName( FTSUName ) ) );
+
+			// one member of a dimension
+			assertSameRows( plainFactTable,
+					indexedFactTable,
+					new String[]{
+						"dimension1"
+					},
+					new int[][]{
+						{
+							37
+						}
+					} );
+			// some members of two dimensions
+			assertSameRows( plainFactTable,
+					indexedFactTable,
+					new String[]{
+							"dimension2", "dimension3"
+					},
+					new int[][]{
+							{
+									1, 2, 50, 99
+							}, {
+								4
+							}
+					} );
+			// most of the members, the segments are read sequentially
+			int[] most = new int[90];
+			for ( int i = 0; i < most.length; i++ )
+			{
+				most[i] = i + 5;
+			}
+			assertSameRows( plainFactTable,
+					indexedFactTable,
+					new String[]{
+						"dimension1"
+					},
+					new int[][]{
+						most
+					} );
+			// no matching row
+			assertSameRows( plainFactTable,
+					indexedFactTable,
+					new String[]{
+							"dimension1", "dimension2"
+					},
+					new int[][]{
+							{
+								200
+							}, {
+								3
+							}
+					} );
+		}
+		finally
+		{
+			plainManager.close( );
+			indexedManager.close( );
+		}
+	}
+
+	private void assertSameRows( FactTable plainFactTable,
+			FactTable indexedFactTable, String[] dimensionNames,
+			int[][] positions ) throws IOException, BirtException
+	{
+		List expected = readRows( plainFactTable, dimensionNames, positions );
+		List actual = readRows( indexedFactTable, dimensionNames, positions );
+		assertEquals( expected.size( ), actual.size( ) );
+		for ( int i = 0; i < expected.size( ); i++ )
+		{
+			assertEquals( expected.get( i ), actual.get( i ) );
+		}
+	}
+
+	private List readRows( FactTable factTable, String[] dimensionNames,
+			int[][] positions ) throws IOException, BirtException
+	{
+		IDiskArray[] dimensionPosition = new IDiskArray[positions.length];
+		for ( int i = 0; i < positions.length; i++ )
+		{
+			dimensionPosition[i] = new BufferedPrimitiveDiskArray( );
+			for ( int j = 0; j < positions[i].length; j++ )
+			{
+				dimensionPosition[i].add( Integer.valueOf( positions[i][j] ) );
+			}
+		}
+		FactTableRowIterator iterator = new FactTableRowIterator( factTable,
+				dimensionNames,
+				dimensionPosition,
+				new StopSign( ) );
+		List rows = new ArrayList( );
+		while ( iterator.next( ) )
+		{
+			rows.add( Arrays.toString( iterator.getDimensionPosition( ) )
+					+ iterator.getMeasure( 0 )
+					+ ","
+					+ iterator.getMeasure( 1 )
+					+ ","
+					+ iterator.isDuplicatedRow( ) );
+		}
+		assertFalse( iterator.next( ) );
+		iterator.close( );
+		return rows;
+	}
+
+	private IDocumentManager createDocumentManager( String name )
+			throws BirtException, IOException
+	{
+		return DocumentManagerFactory.createFileDocumentManager( System.getProperty( "java.io.tmpdir" ),
+				name );
+	}
+
+	private Dimension[] createDimensions( IDocumentManager documentManager )
+			throws IOException, BirtException
+	{
+		Dimension[] dimensions = new Dimension[3];
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			String name = "dimension" + ( i + 1 );
+			DimensionForTest iterator = new DimensionForTest( new String[]{
+				name
+			} );
+			int[] data = new int[BigLevelsAndFactTableDataset.dimensionPositionLength[i]];
+			for ( int j = 0; j < data.length; j++ )
+			{
+				data[j] = j;
+			}
+			iterator.setLevelMember( 0, data );
+			ILevelDefn[] levelDefs = new ILevelDefn[]{
+				new LevelDefinition( name, new String[]{
+					name
+				}, null )
+			};
+			dimensions[i] = (Dimension) DimensionFactory.createDimension( name,
+					documentManager,
+					iterator,
+					levelDefs,
+					false,
+					new StopSign( ) );
+		}
+		return dimensions;
+	}
+
+	private FactTable saveFactTable( IDocumentManager documentManager,
+			Dimension[] dimensions, boolean bitmapIndex ) throws IOException,
+			BirtException
+	{
+		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
+		factTableConstructor.setBitmapIndex( bitmapIndex );
+		return factTableConstructor.saveFactTable( NamingUtil.getFactTableName( FACT_TABLE_NAME ),
+				CubeUtility.getKeyColNames( dimensions ),
+				CubeUtility.getKeyColNames( dimensions ),
+				new BigLevelsAndFactTableDataset( ),
+				dimensions,
+				new String[]{
+						"measure1", "measure2"
+				},
+				new StopSign( ) );
+	}
+}
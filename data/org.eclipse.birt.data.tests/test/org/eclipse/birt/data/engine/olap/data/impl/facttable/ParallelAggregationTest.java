@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
+import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.cursor.CubeUtility;
+import org.eclipse.birt.data.engine.olap.data.api.DimLevel;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
+import org.eclipse.birt.data.engine.olap.data.api.IDimensionSortDefn;
+import org.eclipse.birt.data.engine.olap.data.api.cube.ILevelDefn;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationFunctionDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationExecutor;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.DataSetFromOriginalCube;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionFactory;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionForTest;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionResultIterator;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.LevelDefinition;
+import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the aggregation results of the partitioned mode are the same as the
+ * results aggregated by the calling thread.
+ */
+
+public class ParallelAggregationTest
+{
+	private static final String FACT_TABLE_NAME = "parallelAggregation";
+
+	/**
+	 *
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	@Test
+	public void testParallelAggregation( ) throws IOException, BirtException
+	{
+		IDocumentManager documentManager = DocumentManagerFactory.createFileDocumentManager( System.getProperty( "java.io.tmpdir" ),
+				"parallelAggregationCube" );
+		try
+		{
+			Dimension[] dimensions = createDimensions( documentManager );
+			FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
+			FactTable factTable = factTableConstructor.saveFactTable( NamingUtil.getFactTableName( FACT_TABLE_NAME ),
+					CubeUtility.getKeyColNames( dimensions ),
+					CubeUtility.getKeyColNames( dimensions ),
+					new BigLevelsAndFactTableDataset( ),
+					dimensions,
+					new String[]{
+							"measure1", "measure2"
+					},
+					new StopSign( ) );
+
+			// the rows are kept in memory, merged before they are sorted, or
+			// sorted without being merged
+			long[] memoryCacheSizes = new long[]{
+					0, -10 * 1024 * 1024, 10 * 1024 * 1024
+			};
+			for ( int i = 0; i < memoryCacheSizes.length; i++ )
+			{
+				List expected = aggregate( factTable,
+						dimensions,
+						memoryCacheSizes[i],
+						1 );
+				List actual = aggregate( factTable,
+						dimensions,
+						memoryCacheSizes[i],
+						4 );
+				assertEquals( expected.size( ), actual.size( ) );
+				for ( int j = 0; j < expected.size( ); j++ )
+				{
+					assertEquals( expected.get( j ), actual.get( j ) );
+				}
+			}
+		}
+		finally
+		{
+			documentManager.close( );
+		}
+	}
+
+	private List aggregate( FactTable factTable, Dimension[] dimensions,
+			long memoryCacheSize, int parallelism ) throws IOException,
+			BirtException
+	{
+		String[] dimensionNames = new String[dimensions.length];
+		IDiskArray[] positions = new IDiskArray[dimensions.length];
+		DimensionResultIterator[] dimensionIterators = new DimensionResultIterator[dimensions.length];
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			dimensionNames[i] = dimensions[i].getName( );
+			positions[i] = dimensions[i].findAll( );
+			dimensionIterators[i] = new DimensionResultIterator( dimensions[i],
+					positions[i],
+					new StopSign( ) );
+		}
+		FactTableRowIterator factIterator = new FactTableRowIterator( factTable,
+				dimensionNames,
+				positions,
+				new StopSign( ) );
+
+		DimLevel level1 = new DimLevel( "dimension1", "dimension1" );
+		DimLevel level2 = new DimLevel( "dimension2", "dimension2" );
+		DimLevel level3 = new DimLevel( "dimension3", "dimension3" );
+		AggregationFunctionDefinition[] functions = new AggregationFunctionDefinition[]{
+			new AggregationFunctionDefinition( "total",
+					"measure1",
+					IBuildInAggregation.TOTAL_SUM_FUNC )
+		};
+		AggregationDefinition[] aggregations = new AggregationDefinition[]{
+				new AggregationDefinition( new DimLevel[]{
+					level1
+				}, new int[]{
+					IDimensionSortDefn.SORT_ASC
+				}, functions ),
+				new AggregationDefinition( new DimLevel[]{
+						level3, level2
+				}, new int[]{
+						IDimensionSortDefn.SORT_DESC,
+						IDimensionSortDefn.SORT_ASC
+				}, functions ),
+				new AggregationDefinition( null, null, functions )
+		};
+
+		AggregationExecutor executor = new AggregationExecutor( null,
+				new DataSetFromOriginalCube( factIterator,
+						dimensionIterators,
+						null ),
+				aggregations,
+				memoryCacheSize );
+		executor.setParallelism( parallelism );
+		IAggregationResultSet[] resultSets = executor.execute( new StopSign( ) );
+		List rows = new ArrayList( );
+		for ( int i = 0; i < resultSets.length; i++ )
+		{
+			for ( int j = 0; j < resultSets[i].length( ); j++ )
+			{
+				resultSets[i].seek( j );
+				StringBuffer row = new StringBuffer( );
+				row.append( i );
+				for ( int k = 0; k < resultSets[i].getLevelCount( ); k++ )
+				{
+					row.append( Arrays.asList( resultSets[i].getLevelKeyValue( k ) ) );
+				}
+				row.append( resultSets[i].getAggregationValue( 0 ) );
+				rows.add( row.toString( ) );
+			}
+			resultSets[i].close( );
+		}
+		return rows;
+	}
+
+	private Dimension[] createDimensions( IDocumentManager documentManager )
+			throws IOException, BirtException
+	{
+		Dimension[] dimensions = new Dimension[3];
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			String name = "dimension" + ( i + 1 );
+			DimensionForTest iterator = new DimensionForTest( new String[]{
+				name
+			} );
+			int[] data = new int[BigLevelsAndFactTableDataset.dimensionPositionLength[i]];
+			for ( int j = 0; j < data.length; j++ )
+			{
+				data[j] = j;
+			}
+			iterator.setLevelMember( 0, data );
+			ILevelDefn[] levelDefs = new ILevelDefn[]{
+				new LevelDefinition( name, new String[]{
+					name
+				}, null )
+			};
+			dimensions[i] = (Dimension) DimensionFactory.createDimension( name,
+					documentManager,
+					iterator,
+					levelDefs,
+					false,
+					new StopSign( ) );
+		}
+		return dimensions;
+	}
+}
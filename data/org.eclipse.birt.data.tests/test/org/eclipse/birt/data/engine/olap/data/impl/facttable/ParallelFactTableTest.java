@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.cursor.CubeUtility;
+import org.eclipse.birt.data.engine.olap.data.api.cube.ILevelDefn;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
+import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionForTest;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Hierarchy;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.LevelDefinition;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the cube materialized by multiple threads is the same as the one
+ * materialized by the calling thread.
+ */
+
+public class ParallelFactTableTest
+{
+	private static final String FACT_TABLE_NAME = "parallelThreeDimensions";
+
+	/**
+	 *
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	@Test
+	public void testParallelSave( ) throws IOException, BirtException
+	{
+		IDocumentManager serialManager = createDocumentManager( "serialCube" );
+		IDocumentManager parallelManager = createDocumentManager( "parallelCube" );
+		try
+		{
+			Dimension[] serialDimensions = createDimensions( serialManager, 1 );
+			Dimension[] parallelDimensions = createDimensions( parallelManager, 4 );
+			FactTable serialFactTable = saveFactTable( serialManager,
+					serialDimensions,
+					1 );
+			FactTable parallelFactTable = saveFactTable( parallelManager,
+					parallelDimensions,
+					4 );
+			assertEquals( serialFactTable.getSegmentCount( ),
+					parallelFactTable.getSegmentCount( ) );
+
+			List names = getDocumentObjectNames( serialManager,
+					serialDimensions );
+			assertEquals( names,
+					getDocumentObjectNames( parallelManager, parallelDimensions ) );
+			for ( int i = 0; i < names.size( ); i++ )
+			{
+				String name = (String) names.get( i );
+				assertArrayEquals( name,
+						readDocumentObject( serialManager, name ),
+						readDocumentObject( parallelManager, name ) );
+			}
+		}
+		finally
+		{
+			serialManager.close( );
+			parallelManager.close( );
+		}
+	}
+
+	private IDocumentManager createDocumentManager( String name )
+			throws BirtException, IOException
+	{
+		return DocumentManagerFactory.createFileDocumentManager( System.getProperty( "java.io.tmpdir" ),
+				name );
+	}
+
+	private Dimension[] createDimensions( IDocumentManager documentManager,
+			int parallelism ) throws IOException, BirtException
+	{
+		Dimension[] dimensions = new Dimension[3];
+		// the first dimension has two levels, whose indexes are sorted
+		// concurrently
+		DimensionForTest iterator = new DimensionForTest( new String[]{
+				"group1", "dimension1"
+		} );
+		int[] groups = new int[BigLevelsAndFactTableDataset.dimensionPositionLength[0]];
+		int[] data = new int[groups.length];
+		for ( int i = 0; i < data.length; i++ )
+		{
+			groups[i] = i / 10;
+			data[i] = i;
+		}
+		iterator.setLevelMember( 0, groups );
+		iterator.setLevelMember( 1, data );
+		ILevelDefn[] levelDefs = new ILevelDefn[]{
+				new LevelDefinition( "group1", new String[]{
+					"group1"
+				}, null ), new LevelDefinition( "dimension1", new String[]{
+					"dimension1"
+				}, null )
+		};
+		dimensions[0] = createDimension( documentManager,
+				"dimension1",
+				iterator,
+				levelDefs,
+				parallelism );
+
+		for ( int i = 1; i < dimensions.length; i++ )
+		{
+			String name = "dimension" + ( i + 1 );
+			iterator = new DimensionForTest( new String[]{
+				name
+			} );
+			data = new int[BigLevelsAndFactTableDataset.dimensionPositionLength[i]];
+			for ( int j = 0; j < data.length; j++ )
+			{
+				data[j] = j;
+			}
+			iterator.setLevelMember( 0, data );
+			levelDefs = new ILevelDefn[]{
+				new LevelDefinition( name, new String[]{
+					name
+				}, null )
+			};
+			dimensions[i] = createDimension( documentManager,
+					name,
+					iterator,
+					levelDefs,
+					parallelism );
+		}
+		return dimensions;
+	}
+
+	private Dimension createDimension( IDocumentManager documentManager,
+			String name, DimensionForTest iterator, ILevelDefn[] levelDefs,
+			int parallelism ) throws IOException, BirtException
+	{
+		Hierarchy hierarchy = new Hierarchy( documentManager, name, name );
+		hierarchy.setParallelism( parallelism );
+		hierarchy.createAndSaveHierarchy( iterator, levelDefs, new StopSign( ) );
+		return new Dimension( name, documentManager, hierarchy, false );
+	}
+
+	private FactTable saveFactTable( IDocumentManager documentManager,
+			Dimension[] dimensions, int parallelism ) throws IOException,
+			BirtException
+	{
+		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
+		factTableConstructor.setParallelism( parallelism );
+		return factTableConstructor.saveFactTable( NamingUtil.getFactTableName( FACT_TABLE_NAME ),
+				CubeUtility.getKeyColNames( dimensions ),
+				CubeUtility.getKeyColNames( dimensions ),
+				new BigLevelsAndFactTableDataset( ),
+				dimensions,
+				new String[]{
+						"measure1", "measure2"
+				},
+				new StopSign( ) );
+	}
+
+	private List getDocumentObjectNames( IDocumentManager documentManager,
+			Dimension[] dimensions ) throws IOException
+	{
+		List names = new ArrayList( );
+		String factTableName = NamingUtil.getFactTableName( FACT_TABLE_NAME );
+		names.add( NamingUtil.getFactTableName( factTableName ) );
+		names.add( NamingUtil.getFTSUListName( factTableName ) );
+		IDocumentObject documentObject = documentManager.openDocumentObject( NamingUtil.getFTSUListName( factTableName ) );
+		try
+		{
+			String FTSUName = documentObject.readString( );
+			while ( FTSUName != null )
+			{
+				names.add( FTSUName );
+				FTSUName = documentObject.readString( );
+			}
+		}
+		catch ( EOFException e )
+		{
+		}
+		documentObject.close( );
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			String name = dimensions[i].getName( );
+			names.add( NamingUtil.getHierarchyDocName( name, name ) );
+			names.add( NamingUtil.getHierarchyOffsetDocName( name, name ) );
+			for ( int j = 0; j < dimensions[i].getHierarchy( ).getLevels( ).length; j++ )
+			{
+				String levelName = dimensions[i].getHierarchy( )
+						.getLevels( )[j].getName( );
+				names.add( NamingUtil.getLevelIndexDocName( name, levelName ) );
+				names.add( NamingUtil.getLevelIndexOffsetDocName( name,
+						levelName ) );
+			}
+		}
+		return names;
+	}
+
+	private byte[] readDocumentObject( IDocumentManager documentManager,
+			String name ) throws IOException
+	{
+		IDocumentObject documentObject = documentManager.openDocumentObject( name );
+		assertNotNull( name, documentObject );
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		byte[] buffer = new byte[4096];
+		int readSize = documentObject.read( buffer, 0, buffer.length );
+		while ( readSize >= 0 )
+		{
+			out.write( buffer, 0, readSize );
+			readSize = documentObject.read( buffer, 0, buffer.length );
+		}
+		documentObject.close( );
+		return out.toByteArray( );
+	}
+}
@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.data.aggregation.api.IBuildInAggregation;
+import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.cursor.CubeUtility;
+import org.eclipse.birt.data.engine.olap.data.api.CubeQueryExecutorHelper;
+import org.eclipse.birt.data.engine.olap.data.api.DimLevel;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
+import org.eclipse.birt.data.engine.olap.data.api.IDimensionSortDefn;
+import org.eclipse.birt.data.engine.olap.data.api.cube.ILevelDefn;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationFunctionDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.Cube;
+import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.PreAggregation;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionFactory;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionForTest;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.LevelDefinition;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the aggregations answered from the pre-aggregations of a cube are
+ * the same as the aggregations computed on the fact table.
+ */
+
+public class PreAggregationTest
+{
+	private static final String CUBE_NAME = "preAggregation";
+
+	private DimLevel level1 = new DimLevel( "dimension1", "dimension1" );
+	private DimLevel level2 = new DimLevel( "dimension2", "dimension2" );
+	private DimLevel level3 = new DimLevel( "dimension3", "dimension3" );
+
+	/**
+	 *
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	@Test
+	public void testPreAggregation( ) throws IOException, BirtException
+	{
+		IDocumentManager plainManager = createDocumentManager( "plainPreAggregationCube" );
+		IDocumentManager rolledUpManager = createDocumentManager( "rolledUpPreAggregationCube" );
+		try
+		{
+			createCube( plainManager, null );
+			createCube( rolledUpManager, new AggregationDefinition[]{
+					new AggregationDefinition( new DimLevel[]{
+							level1, level2
+					}, new int[]{
+							IDimensionSortDefn.SORT_ASC,
+							IDimensionSortDefn.SORT_ASC
+					}, new AggregationFunctionDefinition[]{
+							new AggregationFunctionDefinition( "measure1Sum",
+									"measure1",
+									IBuildInAggregation.TOTAL_SUM_FUNC ),
+							new AggregationFunctionDefinition( "measure2Max",
+									"measure2",
+									IBuildInAggregation.TOTAL_MAX_FUNC ),
+							new AggregationFunctionDefinition( "measure2Min",
+									"measure2",
+									IBuildInAggregation.TOTAL_MIN_FUNC )
+					} ),
+					new AggregationDefinition( new DimLevel[]{
+						level3
+					}, new int[]{
+						IDimensionSortDefn.SORT_ASC
+					}, new AggregationFunctionDefinition[]{
+						new AggregationFunctionDefinition( "measure1Sum",
+								"measure1",
+								IBuildInAggregation.TOTAL_SUM_FUNC )
+					} )
+			} );
+			Cube plainCube = loadCube( plainManager );
+			Cube rolledUpCube = loadCube( rolledUpManager );
+			assertEquals( 0, plainCube.getPreAggregations( ).length );
+			PreAggregation[] preAggregations = rolledUpCube.getPreAggregations( );
+			assertEquals( 2, preAggregations.length );
+			assertEquals( 100 * 100, preAggregations[0].getRowCount( ) );
+			assertEquals( 10, preAggregations[1].getRowCount( ) );
+			assertTrue( rolledUpManager.exist( NamingUtil.getPreAggregationListName( CUBE_NAME ) ) );
+
+			AggregationDefinition[] aggregations = createQueryAggregations( );
+			// levels of the first pre-aggregation
+			assertNotNull( preAggregations[0].rewrite( aggregations[0] ) );
+			assertNotNull( preAggregations[0].rewrite( aggregations[1] ) );
+			// levels of both pre-aggregations
+			assertNull( preAggregations[0].rewrite( aggregations[2] ) );
+			assertNotNull( preAggregations[1].rewrite( aggregations[2] ) );
+			assertNotNull( preAggregations[0].rewrite( aggregations[3] ) );
+			assertNotNull( preAggregations[1].rewrite( aggregations[3] ) );
+			// COUNT and levels of no pre-aggregation
+			assertNull( preAggregations[0].rewrite( aggregations[4] ) );
+			assertNull( preAggregations[0].rewrite( aggregations[5] ) );
+			assertNull( preAggregations[1].rewrite( aggregations[5] ) );
+
+			List expected = execute( plainCube, aggregations );
+			List actual = execute( rolledUpCube, createQueryAggregations( ) );
+			assertEquals( expected.size( ), actual.size( ) );
+			for ( int i = 0; i < expected.size( ); i++ )
+			{
+				assertEquals( expected.get( i ), actual.get( i ) );
+			}
+			plainCube.close( );
+			rolledUpCube.close( );
+		}
+		finally
+		{
+			plainManager.close( );
+			rolledUpManager.close( );
+		}
+	}
+
+	private AggregationDefinition[] createQueryAggregations( )
+	{
+		AggregationFunctionDefinition measure1Sum = new AggregationFunctionDefinition( "total",
+				"measure1",
+				IBuildInAggregation.TOTAL_SUM_FUNC );
+		return new AggregationDefinition[]{
+				new AggregationDefinition( new DimLevel[]{
+					level1
+				}, new int[]{
+					IDimensionSortDefn.SORT_ASC
+				}, new AggregationFunctionDefinition[]{
+					measure1Sum
+				} ),
+				new AggregationDefinition( new DimLevel[]{
+						level2, level1
+				}, new int[]{
+						IDimensionSortDefn.SORT_DESC,
+						IDimensionSortDefn.SORT_ASC
+				}, new AggregationFunctionDefinition[]{
+						new AggregationFunctionDefinition( "max",
+								"measure2",
+								IBuildInAggregation.TOTAL_MAX_FUNC ),
+						new AggregationFunctionDefinition( "min",
+								"measure2",
+								IBuildInAggregation.TOTAL_MIN_FUNC )
+				} ),
+				new AggregationDefinition( new DimLevel[]{
+					level3
+				}, new int[]{
+					IDimensionSortDefn.SORT_DESC
+				}, new AggregationFunctionDefinition[]{
+					measure1Sum
+				} ),
+				new AggregationDefinition( null,
+						null,
+						new AggregationFunctionDefinition[]{
+							measure1Sum
+						} ),
+				new AggregationDefinition( new DimLevel[]{
+					level1
+				}, new int[]{
+					IDimensionSortDefn.SORT_ASC
+				}, new AggregationFunctionDefinition[]{
+					new AggregationFunctionDefinition( "count",
+							"measure1",
+							IBuildInAggregation.TOTAL_COUNT_FUNC )
+				} ),
+				new AggregationDefinition( new DimLevel[]{
+						level3, level2
+				}, new int[]{
+						IDimensionSortDefn.SORT_ASC,
+						IDimensionSortDefn.SORT_ASC
+				}, new AggregationFunctionDefinition[]{
+					measure1Sum
+				} )
+		};
+	}
+
+	private List execute( Cube cube, AggregationDefinition[] aggregations )
+			throws IOException, BirtException
+	{
+		CubeQueryExecutorHelper helper = new CubeQueryExecutorHelper( cube );
+		IAggregationResultSet[] resultSets = helper.execute( aggregations,
+				new StopSign( ) );
+		assertEquals( aggregations.length, resultSets.length );
+		List rows = new ArrayList( );
+		for ( int i = 0; i < resultSets.length; i++ )
+		{
+			AggregationFunctionDefinition[] functions = resultSets[i].getAggregationDefinition( )
+					.getAggregationFunctions( );
+			for ( int j = 0; j < resultSets[i].length( ); j++ )
+			{
+				resultSets[i].seek( j );
+				StringBuffer row = new StringBuffer( );
+				row.append( i );
+				for ( int k = 0; k < resultSets[i].getLevelCount( ); k++ )
+				{
+					row.append( Arrays.asList( resultSets[i].getLevelKeyValue( k ) ) );
+				}
+				for ( int k = 0; k < resultSets[i].getAggregationCount( ); k++ )
+				{
+					// the result sets keep the functions of the query
+					row.append( ',' );
+					row.append( functions[k].getMeasureName( ) );
+					row.append( '=' );
+					row.append( resultSets[i].getAggregationValue( k ) );
+				}
+				rows.add( row.toString( ) );
+			}
+			resultSets[i].close( );
+		}
+		return rows;
+	}
+
+	private IDocumentManager createDocumentManager( String name )
+			throws BirtException, IOException
+	{
+		return DocumentManagerFactory.createFileDocumentManager( System.getProperty( "java.io.tmpdir" ),
+				name );
+	}
+
+	private void createCube( IDocumentManager documentManager,
+			AggregationDefinition[] preAggregations ) throws IOException,
+			BirtException
+	{
+		Dimension[] dimensions = new Dimension[3];
+		for ( int i = 0; i < dimensions.length; i++ )
+		{
+			String name = "dimension" + ( i + 1 );
+			DimensionForTest iterator = new DimensionForTest( new String[]{
+				name
+			} );
+			int[] data = new int[BigLevelsAndFactTableDataset.dimensionPositionLength[i]];
+			for ( int j = 0; j < data.length; j++ )
+			{
+				data[j] = j;
+			}
+			iterator.setLevelMember( 0, data );
+			ILevelDefn[] levelDefs = new ILevelDefn[]{
+				new LevelDefinition( name, new String[]{
+					name
+				}, null )
+			};
+			dimensions[i] = (Dimension) DimensionFactory.createDimension( name,
+					documentManager,
+					iterator,
+					levelDefs,
+					false,
+					new StopSign( ) );
+		}
+		Cube cube = new Cube( CUBE_NAME, documentManager );
+		cube.setPreAggregations( preAggregations );
+		cube.create( CubeUtility.getKeyColNames( dimensions ),
+				dimensions,
+				new BigLevelsAndFactTableDataset( ),
+				new String[]{
+						"measure1", "measure2"
+				},
+				new StopSign( ) );
+		cube.close( );
+	}
+
+	private Cube loadCube( IDocumentManager documentManager )
+			throws IOException, BirtException
+	{
+		Cube cube = new Cube( CUBE_NAME, documentManager );
+		cube.load( new StopSign( ) );
+		return cube;
+	}
+}
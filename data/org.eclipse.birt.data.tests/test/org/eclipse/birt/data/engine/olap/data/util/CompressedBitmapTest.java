@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+
+public class CompressedBitmapTest
+{
+
+	@Test
+	public void testAdd( )
+	{
+		CompressedBitmap bitmap = new CompressedBitmap( );
+		TreeSet expected = new TreeSet( );
+		Random random = new Random( 1 );
+		// sparse values in many chunks and dense values in one chunk
+		for ( int i = 0; i < 3000; i++ )
+		{
+			add( bitmap, expected, random.nextInt( Integer.MAX_VALUE ) );
+		}
+		for ( int i = 0; i < 20000; i++ )
+		{
+			add( bitmap, expected, 65536 * 3 + random.nextInt( 65536 ) );
+		}
+		assertBitmap( expected, bitmap );
+		assertFalse( bitmap.contains( -1 ) );
+		assertFalse( bitmap.contains( 65536 * 4 + 1 ) );
+	}
+
+	@Test
+	public void testOr( )
+	{
+		Random random = new Random( 2 );
+		CompressedBitmap[] bitmaps = new CompressedBitmap[3];
+		TreeSet expected = new TreeSet( );
+		for ( int i = 0; i < bitmaps.length; i++ )
+		{
+			bitmaps[i] = new CompressedBitmap( );
+			// the array chunks become a bitmap chunk once they are merged
+			for ( int j = 0; j < 3000; j++ )
+			{
+				add( bitmaps[i], expected, random.nextInt( 65536 * 2 ) );
+			}
+		}
+		CompressedBitmap result = new CompressedBitmap( );
+		for ( int i = 0; i < bitmaps.length; i++ )
+		{
+			result.or( bitmaps[i] );
+		}
+		assertBitmap( expected, result );
+	}
+
+	@Test
+	public void testAnd( )
+	{
+		CompressedBitmap even = new CompressedBitmap( );
+		CompressedBitmap multipleOf3 = new CompressedBitmap( );
+		CompressedBitmap sparse = new CompressedBitmap( );
+		for ( int i = 0; i < 100000; i++ )
+		{
+			if ( i % 2 == 0 )
+				even.add( i );
+			if ( i % 3 == 0 )
+				multipleOf3.add( i );
+			if ( i % 1000 == 0 )
+				sparse.add( i );
+		}
+		even.and( multipleOf3 );
+		TreeSet expected = new TreeSet( );
+		for ( int i = 0; i < 100000; i += 6 )
+		{
+			expected.add( Integer.valueOf( i ) );
+		}
+		assertBitmap( expected, even );
+
+		even.and( sparse );
+		expected.clear( );
+		for ( int i = 0; i < 100000; i += 3000 )
+		{
+			expected.add( Integer.valueOf( i ) );
+		}
+		assertBitmap( expected, even );
+
+		CompressedBitmap other = new CompressedBitmap( );
+		other.add( 1 );
+		even.and( other );
+		assertTrue( even.isEmpty( ) );
+		assertEquals( 0, even.getCardinality( ) );
+	}
+
+	@Test
+	public void testSerialize( )
+	{
+		CompressedBitmap bitmap = new CompressedBitmap( );
+		TreeSet expected = new TreeSet( );
+		for ( int i = 0; i < 10000; i++ )
+		{
+			add( bitmap, expected, i * 7 );
+		}
+		for ( int i = 0; i < 5000; i++ )
+		{
+			add( bitmap, expected, 1000000 + i );
+		}
+		assertBitmap( expected,
+				CompressedBitmap.fromBytes( bitmap.toBytes( ) ) );
+		assertTrue( CompressedBitmap.fromBytes( new CompressedBitmap( ).toBytes( ) )
+				.isEmpty( ) );
+	}
+
+	private static void add( CompressedBitmap bitmap, TreeSet expected,
+			int value )
+	{
+		bitmap.add( value );
+		expected.add( Integer.valueOf( value ) );
+	}
+
+	private static void assertBitmap( TreeSet expected, CompressedBitmap bitmap )
+	{
+		assertEquals( expected.size( ), bitmap.getCardinality( ) );
+		int[] values = bitmap.toArray( );
+		assertEquals( expected.size( ), values.length );
+		Object[] expectedValues = expected.toArray( );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			assertEquals( ( (Integer) expectedValues[i] ).intValue( ), values[i] );
+			assertTrue( bitmap.contains( values[i] ) );
+		}
+	}
+}
@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Random;
+
+import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the elements of the off-heap arrays, in the direct pages and the
+ * memory-mapped pages, are the same as the elements added.
+ */
+
+public class OffHeapDiskArrayTest
+{
+
+	/**
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testStructures( ) throws IOException
+	{
+		// 4 direct pages, the others are mapped
+		OffHeapPagePool pagePool = new OffHeapPagePool( 1024, 4 * 1024 );
+		try
+		{
+			int objectNumber = 1001;
+			OffHeapDiskArray array = new OffHeapDiskArray( MemberForTest2.getMemberCreator( ),
+					pagePool );
+			for ( int i = 0; i < objectNumber; i++ )
+			{
+				array.add( createMember( i ) );
+			}
+			array.add( null );
+			assertEquals( objectNumber + 1, array.size( ) );
+			for ( int i = 0; i < objectNumber; i++ )
+			{
+				MemberForTest2 member = (MemberForTest2) array.get( i );
+				assertEquals( createMember( i ), member );
+				assertEquals( createMember( i ).dateField, member.dateField );
+				assertEquals( createMember( i ).stringField, member.stringField );
+				assertEquals( createMember( i ).bigDecimalField,
+						member.bigDecimalField );
+				assertEquals( createMember( i ).booleanField,
+						member.booleanField );
+			}
+			assertNull( array.get( objectNumber ) );
+
+			// the released pages are reused
+			array.clear( );
+			assertEquals( 0, array.size( ) );
+			for ( int i = 0; i < objectNumber; i++ )
+			{
+				array.add( createMember( objectNumber - i ) );
+			}
+			for ( int i = 0; i < objectNumber; i++ )
+			{
+				assertEquals( createMember( objectNumber - i ), array.get( i ) );
+			}
+			array.close( );
+		}
+		finally
+		{
+			pagePool.close( );
+		}
+	}
+
+	/**
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testPrimitiveValues( ) throws IOException
+	{
+		OffHeapPagePool pagePool = new OffHeapPagePool( 256, 256 );
+		try
+		{
+			StringBuffer buffer = new StringBuffer( );
+			for ( int i = 0; i < 300; i++ )
+			{
+				buffer.append( 'a' );
+			}
+			java.sql.Timestamp timestamp = new java.sql.Timestamp( 190001000L );
+			timestamp.setNanos( 123456789 );
+			Object[] values = new Object[]{
+					Integer.valueOf( 1 ),
+					null,
+					"string",
+					new Double( 1.5 ),
+					Boolean.TRUE,
+					Long.valueOf( Long.MAX_VALUE ),
+					new Date( 190001000L ),
+					new java.sql.Date( 190001000L ),
+					new java.sql.Time( 190001000L ),
+					timestamp,
+					new BigDecimal( "-1010101010100101010110.0123" ),
+					new Bytes( new byte[]{
+							1, 2, 3
+					} ),
+					// larger than a page
+					buffer.toString( )
+			};
+			OffHeapDiskArray array = new OffHeapDiskArray( null, pagePool );
+			for ( int i = 0; i < 10; i++ )
+			{
+				for ( int j = 0; j < values.length; j++ )
+				{
+					array.add( values[j] );
+				}
+			}
+			assertEquals( values.length * 10, array.size( ) );
+			for ( int i = 0; i < array.size( ); i++ )
+			{
+				Object value = values[i % values.length];
+				assertEquals( value, array.get( i ) );
+				if ( value != null )
+				{
+					assertEquals( value.getClass( ), array.get( i ).getClass( ) );
+				}
+			}
+			array.close( );
+		}
+		finally
+		{
+			pagePool.close( );
+		}
+		try
+		{
+			pagePool.allocate( );
+			fail( "Should not arrive here" );
+		}
+		catch ( IOException e )
+		{
+		}
+	}
+
+	/**
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testSortedStack( ) throws IOException
+	{
+		OffHeapPagePool pagePool = new OffHeapPagePool( 1024, 16 * 1024 );
+		try
+		{
+			Comparator comparator = new Comparator( ) {
+
+				public int compare( Object o1, Object o2 )
+				{
+					return ( (MemberForTest2) o1 ).compareTo( o2 );
+				}
+			};
+			// more segments than a stack keeps, so the segments are merged
+			DiskSortedStack expected = new DiskSortedStack( 10,
+					false,
+					comparator,
+					MemberForTest2.getMemberCreator( ) );
+			OffHeapSpillSortedStack actual = new OffHeapSpillSortedStack( 10,
+					false,
+					comparator,
+					MemberForTest2.getMemberCreator( ),
+					pagePool );
+			Random random = new Random( 0 );
+			int objectNumber = 2001;
+			for ( int i = 0; i < objectNumber; i++ )
+			{
+				MemberForTest2 member = createMember( random.nextInt( 500 ) );
+				expected.push( member );
+				actual.push( member );
+			}
+			for ( int i = 0; i < objectNumber; i++ )
+			{
+				assertEquals( expected.pop( ), actual.pop( ) );
+			}
+			assertNull( actual.pop( ) );
+			expected.close( );
+			actual.close( );
+		}
+		finally
+		{
+			pagePool.close( );
+		}
+	}
+
+	static private MemberForTest2 createMember( int i )
+	{
+		int iField = i;
+		Date dateField = new Date( 190001000 + i * 1000 );
+		String stringField = "string" + i;
+		double doubleField = i + 10.0;
+		BigDecimal bigDecimalField = new BigDecimal( "1010101010100101010110"
+				+ i );
+		boolean booleanField = ( i % 2 == 0 ? true : false );
+		return new MemberForTest2( iField,
+				dateField,
+				stringField,
+				doubleField,
+				bigDecimalField,
+				booleanField );
+	}
+
+	/**
+	 * The pages are unmapped and the temp file is deleted when the pool is
+	 * closed.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testClosePagePool( ) throws IOException
+	{
+		// 1 direct page, the others are mapped
+		OffHeapPagePool pagePool = new OffHeapPagePool( 1024, 1024 );
+		File mappedFile = new File( DataEngineThreadLocal.getInstance( )
+				.getPathManager( )
+				.getTempFileName( "OffHeapPagePool", pagePool.hashCode( ), "" ) );
+		OffHeapDiskArray array = new OffHeapDiskArray( null, pagePool );
+		for ( int i = 0; i < 1000; i++ )
+		{
+			array.add( Integer.valueOf( i ) );
+		}
+		assertTrue( mappedFile.exists( ) );
+		assertEquals( Integer.valueOf( 999 ), array.get( 999 ) );
+
+		pagePool.close( );
+		assertTrue( pagePool.isClosed( ) );
+		assertFalse( mappedFile.exists( ) );
+		try
+		{
+			array.get( 999 );
+			fail( "The pages are read after the pool is closed." );
+		}
+		catch ( IOException e )
+		{
+		}
+		try
+		{
+			pagePool.allocate( );
+			fail( "A page is allocated after the pool is closed." );
+		}
+		catch ( IOException e )
+		{
+		}
+		array.close( );
+	}
+
+	/**
+	 * The mapped pages are sliced from the large chunks of the temp file, each
+	 * of them has its own region.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void testMappedChunks( ) throws IOException
+	{
+		// 2 pages in each chunk of 64M
+		int pageSize = 32 * 1024 * 1024;
+		OffHeapPagePool pagePool = new OffHeapPagePool( pageSize, 0 );
+		File mappedFile = new File( DataEngineThreadLocal.getInstance( )
+				.getPathManager( )
+				.getTempFileName( "OffHeapPagePool", pagePool.hashCode( ), "" ) );
+		try
+		{
+			ByteBuffer[] pages = new ByteBuffer[3];
+			for ( int i = 0; i < pages.length; i++ )
+			{
+				pages[i] = pagePool.allocate( );
+				assertEquals( 0, pages[i].position( ) );
+				assertEquals( pageSize, pages[i].limit( ) );
+				pages[i].putInt( 0, i );
+				pages[i].putInt( pageSize - 4, i );
+			}
+			for ( int i = 0; i < pages.length; i++ )
+			{
+				assertEquals( i, pages[i].getInt( 0 ) );
+				assertEquals( i, pages[i].getInt( pageSize - 4 ) );
+			}
+			// the third page is in the second chunk
+			assertEquals( 2L * 64 * 1024 * 1024, mappedFile.length( ) );
+		}
+		finally
+		{
+			pagePool.close( );
+		}
+		assertFalse( mappedFile.exists( ) );
+	}
+}
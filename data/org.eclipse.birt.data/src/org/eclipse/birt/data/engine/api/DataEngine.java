@@ -79,6 +79,49 @@ abstract public class DataEngine
 	 */
 	public static String MAX_DATA_OBJECT_ROWS = "org.eclipse.birt.data.query.MaxDataObjectRows";
 	
+	/**
+	 * Indicates whether the rows cached in memory are kept in columnar way,
+	 * with one primitive array per column. Accepts "true" or "false", the
+	 * default value is true.
+	 */
+	public static String COLUMNAR_MEMORY_CACHE = "org.eclipse.birt.data.query.ColumnarMemoryCache";
+	
+	/**
+	 * Indicates how many threads are used to sort the rows which spill to
+	 * disk. Accepts a positive integer, the default value is the number of
+	 * available processors. If this setting is 1, the rows are sorted in the
+	 * calling thread.
+	 */
+	public static String DISK_SORT_PARALLELISM = "org.eclipse.birt.data.query.DiskSortParallelism";
+	
+	/**
+	 * Indicates the size of memory used by the sorted runs when the rows spill
+	 * to disk, which is shared by the runs being sorted at the same time. We
+	 * only accept non-negative integer as input, the unit of which would be
+	 * MB. If this setting is 0, the runs share the memory of the result
+	 * buffer.
+	 */
+	public static String DISK_SORT_RUN_MEMORY = "org.eclipse.birt.data.query.DiskSortRunMemory";
+	
+	/**
+	 * Indicates whether the joint data sets with equal join conditions are
+	 * joined by a hash table rather than by merging the sorted data sets.
+	 * The hash join doesn't sort the data sets, so the joint rows follow the
+	 * order of the data set rows instead of the join keys, which differs from
+	 * the order of the merge join. Accepts "true" or "false", the default
+	 * value is false.
+	 */
+	public static String JOINT_DATA_SET_HASH_JOIN = "org.eclipse.birt.data.query.JointDataSetHashJoin";
+	
+	/**
+	 * Indicates the size of memory used by the hash table of a joint data set.
+	 * We only accept non-negative integer as input, the unit of which would be
+	 * MB. If this setting is 0, the hash table uses as much memory as the
+	 * result buffer. Once the memory is used up, the rows are split into
+	 * partitions on the disk.
+	 */
+	public static String HASH_JOIN_MEMORY = "org.eclipse.birt.data.query.HashJoinMemory";
+	
 	
 	public static String DATA_SET_CACHE_DELTA_FILE = "org.eclipse.birt.data.cache.DeltaFile";
 	
@@ -156,6 +199,42 @@ abstract public class DataEngine
 	 */
 	public static String IN_MEMORY_CUBE_SIZE = "org.eclipse.birt.data.engine.cube.inmemory.size";
 	
+	/**
+	 * Indicates how many threads are used to materialize a cube. Accepts a
+	 * positive integer, the default value is 1, with which the cube is
+	 * materialized in the calling thread. The materialized cube is the same
+	 * whatever this setting is.
+	 */
+	public static String CUBE_MATERIALIZE_PARALLELISM = "org.eclipse.birt.data.engine.cube.materialize.parallelism";
+	
+	/**
+	 * Indicates whether to save the bitmap indexes of the fact table when a
+	 * cube is materialized. Accepts a boolean value, the default value is
+	 * false. With the indexes the queries filtering the cube by some level
+	 * members read only the matching fact table rows.
+	 */
+	public static String CUBE_BITMAP_INDEX = "org.eclipse.birt.data.engine.cube.bitmapindex";
+	
+	/**
+	 * Indicates how many threads aggregate the fact table rows of a cube query.
+	 * Accepts a positive integer, the default value is 1, with which the rows
+	 * are aggregated in the calling thread. The rows are partitioned by the
+	 * aggregation levels, so the aggregation result is the same whatever this
+	 * setting is.
+	 */
+	public static String CUBE_AGGREGATION_PARALLELISM = "org.eclipse.birt.data.engine.cube.aggregation.parallelism";
+	
+	/**
+	 * Indicates the size in bytes of the direct memory used by the fact table
+	 * rows of a cube query which spill from the sort buffers. Accepts a
+	 * positive long, the default value is 0, with which the rows spill to
+	 * temp files. Otherwise the spilled rows are saved in off-heap pages
+	 * instead of the temp files, and the rows exceeding this size are saved in
+	 * memory-mapped temp files. This saves the file I/O of the spill only, the
+	 * rows in the sort buffers and the aggregation results stay on the heap.
+	 */
+	public static String CUBE_AGGREGATION_OFF_HEAP_SPILL_SIZE = "org.eclipse.birt.data.engine.cube.aggregation.offheap.spill.size";
+	
 	/**
 	 * Creates a new instance of DataEngine, using the specified
 	 * DataEngineContext as its running environment
@@ -15,6 +15,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.core.archive.IDocArchiveReader;
@@ -100,6 +101,7 @@ public class DataEngineContext
 
 	private String tmpDir = PropertySecurity.getSystemProperty( "java.io.tmpdir" ); //$NON-NLS-1$
 	private ClassLoader classLoader;
+	private ReentrantLock sessionLock;
 	
 	/** stream id for internal use, don't use it externally */
 	public final static int VERSION_INFO_STREAM = 11;
@@ -637,6 +639,28 @@ public class DataEngineContext
 	{
 		this.classLoader = classLoader;
 	}
+
+	/**
+	 * Set the lock which serializes the threads sharing the data engine. If it
+	 * is set, the thread holding the lock releases it while the ODA data set
+	 * is executed, so that the other threads can go on with their queries.
+	 * 
+	 * @param sessionLock
+	 */
+	public void setSessionLock( ReentrantLock sessionLock )
+	{
+		this.sessionLock = sessionLock;
+	}
+
+	/**
+	 * 
+	 * @return the lock shared by the threads using the data engine, null if
+	 *         the data engine is only used by one thread.
+	 */
+	public ReentrantLock getSessionLock( )
+	{
+		return this.sessionLock;
+	}
 	
 	/**
 	 * 
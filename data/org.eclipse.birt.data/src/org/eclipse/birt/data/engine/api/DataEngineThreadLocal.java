@@ -1,6 +1,7 @@
 package org.eclipse.birt.data.engine.api;
 
 import org.eclipse.birt.data.engine.core.security.TempPathManager;
+import org.eclipse.birt.data.engine.impl.DataEngineSession;
 
 
 
@@ -49,4 +50,43 @@ public class DataEngineThreadLocal
 		pathManager.remove( );
 	}
 	
+	/**
+	 * Returns the thread local state of the data engine in the current thread.
+	 * A thread which works on the data engine session of another thread, and
+	 * is serialized with it, sets the state by setThreadState() in advance.
+	 * 
+	 * @return
+	 */
+	public Object getThreadState( )
+	{
+		return new Object[]{
+				closeHolder.get( ),
+				pathManager.get( ),
+				DataEngineSession.getThreadState( )
+		};
+	}
+	
+	/**
+	 * 
+	 * @param state
+	 *            the value returned by getThreadState()
+	 */
+	public void setThreadState( Object state )
+	{
+		Object[] values = (Object[]) state;
+		closeHolder.set( (CloseListenerManager) values[0] );
+		pathManager.set( (TempPathManager) values[1] );
+		DataEngineSession.setThreadState( (Object[]) values[2] );
+	}
+	
+	/**
+	 * Clears the state set by setThreadState().
+	 */
+	public void removeThreadState( )
+	{
+		closeHolder.remove( );
+		pathManager.remove( );
+		DataEngineSession.setThreadState( null );
+	}
+	
 }
@@ -0,0 +1,78 @@
+/*
+ *************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *
+ *************************************************************************
+ */
+
+package org.eclipse.birt.data.engine.api.aggregation;
+
+import java.util.List;
+
+import org.eclipse.birt.data.engine.core.DataException;
+
+/**
+ * An optional interface of the Accumulator of a SUMMARY_AGGR aggregation
+ * with one numeric argument. Instead of calling onRow() with the boxed
+ * arguments of every data row, the Data Engine collects the argument values
+ * of many rows into primitive arrays and passes them in one call. It is only
+ * used if the argument is a plain column reference, so the Data Engine can get
+ * the value without evaluating the script.
+ * <p>
+ * A batch may contain the rows of several groups. The groupEnds[] argument
+ * lists the end of each group which ends in the batch; the rows after the last
+ * end belong to the group which is continued by the next batch. For each ended
+ * group the accumulator adds the aggregate value to the results list and
+ * re-initializes itself for the next group, just as the Data Engine calls
+ * finish(), getValue() and start() in the row by row mode.
+ * <p>
+ * The rows of the current group accumulated by onBatch() and by onRow() must
+ * share the same state, so the Data Engine can switch back to onRow() at any
+ * time, for example if a value is not a number.
+ */
+public interface IBatchAccumulator
+{
+
+	/**
+	 * Tests if the values of the class can be accumulated by onBatch(). The
+	 * values are converted to double before being passed, so the accumulator
+	 * should only accept the classes whose result does not depend on the
+	 * original type.
+	 *
+	 * @param valueClass
+	 *            the class of the argument value, it is a subclass of
+	 *            java.lang.Number.
+	 * @return true if the values can be passed to onBatch()
+	 */
+	public boolean isBatchSupported( Class valueClass );
+
+	/**
+	 * Accumulates a batch of argument values.
+	 *
+	 * @param values
+	 *            the argument value of each row
+	 * @param nulls
+	 *            nulls[i] is true if the argument of row i is null, in which
+	 *            case values[i] is meaningless.
+	 * @param rowCount
+	 *            the count of the rows in the batch
+	 * @param groupEnds
+	 *            the (exclusive) end row of each group ended in the batch, in
+	 *            ascending order. Two equal ends denote an empty group.
+	 * @param groupCount
+	 *            the count of the ended groups
+	 * @param results
+	 *            the list to which the value of each ended group is added
+	 * @throws DataException
+	 */
+	public void onBatch( double[] values, boolean[] nulls, int rowCount,
+			int[] groupEnds, int groupCount, List results )
+			throws DataException;
+}
@@ -136,7 +136,36 @@ public class DataSetCacheManager
 	{
 		return this.appContext;
 	}
-	
+
+	/**
+	 * Returns the current data source and data set, which can be restored by
+	 * restoreCurrent() after the session is used by another thread.
+	 *
+	 * @return
+	 */
+	Object[] getCurrent( )
+	{
+		return new Object[]{
+				this.dataSourceDesign,
+				this.dataSetDesign,
+				this.parameterHints,
+				this.appContext
+		};
+	}
+
+	/**
+	 *
+	 * @param current
+	 *            the value returned by getCurrent()
+	 */
+	void restoreCurrent( Object[] current )
+	{
+		setDataSourceAndDataSet( (IBaseDataSourceDesign) current[0],
+				(IBaseDataSetDesign) current[1],
+				(Collection) current[2],
+				(Map) current[3] );
+	}
+
 
 	/**
 	 * Remember before requesting any service, this function must be called in
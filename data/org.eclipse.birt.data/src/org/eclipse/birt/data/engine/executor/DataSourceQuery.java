@@ -21,6 +21,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -394,6 +395,42 @@ public class DataSourceQuery extends BaseQuery implements IDataSourceQuery, IPre
         return this;
     }
 
+	/**
+	 * Executes the ODA statement. If the session is shared by several threads,
+	 * the session lock is released during the execution, so the other threads
+	 * can go on while the data source is working.
+	 * 
+	 * @throws DataException
+	 */
+	private void executeOdaStatement( ) throws DataException
+	{
+		ReentrantLock lock = session.getEngineContext( ).getSessionLock( );
+		if ( lock == null || !lock.isHeldByCurrentThread( ) )
+		{
+			odaStatement.execute( );
+			return;
+		}
+		DataSetCacheManager dscm = session.getDataSetCacheManager( );
+		Object[] current = dscm.getCurrent( );
+		int holdCount = lock.getHoldCount( );
+		for ( int i = 0; i < holdCount; i++ )
+		{
+			lock.unlock( );
+		}
+		try
+		{
+			odaStatement.execute( );
+		}
+		finally
+		{
+			for ( int i = 0; i < holdCount; i++ )
+			{
+				lock.lock( );
+			}
+			dscm.restoreCurrent( current );
+		}
+	}
+
 	private boolean canAccessResultSetByName( IOdaDataSetDesign design )
 			throws DataException
 	{
@@ -977,7 +1014,7 @@ public class DataSourceQuery extends BaseQuery implements IDataSourceQuery, IPre
     	if( !session.getStopSign().isStopped())
     	{    
 			long startTime = System.currentTimeMillis( );
-    		odaStatement.execute( );
+    		executeOdaStatement( );
 			long endTime = System.currentTimeMillis( );
 			if( logger.isLoggable( Level.FINE ) )
 				logger.log( Level.FINE, "ODA query execution time: " + 
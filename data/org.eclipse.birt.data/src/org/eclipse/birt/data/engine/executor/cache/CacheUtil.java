@@ -114,6 +114,134 @@ public class CacheUtil
 		}
 	}
 
+	/**
+	 * Whether the rows cached in memory can be kept in columnar way.
+	 * 
+	 * @param appContext
+	 * @return
+	 */
+	public static boolean enableColumnarMemoryCache( Map appContext )
+	{
+		if ( appContext == null )
+			return true;
+		Object propValue = appContext.get( DataEngine.COLUMNAR_MEMORY_CACHE );
+		if ( propValue == null )
+			return true;
+		return Boolean.valueOf( propValue.toString( ) ).booleanValue( );
+	}
+
+	/**
+	 * Return the number of threads used to sort the rows spilled to disk.
+	 * 
+	 * @param appContext
+	 * @return
+	 */
+	public static int getDiskSortParallelism( Map appContext )
+	{
+		Object propValue = appContext == null ? null
+				: appContext.get( DataEngine.DISK_SORT_PARALLELISM );
+		if ( propValue != null )
+		{
+			int parallelism = Integer.parseInt( propValue.toString( ) );
+			if ( parallelism > 0 )
+				return parallelism;
+		}
+		return Runtime.getRuntime( ).availableProcessors( );
+	}
+
+	/**
+	 * Return the number of threads used to aggregate the fact table rows of a
+	 * cube query.
+	 * 
+	 * @param appContext
+	 * @return
+	 */
+	public static int getCubeAggregationParallelism( Map appContext )
+	{
+		Object propValue = appContext == null ? null
+				: appContext.get( DataEngine.CUBE_AGGREGATION_PARALLELISM );
+		if ( propValue != null )
+		{
+			int parallelism = Integer.parseInt( propValue.toString( ) );
+			if ( parallelism > 0 )
+				return parallelism;
+		}
+		return 1;
+	}
+
+	/**
+	 * Return the size in bytes of the direct memory used by the spilled fact
+	 * table rows of a cube query, 0 indicates the rows spill to disk files.
+	 * 
+	 * @param appContext
+	 * @return
+	 */
+	public static long getCubeAggregationOffHeapSpillSize( Map appContext )
+	{
+		Object propValue = appContext == null ? null
+				: appContext.get( DataEngine.CUBE_AGGREGATION_OFF_HEAP_SPILL_SIZE );
+		if ( propValue != null )
+		{
+			long size = Long.parseLong( propValue.toString( ) );
+			if ( size > 0 )
+				return size;
+		}
+		return 0;
+	}
+
+	/**
+	 * Return the memory size shared by the sorted runs in bytes, 0 indicates
+	 * the runs share the memory buffer.
+	 * 
+	 * @param appContext
+	 * @return
+	 */
+	public static long getDiskSortRunMemory( Map appContext )
+	{
+		if ( appContext == null )
+			return 0;
+		Object propValue = appContext.get( DataEngine.DISK_SORT_RUN_MEMORY );
+		if ( propValue == null )
+			return 0;
+		return Math.max( 0, Long.parseLong( propValue.toString( ) ) ) * 1024 * 1024;
+	}
+
+	/**
+	 * Return whether the joint data sets are joined by a hash table.
+	 * 
+	 * @param appContext
+	 * @return
+	 */
+	public static boolean enableHashJoin( Map appContext )
+	{
+		if ( appContext == null )
+			return false;
+		Object propValue = appContext.get( DataEngine.JOINT_DATA_SET_HASH_JOIN );
+		if ( propValue == null )
+			return false;
+		return Boolean.valueOf( propValue.toString( ) ).booleanValue( );
+	}
+
+	/**
+	 * Return the memory size of the hash join table in bytes, 0 indicates
+	 * there is no limit.
+	 * 
+	 * @param appContext
+	 * @return
+	 */
+	public static long getHashJoinMemory( Map appContext )
+	{
+		Object propValue = appContext == null ? null
+				: appContext.get( DataEngine.HASH_JOIN_MEMORY );
+		if ( propValue != null )
+		{
+			long memory = Long.parseLong( propValue.toString( ) );
+			if ( memory > 0 )
+				return memory * 1024 * 1024;
+		}
+		return computeMemoryBufferSize( appContext );
+	}
+
 	/**
 	 * 
 	 * @param propValue
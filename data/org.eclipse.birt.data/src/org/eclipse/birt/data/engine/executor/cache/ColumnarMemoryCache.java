@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.birt.core.archive.RAOutputStream;
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.data.engine.api.IBinding;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.impl.StringTable;
+import org.eclipse.birt.data.engine.impl.document.viewing.ExprMetaUtil;
+import org.eclipse.birt.data.engine.impl.index.IAuxiliaryIndexCreator;
+import org.eclipse.birt.data.engine.impl.index.IIndexSerializer;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * Columnar memory implementation of ResultSetCache. The rows are kept in a
+ * ColumnarRowStore, and a result object is only created when a caller asks for
+ * the current row.
+ */
+public class ColumnarMemoryCache implements ResultSetCache
+{
+	private int countOfResult;
+	private int currResultIndex = -1;
+
+	private IResultClass rsMeta;
+	private IResultObject currResultObject;
+	private ColumnarRowStore rowStore;
+
+	/**
+	 * @param rowStore
+	 * @param comparator
+	 */
+	ColumnarMemoryCache( ColumnarRowStore rowStore, Comparator comparator )
+	{
+		this.rowStore = rowStore;
+		this.rsMeta = rowStore.getResultClass( );
+		this.countOfResult = rowStore.size( );
+
+		rowStore.trimToSize( );
+		rowStore.sort( comparator );
+	}
+
+	/**
+	 * @param resultObjects
+	 * @param rsMeta
+	 * @param comparator
+	 * @throws DataException
+	 */
+	public ColumnarMemoryCache( IResultObject[] resultObjects,
+			IResultClass rsMeta, Comparator comparator ) throws DataException
+	{
+		this( createRowStore( resultObjects, rsMeta ), comparator );
+	}
+
+	/**
+	 * @param resultObjects
+	 * @param rsMeta
+	 * @return
+	 * @throws DataException
+	 */
+	private static ColumnarRowStore createRowStore(
+			IResultObject[] resultObjects, IResultClass rsMeta )
+			throws DataException
+	{
+		ColumnarRowStore rowStore = new ColumnarRowStore( rsMeta );
+		for ( int i = 0; i < resultObjects.length; i++ )
+		{
+			rowStore.add( resultObjects[i] );
+		}
+		return rowStore;
+	}
+
+	/**
+	 * Whether the rows of given result class can be cached by this class.
+	 *
+	 * @param rsMeta
+	 * @return
+	 * @throws DataException
+	 */
+	public static boolean isSupported( IResultClass rsMeta )
+			throws DataException
+	{
+		return ColumnarRowStore.isSupported( rsMeta );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#getCurrentIndex()
+	 */
+	public int getCurrentIndex( ) throws DataException
+	{
+		return currResultIndex;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#getCurrentResult()
+	 */
+	public IResultObject getCurrentResult( ) throws DataException
+	{
+		if ( currResultObject == null
+				&& currResultIndex >= 0 && currResultIndex < countOfResult )
+			currResultObject = rowStore.getResultObject( currResultIndex );
+		return currResultObject;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#next()
+	 */
+	public boolean next( ) throws DataException
+	{
+		if ( countOfResult == 0 )
+			return false;
+
+		currResultObject = null;
+		if ( currResultIndex < countOfResult )
+			currResultIndex++;
+
+		return currResultIndex < countOfResult;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#fetch()
+	 */
+	public IResultObject fetch( ) throws DataException
+	{
+		next( );
+		return getCurrentResult( );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#moveTo(int)
+	 */
+	public void moveTo( int destIndex ) throws DataException
+	{
+		if ( destIndex < -1 || destIndex > countOfResult )
+			throw new DataException( ResourceConstants.DESTINDEX_OUTOF_RANGE,
+					new Object[]{
+							Integer.valueOf( -1 ),
+							Integer.valueOf( countOfResult )
+					} );
+
+		if ( destIndex != currResultIndex )
+			currResultObject = null;
+		currResultIndex = destIndex;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#getCount()
+	 */
+	public int getCount( )
+	{
+		return countOfResult;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#reset()
+	 */
+	public void reset( )
+	{
+		currResultIndex = -1;
+		currResultObject = null;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#close()
+	 */
+	public void close( )
+	{
+		reset( );
+		rowStore.clear( );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#doSave(java.io.DataOutputStream, java.io.DataOutputStream, java.util.Map, java.util.Map, java.util.List, int, java.util.List, boolean)
+	 */
+	public void doSave( DataOutputStream outputStream,
+			DataOutputStream rowLensStream,
+			Map<String, StringTable> stringTable,
+			Map<String, IIndexSerializer> index,
+			List<IBinding> cacheRequestMap, int version,
+			List<IAuxiliaryIndexCreator> auxiliaryIndexCreators,
+			boolean saveInnerId )
+			throws DataException
+	{
+		DataOutputStream dos = new DataOutputStream( outputStream );
+		Set resultSetNameSet = ResultSetUtil.getRsColumnRequestMap( cacheRequestMap );
+		try
+		{
+			// save data
+			int rowCount = countOfResult;
+			int colCount = getColumnCount( this.rsMeta );
+
+			IOUtil.writeInt( dos, rowCount );
+			long offset = 4;
+			for ( int i = 0; i < rowCount; i++ )
+			{
+				IResultObject resultObject = rowStore.getResultObject( i );
+				IOUtil.writeLong( rowLensStream, offset );
+				offset += ResultSetUtil.writeResultObject( dos,
+						resultObject,
+						colCount,
+						resultSetNameSet, stringTable, index, i, version, saveInnerId );
+				if ( auxiliaryIndexCreators != null )
+				{
+					for ( IAuxiliaryIndexCreator creator : auxiliaryIndexCreators )
+					{
+						creator.save( resultObject, i );
+					}
+				}
+			}
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.RD_SAVE_ERROR, e );
+		}
+	}
+
+	private int getColumnCount( IResultClass meta ) throws DataException
+	{
+		int count = meta.getFieldCount( );
+		for ( int i = 1; i <= meta.getFieldCount( ); i++ )
+		{
+			if ( meta.getFieldName( i ).equals( ExprMetaUtil.POS_NAME ) )
+			{
+				count--;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#incrementalUpdate(java.io.OutputStream, java.io.OutputStream, int, java.util.Map, java.util.Map, java.util.List, int, java.util.List)
+	 */
+	public void incrementalUpdate( OutputStream outputStream,
+			OutputStream rowLensStream, int originalRowCount,
+			Map<String, StringTable> stringTable,
+			Map<String, IIndexSerializer> map, List<IBinding> cacheRequestMap,
+			int version, List<IAuxiliaryIndexCreator> auxiliaryIndexCreators )
+			throws DataException
+	{
+		Set resultSetNameSet = ResultSetUtil.getRsColumnRequestMap( cacheRequestMap );
+		try
+		{
+			// save data
+			int rowCount = originalRowCount + countOfResult;
+			int colCount = this.rsMeta.getFieldCount( );
+
+			IOUtil.writeInt( outputStream, rowCount );
+			if( outputStream instanceof RAOutputStream )
+				( ( RAOutputStream )outputStream ).seek( ( ( RAOutputStream )outputStream ).length( ) );
+			if( rowLensStream instanceof RAOutputStream )
+				( ( RAOutputStream )rowLensStream ).seek( ( ( RAOutputStream )rowLensStream ).length( ) );
+			DataOutputStream dos = new DataOutputStream( outputStream );
+			DataOutputStream rlos = new DataOutputStream( rowLensStream );
+
+			long offset = 4;
+			if( outputStream instanceof RAOutputStream )
+				offset = ( ( RAOutputStream )outputStream ).length( );
+			for ( int i = 0; i < countOfResult; i++ )
+			{
+				IResultObject resultObject = rowStore.getResultObject( i );
+				IOUtil.writeLong( rlos, offset );
+				offset += ResultSetUtil.writeResultObject( dos,
+						resultObject,
+						colCount,
+						resultSetNameSet, stringTable, map, originalRowCount + i, version );
+				if ( auxiliaryIndexCreators != null )
+				{
+					for ( IAuxiliaryIndexCreator creator : auxiliaryIndexCreators )
+					{
+						creator.save( resultObject, originalRowCount + i );
+					}
+				}
+			}
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.RD_SAVE_ERROR, e );
+		}
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.ResultSetCache#setResultClass(org.eclipse.birt.data.engine.odi.IResultClass)
+	 */
+	public void setResultClass( IResultClass rsMeta ) throws DataException
+	{
+		this.rsMeta = rsMeta;
+	}
+}
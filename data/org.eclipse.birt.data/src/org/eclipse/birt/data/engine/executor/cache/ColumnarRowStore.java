@@ -0,0 +1,1065 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+import org.eclipse.birt.data.engine.olap.data.util.CompareUtil;
+
+/**
+ * Column oriented row storage used by ColumnarMemoryCache. Every field is kept
+ * in a primitive array (int, long, double, boolean bits or date millis),
+ * strings are dictionary encoded and null values are tracked in a bitmap, so
+ * that no wrapper object is held per field. If a value does not fit the
+ * encoding of its column, that column falls back to a plain object array.
+ */
+class ColumnarRowStore
+{
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int MIN_REMOVED_ROWS = 1024;
+
+	private IResultClass rsMeta;
+	private Column[] columns;
+	private int rowCount;
+	private int capacity;
+
+	/**
+	 * @param rsMeta
+	 * @throws DataException
+	 */
+	ColumnarRowStore( IResultClass rsMeta ) throws DataException
+	{
+		this.rsMeta = rsMeta;
+		this.capacity = INITIAL_CAPACITY;
+		this.columns = new Column[rsMeta.getFieldCount( )];
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			columns[i] = createColumn( rsMeta.getFieldValueClass( i + 1 ),
+					capacity );
+		}
+	}
+
+	/**
+	 * Whether the rows of given result class can be kept in columnar way. The
+	 * columnar store only pays off when the field types are known up front,
+	 * so columns of any type, blob and decimal values are not accepted.
+	 *
+	 * @param rsMeta
+	 * @return
+	 * @throws DataException
+	 */
+	static boolean isSupported( IResultClass rsMeta ) throws DataException
+	{
+		if ( rsMeta == null
+				|| rsMeta.getFieldCount( ) == 0 || rsMeta.hasAnyTYpe( ) )
+			return false;
+
+		for ( int i = 1; i <= rsMeta.getFieldCount( ); i++ )
+		{
+			if ( !isEncodable( rsMeta.getFieldValueClass( i ) ) )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param valueClass
+	 * @return
+	 */
+	private static boolean isEncodable( Class valueClass )
+	{
+		return valueClass == Integer.class
+				|| valueClass == Long.class || valueClass == Double.class
+				|| valueClass == Boolean.class || valueClass == String.class
+				|| DateColumn.isDateClass( valueClass );
+	}
+
+	/**
+	 * @param valueClass
+	 * @param capacity
+	 * @return
+	 */
+	private static Column createColumn( Class valueClass, int capacity )
+	{
+		if ( valueClass == Integer.class )
+			return new IntColumn( capacity );
+		if ( valueClass == Long.class )
+			return new LongColumn( capacity );
+		if ( valueClass == Double.class )
+			return new DoubleColumn( capacity );
+		if ( valueClass == Boolean.class )
+			return new BooleanColumn( capacity );
+		if ( valueClass == String.class )
+			return new StringColumn( capacity );
+		if ( DateColumn.isDateClass( valueClass ) )
+			return new DateColumn( valueClass, capacity );
+		return new ObjectColumn( capacity );
+	}
+
+	/**
+	 * Append a row at the end of the store. Fields missing in the given result
+	 * object are stored as null.
+	 *
+	 * @param resultObject
+	 * @throws DataException
+	 */
+	void add( IResultObject resultObject ) throws DataException
+	{
+		if ( rowCount == capacity )
+			grow( );
+
+		int fieldCount = Math.min( columns.length,
+				resultObject.getResultClass( ).getFieldCount( ) );
+		for ( int i = 0; i < fieldCount; i++ )
+		{
+			set( rowCount, i, resultObject.getFieldValue( i + 1 ) );
+		}
+		for ( int i = fieldCount; i < columns.length; i++ )
+		{
+			columns[i].setNull( rowCount );
+		}
+		rowCount++;
+	}
+
+	/**
+	 * @return count of rows in the store
+	 */
+	int size( )
+	{
+		return rowCount;
+	}
+
+	/**
+	 * @return the result class of stored rows
+	 */
+	IResultClass getResultClass( )
+	{
+		return rsMeta;
+	}
+
+	/**
+	 * @param row
+	 * @param fieldIndex
+	 *            1-based
+	 * @return
+	 */
+	Object getValue( int row, int fieldIndex )
+	{
+		Column column = columns[fieldIndex - 1];
+		if ( column.isNull( row ) )
+			return null;
+		return column.get( row );
+	}
+
+	/**
+	 * @param row
+	 * @param fieldIndex
+	 *            1-based
+	 * @param value
+	 */
+	void setValue( int row, int fieldIndex, Object value )
+	{
+		set( row, fieldIndex - 1, value );
+	}
+
+	/**
+	 * @param row
+	 * @param column
+	 *            0-based
+	 * @param value
+	 */
+	private void set( int row, int column, Object value )
+	{
+		if ( value == null )
+		{
+			columns[column].setNull( row );
+			return;
+		}
+		if ( !columns[column].accepts( value ) )
+		{
+			columns[column] = toObjectColumn( columns[column] );
+		}
+		columns[column].set( row, value );
+	}
+
+	/**
+	 * Fall back to the object storage for a column whose values do not share
+	 * one encodable type.
+	 *
+	 * @param column
+	 * @return
+	 */
+	private ObjectColumn toObjectColumn( Column column )
+	{
+		ObjectColumn result = new ObjectColumn( capacity );
+		for ( int i = 0; i < rowCount; i++ )
+		{
+			if ( column.isNull( i ) )
+				result.setNull( i );
+			else
+				result.set( i, column.get( i ) );
+		}
+		return result;
+	}
+
+	/**
+	 * Double the capacity of all the columns.
+	 */
+	private void grow( )
+	{
+		int newCapacity = capacity <= Integer.MAX_VALUE / 2
+				? capacity * 2 : Integer.MAX_VALUE;
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			columns[i].resize( newCapacity );
+		}
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Release the unused tail of the column arrays and the structures which
+	 * are only needed while rows are being added.
+	 */
+	void trimToSize( )
+	{
+		int newCapacity = Math.max( rowCount, 1 );
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			columns[i].resize( newCapacity );
+			columns[i].compact( );
+		}
+		capacity = newCapacity;
+	}
+
+	/**
+	 * @return estimated memory size occupied by the store in bytes
+	 */
+	long getEstimatedMemorySize( )
+	{
+		long size = 0;
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			size += columns[i].sizeOf( rowCount, capacity );
+		}
+		return size;
+	}
+
+	/**
+	 * Sort the rows with the comparator of result objects. The comparator is
+	 * fed with two reusable row views, so no result object is kept per row.
+	 *
+	 * @param comparator
+	 */
+	void sort( Comparator comparator )
+	{
+		if ( comparator == null || rowCount < 2 )
+			return;
+
+		int[] order = new int[rowCount];
+		for ( int i = 0; i < rowCount; i++ )
+			order[i] = i;
+
+		RowView left = new RowView( this, 0 );
+		RowView right = new RowView( this, 0 );
+		mergeSort( order, new int[rowCount], 0, rowCount, comparator, left, right );
+
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			columns[i].permute( order, rowCount );
+		}
+	}
+
+	/**
+	 * Stable merge sort on row positions.
+	 */
+	private static void mergeSort( int[] order, int[] buffer, int from,
+			int to, Comparator comparator, RowView left, RowView right )
+	{
+		if ( to - from < 2 )
+			return;
+		int mid = ( from + to ) >>> 1;
+		mergeSort( order, buffer, from, mid, comparator, left, right );
+		mergeSort( order, buffer, mid, to, comparator, left, right );
+
+		left.row = order[mid - 1];
+		right.row = order[mid];
+		if ( comparator.compare( left, right ) <= 0 )
+			return;
+
+		System.arraycopy( order, from, buffer, from, to - from );
+		int i = from, j = mid, k = from;
+		while ( i < mid && j < to )
+		{
+			left.row = buffer[i];
+			right.row = buffer[j];
+			if ( comparator.compare( left, right ) <= 0 )
+				order[k++] = buffer[i++];
+			else
+				order[k++] = buffer[j++];
+		}
+		while ( i < mid )
+			order[k++] = buffer[i++];
+		while ( j < to )
+			order[k++] = buffer[j++];
+	}
+
+	/**
+	 * @param row
+	 * @return a result object which reads and writes the given row
+	 */
+	IResultObject getResultObject( int row )
+	{
+		return new RowView( this, row );
+	}
+
+	/**
+	 * Materialize the rows one by one, which is needed when the rows are
+	 * handed over to a cache which works on result objects. The rows read are
+	 * released from the store while reading, so the store and the result
+	 * objects are not kept in memory together, and the store is empty after
+	 * the last row is read.
+	 *
+	 * @return
+	 */
+	IRowResultSet removeRows( )
+	{
+		return new IRowResultSet( ) {
+
+			private int index = 0;
+			private int position = 0;
+
+			public IResultClass getMetaData( )
+			{
+				return rsMeta;
+			}
+
+			public IResultObject next( ) throws DataException
+			{
+				if ( position >= rowCount )
+				{
+					clear( );
+					return null;
+				}
+				Object[] fields = new Object[columns.length];
+				for ( int i = 0; i < fields.length; i++ )
+				{
+					fields[i] = getValue( position, i + 1 );
+				}
+				position++;
+				index++;
+				// the columns are shrunk when half of them is read, so the
+				// rows are copied a constant number of times on average
+				if ( position >= MIN_REMOVED_ROWS && position >= rowCount / 2 )
+				{
+					removeHead( position );
+					position = 0;
+				}
+				return new ResultObject( rsMeta, fields );
+			}
+
+			public int getIndex( ) throws DataException
+			{
+				return index - 1;
+			}
+		};
+	}
+
+	/**
+	 * Remove the given count of rows from the head of the columns.
+	 *
+	 * @param count
+	 */
+	private void removeHead( int count )
+	{
+		int remaining = rowCount - count;
+		int[] order = new int[remaining];
+		for ( int i = 0; i < remaining; i++ )
+			order[i] = count + i;
+		int newCapacity = Math.max( remaining, 1 );
+		for ( int i = 0; i < columns.length; i++ )
+		{
+			columns[i].permute( order, remaining );
+			columns[i].resize( newCapacity );
+		}
+		rowCount = remaining;
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Release all the rows.
+	 */
+	void clear( )
+	{
+		columns = new Column[0];
+		rowCount = 0;
+		capacity = 0;
+	}
+
+	/**
+	 * A lightweight result object backed by one row of the store.
+	 */
+	private static class RowView implements IResultObject
+	{
+		private ColumnarRowStore store;
+		private int row;
+
+		RowView( ColumnarRowStore store, int row )
+		{
+			this.store = store;
+			this.row = row;
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#getResultClass()
+		 */
+		public IResultClass getResultClass( )
+		{
+			return store.rsMeta;
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#getFieldValue(java.lang.String)
+		 */
+		public Object getFieldValue( String fieldName ) throws DataException
+		{
+			int fieldIndex = store.rsMeta.getFieldIndex( fieldName );
+
+			if ( fieldIndex < 1 )
+				throw new DataException( ResourceConstants.INVALID_FIELD_NAME,
+						fieldName );
+
+			return getFieldValue( fieldIndex );
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#getFieldValue(int)
+		 */
+		public Object getFieldValue( int fieldIndex ) throws DataException
+		{
+			return store.getValue( row, fieldIndex );
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#setCustomFieldValue(java.lang.String, java.lang.Object)
+		 */
+		public void setCustomFieldValue( String fieldName, Object value )
+				throws DataException
+		{
+			int idx = store.rsMeta.getFieldIndex( fieldName );
+			setCustomFieldValue( idx, value );
+		}
+
+		/*
+		 * @see org.eclipse.birt.data.engine.odi.IResultObject#setCustomFieldValue(int, java.lang.Object)
+		 */
+		public void setCustomFieldValue( int fieldIndex, Object value )
+				throws DataException
+		{
+			if ( store.rsMeta.isCustomField( fieldIndex ) )
+				store.setValue( row, fieldIndex, value );
+			else
+				throw new DataException( ResourceConstants.INVALID_CUSTOM_FIELD_INDEX,
+						Integer.valueOf( fieldIndex ) );
+		}
+
+		/*
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals( Object ob )
+		{
+			if ( ob instanceof IResultObject == false )
+				return false;
+
+			IResultObject ob2 = (IResultObject) ob;
+
+			int fieldCount = this.getResultClass( ).getFieldCount( );
+			if ( fieldCount != ob2.getResultClass( ).getFieldCount( ) )
+				return false;
+
+			for ( int i = 0; i < fieldCount; i++ )
+			{
+				try
+				{
+					if ( CompareUtil.compare( this.getFieldValue( i + 1 ),
+							ob2.getFieldValue( i + 1 ) ) != 0 )
+						return false;
+				}
+				catch ( DataException e )
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/*
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode( )
+		{
+			int result = 17;
+			for ( int i = 1; i <= store.columns.length; i++ )
+			{
+				Object value = store.getValue( row, i );
+				result = 37 * result + ( value == null ? 0 : value.hashCode( ) );
+			}
+			return result;
+		}
+
+		/*
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString( )
+		{
+			StringBuffer buf = new StringBuffer( store.columns.length * 10 );
+			for ( int i = 1; i <= store.columns.length; i++ )
+			{
+				if ( i > 1 )
+					buf.append( ',' );
+				Object value = store.getValue( row, i );
+				buf.append( value == null ? "null" : value.toString( ) );
+			}
+			return buf.toString( );
+		}
+	}
+
+	/**
+	 * Base class of a column. Null values are kept in a bitmap.
+	 */
+	private static abstract class Column
+	{
+		private long[] nulls;
+
+		Column( int capacity )
+		{
+			nulls = new long[bitmapLength( capacity )];
+		}
+
+		static int bitmapLength( int capacity )
+		{
+			return ( capacity + 63 ) >>> 6;
+		}
+
+		static boolean getBit( long[] bits, int index )
+		{
+			return ( bits[index >>> 6] & ( 1L << index ) ) != 0;
+		}
+
+		static void setBit( long[] bits, int index, boolean value )
+		{
+			if ( value )
+				bits[index >>> 6] |= 1L << index;
+			else
+				bits[index >>> 6] &= ~( 1L << index );
+		}
+
+		static long[] permuteBits( long[] bits, int[] order, int count )
+		{
+			long[] result = new long[bits.length];
+			for ( int i = 0; i < count; i++ )
+			{
+				if ( getBit( bits, order[i] ) )
+					setBit( result, i, true );
+			}
+			return result;
+		}
+
+		boolean isNull( int row )
+		{
+			return getBit( nulls, row );
+		}
+
+		void setNull( int row )
+		{
+			setBit( nulls, row, true );
+		}
+
+		void set( int row, Object value )
+		{
+			setBit( nulls, row, false );
+			setValue( row, value );
+		}
+
+		void resize( int capacity )
+		{
+			long[] newNulls = new long[bitmapLength( capacity )];
+			System.arraycopy( nulls,
+					0,
+					newNulls,
+					0,
+					Math.min( nulls.length, newNulls.length ) );
+			nulls = newNulls;
+			resizeValues( capacity );
+		}
+
+		void permute( int[] order, int count )
+		{
+			nulls = permuteBits( nulls, order, count );
+			permuteValues( order, count );
+		}
+
+		long sizeOf( int rowCount, int capacity )
+		{
+			return SizeOfUtil.PRIMITIVE_ARRAY_OVERHEAD + nulls.length * 8L;
+		}
+
+		void compact( )
+		{
+		}
+
+		abstract boolean accepts( Object value );
+
+		abstract Object get( int row );
+
+		abstract void setValue( int row, Object value );
+
+		abstract void resizeValues( int capacity );
+
+		abstract void permuteValues( int[] order, int count );
+	}
+
+	private static class IntColumn extends Column
+	{
+		private int[] values;
+
+		IntColumn( int capacity )
+		{
+			super( capacity );
+			values = new int[capacity];
+		}
+
+		boolean accepts( Object value )
+		{
+			return value.getClass( ) == Integer.class;
+		}
+
+		Object get( int row )
+		{
+			return Integer.valueOf( values[row] );
+		}
+
+		void setValue( int row, Object value )
+		{
+			values[row] = ( (Integer) value ).intValue( );
+		}
+
+		void resizeValues( int capacity )
+		{
+			int[] newValues = new int[capacity];
+			System.arraycopy( values, 0, newValues, 0, Math.min( values.length, capacity ) );
+			values = newValues;
+		}
+
+		void permuteValues( int[] order, int count )
+		{
+			int[] newValues = new int[values.length];
+			for ( int i = 0; i < count; i++ )
+				newValues[i] = values[order[i]];
+			values = newValues;
+		}
+
+		long sizeOf( int rowCount, int capacity )
+		{
+			return super.sizeOf( rowCount, capacity )
+					+ SizeOfUtil.PRIMITIVE_ARRAY_OVERHEAD + capacity * 4L;
+		}
+	}
+
+	private static class LongColumn extends Column
+	{
+		private long[] values;
+
+		LongColumn( int capacity )
+		{
+			super( capacity );
+			values = new long[capacity];
+		}
+
+		boolean accepts( Object value )
+		{
+			return value.getClass( ) == Long.class;
+		}
+
+		Object get( int row )
+		{
+			return Long.valueOf( values[row] );
+		}
+
+		void setValue( int row, Object value )
+		{
+			values[row] = ( (Long) value ).longValue( );
+		}
+
+		void resizeValues( int capacity )
+		{
+			long[] newValues = new long[capacity];
+			System.arraycopy( values, 0, newValues, 0, Math.min( values.length, capacity ) );
+			values = newValues;
+		}
+
+		void permuteValues( int[] order, int count )
+		{
+			long[] newValues = new long[values.length];
+			for ( int i = 0; i < count; i++ )
+				newValues[i] = values[order[i]];
+			values = newValues;
+		}
+
+		long sizeOf( int rowCount, int capacity )
+		{
+			return super.sizeOf( rowCount, capacity )
+					+ SizeOfUtil.PRIMITIVE_ARRAY_OVERHEAD + capacity * 8L;
+		}
+	}
+
+	private static class DoubleColumn extends Column
+	{
+		private double[] values;
+
+		DoubleColumn( int capacity )
+		{
+			super( capacity );
+			values = new double[capacity];
+		}
+
+		boolean accepts( Object value )
+		{
+			return value.getClass( ) == Double.class;
+		}
+
+		Object get( int row )
+		{
+			return Double.valueOf( values[row] );
+		}
+
+		void setValue( int row, Object value )
+		{
+			values[row] = ( (Double) value ).doubleValue( );
+		}
+
+		void resizeValues( int capacity )
+		{
+			double[] newValues = new double[capacity];
+			System.arraycopy( values, 0, newValues, 0, Math.min( values.length, capacity ) );
+			values = newValues;
+		}
+
+		void permuteValues( int[] order, int count )
+		{
+			double[] newValues = new double[values.length];
+			for ( int i = 0; i < count; i++ )
+				newValues[i] = values[order[i]];
+			values = newValues;
+		}
+
+		long sizeOf( int rowCount, int capacity )
+		{
+			return super.sizeOf( rowCount, capacity )
+					+ SizeOfUtil.PRIMITIVE_ARRAY_OVERHEAD + capacity * 8L;
+		}
+	}
+
+	private static class BooleanColumn extends Column
+	{
+		private long[] values;
+
+		BooleanColumn( int capacity )
+		{
+			super( capacity );
+			values = new long[bitmapLength( capacity )];
+		}
+
+		boolean accepts( Object value )
+		{
+			return value.getClass( ) == Boolean.class;
+		}
+
+		Object get( int row )
+		{
+			return Boolean.valueOf( getBit( values, row ) );
+		}
+
+		void setValue( int row, Object value )
+		{
+			setBit( values, row, ( (Boolean) value ).booleanValue( ) );
+		}
+
+		void resizeValues( int capacity )
+		{
+			long[] newValues = new long[bitmapLength( capacity )];
+			System.arraycopy( values, 0, newValues, 0, Math.min( values.length, newValues.length ) );
+			values = newValues;
+		}
+
+		void permuteValues( int[] order, int count )
+		{
+			values = permuteBits( values, order, count );
+		}
+
+		long sizeOf( int rowCount, int capacity )
+		{
+			return super.sizeOf( rowCount, capacity )
+					+ SizeOfUtil.PRIMITIVE_ARRAY_OVERHEAD + values.length * 8L;
+		}
+	}
+
+	/**
+	 * Date values are kept as milliseconds. The nanoseconds are only kept for
+	 * timestamp columns. The first value decides the date class of the column,
+	 * since drivers often return a subclass of the declared type.
+	 */
+	private static class DateColumn extends Column
+	{
+		private Class dateClass;
+		private boolean hasValue;
+		private long[] values;
+		private int[] nanos;
+
+		DateColumn( Class dateClass, int capacity )
+		{
+			super( capacity );
+			this.dateClass = dateClass;
+			values = new long[capacity];
+			if ( dateClass == Timestamp.class )
+				nanos = new int[capacity];
+		}
+
+		static boolean isDateClass( Class valueClass )
+		{
+			return valueClass == Date.class
+					|| valueClass == java.sql.Date.class
+					|| valueClass == Time.class
+					|| valueClass == Timestamp.class;
+		}
+
+		boolean accepts( Object value )
+		{
+			if ( !hasValue )
+				return isDateClass( value.getClass( ) );
+			return value.getClass( ) == dateClass;
+		}
+
+		Object get( int row )
+		{
+			if ( dateClass == java.sql.Date.class )
+				return new java.sql.Date( values[row] );
+			if ( dateClass == Time.class )
+				return new Time( values[row] );
+			if ( dateClass == Timestamp.class )
+			{
+				Timestamp result = new Timestamp( values[row] );
+				result.setNanos( nanos[row] );
+				return result;
+			}
+			return new Date( values[row] );
+		}
+
+		void setValue( int row, Object value )
+		{
+			if ( !hasValue )
+			{
+				hasValue = true;
+				dateClass = value.getClass( );
+				if ( dateClass == Timestamp.class && nanos == null )
+					nanos = new int[values.length];
+			}
+			values[row] = ( (Date) value ).getTime( );
+			// the column is declared as timestamp but might be given other
+			// date values
+			if ( nanos != null )
+				nanos[row] = value instanceof Timestamp
+						? ( (Timestamp) value ).getNanos( ) : 0;
+		}
+
+		void resizeValues( int capacity )
+		{
+			long[] newValues = new long[capacity];
+			System.arraycopy( values, 0, newValues, 0, Math.min( values.length, capacity ) );
+			values = newValues;
+			if ( nanos != null )
+			{
+				int[] newNanos = new int[capacity];
+				System.arraycopy( nanos, 0, newNanos, 0, Math.min( nanos.length, capacity ) );
+				nanos = newNanos;
+			}
+		}
+
+		void permuteValues( int[] order, int count )
+		{
+			long[] newValues = new long[values.length];
+			for ( int i = 0; i < count; i++ )
+				newValues[i] = values[order[i]];
+			values = newValues;
+			if ( nanos != null )
+			{
+				int[] newNanos = new int[nanos.length];
+				for ( int i = 0; i < count; i++ )
+					newNanos[i] = nanos[order[i]];
+				nanos = newNanos;
+			}
+		}
+
+		long sizeOf( int rowCount, int capacity )
+		{
+			return super.sizeOf( rowCount, capacity )
+					+ SizeOfUtil.PRIMITIVE_ARRAY_OVERHEAD + capacity * 8L
+					+ ( nanos == null ? 0 : capacity * 4L );
+		}
+	}
+
+	/**
+	 * Dictionary encoded string column. The lookup map is only needed while
+	 * values are added, so it is dropped by compact() and rebuilt on demand.
+	 */
+	private static class StringColumn extends Column
+	{
+		private int[] codes;
+		private List<String> dictionary = new ArrayList<String>( );
+		private Map<String, Integer> lookup = new HashMap<String, Integer>( );
+		private long dictionarySize;
+
+		StringColumn( int capacity )
+		{
+			super( capacity );
+			codes = new int[capacity];
+		}
+
+		boolean accepts( Object value )
+		{
+			return value.getClass( ) == String.class;
+		}
+
+		Object get( int row )
+		{
+			return dictionary.get( codes[row] );
+		}
+
+		void setValue( int row, Object value )
+		{
+			if ( lookup == null )
+			{
+				lookup = new HashMap<String, Integer>( );
+				for ( int i = 0; i < dictionary.size( ); i++ )
+					lookup.put( dictionary.get( i ), Integer.valueOf( i ) );
+			}
+			Integer code = lookup.get( value );
+			if ( code == null )
+			{
+				code = Integer.valueOf( dictionary.size( ) );
+				dictionary.add( (String) value );
+				lookup.put( (String) value, code );
+				dictionarySize += SizeOfUtil.sizeOf( String.class, value )
+						+ SizeOfUtil.POINTER_SIZE * 3;
+			}
+			codes[row] = code.intValue( );
+		}
+
+		void resizeValues( int capacity )
+		{
+			int[] newCodes = new int[capacity];
+			System.arraycopy( codes, 0, newCodes, 0, Math.min( codes.length, capacity ) );
+			codes = newCodes;
+		}
+
+		void permuteValues( int[] order, int count )
+		{
+			int[] newCodes = new int[codes.length];
+			for ( int i = 0; i < count; i++ )
+				newCodes[i] = codes[order[i]];
+			codes = newCodes;
+		}
+
+		void compact( )
+		{
+			lookup = null;
+			( (ArrayList<String>) dictionary ).trimToSize( );
+		}
+
+		long sizeOf( int rowCount, int capacity )
+		{
+			return super.sizeOf( rowCount, capacity )
+					+ SizeOfUtil.PRIMITIVE_ARRAY_OVERHEAD + capacity * 4L
+					+ dictionarySize;
+		}
+	}
+
+	/**
+	 * Column of arbitrary values, used when a column can not be encoded.
+	 */
+	private static class ObjectColumn extends Column
+	{
+		private Object[] values;
+		private long valuesSize;
+
+		ObjectColumn( int capacity )
+		{
+			super( capacity );
+			values = new Object[capacity];
+		}
+
+		boolean accepts( Object value )
+		{
+			return true;
+		}
+
+		Object get( int row )
+		{
+			return values[row];
+		}
+
+		void setNull( int row )
+		{
+			super.setNull( row );
+			values[row] = null;
+		}
+
+		void setValue( int row, Object value )
+		{
+			values[row] = value;
+			valuesSize += SizeOfUtil.sizeOf( value.getClass( ), value );
+		}
+
+		void resizeValues( int capacity )
+		{
+			Object[] newValues = new Object[capacity];
+			System.arraycopy( values, 0, newValues, 0, Math.min( values.length, capacity ) );
+			values = newValues;
+		}
+
+		void permuteValues( int[] order, int count )
+		{
+			Object[] newValues = new Object[values.length];
+			for ( int i = 0; i < count; i++ )
+				newValues[i] = values[order[i]];
+			values = newValues;
+		}
+
+		long sizeOf( int rowCount, int capacity )
+		{
+			return super.sizeOf( rowCount, capacity )
+					+ SizeOfUtil.OBJECT_ARRAY_OVERHEAD
+					+ (long) capacity * SizeOfUtil.POINTER_SIZE + valuesSize;
+		}
+	}
+}
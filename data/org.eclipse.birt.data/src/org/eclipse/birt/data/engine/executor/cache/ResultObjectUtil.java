@@ -115,6 +115,22 @@ public class ResultObjectUtil
 		return new ResultObject( rsMetaData, rowData );
 	}
 
+	/**
+	 * @return the data types of the columns
+	 */
+	public Class[] getFieldValueClasses( )
+	{
+		return typeArray;
+	}
+
+	/**
+	 * @return whether the current session is stopped
+	 */
+	public boolean isStopped( )
+	{
+		return session.getStopSign( ).isStopped( );
+	}
+
 	/**
 	 * Deserialze result object array from input stream. The reading procedure
 	 * is strictly sequential, that means there is no random access.
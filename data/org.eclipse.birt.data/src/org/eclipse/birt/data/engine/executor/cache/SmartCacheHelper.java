@@ -14,6 +14,7 @@ package org.eclipse.birt.data.engine.executor.cache;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.data.engine.core.DataException;
@@ -26,7 +27,6 @@ import org.eclipse.birt.data.engine.odaconsumer.ResultSet;
 import org.eclipse.birt.data.engine.odi.IEventHandler;
 import org.eclipse.birt.data.engine.odi.IResultClass;
 import org.eclipse.birt.data.engine.odi.IResultObject;
-import org.eclipse.birt.data.engine.script.ScriptEvalUtil;
 
 /**
  * Help SmartCache to get the ResultSetCache, the real data cache.
@@ -310,6 +310,15 @@ class SmartCacheHelper
 		IResultObject odaObject;
 		IResultObject[] resultObjects;
 		List resultObjectsList = new ArrayList( );
+		
+		// rows are kept in primitive columns when all the field types allow
+		ColumnarRowStore rowStore = null;
+		if ( CacheUtil.enableColumnarMemoryCache( eventHandler == null ? null
+				: eventHandler.getAppContext( ) )
+				&& ColumnarRowStore.isSupported( rsMeta ) )
+		{
+			rowStore = new ColumnarRowStore( rsMeta );
+		}
 
 		int dataCount = 0;
 		long usedMemorySize = 0;
@@ -324,6 +333,13 @@ class SmartCacheHelper
 				{
 					throw new DataException( ResourceConstants.EXCEED_MAX_DATA_OBJECT_ROWS );
 				}
+				if ( rowStore != null )
+				{
+					rowStore.add( odaObject );
+					if( memoryCacheSize != 0 )
+						usedMemorySize = rowStore.getEstimatedMemorySize( );
+					continue;
+				}
 				//the followed variable is for performance
 				int odaObjectFieldCount = odaObject.getResultClass( ).getFieldCount( );
 				int metaFieldCount = rsMeta.getFieldCount( );
@@ -352,21 +368,61 @@ class SmartCacheHelper
 			{
 				logger.fine( "DiskCache is used" );
 
+				// the rows of the sorted runs are limited by the run memory
+				// when it is configured, otherwise by the memory buffer. The
+				// sorting runs and the run being filled share the limit.
+				Map appContext = eventHandler == null ? null
+						: eventHandler.getAppContext( );
+				int sortParallelism = CacheUtil.getDiskSortParallelism( appContext );
+				long runMemory = CacheUtil.getDiskSortRunMemory( appContext );
+				long dataCountOfRuns = runMemory > 0 ? runMemory
+						/ Math.max( 1, sizeOfUtil.sizeOf( odaObject ) ) : dataCount;
+				int dataCountOfRun = (int) Math.min( Integer.MAX_VALUE,
+						Math.max( 2, dataCountOfRuns / ( sortParallelism + 1 ) ) );
+				Comparator comparator = getComparator( sortSpec, eventHandler );
+				if ( rowStore != null )
+				{
+					// the rows are sorted in the columns and handed over one
+					// by one, the store releases them as they are read
+					rowStore.sort( comparator );
+					resultSetCache = new DiskCache( rowStore.removeRows( ),
+							odaObject,
+							rowResultSet,
+							rsMeta,
+							comparator,
+							dataCount,
+							maxRows,
+							sortParallelism,
+							dataCountOfRun,
+							this.session );
+					rowStore = null;
+					break;
+				}
 				resultObjects = (IResultObject[]) resultObjectsList.toArray( new IResultObject[0] );
+				resultObjectsList = null;
 				// the order is: resultObjects, odaObject, rowResultSet
 				resultSetCache = new DiskCache( resultObjects,
 						odaObject,
 						rowResultSet,
 						rsMeta,
-						getComparator( sortSpec, eventHandler ),
+						comparator,
 						dataCount,
 						maxRows,
+						sortParallelism,
+						dataCountOfRun,
 						this.session );
 				break;
 			}
 		}
 
-		if ( resultSetCache == null )
+		if ( resultSetCache == null && rowStore != null )
+		{
+			logger.fine( "ColumnarMemoryCache is used" );
+
+			resultSetCache = new ColumnarMemoryCache( rowStore,
+					getComparator( sortSpec, eventHandler ) );
+		}
+		else if ( resultSetCache == null )
 		{
 			logger.fine( "MemoryCache is used" );
 
@@ -380,6 +436,7 @@ class SmartCacheHelper
 		odaObject = null;
 		resultObjects = null;
 		resultObjectsList = null;
+		rowStore = null;
 		rowResultSet = null;
 
 		long consumedTime = ( System.currentTimeMillis( ) - startTime ) / 1000;
@@ -392,77 +449,16 @@ class SmartCacheHelper
 	 *         no need to do sorting
 	 */
 	private static Comparator getComparator( SortSpec sortSpec,
-			final IEventHandler eventHandler )
+			IEventHandler eventHandler )
 	{
 		if ( sortSpec == null )
 			return null;
 
-		final int[] sortKeyIndexes = sortSpec.getSortKeyIndexes();
-		final String[] sortKeyColumns = sortSpec.getSortKeyColumns();
+		int[] sortKeyIndexes = sortSpec.getSortKeyIndexes();
 
 		if ( sortKeyIndexes == null || sortKeyIndexes.length == 0 )
 			return null;
 
-		final int[] sortAscending = sortSpec.getSortAscending();
-		final CompareHints[] comparators = sortSpec.getComparator( );
-		Comparator comparator = new Comparator( ) {
-
-			/**
-			 * compares two row indexes, actually compares two rows pointed by
-			 * the two row indexes
-			 */
-			public int compare( Object obj1, Object obj2 )
-			{
-				IResultObject row1 = (IResultObject) obj1;
-				IResultObject row2 = (IResultObject) obj2;
-
-				// compare group keys first
-				for ( int i = 0; i < sortKeyIndexes.length; i++ )
-				{
-					int colIndex = sortKeyIndexes[i];
-					String colName = sortKeyColumns[i];
-					try
-					{
-						Object colObj1 = null;
-						Object colObj2 = null;
-
-						if ( eventHandler != null )
-						{
-							colObj1 = eventHandler.getValue( row1,
-									colIndex,
-									colName );
-							colObj2 = eventHandler.getValue( row2,
-									colIndex,
-									colName );
-						}
-						else
-						{
-							colObj1 = row1.getFieldValue( colIndex );
-							colObj2 = row2.getFieldValue( colIndex );
-						}
-
-						int result = ScriptEvalUtil.compare( colObj1, colObj2, comparators[i] );
-						if ( result != 0 )
-						{
-							if( sortAscending[i] == SortSpec.SORT_DISABLE )
-							{
-								return 0;
-							}
-							return sortAscending[i] == SortSpec.SORT_ASC ? result : -result;
-						}
-					}
-					catch ( DataException e )
-					{
-						// Should never get here
-						// colIndex is always valid
-					}
-				}
-
-				// all equal, so return 0
-				return 0;
-			}
-		};
-
-		return comparator;
+		return new SortKeyComparator( sortSpec, eventHandler );
 	}
 }
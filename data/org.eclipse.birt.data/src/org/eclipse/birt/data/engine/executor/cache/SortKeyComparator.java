@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache;
+
+import java.util.Comparator;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.expression.CompareHints;
+import org.eclipse.birt.data.engine.odi.IEventHandler;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+import org.eclipse.birt.data.engine.script.ScriptEvalUtil;
+
+/**
+ * Comparator of result objects based on a sort spec. Besides comparing two rows
+ * directly, the sort key values of a row can be fetched once and compared
+ * later. Fetching the key values might need script evaluation, so it must be
+ * done in the thread which owns the script context, while comparing fetched
+ * key values is allowed in any thread.
+ */
+public class SortKeyComparator implements Comparator
+{
+	private int[] sortKeyIndexes;
+	private String[] sortKeyColumns;
+	private int[] sortAscending;
+	private CompareHints[] comparators;
+	private IEventHandler eventHandler;
+
+	/**
+	 * @param sortSpec
+	 * @param eventHandler
+	 */
+	SortKeyComparator( SortSpec sortSpec, IEventHandler eventHandler )
+	{
+		this.sortKeyIndexes = sortSpec.getSortKeyIndexes( );
+		this.sortKeyColumns = sortSpec.getSortKeyColumns( );
+		this.sortAscending = sortSpec.getSortAscending( );
+		this.comparators = sortSpec.getComparator( );
+		this.eventHandler = eventHandler;
+	}
+
+	/**
+	 * compares two row indexes, actually compares two rows pointed by the two
+	 * row indexes
+	 */
+	public int compare( Object obj1, Object obj2 )
+	{
+		IResultObject row1 = (IResultObject) obj1;
+		IResultObject row2 = (IResultObject) obj2;
+
+		// compare group keys first
+		for ( int i = 0; i < sortKeyIndexes.length; i++ )
+		{
+			try
+			{
+				int result = compareKey( i,
+						getSortKey( row1, i ),
+						getSortKey( row2, i ) );
+				if ( result != 0 )
+					return toSortOrder( i, result );
+			}
+			catch ( DataException e )
+			{
+				// Should never get here
+				// colIndex is always valid
+			}
+		}
+
+		// all equal, so return 0
+		return 0;
+	}
+
+	/**
+	 * Fetch the sort key values of a row.
+	 *
+	 * @param row
+	 * @return
+	 * @throws DataException
+	 */
+	public Object[] getSortKeys( IResultObject row ) throws DataException
+	{
+		Object[] keys = new Object[sortKeyIndexes.length];
+		for ( int i = 0; i < keys.length; i++ )
+		{
+			keys[i] = getSortKey( row, i );
+		}
+		return keys;
+	}
+
+	/**
+	 * Compare the sort key values fetched by getSortKeys.
+	 *
+	 * @param keys1
+	 * @param keys2
+	 * @return
+	 */
+	public int compareSortKeys( Object[] keys1, Object[] keys2 )
+	{
+		for ( int i = 0; i < sortKeyIndexes.length; i++ )
+		{
+			try
+			{
+				int result = compareKey( i, keys1[i], keys2[i] );
+				if ( result != 0 )
+					return toSortOrder( i, result );
+			}
+			catch ( DataException e )
+			{
+				// Should never get here
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @param row
+	 * @param i
+	 * @return
+	 * @throws DataException
+	 */
+	private Object getSortKey( IResultObject row, int i ) throws DataException
+	{
+		if ( eventHandler != null )
+			return eventHandler.getValue( row,
+					sortKeyIndexes[i],
+					sortKeyColumns[i] );
+		return row.getFieldValue( sortKeyIndexes[i] );
+	}
+
+	/**
+	 * @param i
+	 * @param colObj1
+	 * @param colObj2
+	 * @return
+	 * @throws DataException
+	 */
+	private int compareKey( int i, Object colObj1, Object colObj2 )
+			throws DataException
+	{
+		CompareHints hints = comparators[i];
+		if ( hints != null && hints.getComparator( ) != null )
+		{
+			// collators are not thread safe
+			synchronized ( hints )
+			{
+				return ScriptEvalUtil.compare( colObj1, colObj2, hints );
+			}
+		}
+		return ScriptEvalUtil.compare( colObj1, colObj2, hints );
+	}
+
+	/**
+	 * @param i
+	 * @param result
+	 *            non-zero compare result of the i-th key
+	 * @return
+	 */
+	private int toSortOrder( int i, int result )
+	{
+		if ( sortAscending[i] == SortSpec.SORT_DISABLE )
+		{
+			return 0;
+		}
+		return sortAscending[i] == SortSpec.SORT_ASC ? result : -result;
+	}
+}
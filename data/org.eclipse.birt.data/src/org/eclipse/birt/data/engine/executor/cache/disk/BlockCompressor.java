@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache.disk;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A fast LZ77 compressor of byte blocks, which follows the sequence layout of
+ * the LZ4 block format. It trades compression ratio for speed, since the
+ * spilled rows are written and read only once or twice.
+ */
+final class BlockCompressor
+{
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;
+	private static final int MIN_LENGTH_TO_COMPRESS = 13;
+	private static final int MAX_OFFSET = 0xFFFF;
+	private static final int RUN_MASK = 0x0F;
+
+	static final int HASH_LOG = 12;
+
+	/**
+	 * Util class
+	 */
+	private BlockCompressor( )
+	{
+	}
+
+	/**
+	 * @param length
+	 * @return the max length of the compressed bytes of given length
+	 */
+	static int maxCompressedLength( int length )
+	{
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * Compress the bytes of source.
+	 *
+	 * @param src
+	 * @param srcLength
+	 * @param dest
+	 *            its length is not less than maxCompressedLength( srcLength )
+	 * @param hashTable
+	 *            a reusable table of 1 << HASH_LOG entries
+	 * @return the length of compressed bytes
+	 */
+	static int compress( byte[] src, int srcLength, byte[] dest,
+			int[] hashTable )
+	{
+		int anchor = 0;
+		int op = 0;
+
+		if ( srcLength >= MIN_LENGTH_TO_COMPRESS )
+		{
+			Arrays.fill( hashTable, -1 );
+			int matchLimit = srcLength - 12;
+			int ip = 0;
+			while ( ip < matchLimit )
+			{
+				int sequence = readInt( src, ip );
+				int hash = hash( sequence );
+				int ref = hashTable[hash];
+				hashTable[hash] = ip;
+				if ( ref < 0
+						|| ip - ref > MAX_OFFSET
+						|| readInt( src, ref ) != sequence )
+				{
+					ip++;
+					continue;
+				}
+
+				int matchLength = MIN_MATCH;
+				int maxLength = srcLength - LAST_LITERALS - ip;
+				while ( matchLength < maxLength
+						&& src[ref + matchLength] == src[ip + matchLength] )
+				{
+					matchLength++;
+				}
+
+				op = writeSequence( src,
+						anchor,
+						ip - anchor,
+						ip - ref,
+						matchLength,
+						dest,
+						op );
+				ip += matchLength;
+				anchor = ip;
+			}
+		}
+
+		// the last literals
+		int literalLength = srcLength - anchor;
+		if ( literalLength >= RUN_MASK )
+		{
+			dest[op++] = (byte) ( RUN_MASK << 4 );
+			op = writeLength( literalLength - RUN_MASK, dest, op );
+		}
+		else
+		{
+			dest[op++] = (byte) ( literalLength << 4 );
+		}
+		System.arraycopy( src, anchor, dest, op, literalLength );
+		return op + literalLength;
+	}
+
+	/**
+	 * Decompress the bytes compressed by compress method.
+	 *
+	 * @param src
+	 * @param srcLength
+	 * @param dest
+	 * @param destLength
+	 *            the length of original bytes
+	 * @throws IOException
+	 *             the compressed bytes are corrupted
+	 */
+	static void decompress( byte[] src, int srcLength, byte[] dest,
+			int destLength ) throws IOException
+	{
+		int ip = 0;
+		int op = 0;
+		try
+		{
+			while ( true )
+			{
+				int token = src[ip++] & 0xFF;
+
+				int literalLength = token >>> 4;
+				if ( literalLength == RUN_MASK )
+				{
+					int b;
+					do
+					{
+						b = src[ip++] & 0xFF;
+						literalLength += b;
+					} while ( b == 255 );
+				}
+				if ( op + literalLength > destLength
+						|| ip + literalLength > srcLength )
+					throw new IOException( "Corrupted compressed block" );
+				System.arraycopy( src, ip, dest, op, literalLength );
+				ip += literalLength;
+				op += literalLength;
+
+				if ( ip >= srcLength )
+					break;
+
+				int offset = ( src[ip++] & 0xFF ) | ( ( src[ip++] & 0xFF ) << 8 );
+				int matchLength = token & RUN_MASK;
+				if ( matchLength == RUN_MASK )
+				{
+					int b;
+					do
+					{
+						b = src[ip++] & 0xFF;
+						matchLength += b;
+					} while ( b == 255 );
+				}
+				matchLength += MIN_MATCH;
+
+				int ref = op - offset;
+				if ( offset == 0 || ref < 0 || op + matchLength > destLength )
+					throw new IOException( "Corrupted compressed block" );
+				// the match might overlap the bytes being copied
+				for ( int i = 0; i < matchLength; i++ )
+				{
+					dest[op++] = dest[ref++];
+				}
+			}
+		}
+		catch ( ArrayIndexOutOfBoundsException e )
+		{
+			throw new IOException( "Corrupted compressed block" );
+		}
+		if ( op != destLength )
+			throw new IOException( "Corrupted compressed block" );
+	}
+
+	/**
+	 * @param src
+	 * @param literalStart
+	 * @param literalLength
+	 * @param offset
+	 * @param matchLength
+	 * @param dest
+	 * @param op
+	 * @return the new position in dest
+	 */
+	private static int writeSequence( byte[] src, int literalStart,
+			int literalLength, int offset, int matchLength, byte[] dest,
+			int op )
+	{
+		int tokenPos = op++;
+		int token;
+		if ( literalLength >= RUN_MASK )
+		{
+			token = RUN_MASK << 4;
+			op = writeLength( literalLength - RUN_MASK, dest, op );
+		}
+		else
+		{
+			token = literalLength << 4;
+		}
+		System.arraycopy( src, literalStart, dest, op, literalLength );
+		op += literalLength;
+
+		dest[op++] = (byte) offset;
+		dest[op++] = (byte) ( offset >>> 8 );
+
+		int restLength = matchLength - MIN_MATCH;
+		if ( restLength >= RUN_MASK )
+		{
+			token |= RUN_MASK;
+			op = writeLength( restLength - RUN_MASK, dest, op );
+		}
+		else
+		{
+			token |= restLength;
+		}
+		dest[tokenPos] = (byte) token;
+		return op;
+	}
+
+	private static int writeLength( int length, byte[] dest, int op )
+	{
+		while ( length >= 255 )
+		{
+			dest[op++] = (byte) 255;
+			length -= 255;
+		}
+		dest[op++] = (byte) length;
+		return op;
+	}
+
+	private static int readInt( byte[] bytes, int pos )
+	{
+		return ( bytes[pos] & 0xFF )
+				| ( ( bytes[pos + 1] & 0xFF ) << 8 )
+				| ( ( bytes[pos + 2] & 0xFF ) << 16 )
+				| ( ( bytes[pos + 3] & 0xFF ) << 24 );
+	}
+
+	private static int hash( int sequence )
+	{
+		return ( sequence * -1640531535 ) >>> ( 32 - HASH_LOG );
+	}
+}
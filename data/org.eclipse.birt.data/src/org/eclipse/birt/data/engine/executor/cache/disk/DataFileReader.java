@@ -35,6 +35,9 @@ class DataFileReader
 
 	private ResultObjectUtil resultObjectUtil;
 	
+	// null if the file is in the format without blocks
+	private RowBlockReader rowReader;
+	
 	/**
 	 * A util method to new instance of DataFileReader
 	 * 
@@ -98,10 +101,22 @@ class DataFileReader
 				// since file will always exist
 			}
 			bis = new BufferedInputStream( fis );
+			if ( RowBlockReader.readHeader( bis ) )
+				rowReader = new RowBlockReader( bis, resultObjectUtil );
 			isOpen = true;
 		}
 
-		return resultObjectUtil.readData( bis, null, length );
+		if ( rowReader == null )
+			return resultObjectUtil.readData( bis, null, length );
+
+		IResultObject[] rowDatas = new IResultObject[length];
+		for ( int i = 0; i < length; i++ )
+		{
+			if ( resultObjectUtil.isStopped( ) )
+				break;
+			rowDatas[i] = rowReader.read( );
+		}
+		return rowDatas;
 	}
 
 	/**
@@ -115,6 +130,7 @@ class DataFileReader
 		{
 			try
 			{
+				rowReader = null;
 				bis.close( );
 				fis.close( );
 				isOpen = false;
@@ -34,6 +34,7 @@ class DataFileWriter
 	private BufferedOutputStream bos;
 
 	private ResultObjectUtil resultObjectUtil;
+	private RowBlockWriter rowWriter;
 	
 	/**
 	 * A util method to new instance of DataFileWriter
@@ -74,7 +75,8 @@ class DataFileWriter
 	}
 
 	/**
-	 * Write the specified length of objects from file. Notice to improve the
+	 * Write the specified length of objects from file. The rows are written
+	 * in compressed blocks, see RowBlockFormat. Notice to improve the
 	 * efficienly of reading, the order of writing only can be sequencial. The
 	 * caller has responsibility to design a good algorithm to achive this goal.
 	 * 
@@ -99,10 +101,16 @@ class DataFileWriter
 				// since file will always exist
 			}
 			bos = new BufferedOutputStream( fos );
+			rowWriter = new RowBlockWriter( bos, resultObjectUtil );
 			isOpen = true;
 		}
 
-		resultObjectUtil.writeData( bos, resultObjects, count );
+		for ( int i = 0; i < count; i++ )
+		{
+			rowWriter.write( resultObjects[i] );
+			if ( resultObjectUtil.isStopped( ) )
+				return;
+		}
 	}
 
 	/**
@@ -116,6 +124,8 @@ class DataFileWriter
 		{
 			try
 			{
+				rowWriter.finish( );
+				rowWriter = null;
 				bos.close( );
 				fos.close( );
 				isOpen = false;
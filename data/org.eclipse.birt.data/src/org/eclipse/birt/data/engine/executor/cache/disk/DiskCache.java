@@ -56,6 +56,10 @@ public class DiskCache implements ResultSetCache
 	
 	// how many rows can be accomondated
 	private int MemoryCacheRowCount;
+	
+	// how to sort the spilled rows
+	private int sortParallelism = 1;
+	private int dataCountOfRun;
 
 	// goal file of this session
 	private String goalFileStr;	
@@ -99,9 +103,47 @@ public class DiskCache implements ResultSetCache
 			IRowResultSet rowResultSet, IResultClass rsMeta,
 			Comparator comparator, int MemoryCacheRowCount,int maxRows, DataEngineSession session )
 			throws DataException
+	{
+		this( resultObjects,
+				resultObject,
+				rowResultSet,
+				rsMeta,
+				comparator,
+				MemoryCacheRowCount,
+				maxRows,
+				1,
+				MemoryCacheRowCount,
+				session );
+	}
+	
+	/**
+	 * Besides the parameters of above constructor, the sort of spilled rows
+	 * can be done by several threads in runs of given row count.
+	 * 
+	 * @param resultObjects
+	 * @param resultObject
+	 * @param rowResultSet
+	 * @param rsMeta
+	 * @param comparator
+	 * @param MemoryCacheRowCount
+	 * @param maxRows
+	 * @param sortParallelism
+	 *            how many threads sort the runs, 1 means the calling thread
+	 * @param dataCountOfRun
+	 *            how many rows are sorted in one run
+	 * @param session
+	 * @throws DataException
+	 */
+	public DiskCache( IResultObject[] resultObjects, IResultObject resultObject,
+			IRowResultSet rowResultSet, IResultClass rsMeta,
+			Comparator comparator, int MemoryCacheRowCount, int maxRows,
+			int sortParallelism, int dataCountOfRun, DataEngineSession session )
+			throws DataException
 	{
 		//this.rsMeta = rsMeta;
 		this.MemoryCacheRowCount = MemoryCacheRowCount;
+		this.sortParallelism = sortParallelism;
+		this.dataCountOfRun = dataCountOfRun;
 		this.rsMeta = rsMeta;
 		this.session = session;
 		this.diskBasedResultSet = new DiskCacheResultSet( getInfoMap( ), session );
@@ -126,6 +168,57 @@ public class DiskCache implements ResultSetCache
 				+ countOfResult );
 	}
 	
+	/**
+	 * Instead of the result object array, the start rows are read one by one
+	 * from a row result set, so they need not be in memory together. When
+	 * the comparator is given, the start rows must be in its order.
+	 * 
+	 * @param startRowResultSet
+	 * @param resultObject
+	 * @param rowResultSet
+	 * @param rsMeta
+	 * @param comparator
+	 * @param MemoryCacheRowCount
+	 * @param maxRows
+	 * @param sortParallelism
+	 * @param dataCountOfRun
+	 * @param session
+	 * @throws DataException
+	 */
+	public DiskCache( IRowResultSet startRowResultSet,
+			IResultObject resultObject, IRowResultSet rowResultSet,
+			IResultClass rsMeta, Comparator comparator,
+			int MemoryCacheRowCount, int maxRows, int sortParallelism,
+			int dataCountOfRun, DataEngineSession session )
+			throws DataException
+	{
+		this.MemoryCacheRowCount = MemoryCacheRowCount;
+		this.sortParallelism = sortParallelism;
+		this.dataCountOfRun = dataCountOfRun;
+		this.rsMeta = rsMeta;
+		this.session = session;
+		this.diskBasedResultSet = new DiskCacheResultSet( getInfoMap( ), session );
+		
+		try
+		{
+			logger.info( "Start processStartResultObjects" );
+			int startCount = diskBasedResultSet.processStartResultObjects( startRowResultSet,
+					comparator );
+			
+			logger.info( "Start processRestResultObjects" );
+			diskBasedResultSet.processRestResultObjects( resultObject,
+					rowResultSet, maxRows == -1? -1 : maxRows - startCount );
+		}
+		catch ( IOException e )
+		{
+			throw new DataException( ResourceConstants.WRITE_TEMPFILE_ERROR, e );
+		}
+		countOfResult = diskBasedResultSet.getCount( );
+		
+		logger.info( "End of process, and the count of data is "
+				+ countOfResult );
+	}
+	
 	protected DiskCache( ){ }
 	
 	/*
@@ -349,6 +442,8 @@ public class DiskCache implements ResultSetCache
 	 * 		tempDir, to generated temp file in DiskMergeSort
 	 * 		goalFile, to generate the end result file
 	 * 		dataCountOfUnit, to indicate how many rows can be loaded into memory
+	 * 		parallelism, to indicate how many threads sort the spilled rows
+	 * 		dataCountOfRun, to indicate how many rows are sorted in one run
 	 * @throws DataException 
 	 */
 	private Map getInfoMap( ) throws DataException
@@ -359,6 +454,8 @@ public class DiskCache implements ResultSetCache
 		goalFileStr = getGoalFileStr( );
 		infoMap.put( "goalFile", goalFileStr );
 		infoMap.put( "dataCountOfUnit", "" + MemoryCacheRowCount );
+		infoMap.put( "parallelism", "" + sortParallelism );
+		infoMap.put( "dataCountOfRun", "" + dataCountOfRun );
 
 		return infoMap;
 	}
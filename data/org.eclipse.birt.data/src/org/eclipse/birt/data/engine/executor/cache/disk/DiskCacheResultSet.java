@@ -68,6 +68,29 @@ class DiskCacheResultSet
 		dataCount = resultObjects.length;
 	}
 	
+	/**
+	 * @param rs
+	 *            the start rows, in the order of the comparator if it is given
+	 * @param comparator
+	 * @return the count of start rows
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	public int processStartResultObjects( IRowResultSet rs,
+			Comparator comparator ) throws IOException, DataException
+	{
+		IResultClass rsMetaData = rs.getMetaData( );
+		assert rsMetaData != null;
+		this.resultObjectUtil = ResultObjectUtil.newInstance( rsMetaData, session );
+		
+		databaseExport = DiskDataExport.newInstance( infoMap,
+				comparator,
+				rsMetaData,
+				resultObjectUtil, session );
+		dataCount = databaseExport.exportStartDataToDisk( rs );
+		return dataCount;
+	}
+	
 	/**
 	 * @param resultObject, the start resultObject
 	 * @param rs, follows the resultObject
@@ -11,12 +11,15 @@
 package org.eclipse.birt.data.engine.executor.cache.disk;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.executor.cache.IRowResultSet;
 import org.eclipse.birt.data.engine.executor.cache.ResultObjectUtil;
+import org.eclipse.birt.data.engine.executor.cache.SortKeyComparator;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.DataEngineSession;
 import org.eclipse.birt.data.engine.odi.IResultClass;
@@ -46,7 +49,12 @@ abstract class DiskDataExport
 			ResultObjectUtil resultObjectUtil, DataEngineSession session )
 	{
 		DiskDataExport dbExport;
-		if ( comparator != null )
+		if ( comparator instanceof SortKeyComparator
+				&& getParallelism( infoMap ) > 1 )
+			dbExport = new ParallelDiskSortExport( infoMap,
+					(SortKeyComparator) comparator,
+					resultObjectUtil );
+		else if ( comparator != null )
 			dbExport = new DiskSortExport2( infoMap, comparator, resultObjectUtil );
 		else
 			dbExport = new DiskDirectExport( infoMap, resultObjectUtil );
@@ -56,6 +64,16 @@ abstract class DiskDataExport
 		return dbExport;
 	}
 	
+	/**
+	 * @param infoMap
+	 * @return how many threads can be used to sort the spilled rows
+	 */
+	private static int getParallelism( Map infoMap )
+	{
+		Object value = infoMap.get( "parallelism" );
+		return value == null ? 1 : Integer.parseInt( (String) value );
+	}
+	
 	/**
 	 * Export data which is stored in the resultObjects array to disk, which is
 	 * the first step of export.
@@ -81,6 +99,30 @@ abstract class DiskDataExport
 	public abstract int exportRestDataToDisk( IResultObject resultObject,
 			IRowResultSet rs, int maxRows ) throws DataException, IOException;
 	
+	/**
+	 * Export the start rows read one by one from the row result set, which
+	 * are in the order of the comparator if there is one. The subclasses
+	 * override this to write the rows as they are read, this default
+	 * implementation collects them in memory.
+	 * 
+	 * @param rs
+	 * @return the count of start rows
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	public int exportStartDataToDisk( IRowResultSet rs ) throws IOException,
+			DataException
+	{
+		List rows = new ArrayList( );
+		IResultObject resultObject = null;
+		while ( ( resultObject = rs.next( ) ) != null )
+		{
+			rows.add( resultObject );
+		}
+		exportStartDataToDisk( (IResultObject[]) rows.toArray( new IResultObject[0] ) );
+		return rows.size( );
+	}
+	
 	/**
 	 * get a ObjectFileWithCache object for goal file 
 	 * @return
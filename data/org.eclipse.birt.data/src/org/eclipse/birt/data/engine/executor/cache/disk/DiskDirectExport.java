@@ -48,6 +48,30 @@ class DiskDirectExport extends DiskDataExport
 		innerExportStartData( resultObjects );
 	}
 	
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#exportStartDataToDisk(org.eclipse.birt.data.engine.executor.cache.IRowResultSet)
+	 */
+	public int exportStartDataToDisk( IRowResultSet rs ) throws IOException,
+			DataException
+	{
+		int count = 0;
+		IResultObject resultObject = null;
+		try
+		{
+			while ( ( resultObject = rs.next( ) ) != null )
+			{
+				rowFile.write( resultObject );
+				count++;
+			}
+		}
+		catch( IOException ie )
+		{
+			rowFile.close( );
+			throw ie;
+		}
+		return count;
+	}
+	
 	/*
 	 * @see org.eclipse.birt.data.engine.executor.cache.DataBaseExport#exportRestDataToDisk(org.eclipse.birt.data.engine.odi.IResultObject,
 	 *      org.eclipse.birt.data.engine.executor.cache.RowResultSet)
@@ -44,6 +44,9 @@ class DiskSortExport2 extends DiskDataExport
 	
 	// The positions from 0 to rowBufferPtr of buffer are free.
 	private int inMemoryPos;
+	
+	// The count of rows in the buffer before it is full for the first time
+	private int filledCount;
 
 	// the goal file
 	private IRowIterator goalRowIterator = null;
@@ -72,6 +75,7 @@ class DiskSortExport2 extends DiskDataExport
 		
 		this.currRowFiles = new ArrayList( );
 		this.inMemoryPos = -1;
+		this.filledCount = 0;
 	}
 
 	/*
@@ -82,7 +86,28 @@ class DiskSortExport2 extends DiskDataExport
 	{
 		dataCountOfTotal = resultObjects.length;
 		System.arraycopy( resultObjects, 0, rowBuffer, 0, resultObjects.length );
-		inMemoryPos = this.dataCountOfUnit - 1;
+		filledCount = resultObjects.length;
+		if ( filledCount == dataCountOfUnit )
+			inMemoryPos = this.dataCountOfUnit - 1;
+	}
+	
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#exportStartDataToDisk(org.eclipse.birt.data.engine.executor.cache.IRowResultSet)
+	 */
+	public int exportStartDataToDisk( IRowResultSet rs ) throws IOException,
+			DataException
+	{
+		// the start rows are sorted, so they are written as one unit without
+		// being kept in the buffer
+		prepareNewTempRowFile( 0 );
+		RowFile rowFile = getCurrTempFile( currRowFiles );
+		IResultObject resultObject = null;
+		while ( ( resultObject = rs.next( ) ) != null )
+		{
+			rowFile.write( resultObject );
+			dataCountOfTotal++;
+		}
+		return dataCountOfTotal;
 	}
 
 	/*
@@ -164,6 +189,13 @@ class DiskSortExport2 extends DiskDataExport
 	 */
 	private void addNewRow( IResultObject resultObject ) throws IOException, DataException
 	{
+		if ( filledCount < dataCountOfUnit )
+		{
+			rowBuffer[filledCount++] = resultObject;
+			if ( filledCount == dataCountOfUnit )
+				inMemoryPos = dataCountOfUnit - 1;
+			return;
+		}
 		if ( inMemoryPos == dataCountOfUnit - 1 )
 		{
 			prepareNewTempRowFile( 0 );
@@ -184,7 +216,16 @@ class DiskSortExport2 extends DiskDataExport
 	private void processLastUnit( ) throws IOException, DataException
 	{
 		// Now all the rest rows exist in memory.
-		rowBuffer = interchange( rowBuffer, inMemoryPos );
+		if ( filledCount < dataCountOfUnit )
+		{
+			IResultObject[] tempBuffer = new IResultObject[filledCount];
+			System.arraycopy( rowBuffer, 0, tempBuffer, 0, filledCount );
+			rowBuffer = tempBuffer;
+		}
+		else
+		{
+			rowBuffer = interchange( rowBuffer, inMemoryPos );
+		}
 		mergeSortUtil.sortSelf( rowBuffer );
 		
 		int cacheSize = 0;
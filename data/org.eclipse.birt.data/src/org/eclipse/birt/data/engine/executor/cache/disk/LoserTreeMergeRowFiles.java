@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache.disk;
+
+import java.io.IOException;
+import java.util.Comparator;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * K-way merge of sorted row iterators based on a loser tree. Compared with
+ * MergeSortRowFiles, every fetched row costs log2(k) comparisons and no array
+ * copy. Rows with equal keys are returned in the order of their iterators, so
+ * the merge is stable.
+ */
+class LoserTreeMergeRowFiles implements IRowIterator
+{
+	private IRowIterator[] subRowIterators;
+	private Comparator comparator;
+
+	// the current head row of every sub iterator, null means exhausted
+	private IResultObject[] heads;
+
+	// tree[0] is the winner, tree[1..k-1] keep the losers of inner nodes
+	private int[] tree;
+
+	/**
+	 * @param subRowIterators
+	 *            The rows in every iterator are sorted.
+	 * @param comparator
+	 */
+	LoserTreeMergeRowFiles( IRowIterator[] subRowIterators,
+			Comparator comparator )
+	{
+		assert subRowIterators != null && subRowIterators.length > 0;
+
+		this.subRowIterators = subRowIterators;
+		this.comparator = comparator;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.IRowIterator#reset()
+	 */
+	public void reset( ) throws DataException
+	{
+		for ( int i = 0; i < subRowIterators.length; i++ )
+		{
+			subRowIterators[i].reset( );
+		}
+		tree = null;
+		heads = null;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.IRowIterator#fetch()
+	 */
+	public IResultObject fetch( ) throws IOException, DataException
+	{
+		if ( tree == null )
+		{
+			prepareFirstFetch( );
+		}
+
+		int winner = tree[0];
+		IResultObject value = heads[winner];
+		if ( value == null )
+		{
+			return null;
+		}
+
+		heads[winner] = subRowIterators[winner].fetch( );
+		adjust( winner );
+		return value;
+	}
+
+	/**
+	 * Read the first row of every iterator and play the initial tournament.
+	 *
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void prepareFirstFetch( ) throws IOException, DataException
+	{
+		int k = subRowIterators.length;
+		heads = new IResultObject[k];
+		for ( int i = 0; i < k; i++ )
+		{
+			heads[i] = subRowIterators[i].fetch( );
+		}
+		tree = new int[k];
+		tree[0] = playTournament( 1 );
+	}
+
+	/**
+	 * @param node
+	 *            node of the implicit tree, leaves are k..2k-1
+	 * @return winner of the sub tree
+	 */
+	private int playTournament( int node )
+	{
+		int k = subRowIterators.length;
+		if ( node >= k )
+			return node - k;
+
+		int left = playTournament( 2 * node );
+		int right = playTournament( 2 * node + 1 );
+		if ( beats( left, right ) )
+		{
+			tree[node] = right;
+			return left;
+		}
+		tree[node] = left;
+		return right;
+	}
+
+	/**
+	 * Replay the matches from the leaf of given iterator up to the root.
+	 *
+	 * @param index
+	 */
+	private void adjust( int index )
+	{
+		int winner = index;
+		for ( int node = ( index + subRowIterators.length ) >>> 1; node > 0; node >>>= 1 )
+		{
+			if ( beats( tree[node], winner ) )
+			{
+				int loser = winner;
+				winner = tree[node];
+				tree[node] = loser;
+			}
+		}
+		tree[0] = winner;
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @return whether the head of iterator i is to be returned before the
+	 *         head of iterator j
+	 */
+	private boolean beats( int i, int j )
+	{
+		if ( heads[i] == null )
+			return false;
+		if ( heads[j] == null )
+			return true;
+		int result = comparator.compare( heads[i], heads[j] );
+		return result < 0 || ( result == 0 && i < j );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.IRowIterator#close()
+	 */
+	public void close( ) throws DataException
+	{
+		for ( int i = 0; i < subRowIterators.length; i++ )
+		{
+			subRowIterators[i].close( );
+		}
+		heads = null;
+		tree = null;
+	}
+}
@@ -0,0 +1,463 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache.disk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.IRowResultSet;
+import org.eclipse.birt.data.engine.executor.cache.ResultObjectUtil;
+import org.eclipse.birt.data.engine.executor.cache.SortKeyComparator;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * One implementation of DataBaseExport which sorts the runs of rows on a pool
+ * of worker threads. The sort keys of a row are fetched in the calling thread,
+ * since they might need script evaluation, and the workers only compare the
+ * fetched keys and write the sorted run to its temporary file. The sorted runs
+ * are merged with a loser tree.
+ */
+class ParallelDiskSortExport extends DiskDataExport
+{
+	// The number of temp files which are merged at one time is this value, max.
+	private final static int MAX_MERGE_WAYS = 500;
+
+	private int dataCountOfRun;
+	private int parallelism;
+
+	private SortKeyComparator comparator;
+	private MergeTempFileUtil tempFileUtil;
+
+	// the rows and keys of the run being filled
+	private IResultObject[] runRows;
+	private Object[][] runKeys;
+	private int runSize;
+
+	private List runFiles;
+	private LinkedList pendingRuns;
+	private ExecutorService executor;
+
+	// the goal file
+	private IRowIterator goalRowIterator;
+
+	/**
+	 * @param infoMap
+	 * @param comparator
+	 * @param resultObjectUtil
+	 */
+	ParallelDiskSortExport( Map infoMap, SortKeyComparator comparator,
+			ResultObjectUtil resultObjectUtil )
+	{
+		dataCountOfRun = Integer.parseInt( (String) infoMap.get( "dataCountOfRun" ) );
+		parallelism = Integer.parseInt( (String) infoMap.get( "parallelism" ) );
+
+		if ( dataCountOfRun < 2 )
+		{
+			throw new IllegalArgumentException( "the dataCountOfRun of "
+					+ dataCountOfRun + " is less than 2 "
+					+ ", and then merge sort on file can not be done" );
+		}
+
+		this.comparator = comparator;
+		this.tempFileUtil = new MergeTempFileUtil( (String) ( infoMap.get( "tempDir" ) ),
+				resultObjectUtil );
+		this.runFiles = new ArrayList( );
+		this.pendingRuns = new LinkedList( );
+		newRun( );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#exportStartDataToDisk(org.eclipse.birt.data.engine.odi.IResultObject[])
+	 */
+	public void exportStartDataToDisk( IResultObject[] resultObjects )
+			throws IOException, DataException
+	{
+		for ( int i = 0; i < resultObjects.length; i++ )
+		{
+			addNewRow( resultObjects[i] );
+		}
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#exportStartDataToDisk(org.eclipse.birt.data.engine.executor.cache.IRowResultSet)
+	 */
+	public int exportStartDataToDisk( IRowResultSet rs ) throws IOException,
+			DataException
+	{
+		int count = 0;
+		IResultObject resultObject = null;
+		while ( ( resultObject = rs.next( ) ) != null )
+		{
+			addNewRow( resultObject );
+			count++;
+		}
+		return count;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#exportRestDataToDisk(org.eclipse.birt.data.engine.odi.IResultObject, org.eclipse.birt.data.engine.executor.cache.IRowResultSet, int)
+	 */
+	public int exportRestDataToDisk( IResultObject resultObject,
+			IRowResultSet rs, int maxRows ) throws DataException, IOException
+	{
+		int dataCountOfRest;
+		try
+		{
+			dataCountOfRest = innerExportRestData( resultObject,
+					rs,
+					dataCountOfRun,
+					maxRows );
+			waitForRuns( 0 );
+			this.goalRowIterator = mergeRuns( );
+		}
+		catch ( IOException ie )
+		{
+			closeRunFiles( );
+			throw ie;
+		}
+		catch ( DataException de )
+		{
+			closeRunFiles( );
+			throw de;
+		}
+		finally
+		{
+			shutdownExecutor( );
+		}
+		return dataCountOfRest;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#innerExportRestData(org.eclipse.birt.data.engine.odi.IResultObject, org.eclipse.birt.data.engine.executor.cache.IRowResultSet, int, int)
+	 */
+	protected int innerExportRestData( IResultObject resultObject,
+			IRowResultSet rs, int dataCountOfUnit, int maxRows )
+			throws DataException, IOException
+	{
+		addNewRow( resultObject );
+
+		int columnCount = rs.getMetaData( ).getFieldCount( );
+		int currDataCount = 1;
+		IResultObject odaObject = null;
+
+		while ( ( odaObject = rs.next( ) ) != null
+				&& !session.getStopSign( ).isStopped( ) )
+		{
+			if ( maxRows > 0 && currDataCount > maxRows )
+				throw new DataException( ResourceConstants.EXCEED_MAX_DATA_OBJECT_ROWS );
+			Object[] ob = new Object[columnCount];
+			for ( int i = 0; i < columnCount; i++ )
+				ob[i] = odaObject.getFieldValue( i + 1 );
+
+			addNewRow( resultObjectUtil.newResultObject( ob ) );
+			currDataCount++;
+		}
+
+		if ( runSize > 0 )
+			submitRun( );
+
+		return currDataCount;
+	}
+
+	/**
+	 * @param resultObject
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void addNewRow( IResultObject resultObject ) throws IOException,
+			DataException
+	{
+		runKeys[runSize] = comparator.getSortKeys( resultObject );
+		runRows[runSize] = resultObject;
+		runSize++;
+
+		if ( runSize == dataCountOfRun )
+		{
+			submitRun( );
+		}
+	}
+
+	/**
+	 * Start a new buffer for the next run.
+	 */
+	private void newRun( )
+	{
+		runRows = new IResultObject[dataCountOfRun];
+		runKeys = new Object[dataCountOfRun][];
+		runSize = 0;
+	}
+
+	/**
+	 * Hand over the current run to a worker. At most parallelism runs are
+	 * pending, so that the memory held by the runs keeps bounded.
+	 *
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void submitRun( ) throws IOException, DataException
+	{
+		waitForRuns( parallelism - 1 );
+
+		// the temp file registers itself to the thread local close listener,
+		// so it is created in the calling thread.
+		RowFile rowFile = tempFileUtil.newTempFile( 0 );
+		runFiles.add( rowFile );
+		pendingRuns.add( getExecutor( ).submit( new SortRunTask( runRows,
+				runKeys,
+				runSize,
+				rowFile,
+				comparator ) ) );
+		newRun( );
+	}
+
+	/**
+	 * Wait until the count of pending runs is not more than given count.
+	 *
+	 * @param count
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void waitForRuns( int count ) throws IOException, DataException
+	{
+		while ( pendingRuns.size( ) > count )
+		{
+			Future future = (Future) pendingRuns.removeFirst( );
+			try
+			{
+				future.get( );
+			}
+			catch ( InterruptedException e )
+			{
+				Thread.currentThread( ).interrupt( );
+				throw new DataException( ResourceConstants.WRITE_TEMPFILE_ERROR,
+						e );
+			}
+			catch ( ExecutionException e )
+			{
+				Throwable cause = e.getCause( );
+				if ( cause instanceof IOException )
+					throw (IOException) cause;
+				if ( cause instanceof DataException )
+					throw (DataException) cause;
+				throw new DataException( ResourceConstants.WRITE_TEMPFILE_ERROR,
+						cause );
+			}
+		}
+	}
+
+	/**
+	 * Merge the sorted runs. When there are more runs than can be opened at
+	 * one time, they are merged level by level into bigger runs first.
+	 *
+	 * @return
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private IRowIterator mergeRuns( ) throws IOException, DataException
+	{
+		if ( runFiles.isEmpty( ) )
+		{
+			RowFile emptyFile = tempFileUtil.newTempFile( 0 );
+			emptyFile.endWrite( );
+			runFiles.add( emptyFile );
+		}
+		while ( runFiles.size( ) > MAX_MERGE_WAYS )
+		{
+			tempFileUtil.newMergeLevel( );
+			List newRunFiles = new ArrayList( );
+			for ( int start = 0; start < runFiles.size( ); start += MAX_MERGE_WAYS )
+			{
+				int end = Math.min( start + MAX_MERGE_WAYS, runFiles.size( ) );
+				RowFile targetFile = tempFileUtil.newTempFile( 0 );
+				mergeRowFiles( toArray( runFiles.subList( start, end ) ),
+						targetFile );
+				newRunFiles.add( targetFile );
+				if ( session.getStopSign( ).isStopped( ) )
+					break;
+			}
+			runFiles = newRunFiles;
+		}
+
+		IRowIterator result = new LoserTreeMergeRowFiles( toArray( runFiles ),
+				comparator );
+		runFiles.clear( );
+		return result;
+	}
+
+	/**
+	 * merge rows in multi files to one file.
+	 *
+	 * @param sourceFiles
+	 * @param targetFile
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void mergeRowFiles( RowFile[] sourceFiles, RowFile targetFile )
+			throws IOException, DataException
+	{
+		IRowIterator merger = new LoserTreeMergeRowFiles( sourceFiles,
+				comparator );
+		IResultObject resultObject = merger.fetch( );
+		while ( resultObject != null )
+		{
+			targetFile.write( resultObject );
+			resultObject = merger.fetch( );
+		}
+		merger.close( );
+		targetFile.endWrite( );
+	}
+
+	/**
+	 * @param list
+	 * @return
+	 */
+	private static RowFile[] toArray( List list )
+	{
+		return (RowFile[]) list.toArray( new RowFile[list.size( )] );
+	}
+
+	/**
+	 * @return
+	 */
+	private ExecutorService getExecutor( )
+	{
+		if ( executor == null )
+		{
+			executor = Executors.newFixedThreadPool( parallelism,
+					new ThreadFactory( ) {
+
+						private int count = 0;
+
+						public synchronized Thread newThread( Runnable r )
+						{
+							Thread thread = new Thread( r,
+									"BIRT disk sort " + ( ++count ) );
+							thread.setDaemon( true );
+							return thread;
+						}
+					} );
+		}
+		return executor;
+	}
+
+	private void shutdownExecutor( )
+	{
+		if ( executor != null )
+		{
+			executor.shutdownNow( );
+			executor = null;
+		}
+	}
+
+	private void closeRunFiles( )
+	{
+		for ( int i = 0; i < pendingRuns.size( ); i++ )
+		{
+			( (Future) pendingRuns.get( i ) ).cancel( true );
+		}
+		pendingRuns.clear( );
+		for ( int i = 0; i < runFiles.size( ); i++ )
+		{
+			( (RowFile) runFiles.get( i ) ).close( );
+		}
+		runFiles.clear( );
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#outputResultObjects(org.eclipse.birt.data.engine.odi.IResultObject[], int)
+	 */
+	protected void outputResultObjects( IResultObject[] resultObjects,
+			int indexOfUnit ) throws IOException
+	{
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#getRowIterator()
+	 */
+	public IRowIterator getRowIterator( )
+	{
+		return goalRowIterator;
+	}
+
+	/*
+	 * @see org.eclipse.birt.data.engine.executor.cache.disk.DiskDataExport#close()
+	 */
+	public void close( )
+	{
+		shutdownExecutor( );
+		tempFileUtil.clearTempDir( );
+	}
+
+	/**
+	 * Sort one run by the fetched keys and write it to its temporary file.
+	 */
+	private static class SortRunTask implements Callable
+	{
+		private IResultObject[] rows;
+		private Object[][] keys;
+		private int count;
+		private RowFile rowFile;
+		private SortKeyComparator comparator;
+
+		SortRunTask( IResultObject[] rows, Object[][] keys, int count,
+				RowFile rowFile, SortKeyComparator comparator )
+		{
+			this.rows = rows;
+			this.keys = keys;
+			this.count = count;
+			this.rowFile = rowFile;
+			this.comparator = comparator;
+		}
+
+		public Object call( ) throws Exception
+		{
+			Integer[] order = new Integer[count];
+			for ( int i = 0; i < count; i++ )
+				order[i] = Integer.valueOf( i );
+
+			// Arrays.sort on objects is stable
+			Arrays.sort( order, new Comparator( ) {
+
+				public int compare( Object o1, Object o2 )
+				{
+					return comparator.compareSortKeys( keys[( (Integer) o1 ).intValue( )],
+							keys[( (Integer) o2 ).intValue( )] );
+				}
+			} );
+
+			IResultObject[] sortedRows = new IResultObject[count];
+			for ( int i = 0; i < count; i++ )
+			{
+				sortedRows[i] = rows[order[i].intValue( )];
+			}
+			rows = null;
+			keys = null;
+
+			rowFile.writeRows( sortedRows, count );
+			rowFile.endWrite( );
+			return null;
+		}
+	}
+}
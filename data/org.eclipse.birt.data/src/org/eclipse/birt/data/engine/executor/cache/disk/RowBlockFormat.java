@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache.disk;
+
+import java.math.BigDecimal;
+import java.sql.Clob;
+import java.util.Date;
+
+import org.eclipse.datatools.connectivity.oda.IClob;
+
+/**
+ * Constants of the block format of spill files. A file starts with the magic
+ * bytes and the format version, and is followed by blocks of rows:
+ *
+ * <pre>
+ * block := flag(1 byte) rawLength(int) storedLength(int) bytes[storedLength]
+ * row   := nullBits[(columnCount + 7) / 8] value*
+ * </pre>
+ *
+ * The flag tells whether the bytes are compressed by BlockCompressor. Integer
+ * values are zigzag varints, dates are varint deltas to the date of the same
+ * column in the previous row of the block, and strings are a varint length
+ * followed by one varint per char. Other types are written by
+ * ResultObjectUtil.writeObject with a varint length prefix.
+ */
+final class RowBlockFormat
+{
+	// the first byte of an old spill file is the high byte of the row length,
+	// so it can not be the first byte of the magic
+	static final byte[] MAGIC = new byte[]{
+			'B', 'R', 'F', 'B'
+	};
+	static final int VERSION_1 = 1;
+	static final int CURRENT_VERSION = VERSION_1;
+
+	// the uncompressed size a block is flushed at
+	static final int BLOCK_SIZE = 64 * 1024;
+
+	static final int FLAG_STORED = 0;
+	static final int FLAG_COMPRESSED = 1;
+
+	static final int KIND_INTEGER = 0;
+	static final int KIND_DOUBLE = 1;
+	static final int KIND_DECIMAL = 2;
+	static final int KIND_DATE = 3;
+	static final int KIND_BOOLEAN = 4;
+	static final int KIND_STRING = 5;
+	static final int KIND_OTHER = 6;
+
+	/**
+	 * Util class
+	 */
+	private RowBlockFormat( )
+	{
+	}
+
+	/**
+	 * @param fieldTypes
+	 * @return how every field is encoded
+	 */
+	static int[] getKinds( Class[] fieldTypes )
+	{
+		int[] kinds = new int[fieldTypes.length];
+		for ( int i = 0; i < fieldTypes.length; i++ )
+		{
+			Class fieldType = fieldTypes[i];
+			if ( fieldType == null )
+				kinds[i] = KIND_OTHER;
+			else if ( fieldType.equals( Integer.class ) )
+				kinds[i] = KIND_INTEGER;
+			else if ( fieldType.equals( Double.class ) )
+				kinds[i] = KIND_DOUBLE;
+			else if ( fieldType.equals( BigDecimal.class ) )
+				kinds[i] = KIND_DECIMAL;
+			else if ( Date.class.isAssignableFrom( fieldType ) )
+				kinds[i] = KIND_DATE;
+			else if ( fieldType.equals( Boolean.class ) )
+				kinds[i] = KIND_BOOLEAN;
+			else if ( fieldType.equals( String.class )
+					|| fieldType.equals( IClob.class )
+					|| fieldType.equals( Clob.class ) )
+				kinds[i] = KIND_STRING;
+			else
+				kinds[i] = KIND_OTHER;
+		}
+		return kinds;
+	}
+}
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache.disk;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.eclipse.birt.core.data.DataTypeUtil;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.ResultObjectUtil;
+import org.eclipse.birt.data.engine.impl.document.stream.VersionManager;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * Reads rows written by RowBlockWriter. One block is read and decompressed at a
+ * time, and the values are decoded directly from the block buffer.
+ */
+class RowBlockReader
+{
+	private InputStream inputStream;
+	private ResultObjectUtil resultObjectUtil;
+
+	private Class[] fieldTypes;
+	private int[] kinds;
+	private int columnCount;
+	private int nullBytesLength;
+
+	// the current block
+	private byte[] block = new byte[0];
+	private int blockLength;
+	private int position;
+	private long[] lastDates;
+
+	private byte[] compressed = new byte[0];
+	private char[] chars = new char[64];
+
+	/**
+	 * Read the header of the file if it is in the block format. Otherwise the
+	 * stream is reset to its start.
+	 *
+	 * @param inputStream
+	 *            a stream which supports mark
+	 * @return whether the stream is in the block format
+	 * @throws IOException
+	 */
+	static boolean readHeader( InputStream inputStream ) throws IOException
+	{
+		assert inputStream.markSupported( );
+
+		inputStream.mark( RowBlockFormat.MAGIC.length + 1 );
+		for ( int i = 0; i < RowBlockFormat.MAGIC.length; i++ )
+		{
+			if ( inputStream.read( ) != RowBlockFormat.MAGIC[i] )
+			{
+				inputStream.reset( );
+				return false;
+			}
+		}
+		int version = inputStream.read( );
+		if ( version < RowBlockFormat.VERSION_1
+				|| version > RowBlockFormat.CURRENT_VERSION )
+			throw new IOException( "Unsupported spill file version: "
+					+ version );
+		return true;
+	}
+
+	/**
+	 * @param inputStream
+	 *            a stream whose header has been read by readHeader
+	 * @param resultObjectUtil
+	 */
+	RowBlockReader( InputStream inputStream, ResultObjectUtil resultObjectUtil )
+	{
+		this.inputStream = inputStream;
+		this.resultObjectUtil = resultObjectUtil;
+		this.fieldTypes = resultObjectUtil.getFieldValueClasses( );
+		this.kinds = RowBlockFormat.getKinds( fieldTypes );
+		this.columnCount = fieldTypes.length;
+		this.nullBytesLength = ( columnCount + 7 ) >>> 3;
+		this.lastDates = new long[columnCount];
+	}
+
+	/**
+	 * @return the next row, or null if there is no more row
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	IResultObject read( ) throws IOException, DataException
+	{
+		if ( position >= blockLength && !readBlock( ) )
+			return null;
+
+		int nullPos = position;
+		position += nullBytesLength;
+
+		Object[] obs = new Object[columnCount];
+		for ( int j = 0; j < columnCount; j++ )
+		{
+			if ( ( block[nullPos + ( j >>> 3 )] & ( 1 << ( j & 7 ) ) ) != 0 )
+				continue;
+			obs[j] = readValue( j );
+		}
+		return resultObjectUtil.newResultObject( obs );
+	}
+
+	/**
+	 * @param column
+	 * @return
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private Object readValue( int column ) throws IOException, DataException
+	{
+		switch ( kinds[column] )
+		{
+			case RowBlockFormat.KIND_INTEGER :
+				return Integer.valueOf( (int) unzigzag( readVarLong( ) ) );
+			case RowBlockFormat.KIND_DOUBLE :
+				return new Double( Double.longBitsToDouble( readFixedLong( ) ) );
+			case RowBlockFormat.KIND_DECIMAL :
+				int scale = (int) unzigzag( readVarLong( ) );
+				return new BigDecimal( new BigInteger( readBytes( ) ), scale );
+			case RowBlockFormat.KIND_DATE :
+				long time = lastDates[column] + unzigzag( readVarLong( ) );
+				lastDates[column] = time;
+				return newDate( fieldTypes[column], time );
+			case RowBlockFormat.KIND_BOOLEAN :
+				return Boolean.valueOf( block[position++] != 0 );
+			case RowBlockFormat.KIND_STRING :
+				return readString( );
+			default :
+				int length = (int) readVarLong( );
+				DataInputStream dis = new DataInputStream( new ByteArrayInputStream( block,
+						position,
+						length ) );
+				position += length;
+				return ResultObjectUtil.readObject( dis,
+						fieldTypes[column],
+						null,
+						VersionManager.getLatestVersion( ) );
+		}
+	}
+
+	/**
+	 * Create the date instance of the column type as ResultObjectUtil does.
+	 *
+	 * @param fieldType
+	 * @param time
+	 * @return
+	 * @throws DataException
+	 */
+	private static Date newDate( Class fieldType, long time )
+			throws DataException
+	{
+		if ( fieldType.equals( Time.class ) )
+			return new Time( time );
+		if ( fieldType.equals( Timestamp.class ) )
+			return new Timestamp( time );
+		if ( fieldType.equals( java.sql.Date.class ) )
+		{
+			try
+			{
+				return DataTypeUtil.toSqlDate( new java.sql.Date( time ) );
+			}
+			catch ( BirtException e )
+			{
+				throw DataException.wrap( e );
+			}
+		}
+		return new Date( time );
+	}
+
+	/**
+	 * Read and decompress the next block.
+	 *
+	 * @return false if the end of file is reached
+	 * @throws IOException
+	 */
+	private boolean readBlock( ) throws IOException
+	{
+		int flag = inputStream.read( );
+		if ( flag < 0 )
+			return false;
+
+		int rawLength = IOUtil.readInt( inputStream );
+		int storedLength = IOUtil.readInt( inputStream );
+		if ( block.length < rawLength )
+			block = new byte[rawLength];
+
+		if ( flag == RowBlockFormat.FLAG_COMPRESSED )
+		{
+			if ( compressed.length < storedLength )
+				compressed = new byte[storedLength];
+			readFully( compressed, storedLength );
+			BlockCompressor.decompress( compressed,
+					storedLength,
+					block,
+					rawLength );
+		}
+		else
+		{
+			readFully( block, rawLength );
+		}
+
+		blockLength = rawLength;
+		position = 0;
+		for ( int i = 0; i < columnCount; i++ )
+			lastDates[i] = 0;
+		return true;
+	}
+
+	private void readFully( byte[] bytes, int length ) throws IOException
+	{
+		int total = 0;
+		while ( total < length )
+		{
+			int size = inputStream.read( bytes, total, length - total );
+			if ( size < 0 )
+				throw new IOException( "Unexpected end of spill file" );
+			total += size;
+		}
+	}
+
+	private static long unzigzag( long value )
+	{
+		return ( value >>> 1 ) ^ -( value & 1 );
+	}
+
+	private long readVarLong( )
+	{
+		long result = 0;
+		int shift = 0;
+		byte b;
+		do
+		{
+			b = block[position++];
+			result |= (long) ( b & 0x7F ) << shift;
+			shift += 7;
+		} while ( b < 0 );
+		return result;
+	}
+
+	private long readFixedLong( )
+	{
+		long result = 0;
+		for ( int i = 0; i < 8; i++ )
+		{
+			result = ( result << 8 ) | ( block[position++] & 0xFF );
+		}
+		return result;
+	}
+
+	private byte[] readBytes( )
+	{
+		int length = (int) readVarLong( );
+		byte[] bytes = new byte[length];
+		System.arraycopy( block, position, bytes, 0, length );
+		position += length;
+		return bytes;
+	}
+
+	private String readString( )
+	{
+		int length = (int) readVarLong( );
+		if ( chars.length < length )
+			chars = new char[Math.max( length, chars.length * 2 )];
+		for ( int i = 0; i < length; i++ )
+		{
+			int c = 0;
+			int shift = 0;
+			byte b;
+			do
+			{
+				b = block[position++];
+				c |= ( b & 0x7F ) << shift;
+				shift += 7;
+			} while ( b < 0 );
+			chars[i] = (char) c;
+		}
+		return new String( chars, 0, length );
+	}
+}
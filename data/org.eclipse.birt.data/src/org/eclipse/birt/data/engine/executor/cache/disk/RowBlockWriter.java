@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.executor.cache.disk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.eclipse.birt.core.data.DataType;
+import org.eclipse.birt.core.data.DataTypeUtil;
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.ResultObjectUtil;
+import org.eclipse.birt.data.engine.impl.document.stream.VersionManager;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * Writes rows in the block format of RowBlockFormat. The rows are encoded into
+ * a reusable block buffer, which is compressed and written out when it is
+ * full.
+ */
+class RowBlockWriter
+{
+	private OutputStream outputStream;
+
+	private Class[] fieldTypes;
+	private int[] kinds;
+	private int columnCount;
+	private int nullBytesLength;
+
+	// the block being filled
+	private byte[] block;
+	private int blockLength;
+	private long[] lastDates;
+
+	private byte[] compressed;
+	private int[] hashTable;
+
+	// only used for the values which have no compact encoding
+	private ByteArrayOutputStream otherBytes;
+	private DataOutputStream otherOutput;
+
+	/**
+	 * Write the file header and prepare the block buffer.
+	 *
+	 * @param outputStream
+	 * @param resultObjectUtil
+	 * @throws IOException
+	 */
+	RowBlockWriter( OutputStream outputStream,
+			ResultObjectUtil resultObjectUtil ) throws IOException
+	{
+		this.outputStream = outputStream;
+		this.fieldTypes = resultObjectUtil.getFieldValueClasses( );
+		this.kinds = RowBlockFormat.getKinds( fieldTypes );
+		this.columnCount = fieldTypes.length;
+		this.nullBytesLength = ( columnCount + 7 ) >>> 3;
+		this.block = new byte[RowBlockFormat.BLOCK_SIZE + 1024];
+		this.lastDates = new long[columnCount];
+
+		outputStream.write( RowBlockFormat.MAGIC );
+		outputStream.write( RowBlockFormat.CURRENT_VERSION );
+	}
+
+	/**
+	 * @param resultObject
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	void write( IResultObject resultObject ) throws IOException,
+			DataException
+	{
+		ensureCapacity( nullBytesLength );
+		int nullPos = blockLength;
+		for ( int i = 0; i < nullBytesLength; i++ )
+			block[blockLength++] = 0;
+
+		for ( int j = 0; j < columnCount; j++ )
+		{
+			Object fieldValue = null;
+			try
+			{
+				fieldValue = resultObject.getFieldValue( j + 1 );
+			}
+			catch ( DataException e )
+			{
+				// never get here since the index value is always value
+			}
+			fieldValue = convert( fieldValue, kinds[j] );
+			if ( fieldValue == null )
+			{
+				block[nullPos + ( j >>> 3 )] |= (byte) ( 1 << ( j & 7 ) );
+				continue;
+			}
+			writeValue( j, fieldValue );
+		}
+
+		if ( blockLength >= RowBlockFormat.BLOCK_SIZE )
+			flushBlock( );
+	}
+
+	/**
+	 * @param column
+	 * @param fieldValue
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void writeValue( int column, Object fieldValue )
+			throws IOException, DataException
+	{
+		switch ( kinds[column] )
+		{
+			case RowBlockFormat.KIND_INTEGER :
+				writeVarLong( zigzag( ( (Integer) fieldValue ).intValue( ) ) );
+				break;
+			case RowBlockFormat.KIND_DOUBLE :
+				writeFixedLong( Double.doubleToRawLongBits( ( (Double) fieldValue ).doubleValue( ) ) );
+				break;
+			case RowBlockFormat.KIND_DECIMAL :
+				BigDecimal decimal = (BigDecimal) fieldValue;
+				writeVarLong( zigzag( decimal.scale( ) ) );
+				writeBytes( decimal.unscaledValue( ).toByteArray( ) );
+				break;
+			case RowBlockFormat.KIND_DATE :
+				long time = ( (Date) fieldValue ).getTime( );
+				writeVarLong( zigzag( time - lastDates[column] ) );
+				lastDates[column] = time;
+				break;
+			case RowBlockFormat.KIND_BOOLEAN :
+				ensureCapacity( 1 );
+				block[blockLength++] = (byte) ( ( (Boolean) fieldValue ).booleanValue( )
+						? 1 : 0 );
+				break;
+			case RowBlockFormat.KIND_STRING :
+				writeString( fieldValue.toString( ) );
+				break;
+			default :
+				if ( otherBytes == null )
+				{
+					otherBytes = new ByteArrayOutputStream( );
+					otherOutput = new DataOutputStream( otherBytes );
+				}
+				otherBytes.reset( );
+				ResultObjectUtil.writeObject( otherOutput,
+						fieldValue,
+						fieldTypes[column],
+						VersionManager.getLatestVersion( ) );
+				otherOutput.flush( );
+				writeBytes( otherBytes.toByteArray( ) );
+		}
+	}
+
+	/**
+	 * Write the rest rows. The underlying stream is not closed.
+	 *
+	 * @throws IOException
+	 */
+	void finish( ) throws IOException
+	{
+		if ( blockLength > 0 )
+			flushBlock( );
+		outputStream.flush( );
+	}
+
+	/**
+	 * Compress the block and write it out.
+	 *
+	 * @throws IOException
+	 */
+	private void flushBlock( ) throws IOException
+	{
+		int maxLength = BlockCompressor.maxCompressedLength( blockLength );
+		if ( compressed == null || compressed.length < maxLength )
+			compressed = new byte[maxLength];
+		if ( hashTable == null )
+			hashTable = new int[1 << BlockCompressor.HASH_LOG];
+
+		int compressedLength = BlockCompressor.compress( block,
+				blockLength,
+				compressed,
+				hashTable );
+		if ( compressedLength < blockLength )
+		{
+			outputStream.write( RowBlockFormat.FLAG_COMPRESSED );
+			IOUtil.writeInt( outputStream, blockLength );
+			IOUtil.writeInt( outputStream, compressedLength );
+			outputStream.write( compressed, 0, compressedLength );
+		}
+		else
+		{
+			outputStream.write( RowBlockFormat.FLAG_STORED );
+			IOUtil.writeInt( outputStream, blockLength );
+			IOUtil.writeInt( outputStream, blockLength );
+			outputStream.write( block, 0, blockLength );
+		}
+
+		blockLength = 0;
+		for ( int i = 0; i < columnCount; i++ )
+			lastDates[i] = 0;
+	}
+
+	/**
+	 * Convert the value to the type of its column as ResultObjectUtil does.
+	 *
+	 * @param fieldValue
+	 * @param kind
+	 * @return
+	 * @throws DataException
+	 */
+	private static Object convert( Object fieldValue, int kind )
+			throws DataException
+	{
+		if ( fieldValue == null )
+			return null;
+		try
+		{
+			switch ( kind )
+			{
+				case RowBlockFormat.KIND_INTEGER :
+					return fieldValue instanceof Integer ? fieldValue
+							: DataTypeUtil.convert( fieldValue,
+									DataType.INTEGER_TYPE );
+				case RowBlockFormat.KIND_DOUBLE :
+					return fieldValue instanceof Double ? fieldValue
+							: DataTypeUtil.convert( fieldValue,
+									DataType.DOUBLE_TYPE );
+				case RowBlockFormat.KIND_DECIMAL :
+					return fieldValue instanceof BigDecimal ? fieldValue
+							: DataTypeUtil.convert( fieldValue,
+									DataType.DECIMAL_TYPE );
+				case RowBlockFormat.KIND_DATE :
+					return fieldValue instanceof Date ? fieldValue
+							: DataTypeUtil.convert( fieldValue,
+									DataType.DATE_TYPE );
+				case RowBlockFormat.KIND_BOOLEAN :
+					return fieldValue instanceof Boolean ? fieldValue
+							: DataTypeUtil.convert( fieldValue,
+									DataType.BOOLEAN_TYPE );
+				default :
+					return fieldValue;
+			}
+		}
+		catch ( BirtException e )
+		{
+			throw DataException.wrap( e );
+		}
+	}
+
+	private static long zigzag( long value )
+	{
+		return ( value << 1 ) ^ ( value >> 63 );
+	}
+
+	private void writeVarLong( long value )
+	{
+		ensureCapacity( 10 );
+		while ( ( value & ~0x7FL ) != 0 )
+		{
+			block[blockLength++] = (byte) ( ( value & 0x7F ) | 0x80 );
+			value >>>= 7;
+		}
+		block[blockLength++] = (byte) value;
+	}
+
+	private void writeFixedLong( long value )
+	{
+		ensureCapacity( 8 );
+		for ( int shift = 56; shift >= 0; shift -= 8 )
+		{
+			block[blockLength++] = (byte) ( value >>> shift );
+		}
+	}
+
+	private void writeBytes( byte[] bytes )
+	{
+		writeVarLong( bytes.length );
+		ensureCapacity( bytes.length );
+		System.arraycopy( bytes, 0, block, blockLength, bytes.length );
+		blockLength += bytes.length;
+	}
+
+	private void writeString( String value )
+	{
+		int length = value.length( );
+		writeVarLong( length );
+		// one char takes three bytes at most
+		ensureCapacity( length * 3 );
+		for ( int i = 0; i < length; i++ )
+		{
+			int c = value.charAt( i );
+			while ( ( c & ~0x7F ) != 0 )
+			{
+				block[blockLength++] = (byte) ( ( c & 0x7F ) | 0x80 );
+				c >>>= 7;
+			}
+			block[blockLength++] = (byte) c;
+		}
+	}
+
+	private void ensureCapacity( int length )
+	{
+		if ( blockLength + length > block.length )
+		{
+			byte[] newBlock = new byte[Math.max( block.length * 2, blockLength
+					+ length )];
+			System.arraycopy( block, 0, newBlock, 0, blockLength );
+			block = newBlock;
+		}
+	}
+}
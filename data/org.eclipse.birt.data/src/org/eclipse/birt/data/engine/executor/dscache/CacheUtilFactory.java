@@ -45,7 +45,6 @@ import org.eclipse.birt.data.engine.executor.IDataSetCacheObject;
 import org.eclipse.birt.data.engine.executor.IncreDataSetCacheObject;
 import org.eclipse.birt.data.engine.executor.MemoryDataSetCacheObject;
 import org.eclipse.birt.data.engine.executor.ResultClass;
-import org.eclipse.birt.data.engine.executor.ResultObject;
 import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
 import org.eclipse.birt.data.engine.executor.cache.ResultObjectUtil;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
@@ -709,10 +708,10 @@ class CacheUtilFactory
 			IResultIterator iterator = getResultIterator( list );
 			if ( iterator != null )
 			{
-				ResultObject ro;
+				IResultObject ro;
 				while ( iterator.next( ) )
 				{
-					ro = (ResultObject) ( ( (ResultIterator) iterator ).getOdiResult( ).getCurrentResult( ) );
+					ro = ( (ResultIterator) iterator ).getOdiResult( ).getCurrentResult( );
 
 					merge.saveObject( ro );
 				}
@@ -389,6 +389,37 @@ public class DataEngineSession
 		}
 		return versionForQuRsHolder.get( );
 	}	
+
+	/**
+	 * Returns the thread local state of the current thread, which can be set
+	 * to another thread working on the same session.
+	 * 
+	 * @return
+	 */
+	public static Object[] getThreadState( )
+	{
+		return new Object[]{
+				classLoaderHolder.get( ), getVersionForQuRsMap( )
+		};
+	}
+
+	/**
+	 * 
+	 * @param state
+	 *            the value returned by getThreadState(), null to clear the
+	 *            thread local state of the current thread.
+	 */
+	public static void setThreadState( Object[] state )
+	{
+		if ( state == null )
+		{
+			classLoaderHolder.remove( );
+			versionForQuRsHolder.remove( );
+			return;
+		}
+		classLoaderHolder.set( (ClassLoader) state[0] );
+		versionForQuRsHolder.set( (Map<String, Integer>) state[1] );
+	}
 	
 	/**
 	 * @return the temp dir path used by this session, ended with File.Separator
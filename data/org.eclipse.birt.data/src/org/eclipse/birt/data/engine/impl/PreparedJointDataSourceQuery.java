@@ -542,11 +542,16 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 				isLeftDataSet,
 				queryDefinition );
 
-		for ( int i = 0; i < conditions.size( ); i++ )
+		// only the merge join needs the data sets sorted by the join keys
+		if ( JointDataSetPopulatorFactory.isMergeJoin( PreparedJointDataSourceQuery.this.dataSet.getJoinType( ),
+				appContext ) )
 		{
-			addSortToQuery( (IJoinCondition) conditions.get( i ),
-					isLeftDataSet,
-					queryDefinition );
+			for ( int i = 0; i < conditions.size( ); i++ )
+			{
+				addSortToQuery( (IJoinCondition) conditions.get( i ),
+						isLeftDataSet,
+						queryDefinition );
+			}
 		}
 
 		IPreparedQuery preparedQuery = PreparedQueryUtil.newInstance( dataEngine,
@@ -651,12 +656,13 @@ public class PreparedJointDataSourceQuery extends PreparedDataSourceQuery
 			JointResultMetadata jrm = getJointResultMetadata( left.getResultMetaData( ),
 					right.getResultMetaData( ) );
 			resultClass = jrm.getResultClass( );
-			populator = JointDataSetPopulatorFactory.getBinaryTreeDataSetPopulator( left.getOdiResult( ),
+			populator = JointDataSetPopulatorFactory.getEqualJoinDataSetPopulator( left.getOdiResult( ),
 					right.getOdiResult( ),
 					jrm,
 					matcher,
 					joinType, dataEngine.getSession( ),
-					dataSetDesign.getRowFetchLimit( ) );
+					dataSetDesign.getRowFetchLimit( ),
+					appContext );
 			
 			DataSetCacheManager dscm = dataEngine.getSession( ).getDataSetCacheManager( );
 			dscm.setDataSourceAndDataSet( 
@@ -23,9 +23,11 @@ import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.core.script.ScriptContext;
 import org.eclipse.birt.data.engine.api.aggregation.Accumulator;
 import org.eclipse.birt.data.engine.api.aggregation.IAggrFunction;
+import org.eclipse.birt.data.engine.api.aggregation.IBatchAccumulator;
 import org.eclipse.birt.data.engine.api.aggregation.IParameterDefn;
 import org.eclipse.birt.data.engine.cache.BasicCachedList;
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.expression.ColumnReferenceExpression;
 import org.eclipse.birt.data.engine.expression.ExprEvaluateUtil;
 import org.eclipse.birt.data.engine.impl.DataEngineSession;
 import org.eclipse.birt.data.engine.odi.IResultIterator;
@@ -66,6 +68,13 @@ class AggregateCalculator
 	
 	private AccumulatorManager[] accumulatorManagers;
 	
+	/**
+	 * The argument values buffered for the aggregations which are accumulated
+	 * in batch. batchBuffers[i] is null if aggregate expression #i is
+	 * calculated row by row.
+	 */
+	private BatchBuffer[] batchBuffers;
+	
 	private Set invalidAggrSet;
 	private Map invalidAggrMsg;
 	
@@ -170,6 +179,14 @@ class AggregateCalculator
 	private void pass( Scriptable scope,ScriptContext cx, boolean[] populateAggrValue,
 			int[] validAggregationArray ) throws DataException
 	{
+		batchBuffers = new BatchBuffer[aggrCount];
+		for ( int i = 0; i < validAggregationArray.length; i++ )
+		{
+			int index = validAggregationArray[i];
+			batchBuffers[index] = createBatchBuffer( index,
+					populateAggrValue[index] );
+		}
+
 		do
 		{
 			int startingGroupLevel = odiResult.getStartingGroupLevel( );
@@ -185,12 +202,25 @@ class AggregateCalculator
 					continue;
 				}
 
-				if ( onRow( index,
-						startingGroupLevel,
-						endingGroupLevel,
-						scope,
-						cx,
-						populateAggrValue[index] ) == false )
+				boolean isValid;
+				if ( batchBuffers[index] != null )
+				{
+					isValid = onBatchRow( index,
+							startingGroupLevel,
+							endingGroupLevel,
+							scope,
+							cx );
+				}
+				else
+				{
+					isValid = onRow( index,
+							startingGroupLevel,
+							endingGroupLevel,
+							scope,
+							cx,
+							populateAggrValue[index] );
+				}
+				if ( isValid == false )
 				{
 					addInvalidAggrMsg( index, endingGroupLevel );
 
@@ -200,6 +230,148 @@ class AggregateCalculator
 				}
 			}
 		} while ( odiResult.next( ) );
+
+		for ( int i = 0; i < validAggregationArray.length; i++ )
+		{
+			flushBatch( validAggregationArray[i] );
+		}
+		batchBuffers = null;
+	}
+
+	/**
+	 * Creates the batch buffer if the aggregation can be accumulated in batch,
+	 * that is, it is a single pass summary aggregation without filter, its
+	 * argument is a plain column reference and its accumulator implements
+	 * IBatchAccumulator.
+	 * 
+	 * @param aggrIndex
+	 * @param populateValue
+	 * @return the buffer, null if the aggregation is calculated row by row.
+	 * @throws DataException
+	 */
+	private BatchBuffer createBatchBuffer( int aggrIndex, boolean populateValue )
+			throws DataException
+	{
+		AggrExprInfo aggrInfo = getAggrInfo( aggrIndex );
+		IAggrFunction aggregation = aggrInfo.aggregation;
+		if ( !populateValue
+				|| aggregation.getType( ) != IAggrFunction.SUMMARY_AGGR
+				|| aggregation.getNumberOfPasses( ) > 1
+				|| aggrInfo.filter != null
+				|| aggrInfo.args == null
+				|| aggrInfo.args.length != 1
+				|| !( aggrInfo.args[0] instanceof ColumnReferenceExpression ) )
+		{
+			return null;
+		}
+		IParameterDefn[] argDefs = aggregation.getParameterDefn( );
+		if ( argDefs.length != 1 )
+		{
+			return null;
+		}
+		Accumulator acc = accumulatorManagers[aggrIndex].getCurrentAccumulator( );
+		if ( !( acc instanceof IBatchAccumulator ) )
+		{
+			return null;
+		}
+		acc.start( );
+		return new BatchBuffer( (IBatchAccumulator) acc,
+				argDefs[0].isOptional( ) );
+	}
+
+	/**
+	 * Buffers the argument of the row instead of calling onRow() of the
+	 * accumulator. The buffered rows are passed to the accumulator once the
+	 * buffer is full, or at the end of the pass.
+	 * 
+	 * @param aggrIndex
+	 * @param startingGroupLevel
+	 * @param endingGroupLevel
+	 * @param scope
+	 * @param cx
+	 * @return false if the argument can not be evaluated.
+	 * @throws DataException
+	 */
+	private boolean onBatchRow( int aggrIndex, int startingGroupLevel,
+			int endingGroupLevel, Scriptable scope, ScriptContext cx )
+			throws DataException
+	{
+		AggrExprInfo aggrInfo = getAggrInfo( aggrIndex );
+		BatchBuffer buffer = batchBuffers[aggrIndex];
+
+		boolean accepted = true;
+		if ( aggrInfo.calculateLevel > 0 )
+		{
+			if ( startingGroupLevel > aggrInfo.calculateLevel )
+				accepted = false;
+		}
+
+		if ( accepted )
+		{
+			// Same as calculateArguments(), the optional argument is only
+			// calculated at the start of the group
+			if ( !buffer.isOptional
+					|| startingGroupLevel <= aggrInfo.groupLevel )
+			{
+				Object value;
+				try
+				{
+					value = ExprEvaluateUtil.evaluateCompiledExpression( aggrInfo.args[0],
+							odiResult,
+							scope,
+							cx );
+				}
+				catch ( DataException e )
+				{
+					flushBatch( aggrIndex );
+					batchBuffers[aggrIndex] = null;
+					if ( invalidAggrMsg == null )
+						invalidAggrMsg = new HashMap( );
+					invalidAggrMsg.put( Integer.valueOf( aggrIndex ), e );
+
+					return false;
+				}
+				if ( !buffer.setValue( value ) )
+				{
+					// The value can't be accumulated in batch, calculate the
+					// rest of the pass row by row
+					flushBatch( aggrIndex );
+					batchBuffers[aggrIndex] = null;
+					return onRow( aggrIndex,
+							startingGroupLevel,
+							endingGroupLevel,
+							scope,
+							cx,
+							true );
+				}
+			}
+			buffer.addRow( );
+		}
+
+		if ( endingGroupLevel <= aggrInfo.groupLevel )
+		{
+			buffer.endGroup( );
+		}
+		if ( buffer.isFull( ) )
+		{
+			flushBatch( aggrIndex );
+		}
+		return true;
+	}
+
+	/**
+	 * Passes the buffered rows to the accumulator, the values of the ended
+	 * groups are added to the aggregate values.
+	 * 
+	 * @param aggrIndex
+	 * @throws DataException
+	 */
+	private void flushBatch( int aggrIndex ) throws DataException
+	{
+		if ( batchBuffers[aggrIndex] != null )
+		{
+			batchBuffers[aggrIndex].flush( aggrValues[aggrIndex] );
+		}
 	}
 
 	/**
@@ -409,6 +581,95 @@ class AggregateCalculator
 				this.aggrValues );
 	}
 	
+	/**
+	 * The argument values of an aggregation which are accumulated in batch.
+	 */
+	private static class BatchBuffer
+	{
+		private static final int BATCH_SIZE = 1024;
+
+		private IBatchAccumulator accumulator;
+		// the argument is only calculated at the start of the group
+		private boolean isOptional;
+
+		// the current argument value
+		private double value;
+		private boolean isNull = true;
+		// the last class accepted by the accumulator
+		private Class valueClass;
+
+		private double[] values = new double[BATCH_SIZE];
+		private boolean[] nulls = new boolean[BATCH_SIZE];
+		private int rowCount;
+		private int[] groupEnds = new int[BATCH_SIZE];
+		private int groupCount;
+
+		BatchBuffer( IBatchAccumulator accumulator, boolean isOptional )
+		{
+			this.accumulator = accumulator;
+			this.isOptional = isOptional;
+		}
+
+		/**
+		 * Set the argument value of the following rows.
+		 * 
+		 * @param obj
+		 * @return false if the value can't be accumulated in batch.
+		 */
+		boolean setValue( Object obj )
+		{
+			if ( obj == null )
+			{
+				isNull = true;
+				return true;
+			}
+			if ( obj.getClass( ) != valueClass )
+			{
+				if ( !( obj instanceof Number )
+						|| !accumulator.isBatchSupported( obj.getClass( ) ) )
+				{
+					return false;
+				}
+				valueClass = obj.getClass( );
+			}
+			value = ( (Number) obj ).doubleValue( );
+			isNull = false;
+			return true;
+		}
+
+		void addRow( )
+		{
+			values[rowCount] = value;
+			nulls[rowCount] = isNull;
+			rowCount++;
+		}
+
+		void endGroup( )
+		{
+			groupEnds[groupCount++] = rowCount;
+		}
+
+		boolean isFull( )
+		{
+			return rowCount == values.length || groupCount == groupEnds.length;
+		}
+
+		void flush( List results ) throws DataException
+		{
+			if ( rowCount > 0 || groupCount > 0 )
+			{
+				accumulator.onBatch( values,
+						nulls,
+						rowCount,
+						groupEnds,
+						groupCount,
+						results );
+				rowCount = 0;
+				groupCount = 0;
+			}
+		}
+	}
+
 	/**
 	 * A helper class that is used to manage the Accumulators of aggregations. 
 	 *
@@ -0,0 +1,899 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.impl.jointdataset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
+import org.eclipse.birt.data.engine.executor.cache.ResultObjectUtil;
+import org.eclipse.birt.data.engine.executor.cache.SizeOfUtil;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.impl.DataEngineSession;
+import org.eclipse.birt.data.engine.odi.IResultClass;
+import org.eclipse.birt.data.engine.odi.IResultIterator;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * This implementation of IMatchResultObjectSeeker finds the matched
+ * IResultObject by a hash table, which is built from the rows of the data set
+ * set by setResultIterator().
+ * <p>
+ * The values of the join condition are compared in the same way as the sort
+ * merge join, so the hash code of a value is computed from the kind of the
+ * value: numbers, dates, booleans and strings. If a row of the other data set
+ * has a value of different kind, for example a string compared with numbers,
+ * it is compared with all the rows in the table.
+ * <p>
+ * Once the rows use up the memory budget, the rows are saved into partitions
+ * on the disk by the hash code (grace hash join). The rows of the other data
+ * set have to be saved into the partitions too by addProbeRow(), and then
+ * each pair of the partitions is joined in memory by nextProbeRow().
+ */
+public class HashJoinResultObjectSeeker implements IMatchResultObjectSeeker
+{
+
+	private static final int MIN_PARTITION_COUNT = 8;
+	private static final int MAX_PARTITION_COUNT = 256;
+
+	// the bytes used by an entry besides the row
+	private static final int ENTRY_OVERHEAD = 64;
+
+	// kinds of the values which are compared as the same type
+	private static final int KIND_NULL = 0;
+	private static final int KIND_NUMBER = 1;
+	private static final int KIND_DATE = 2;
+	private static final int KIND_BOOLEAN = 4;
+	private static final int KIND_STRING = 8;
+	private static final int KIND_OTHER = 16;
+
+	//
+	private IJoinConditionMatcher matcher;
+	private boolean isBuildLeft;
+	private DataEngineSession session;
+	private long memoryBudget;
+
+	// the kinds of the values in each column of the build keys
+	private int[] buildKinds;
+
+	// the build rows in memory
+	private HashMap buckets = new HashMap( );
+	private List entries = new ArrayList( );
+	private long usedMemory;
+	private SizeOfUtil sizeOfUtil;
+	private int buildRowCount;
+
+	// the partitions saved on the disk
+	private String spillDir;
+	private IResultClass buildResultClass;
+	private IResultClass probeResultClass;
+	private Partition[] buildPartitions;
+	private Partition[] probePartitions;
+	private Partition crossPartition;
+	private BitSet[] matchedBuildRows;
+	private int currentPartition;
+	private PartitionReader probeReader;
+
+	// the current probe row
+	private IResultObject probeRow;
+	private Object[] probeKey;
+	private int probeHash;
+	private boolean probeAll;
+	private Entry cursor;
+	private int cursorIndex;
+	private int scanPartition;
+	private PartitionReader scanReader;
+	private int currentPrimaryIndex = -1;
+
+	// the cursor of unmatched build rows
+	private int unmatchedPartition = -1;
+	private int unmatchedIndex;
+	private PartitionReader unmatchedReader;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param matcher
+	 * @param isBuildLeft
+	 *            whether the hash table is built from the left data set
+	 * @param session
+	 * @param memoryBudget
+	 *            the max bytes used by the rows in memory, 0 means no limit.
+	 */
+	public HashJoinResultObjectSeeker( IJoinConditionMatcher matcher,
+			boolean isBuildLeft, DataEngineSession session, long memoryBudget )
+	{
+		this.matcher = matcher;
+		this.isBuildLeft = isBuildLeft;
+		this.session = session;
+		this.memoryBudget = memoryBudget;
+	}
+
+	/*
+	 * Builds the hash table from the rows of the iterator.
+	 *
+	 * @see org.eclipse.birt.data.engine.impl.jointdataset.IMatchResultObjectSeeker#setResultIterator(org.eclipse.birt.data.engine.odi.IResultIterator)
+	 */
+	public void setResultIterator( IResultIterator ri ) throws DataException
+	{
+		this.buildResultClass = ri.getResultClass( );
+		this.sizeOfUtil = new SizeOfUtil( buildResultClass );
+		int totalCount = ri.getRowCount( );
+		while ( ri.getCurrentResult( ) != null )
+		{
+			addBuildRow( matcher.getCompareValue( isBuildLeft ),
+					ri.getCurrentResult( ),
+					totalCount );
+			ri.next( );
+		}
+		if ( isSpilled( ) )
+		{
+			for ( int i = 0; i < buildPartitions.length; i++ )
+			{
+				buildPartitions[i].closeWriter( );
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.impl.jointdataset.IMatchResultObjectSeeker#getNextMatchedResultObject(int)
+	 */
+	public IResultObject getNextMatchedResultObject( int primaryIndex )
+			throws DataException
+	{
+		if ( this.currentPrimaryIndex != primaryIndex )
+		{
+			startProbe( matcher.getCompareValue( !isBuildLeft ), null );
+			this.currentPrimaryIndex = primaryIndex;
+		}
+		return nextMatch( );
+	}
+
+	/**
+	 * Whether the build rows have been saved into partitions on the disk. If
+	 * so, all the probe rows have to be added by addProbeRow() and then
+	 * iterated by nextProbeRow().
+	 *
+	 * @return
+	 */
+	public boolean isSpilled( )
+	{
+		return buildPartitions != null;
+	}
+
+	/**
+	 * The count of the build rows.
+	 *
+	 * @return
+	 */
+	public int getBuildRowCount( )
+	{
+		return buildRowCount;
+	}
+
+	/**
+	 * Starts to seek the build rows which match the key.
+	 *
+	 * @param key
+	 * @param row
+	 *            the probe row
+	 * @throws DataException
+	 */
+	public void startProbe( Object[] key, IResultObject row )
+			throws DataException
+	{
+		this.probeKey = key;
+		this.probeRow = row;
+		this.probeHash = hashKey( key );
+		this.probeAll = isCrossKind( key );
+		this.cursorIndex = 0;
+		this.cursor = null;
+		if ( !probeAll )
+		{
+			Bucket bucket = (Bucket) buckets.get( Integer.valueOf( probeHash ) );
+			if ( bucket != null )
+				this.cursor = bucket.first;
+		}
+		this.scanPartition = 0;
+		closeReader( scanReader );
+		this.scanReader = null;
+	}
+
+	/**
+	 * Returns the next build row which matches the current probe row.
+	 *
+	 * @return null if there are no more matched rows.
+	 * @throws DataException
+	 */
+	public IResultObject nextMatch( ) throws DataException
+	{
+		if ( probeKey == null )
+			return null;
+		if ( isSpilled( ) && currentPartition >= buildPartitions.length )
+		{
+			return nextScannedMatch( );
+		}
+		if ( probeAll )
+		{
+			while ( cursorIndex < entries.size( ) )
+			{
+				Entry entry = (Entry) entries.get( cursorIndex++ );
+				if ( isMatched( entry.key ) )
+				{
+					entry.matched = true;
+					return entry.row;
+				}
+			}
+			return null;
+		}
+		while ( cursor != null )
+		{
+			Entry entry = cursor;
+			cursor = cursor.next;
+			if ( entry.hash == probeHash && isMatched( entry.key ) )
+			{
+				entry.matched = true;
+				return entry.row;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Saves a probe row into the partition on the disk. It is only used after
+	 * the build rows are spilled.
+	 *
+	 * @param key
+	 * @param row
+	 * @throws DataException
+	 */
+	public void addProbeRow( Object[] key, IResultObject row )
+			throws DataException
+	{
+		if ( probeResultClass == null )
+		{
+			probeResultClass = row.getResultClass( );
+		}
+		if ( isCrossKind( key ) )
+		{
+			if ( crossPartition == null )
+				crossPartition = new Partition( "cross", probeResultClass );
+			crossPartition.write( key, row );
+		}
+		else
+		{
+			int index = getPartitionIndex( hashKey( key ) );
+			if ( probePartitions[index] == null )
+				probePartitions[index] = new Partition( "probe" + index,
+						probeResultClass );
+			probePartitions[index].write( key, row );
+		}
+	}
+
+	/**
+	 * Moves to the next probe row saved by addProbeRow(). The partitions are
+	 * joined one by one, the build rows of a partition are loaded into memory
+	 * before its probe rows are returned.
+	 *
+	 * @return false if there are no more probe rows.
+	 * @throws DataException
+	 */
+	public boolean nextProbeRow( ) throws DataException
+	{
+		while ( true )
+		{
+			if ( probeReader != null && probeReader.hasNext( ) )
+			{
+				probeReader.next( );
+				startProbe( probeReader.getKey( ), probeReader.getRow( ) );
+				return true;
+			}
+			closeReader( probeReader );
+			probeReader = null;
+
+			if ( currentPartition < buildPartitions.length )
+			{
+				saveMatchedRows( );
+				currentPartition++;
+			}
+			else
+			{
+				// the cross kind rows are the last
+				probeKey = null;
+				return false;
+			}
+			if ( currentPartition < buildPartitions.length )
+			{
+				loadPartition( currentPartition );
+				if ( probePartitions[currentPartition] != null )
+					probeReader = probePartitions[currentPartition].openReader( );
+			}
+			else
+			{
+				clearMemory( );
+				if ( crossPartition != null )
+					probeReader = crossPartition.openReader( );
+			}
+		}
+	}
+
+	/**
+	 * Returns the current probe row returned by nextProbeRow().
+	 *
+	 * @return
+	 */
+	public IResultObject getProbeRow( )
+	{
+		return probeRow;
+	}
+
+	/**
+	 * Returns the next build row which doesn't match any probe row. It should
+	 * be called after all the probe rows are joined.
+	 *
+	 * @return null if there are no more unmatched rows.
+	 * @throws DataException
+	 */
+	public IResultObject nextUnmatchedBuildRow( ) throws DataException
+	{
+		if ( !isSpilled( ) )
+		{
+			while ( unmatchedIndex < entries.size( ) )
+			{
+				Entry entry = (Entry) entries.get( unmatchedIndex++ );
+				if ( !entry.matched )
+					return entry.row;
+			}
+			return null;
+		}
+		while ( true )
+		{
+			if ( unmatchedReader != null )
+			{
+				while ( unmatchedReader.hasNext( ) )
+				{
+					int ordinal = unmatchedReader.next( );
+					if ( !matchedBuildRows[unmatchedPartition].get( ordinal ) )
+						return unmatchedReader.getRow( );
+				}
+				closeReader( unmatchedReader );
+				unmatchedReader = null;
+			}
+			unmatchedPartition++;
+			if ( unmatchedPartition >= buildPartitions.length )
+				return null;
+			unmatchedReader = buildPartitions[unmatchedPartition].openReader( );
+		}
+	}
+
+	/**
+	 * Releases the rows and removes the partitions from the disk.
+	 */
+	public void close( )
+	{
+		clearMemory( );
+		closeReader( probeReader );
+		closeReader( scanReader );
+		closeReader( unmatchedReader );
+		probeReader = null;
+		scanReader = null;
+		unmatchedReader = null;
+		if ( buildPartitions != null )
+		{
+			for ( int i = 0; i < buildPartitions.length; i++ )
+			{
+				if ( buildPartitions[i] != null )
+					buildPartitions[i].delete( );
+				if ( probePartitions[i] != null )
+					probePartitions[i].delete( );
+			}
+		}
+		if ( crossPartition != null )
+			crossPartition.delete( );
+		if ( spillDir != null )
+		{
+			new File( spillDir ).delete( );
+			spillDir = null;
+		}
+	}
+
+	/**
+	 * Finish adding the probe rows.
+	 *
+	 * @throws DataException
+	 */
+	public void finishProbeRows( ) throws DataException
+	{
+		for ( int i = 0; i < probePartitions.length; i++ )
+		{
+			if ( probePartitions[i] != null )
+				probePartitions[i].closeWriter( );
+		}
+		if ( crossPartition != null )
+			crossPartition.closeWriter( );
+		currentPartition = -1;
+	}
+
+	/**
+	 * Add a row into the hash table, the rows are spilled to the disk once
+	 * they use up the memory budget.
+	 *
+	 * @param key
+	 * @param row
+	 * @param totalCount
+	 *            the total count of the build rows, which is used to decide
+	 *            the count of partitions.
+	 * @throws DataException
+	 */
+	private void addBuildRow( Object[] key, IResultObject row, int totalCount )
+			throws DataException
+	{
+		if ( buildKinds == null )
+		{
+			buildKinds = new int[key.length];
+		}
+		for ( int i = 0; i < key.length; i++ )
+		{
+			buildKinds[i] |= getKind( key[i] );
+		}
+
+		if ( isSpilled( ) )
+		{
+			buildPartitions[getPartitionIndex( hashKey( key ) )].write( key,
+					row );
+		}
+		else
+		{
+			addEntry( key, row, buildRowCount );
+			usedMemory += sizeOfUtil.sizeOf( row ) + ENTRY_OVERHEAD;
+			if ( memoryBudget > 0 && usedMemory > memoryBudget )
+			{
+				spill( totalCount );
+			}
+		}
+		buildRowCount++;
+	}
+
+	private void addEntry( Object[] key, IResultObject row, int ordinal )
+	{
+		Entry entry = new Entry( key, row, hashKey( key ), ordinal );
+		Integer hash = Integer.valueOf( entry.hash );
+		Bucket bucket = (Bucket) buckets.get( hash );
+		if ( bucket == null )
+		{
+			bucket = new Bucket( );
+			bucket.first = entry;
+			buckets.put( hash, bucket );
+		}
+		else
+		{
+			bucket.last.next = entry;
+		}
+		bucket.last = entry;
+		entries.add( entry );
+	}
+
+	/**
+	 * Saves the rows in memory into the partitions.
+	 *
+	 * @param totalCount
+	 * @throws DataException
+	 */
+	private void spill( int totalCount ) throws DataException
+	{
+		// each partition should be loaded into memory with a half of the
+		// budget
+		long rowSize = usedMemory / entries.size( ) + 1;
+		long totalSize = rowSize * Math.max( totalCount, entries.size( ) );
+		long count = totalSize * 2 / memoryBudget + 1;
+		int partitionCount = (int) Math.max( MIN_PARTITION_COUNT,
+				Math.min( MAX_PARTITION_COUNT, count ) );
+
+		spillDir = CacheUtil.createSessionTempDir( CacheUtil.createTempRootDir( session.getTempDir( ) ) );
+		buildPartitions = new Partition[partitionCount];
+		probePartitions = new Partition[partitionCount];
+		matchedBuildRows = new BitSet[partitionCount];
+		for ( int i = 0; i < partitionCount; i++ )
+		{
+			buildPartitions[i] = new Partition( "build" + i, buildResultClass );
+			matchedBuildRows[i] = new BitSet( );
+		}
+		for ( int i = 0; i < entries.size( ); i++ )
+		{
+			Entry entry = (Entry) entries.get( i );
+			buildPartitions[getPartitionIndex( entry.hash )].write( entry.key,
+					entry.row );
+		}
+		clearMemory( );
+	}
+
+	/**
+	 * Loads the build rows of the partition into memory.
+	 *
+	 * @param index
+	 * @throws DataException
+	 */
+	private void loadPartition( int index ) throws DataException
+	{
+		clearMemory( );
+		PartitionReader reader = buildPartitions[index].openReader( );
+		try
+		{
+			while ( reader.hasNext( ) )
+			{
+				int ordinal = reader.next( );
+				addEntry( reader.getKey( ), reader.getRow( ), ordinal );
+			}
+		}
+		finally
+		{
+			closeReader( reader );
+		}
+	}
+
+	/**
+	 * Records the build rows of the current partition which have been
+	 * matched.
+	 */
+	private void saveMatchedRows( )
+	{
+		if ( currentPartition < 0 )
+			return;
+		for ( int i = 0; i < entries.size( ); i++ )
+		{
+			Entry entry = (Entry) entries.get( i );
+			if ( entry.matched )
+				matchedBuildRows[currentPartition].set( entry.ordinal );
+		}
+	}
+
+	/**
+	 * Scans the build rows of all the partitions for the cross kind probe row.
+	 *
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultObject nextScannedMatch( ) throws DataException
+	{
+		while ( true )
+		{
+			if ( scanReader != null )
+			{
+				while ( scanReader.hasNext( ) )
+				{
+					int ordinal = scanReader.next( );
+					if ( isMatched( scanReader.getKey( ) ) )
+					{
+						matchedBuildRows[scanPartition].set( ordinal );
+						return scanReader.getRow( );
+					}
+				}
+				closeReader( scanReader );
+				scanReader = null;
+				scanPartition++;
+			}
+			if ( scanPartition >= buildPartitions.length )
+				return null;
+			scanReader = buildPartitions[scanPartition].openReader( );
+		}
+	}
+
+	private void clearMemory( )
+	{
+		buckets.clear( );
+		entries.clear( );
+		usedMemory = 0;
+	}
+
+	private boolean isMatched( Object[] buildKey ) throws DataException
+	{
+		if ( isBuildLeft )
+			return matcher.compare( buildKey, probeKey ) == 0;
+		return matcher.compare( probeKey, buildKey ) == 0;
+	}
+
+	/**
+	 * Whether a value of the key may be equal to a build value of other kind.
+	 *
+	 * @param key
+	 * @return
+	 */
+	private boolean isCrossKind( Object[] key )
+	{
+		if ( buildKinds == null )
+			return false;
+		for ( int i = 0; i < key.length; i++ )
+		{
+			int kind = getKind( key[i] );
+			if ( kind != KIND_NULL && ( buildKinds[i] & ~kind ) != 0 )
+				return true;
+		}
+		return false;
+	}
+
+	private int getPartitionIndex( int hash )
+	{
+		// the bits used by the hash map are mixed
+		int h = hash ^ ( hash >>> 16 ) ^ ( hash >>> 7 );
+		return ( h & 0x7FFFFFFF ) % buildPartitions.length;
+	}
+
+	private static int getKind( Object value )
+	{
+		if ( value == null )
+			return KIND_NULL;
+		if ( value instanceof Number )
+			return KIND_NUMBER;
+		if ( value instanceof Date )
+			return KIND_DATE;
+		if ( value instanceof Boolean )
+			return KIND_BOOLEAN;
+		if ( value instanceof String )
+			return KIND_STRING;
+		return KIND_OTHER;
+	}
+
+	/**
+	 * Computes the hash code of the key. The values which are equal in
+	 * JointDataSetUtil.compare() have the same hash code if they are of the
+	 * same kind.
+	 *
+	 * @param key
+	 * @return
+	 */
+	static int hashKey( Object[] key )
+	{
+		int hash = 17;
+		for ( int i = 0; i < key.length; i++ )
+		{
+			hash = hash * 31 + hashValue( key[i] );
+		}
+		return hash;
+	}
+
+	private static int hashValue( Object value )
+	{
+		switch ( getKind( value ) )
+		{
+			case KIND_NULL :
+				return 0;
+			case KIND_NUMBER :
+				double number = ( (Number) value ).doubleValue( );
+				// 0.0 and -0.0 are equal keys in the merge join
+				if ( number == 0 )
+				{
+					number = 0;
+				}
+				long bits = Double.doubleToLongBits( number );
+				return (int) ( bits ^ ( bits >>> 32 ) );
+			case KIND_DATE :
+				long time = ( (Date) value ).getTime( );
+				return (int) ( time ^ ( time >>> 32 ) );
+			case KIND_BOOLEAN :
+			case KIND_STRING :
+				return value.hashCode( );
+			default :
+				return 1;
+		}
+	}
+
+	private static void closeReader( PartitionReader reader )
+	{
+		if ( reader != null )
+			reader.close( );
+	}
+
+	/**
+	 * A build row in memory.
+	 */
+	private static class Entry
+	{
+
+		private Object[] key;
+		private IResultObject row;
+		private int hash;
+		private int ordinal;
+		private boolean matched;
+		// the next entry in the same bucket
+		private Entry next;
+
+		Entry( Object[] key, IResultObject row, int hash, int ordinal )
+		{
+			this.key = key;
+			this.row = row;
+			this.hash = hash;
+			this.ordinal = ordinal;
+		}
+	}
+
+	/**
+	 * The entries of the same hash code.
+	 */
+	private static class Bucket
+	{
+
+		private Entry first;
+		private Entry last;
+	}
+
+	/**
+	 * A file which saves the keys and rows of a partition.
+	 */
+	private class Partition
+	{
+
+		private File file;
+		private ResultObjectUtil rowUtil;
+		private DataOutputStream output;
+		private int count;
+
+		Partition( String name, IResultClass resultClass )
+				throws DataException
+		{
+			this.file = new File( spillDir, name );
+			this.rowUtil = ResultObjectUtil.newInstance( resultClass, session );
+			try
+			{
+				this.output = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file ) ) );
+			}
+			catch ( IOException e )
+			{
+				throw new DataException( ResourceConstants.CREATE_CACHE_TEMPFILE_ERROR,
+						e );
+			}
+		}
+
+		void write( Object[] key, IResultObject row ) throws DataException
+		{
+			try
+			{
+				IOUtil.writeInt( output, key.length );
+				for ( int i = 0; i < key.length; i++ )
+				{
+					IOUtil.writeObject( output, key[i] );
+				}
+				rowUtil.writeData( output, row );
+				count++;
+			}
+			catch ( IOException e )
+			{
+				throw new DataException( ResourceConstants.WRITE_CACHE_TEMPFILE_ERROR,
+						e );
+			}
+		}
+
+		void closeWriter( ) throws DataException
+		{
+			if ( output == null )
+				return;
+			try
+			{
+				output.close( );
+				output = null;
+			}
+			catch ( IOException e )
+			{
+				throw new DataException( ResourceConstants.CLOSE_CACHE_TEMPFILE_ERROR,
+						e );
+			}
+		}
+
+		PartitionReader openReader( ) throws DataException
+		{
+			try
+			{
+				return new PartitionReader( this );
+			}
+			catch ( IOException e )
+			{
+				throw new DataException( ResourceConstants.OPEN_CACHE_TEMPFILE_ERROR,
+						e );
+			}
+		}
+
+		void delete( )
+		{
+			try
+			{
+				closeWriter( );
+			}
+			catch ( DataException e )
+			{
+			}
+			file.delete( );
+		}
+	}
+
+	/**
+	 * Reads the keys and rows of a partition sequentially.
+	 */
+	private static class PartitionReader
+	{
+
+		private Partition partition;
+		private DataInputStream input;
+		private int index;
+		private Object[] key;
+		private IResultObject row;
+
+		PartitionReader( Partition partition ) throws IOException
+		{
+			this.partition = partition;
+			this.input = new DataInputStream( new BufferedInputStream( new FileInputStream( partition.file ) ) );
+		}
+
+		boolean hasNext( )
+		{
+			return index < partition.count;
+		}
+
+		/**
+		 * Reads the next row.
+		 *
+		 * @return the ordinal of the row in the partition
+		 * @throws DataException
+		 */
+		int next( ) throws DataException
+		{
+			try
+			{
+				ClassLoader loader = DataEngineSession.getCurrentClassLoader( );
+				key = new Object[IOUtil.readInt( input )];
+				for ( int i = 0; i < key.length; i++ )
+				{
+					key[i] = IOUtil.readObject( input, loader );
+				}
+				row = partition.rowUtil.readData( input, loader, 1 )[0];
+				return index++;
+			}
+			catch ( IOException e )
+			{
+				throw new DataException( ResourceConstants.READ_CACHE_TEMPFILE_ERROR,
+						e );
+			}
+		}
+
+		Object[] getKey( )
+		{
+			return key;
+		}
+
+		IResultObject getRow( )
+		{
+			return row;
+		}
+
+		void close( )
+		{
+			try
+			{
+				input.close( );
+			}
+			catch ( IOException e )
+			{
+			}
+		}
+	}
+}
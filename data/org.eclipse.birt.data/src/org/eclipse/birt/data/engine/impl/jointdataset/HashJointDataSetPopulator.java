@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.impl.jointdataset;
+
+import org.eclipse.birt.data.engine.api.IJointDataSetDesign;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.ResultObject;
+import org.eclipse.birt.data.engine.impl.DataEngineSession;
+import org.eclipse.birt.data.engine.odi.IDataSetPopulator;
+import org.eclipse.birt.data.engine.odi.IResultIterator;
+import org.eclipse.birt.data.engine.odi.IResultObject;
+
+/**
+ * An implementation of IJointDataSetPopulator which joins the data sets by a
+ * hash table. The hash table is built from the secondary data set of
+ * BaseJointDataSetPopulator (the build side), and the rows of the primary data
+ * set (the probe side) are looked up in it one by one, so the joint rows are
+ * returned in the same order. Unlike BaseJointDataSetPopulator, it never
+ * compares the data sets row by row or caches the equal secondary rows again
+ * for each primary row.
+ * <p>
+ * If the build rows use up the memory budget, both data sets are split into
+ * partitions on the disk and each pair of partitions is joined in turn, in
+ * which case the joint rows are returned in the order of the partitions.
+ */
+public class HashJointDataSetPopulator implements IDataSetPopulator
+{
+
+	//
+	private JointResultMetadata meta;
+	private IJoinConditionMatcher jcm;
+
+	private IResultIterator buildIterator;
+	private IResultIterator probeIterator;
+	private boolean isBuildLeft;
+
+	// whether the rows without the matched row should be returned
+	private boolean emitUnmatchedProbe;
+	private boolean emitUnmatchedBuild;
+
+	private HashJoinResultObjectSeeker seeker;
+
+	private IResultObject curProbeResultObject;
+	private boolean beProbeMatched;
+	private boolean beProbeFinished;
+	private boolean beFinished;
+
+	private DataEngineSession session;
+	private long memoryBudget;
+
+	private int rowFetchLimit;
+
+	private int rowCount;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param left
+	 * @param right
+	 * @param meta
+	 * @param jcm
+	 * @param joinType
+	 * @param session
+	 * @param rowFetchLimit
+	 * @param memoryBudget
+	 *            the max bytes used by the hash table, 0 means no limit.
+	 * @throws DataException
+	 */
+	public HashJointDataSetPopulator( IResultIterator left,
+			IResultIterator right, JointResultMetadata meta,
+			IJoinConditionMatcher jcm, int joinType, DataEngineSession session,
+			int rowFetchLimit, long memoryBudget ) throws DataException
+	{
+		this.meta = meta;
+		this.jcm = jcm;
+		this.session = session;
+		this.rowFetchLimit = rowFetchLimit;
+		this.memoryBudget = memoryBudget;
+		this.rowCount = 0;
+
+		this.isBuildLeft = joinType == IJointDataSetDesign.RIGHT_OUTER_JOIN;
+		if ( isBuildLeft )
+		{
+			this.buildIterator = left;
+			this.probeIterator = right;
+		}
+		else
+		{
+			this.buildIterator = right;
+			this.probeIterator = left;
+		}
+
+		boolean fullOuter = joinType == IJointDataSetDesign.FULL_OUTER_JOIN;
+		boolean leftOuter = joinType == IJointDataSetDesign.LEFT_OUTER_JOIN;
+		boolean rightOuter = joinType == IJointDataSetDesign.RIGHT_OUTER_JOIN;
+		this.emitUnmatchedProbe = fullOuter
+				|| ( isBuildLeft ? rightOuter : leftOuter );
+		this.emitUnmatchedBuild = fullOuter
+				|| ( isBuildLeft ? leftOuter : rightOuter );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.odi.IDataSetPopulator#next()
+	 */
+	public IResultObject next( ) throws DataException
+	{
+		if ( this.rowFetchLimit <= 0 || this.rowCount < this.rowFetchLimit )
+		{
+			IResultObject result = doNext( );
+			if ( result != null )
+				this.rowCount++;
+			else
+				close( );
+			return result;
+		}
+
+		close( );
+		return null;
+	}
+
+	/**
+	 *
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultObject doNext( ) throws DataException
+	{
+		if ( beFinished )
+			return null;
+
+		if ( seeker == null )
+		{
+			initialize( );
+		}
+
+		while ( !beProbeFinished )
+		{
+			if ( curProbeResultObject != null )
+			{
+				IResultObject matched = seeker.nextMatch( );
+				if ( matched != null )
+				{
+					beProbeMatched = true;
+					return createResultObject( curProbeResultObject, matched );
+				}
+				IResultObject probe = curProbeResultObject;
+				curProbeResultObject = null;
+				if ( emitUnmatchedProbe && !beProbeMatched )
+				{
+					return createResultObject( probe, null );
+				}
+			}
+			fetchProbeObject( );
+		}
+
+		if ( emitUnmatchedBuild )
+		{
+			IResultObject unmatched = seeker.nextUnmatchedBuildRow( );
+			if ( unmatched != null )
+				return createResultObject( null, unmatched );
+		}
+		return null;
+	}
+
+	/**
+	 * Build the hash table, and save the probe rows to the disk if the build
+	 * rows are spilled.
+	 *
+	 * @throws DataException
+	 */
+	private void initialize( ) throws DataException
+	{
+		seeker = new HashJoinResultObjectSeeker( jcm,
+				isBuildLeft,
+				session,
+				memoryBudget );
+		seeker.setResultIterator( buildIterator );
+
+		if ( seeker.isSpilled( ) )
+		{
+			while ( probeIterator.getCurrentResult( ) != null )
+			{
+				seeker.addProbeRow( jcm.getCompareValue( !isBuildLeft ),
+						probeIterator.getCurrentResult( ) );
+				probeIterator.next( );
+			}
+			seeker.finishProbeRows( );
+		}
+	}
+
+	/**
+	 * Fetch a probe object and start to seek its matched build objects.
+	 *
+	 * @throws DataException
+	 */
+	private void fetchProbeObject( ) throws DataException
+	{
+		beProbeMatched = false;
+		if ( seeker.isSpilled( ) )
+		{
+			if ( seeker.nextProbeRow( ) )
+				curProbeResultObject = seeker.getProbeRow( );
+			else
+				beProbeFinished = true;
+			return;
+		}
+
+		if ( probeIterator.getCurrentResult( ) == null )
+		{
+			beProbeFinished = true;
+			return;
+		}
+		curProbeResultObject = probeIterator.getCurrentResult( );
+		seeker.startProbe( jcm.getCompareValue( !isBuildLeft ),
+				curProbeResultObject );
+		probeIterator.next( );
+	}
+
+	/**
+	 * Release the hash table and the partitions on the disk.
+	 */
+	private void close( )
+	{
+		beFinished = true;
+		if ( seeker != null )
+			seeker.close( );
+	}
+
+	/**
+	 * Create an instance of IResultObject.
+	 *
+	 * @param probe
+	 * @param build
+	 * @return
+	 * @throws DataException
+	 */
+	private IResultObject createResultObject( IResultObject probe,
+			IResultObject build ) throws DataException
+	{
+		Object[] fields = new Object[meta.getResultClass( ).getFieldCount( )];
+		for ( int i = 1; i <= fields.length; i++ )
+		{
+			IResultObject ri = null;
+
+			if ( meta.getColumnSource( i ) == JointResultMetadata.COLUMN_TYPE_LEFT )
+			{
+				ri = isBuildLeft ? build : probe;
+			}
+			else if ( meta.getColumnSource( i ) == JointResultMetadata.COLUMN_TYPE_RIGHT )
+			{
+				ri = isBuildLeft ? probe : build;
+			}
+
+			fields[i - 1] = ri == null ? null
+					: ri.getFieldValue( meta.getSourceIndex( i ) );
+		}
+		return new ResultObject( meta.getResultClass( ), fields );
+	}
+}
@@ -10,7 +10,11 @@
  *******************************************************************************/
 package org.eclipse.birt.data.engine.impl.jointdataset;
 
+import java.util.Map;
+
+import org.eclipse.birt.data.engine.api.IJointDataSetDesign;
 import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.executor.cache.CacheUtil;
 import org.eclipse.birt.data.engine.impl.DataEngineSession;
 import org.eclipse.birt.data.engine.odi.IDataSetPopulator;
 import org.eclipse.birt.data.engine.odi.IResultIterator;
@@ -54,4 +58,63 @@ public class JointDataSetPopulatorFactory
 	{
 		return new BaseJointDataSetPopulator( left, right, meta, jcm , joinType, null, session, rowFetchLimit );
 	}
+	
+	/**
+	 * Return instance of IJointDataSetPopulator which joins the data sets by a
+	 * hash table.
+	 * 
+	 * @param left
+	 * @param right
+	 * @param meta
+	 * @param jcm
+	 * @param joinType
+	 * @param session
+	 * @param rowFetchLimit
+	 * @param memoryBudget
+	 * @return
+	 * @throws DataException
+	 */
+	public static IDataSetPopulator getHashJoinDataSetPopulator( IResultIterator left, IResultIterator right, JointResultMetadata meta, IJoinConditionMatcher jcm , int joinType, DataEngineSession session, int rowFetchLimit, long memoryBudget ) throws DataException
+	{
+		return new HashJointDataSetPopulator( left, right, meta, jcm , joinType, session, rowFetchLimit, memoryBudget );
+	}
+	
+	/**
+	 * Return instance of IJointDataSetPopulator for the equal join conditions,
+	 * which uses the hash join unless it is disabled in the app context. The
+	 * full outer join still merges the sorted data sets, so the unmatched rows
+	 * of both data sets are returned in order.
+	 * 
+	 * @param left
+	 * @param right
+	 * @param meta
+	 * @param jcm
+	 * @param joinType
+	 * @param session
+	 * @param rowFetchLimit
+	 * @param appContext
+	 * @return
+	 * @throws DataException
+	 */
+	public static IDataSetPopulator getEqualJoinDataSetPopulator( IResultIterator left, IResultIterator right, JointResultMetadata meta, IJoinConditionMatcher jcm , int joinType, DataEngineSession session, int rowFetchLimit, Map appContext ) throws DataException
+	{
+		if ( !isMergeJoin( joinType, appContext ) )
+			return getHashJoinDataSetPopulator( left, right, meta, jcm , joinType, session, rowFetchLimit, CacheUtil.getHashJoinMemory( appContext ) );
+		return getBinaryTreeDataSetPopulator( left, right, meta, jcm , joinType, session, rowFetchLimit );
+	}
+	
+	/**
+	 * Return whether getEqualJoinDataSetPopulator merges the data sets, which
+	 * needs both data sets to be sorted by the join keys. The hash join reads
+	 * them in any order.
+	 * 
+	 * @param joinType
+	 * @param appContext
+	 * @return
+	 */
+	public static boolean isMergeJoin( int joinType, Map appContext )
+	{
+		return joinType == IJointDataSetDesign.FULL_OUTER_JOIN
+				|| !CacheUtil.enableHashJoin( appContext );
+	}
 }
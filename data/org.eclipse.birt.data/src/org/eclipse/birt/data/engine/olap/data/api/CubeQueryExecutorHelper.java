@@ -55,6 +55,7 @@ import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationResult
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.CubeDimensionReader;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.DataSetFromOriginalCube;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.IDataSet4Aggregation;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.PreAggregation;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.filter.AggrMeasureFilterHelper;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.filter.AggregationFilterHelper;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.filter.LevelFilter;
@@ -937,6 +938,116 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 	{
 		IDiskArray[] dimPosition = getFilterResult( );
 
+		PreAggregation[] preAggregations = cube.getPreAggregations( );
+		if ( preAggregations.length == 0
+				|| !isPreAggregationApplicable( dimPosition ) )
+		{
+			return executeOnFactTable( aggregations, dimPosition, stopSign );
+		}
+
+		// each aggregation is computed on the smallest compatible
+		// pre-aggregation, the others on the fact table
+		int[] source = new int[aggregations.length];
+		AggregationDefinition[] rewritten = new AggregationDefinition[aggregations.length];
+		for ( int i = 0; i < aggregations.length; i++ )
+		{
+			source[i] = -1;
+			for ( int j = 0; j < preAggregations.length; j++ )
+			{
+				AggregationDefinition aggregation = preAggregations[j].rewrite( aggregations[i] );
+				if ( aggregation != null
+						&& ( source[i] < 0 || preAggregations[j].getRowCount( ) < preAggregations[source[i]].getRowCount( ) ) )
+				{
+					source[i] = j;
+					rewritten[i] = aggregation;
+				}
+			}
+		}
+
+		IAggregationResultSet[] result = new IAggregationResultSet[aggregations.length];
+		for ( int j = -1; j < preAggregations.length; j++ )
+		{
+			List indexes = new ArrayList( );
+			for ( int i = 0; i < aggregations.length; i++ )
+			{
+				if ( source[i] == j )
+				{
+					indexes.add( Integer.valueOf( i ) );
+				}
+			}
+			if ( indexes.isEmpty( ) )
+			{
+				continue;
+			}
+			AggregationDefinition[] originals = new AggregationDefinition[indexes.size( )];
+			AggregationDefinition[] rewrittens = new AggregationDefinition[indexes.size( )];
+			for ( int i = 0; i < originals.length; i++ )
+			{
+				int index = ( (Integer) indexes.get( i ) ).intValue( );
+				originals[i] = aggregations[index];
+				rewrittens[i] = rewritten[index];
+			}
+			IAggregationResultSet[] resultSets;
+			if ( j < 0 )
+			{
+				resultSets = executeOnFactTable( originals, dimPosition, stopSign );
+			}
+			else
+			{
+				AggregationExecutor aggregationCalculatorExecutor = createAggregationExecutor( preAggregations[j].createDataSet( ),
+						rewrittens );
+				aggregationCalculatorExecutor.setResultAggregations( originals );
+				resultSets = aggregationCalculatorExecutor.execute( stopSign );
+			}
+			for ( int i = 0; i < resultSets.length; i++ )
+			{
+				result[( (Integer) indexes.get( i ) ).intValue( )] = resultSets[i];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The pre-aggregations are computed on the whole fact table, so they are
+	 * not used when the fact table rows are filtered, or some of the members
+	 * are not accessible.
+	 * 
+	 * @param dimPosition
+	 * @return whether the aggregations can be computed on the pre-aggregations
+	 */
+	private boolean isPreAggregationApplicable( IDiskArray[] dimPosition )
+	{
+		if ( cube instanceof SecuredCube
+				|| !measureFilters.isEmpty( )
+				|| ( cubePosFilters != null && !cubePosFilters.isEmpty( ) ) )
+		{
+			return false;
+		}
+		for ( int i = 0; i < dimPosition.length; i++ )
+		{
+			if ( dimPosition[i] != null )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 
+	 * @param aggregations
+	 * @param dimPosition
+	 * @param stopSign
+	 * @return the aggregation result computed on the fact table
+	 * @throws DataException
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private IAggregationResultSet[] executeOnFactTable(
+			AggregationDefinition[] aggregations, IDiskArray[] dimPosition,
+			StopSign stopSign ) throws DataException, IOException,
+			BirtException
+	{
 		FactTableRowIterator factTableRowIterator = populateFactTableIterator( stopSign,
 				dimPosition );
 		DimensionResultIterator[] dimensionResultIterators = populateDimensionResultIterator( dimPosition, stopSign );
@@ -945,6 +1056,22 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 				dimensionResultIterators,
 				computedMeasureHelper );
 		
+		return createAggregationExecutor( dataSet4Aggregation, aggregations ).execute( stopSign );
+	}
+
+	/**
+	 * 
+	 * @param dataSet4Aggregation
+	 * @param aggregations
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	private AggregationExecutor createAggregationExecutor(
+			IDataSet4Aggregation dataSet4Aggregation,
+			AggregationDefinition[] aggregations ) throws DataException,
+			IOException
+	{
 		long memoryCacheSize = this.memoryCacheSize;
 		if( this.appContext != null )
 		{
@@ -958,8 +1085,10 @@ public class CubeQueryExecutorHelper implements ICubeQueryExcutorHelper
 				memoryCacheSize );
 		
 		aggregationCalculatorExecutor.setMaxDataObjectRows( maxDataObjectRows );
+		aggregationCalculatorExecutor.setParallelism( CacheUtil.getCubeAggregationParallelism( this.appContext ) );
+		aggregationCalculatorExecutor.setOffHeapSpillSize( CacheUtil.getCubeAggregationOffHeapSpillSize( this.appContext ) );
 		
-		return aggregationCalculatorExecutor.execute( stopSign );
+		return aggregationCalculatorExecutor;
 	}
 
 	/**
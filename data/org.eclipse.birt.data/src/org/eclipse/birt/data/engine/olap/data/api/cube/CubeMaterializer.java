@@ -28,6 +28,7 @@ import org.eclipse.birt.data.engine.olap.data.api.ILevel;
 import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
 import org.eclipse.birt.data.engine.olap.data.impl.Cube;
 import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
@@ -41,6 +42,9 @@ public class CubeMaterializer
 {
 	private IDocumentManager documentManager;
 	private DataEngine dataEngine;
+	private int parallelism = 1;
+	private boolean bitmapIndex = false;
+	private AggregationDefinition[] preAggregations = null;
 	
 	/**
 	 * 
@@ -98,6 +102,48 @@ public class CubeMaterializer
 		dataEngine.addShutdownListener( new DocManagerReleaser( dataEngine ) );
 	}
 	
+	/**
+	 * Set the count of threads used to materialize the cube. If it is greater
+	 * than 1, the indexes of the levels and the dimensions are sorted
+	 * concurrently, and the fact table rows are encoded by a pool of worker
+	 * threads. All the document objects are still written by the calling
+	 * thread, so the result is the same as a serial materialization.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = Math.max( 1, parallelism );
+	}
+	
+	/**
+	 * Set whether to save a bitmap index for each segment of the fact table.
+	 * The queries filtering the cube by some level members then read only the
+	 * matching fact table rows, at the cost of the materialization time and the
+	 * space of the indexes.
+	 * 
+	 * @param bitmapIndex
+	 */
+	public void setBitmapIndex( boolean bitmapIndex )
+	{
+		this.bitmapIndex = bitmapIndex;
+	}
+	
+	/**
+	 * Set the pre-aggregations (rollups) computed when the cube is created.
+	 * Each of them is aggregated once on the whole fact table and saved next
+	 * to the cube, the queries with no filter whose levels are kept by a
+	 * pre-aggregation, and whose functions are SUM, MAX or MIN of its
+	 * measures, are then aggregated from the rows of the smallest compatible
+	 * pre-aggregation.
+	 * 
+	 * @param preAggregations
+	 */
+	public void setPreAggregations( AggregationDefinition[] preAggregations )
+	{
+		this.preAggregations = preAggregations;
+	}
+	
 	/**
 	 * 
 	 * @return
@@ -123,6 +169,7 @@ public class CubeMaterializer
 			BirtException
 	{
 		Hierarchy hierarchy = new Hierarchy( documentManager, dimensionName, hierarchyName ); 
+		hierarchy.setParallelism( parallelism );
 		hierarchy.createAndSaveHierarchy( 
 				iterator,
 				levelDefs,
@@ -234,6 +281,9 @@ public class CubeMaterializer
 			throw new DataException( ResourceConstants.MISSING_DIMENSION_IN_CUBE, name );
 		}
 		Cube cube = new Cube( name, documentManager );
+		cube.setParallelism( parallelism );
+		cube.setBitmapIndex( bitmapIndex );
+		cube.setPreAggregations( preAggregations );
 		cube.create(factTableJointColumnNames, DimJointColumnNames, dimensions,
 				factTable, measureColumns, calculatedMeasure, measureAggrFunctionNames, cacheSize, stopSign);
 		cube.close( );
@@ -265,12 +315,31 @@ public class CubeMaterializer
 			while ( FTSUName != null )
 			{
 				saveDocObjToReportDocument( FTSUName, writer, stopSign );
+				if ( documentManager.exist( NamingUtil.getFTSUBitmapIndexName( FTSUName ) ) )
+				{
+					saveDocObjToReportDocument( NamingUtil.getFTSUBitmapIndexName( FTSUName ),
+							writer,
+							stopSign );
+				}
 				FTSUName = documentObject.readString( );
 			}
 		}
 		catch ( EOFException e )
 		{
 
+		}
+		//save pre-aggregations
+		if ( documentManager.exist( NamingUtil.getPreAggregationListName( cubeName ) ) )
+		{
+			saveDocObjToReportDocument( NamingUtil.getPreAggregationListName( cubeName ),
+					writer,
+					stopSign );
+			for ( int i = 0; i < cube.getPreAggregations( ).length; i++ )
+			{
+				saveDocObjToReportDocument( cube.getPreAggregations( )[i].getDocName( ),
+						writer,
+						stopSign );
+			}
 		}
 		//save dimension
 		IDimension[] dimensions = cube.getDimesions( );
@@ -19,15 +19,23 @@ import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.i18n.ResourceConstants;
 import org.eclipse.birt.data.engine.impl.StopSign;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
 import org.eclipse.birt.data.engine.olap.data.api.cube.ICube;
 import org.eclipse.birt.data.engine.olap.data.api.cube.IDatasetIterator;
 import org.eclipse.birt.data.engine.olap.data.api.cube.IDimension;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.AggregationExecutor;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.CubeDimensionReader;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.DataSetFromOriginalCube;
+import org.eclipse.birt.data.engine.olap.data.impl.aggregation.PreAggregation;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionFactory;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionResultIterator;
 import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTable;
 import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableAccessor;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableRowIterator;
+import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
 
 /**
  * Default implements of ICube interface.
@@ -39,6 +47,10 @@ public class Cube implements ICube
 	protected IDocumentManager documentManager;
 	protected IDimension[] dimension;
 	private FactTable factTable;
+	private int parallelism = 1;
+	private boolean bitmapIndex = false;
+	private AggregationDefinition[] preAggregationDefinitions = null;
+	private PreAggregation[] preAggregations = new PreAggregation[0];
 
 	private static Logger logger = Logger.getLogger( Cube.class.getName( ) );
 
@@ -58,6 +70,41 @@ public class Cube implements ICube
 		logger.exiting( Cube.class.getName( ), "Cube" );
 	}
 
+	/**
+	 * Set the count of threads used to encode the fact table when the cube is
+	 * created.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Set whether to save the bitmap indexes of the fact table when the cube
+	 * is created.
+	 * 
+	 * @param bitmapIndex
+	 */
+	public void setBitmapIndex( boolean bitmapIndex )
+	{
+		this.bitmapIndex = bitmapIndex;
+	}
+
+	/**
+	 * Set the pre-aggregations computed on the fact table when the cube is
+	 * created. The queries on a subset of the levels of a pre-aggregation are
+	 * then answered from its rows.
+	 * 
+	 * @param preAggregationDefinitions
+	 */
+	public void setPreAggregations(
+			AggregationDefinition[] preAggregationDefinitions )
+	{
+		this.preAggregationDefinitions = preAggregationDefinitions;
+	}
+
 	/**
 	 * 
 	 * @param keyColumnNames
@@ -124,6 +171,8 @@ public class Cube implements ICube
 		}
 		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
 		factTableConstructor.setMemoryCacheSize( cacheSize );
+		factTableConstructor.setParallelism( parallelism );
+		factTableConstructor.setBitmapIndex( bitmapIndex );
 		factTable = factTableConstructor.saveFactTable( name,
 				factTableJointColumnNames,
 				DimJointColumnNames,
@@ -133,10 +182,55 @@ public class Cube implements ICube
 				calculatedMeasure,
 				measureColumnAggregations,
 				stopSign );
+		createPreAggregations( cacheSize, stopSign );
 		documentObject.close( );
 		documentManager.flush( );
 	}
 
+	/**
+	 * Aggregate the whole fact table for the pre-aggregations and save the
+	 * results.
+	 * 
+	 * @param cacheSize
+	 * @param stopSign
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private void createPreAggregations( long cacheSize, StopSign stopSign )
+			throws IOException, BirtException
+	{
+		if ( preAggregationDefinitions == null
+				|| preAggregationDefinitions.length == 0 )
+		{
+			return;
+		}
+		DimensionResultIterator[] dimensionResultIterators = new DimensionResultIterator[dimension.length];
+		for ( int i = 0; i < dimension.length; i++ )
+		{
+			dimensionResultIterators[i] = new DimensionResultIterator( (Dimension) dimension[i],
+					null,
+					stopSign );
+		}
+		FactTableRowIterator factTableRowIterator = new FactTableRowIterator( factTable,
+				new String[0],
+				new IDiskArray[0],
+				stopSign );
+		AggregationExecutor aggregationExecutor = new AggregationExecutor( new CubeDimensionReader( this ),
+				new DataSetFromOriginalCube( factTableRowIterator,
+						dimensionResultIterators,
+						null ),
+				preAggregationDefinitions,
+				cacheSize );
+		aggregationExecutor.setParallelism( parallelism );
+		IAggregationResultSet[] resultSets = aggregationExecutor.execute( stopSign );
+		PreAggregation.save( documentManager, name, resultSets );
+		for ( int i = 0; i < resultSets.length; i++ )
+		{
+			resultSets[i].close( );
+		}
+		preAggregations = PreAggregation.load( documentManager, name );
+	}
+
 	/**
 	 * 
 	 * @param factTableJointColumnNames
@@ -192,6 +286,7 @@ public class Cube implements ICube
 		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
 		factTable = factTableConstructor.load( name,
 				stopSign );
+		preAggregations = PreAggregation.load( documentManager, name );
 		documentObject.close( );
 	}
 
@@ -220,6 +315,15 @@ public class Cube implements ICube
 		return factTable;
 	}
 
+	/**
+	 * 
+	 * @return the pre-aggregations of the cube
+	 */
+	public PreAggregation[] getPreAggregations( )
+	{
+		return preAggregations;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.birt.data.engine.olap.data.api.ICube#close()
@@ -25,7 +25,10 @@ public class NamingUtil
 	private static final String HIERARCHY_OFFSET = OLAP_PREFIX + "hierarchy_offset_";
 	private static final String FACT_TABLE = OLAP_PREFIX + "fact_table_";
 	private static final String FTSU_LIST = OLAP_PREFIX + "ftsu_list_";
+	private static final String FTSU_BITMAP_INDEX = "_bitmap_index";
 	private static final String AGGREGATION_RS_DOC = OLAP_PREFIX + "rs_doc_";
+	private static final String PRE_AGGREGATION = OLAP_PREFIX + "pre_aggregation_";
+	private static final String PRE_AGGREGATION_LIST = "_list";
 
 	public static final String DERIVED_MEASURE_PREFIX = "_${DERIVED_MEASURE}$_";
 
@@ -139,6 +142,16 @@ public class NamingUtil
 		return FTSU_LIST + factTableName;
 	}
 	
+	/**
+	 * 
+	 * @param FTSUName
+	 * @return the name of the bitmap index of a fact table segment
+	 */
+	public static String getFTSUBitmapIndexName( String FTSUName )
+	{
+		return FTSUName + FTSU_BITMAP_INDEX;
+	}
+	
 	/**
 	 * 
 	 * @param ID
@@ -148,4 +161,27 @@ public class NamingUtil
 	{
 		return AGGREGATION_RS_DOC + ID;
 	}
+	
+	/**
+	 * 
+	 * @param cubeName
+	 * @return the name of the document object listing the pre-aggregations of
+	 *         a cube
+	 */
+	public static String getPreAggregationListName( String cubeName )
+	{
+		return PRE_AGGREGATION + cubeName + PRE_AGGREGATION_LIST;
+	}
+	
+	/**
+	 * 
+	 * @param cubeName
+	 * @param index
+	 * @return the name of the document object keeping the rows of a
+	 *         pre-aggregation
+	 */
+	public static String getPreAggregationDocName( String cubeName, int index )
+	{
+		return PRE_AGGREGATION + cubeName + "_" + index;
+	}
 }
@@ -13,10 +13,13 @@ package org.eclipse.birt.data.engine.olap.data.impl.aggregation;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.core.exception.BirtException;
@@ -41,6 +44,9 @@ import org.eclipse.birt.data.engine.olap.data.util.BufferedStructureArray;
 import org.eclipse.birt.data.engine.olap.data.util.DataType;
 import org.eclipse.birt.data.engine.olap.data.util.DiskSortedStack;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
+import org.eclipse.birt.data.engine.olap.data.util.MaterializeExecutor;
+import org.eclipse.birt.data.engine.olap.data.util.OffHeapPagePool;
+import org.eclipse.birt.data.engine.olap.data.util.OffHeapSpillSortedStack;
 
 /**
  * Execute aggregation on a cube. 
@@ -75,6 +81,18 @@ public class AggregationExecutor
 	private AggregationFunctionDefinition simpleFunc;
 	private boolean existReferenceDate = false;
 	
+	// the count of rows handed to the partitions at a time
+	private static final int PARTITION_BATCH_SIZE = 4096;
+	private int parallelism = 1;
+	private int sortedStackBufferSize = 10000;
+	private MaterializeExecutor executor = null;
+	private Row4AggregationPartition[] partitions = null;
+	private Future[] partitionTasks = null;
+	private int partitionBatchSize = 0;
+	private AggregationDefinition[] resultAggregations = null;
+	private long offHeapSpillSize = 0;
+	private OffHeapPagePool pagePool = null;
+	
 	private static String[] simpleFuncNames = new String[]{
 		"SUM",
 		"MAX",
@@ -157,6 +175,55 @@ public class AggregationExecutor
 				"AggregationExecutor" );
 	}
 	
+	/**
+	 * Set the count of threads aggregating the fact rows. The fact rows are
+	 * still read by the calling thread, the merging and sorting of the rows
+	 * are done by the partitions in the worker threads. The rows are
+	 * partitioned by the hash code of their level members, so all the rows of
+	 * a group go to the same partition in the order they are read, and the
+	 * sorted partitions are merged when the rows are popped.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Set the aggregations the result sets are created for, when the
+	 * aggregations given to the constructor are rewritten ones, such as the
+	 * aggregations computed on the rows of a pre-aggregation.
+	 * 
+	 * @param resultAggregations
+	 *            the aggregations in the same order as the rewritten ones
+	 */
+	public void setResultAggregations( AggregationDefinition[] resultAggregations )
+	{
+		this.resultAggregations = resultAggregations;
+	}
+	
+	/**
+	 * Set the size of the direct memory used to spill the sorted segments of
+	 * the fact rows. If it is positive, the segments spilled from the sort
+	 * buffers are saved in off-heap pages instead of the disk files, the pages
+	 * exceeding this size are memory-mapped from a temp file. The pages are
+	 * released when the aggregation is executed.
+	 * <p>
+	 * This only replaces the temp files of the spill, it doesn't reduce the
+	 * heap used by the aggregation: the sort buffers hold the rows as objects,
+	 * since they are sorted by the row comparator, and the aggregation results
+	 * are still saved in BufferedStructureArray, as they are used after the
+	 * pages are released.
+	 * 
+	 * @param offHeapSpillSize
+	 *            the size in bytes, 0 to save the segments in the disk files
+	 */
+	public void setOffHeapSpillSize( long offHeapSpillSize )
+	{
+		this.offHeapSpillSize = offHeapSpillSize;
+	}
+	
 	private static boolean existReferenceDate( AggregationDefinition[] aggregations ) throws DataException
 	{
 		for( int i = 0; i < aggregations.length; i++ )
@@ -281,6 +348,19 @@ public class AggregationExecutor
 	 */
 	public IAggregationResultSet[] execute( StopSign stopSign )
 			throws IOException, DataException
+	{
+		try
+		{
+			return doExecute( stopSign );
+		}
+		finally
+		{
+			closePagePool( );
+		}
+	}
+	
+	private IAggregationResultSet[] doExecute( StopSign stopSign )
+			throws IOException, DataException
 	{
 		populateSortedFactRows( stopSign );
 		for ( int i = 0; i < allSortedFactRows.size( ); i++ )
@@ -317,7 +397,9 @@ public class AggregationExecutor
 		boolean needPopulateMissingAggrResultSetRow = false;
 		for ( int i = 0; i < aggregationCalculators.length; i++ )
 		{
-			resultSets[i] = new AggregationResultSet( aggregationCalculators[i].aggregation,
+			resultSets[i] = new AggregationResultSet( resultAggregations == null
+					? aggregationCalculators[i].aggregation
+					: resultAggregations[i],
 					aggregationCalculators[i].getResult( ),
 					getKeyNames( i ),
 					getAttributeNames( i ) );
@@ -343,6 +425,22 @@ public class AggregationExecutor
 		return resultSets;
 	}
 	
+	/**
+	 * Release the off-heap pages of the spilled fact rows, also when the
+	 * aggregation fails.
+	 * 
+	 * @throws IOException
+	 */
+	private void closePagePool( ) throws IOException
+	{
+		if ( pagePool != null )
+		{
+			OffHeapPagePool pool = pagePool;
+			pagePool = null;
+			pool.close( );
+		}
+	}
+	
 	private void populateEdgeMember( List<Member[]> edgeMember, IAggregationResultSet rs ) throws IOException
 	{
 		for ( int i = 0; i < rs.length( ); i++ )
@@ -685,6 +783,12 @@ public class AggregationExecutor
 //				facttableRowIterator, parameterColIndexs );
 
 		prepareSortedStacks( );
+		executor = MaterializeExecutor.create( parallelism,
+				"BIRT cube aggregator" );
+		if ( executor != null )
+		{
+			preparePartitions( );
+		}
 		int measureCount = dataSet4Aggregation.getMetaInfo( ).getMeasureInfos( ).length;
 		int factRowCount = 0;
 		if( this.aggregationRow == null )
@@ -708,16 +812,7 @@ public class AggregationExecutor
 						Member[] members = getLevelMembers( levelIndex );
 						if( aggregationRow[i] != null )
 						{
-							if( existReferenceDate )
-							{
-								diskSortedStackWrapper[i].diskSortedStack.push( aggregationRow[i] );
-							}
-							else
-							{
-								Row4Aggregation popRow = this.mergeRow4Aggregations[i].push( aggregationRow[i] );
-								if( popRow != null )
-									diskSortedStackWrapper[i].diskSortedStack.push( popRow );
-							}
+							pushRow( diskSortedStackWrapper[i], i, aggregationRow[i] );
 						}
 						aggregationRow[i] = createRow4Aggregation( );
 						aggregationRow[i].setLevelMembers( members );
@@ -752,18 +847,9 @@ public class AggregationExecutor
 			{
 				if( aggregationRow[i] != null )
 				{
-					if( existReferenceDate )
-					{
-						diskSortedStackWrapper[i].diskSortedStack.push( aggregationRow[i] );
-					}
-					else
-					{
-						Row4Aggregation popRow = this.mergeRow4Aggregations[i].push( aggregationRow[i] );
-						if( popRow != null )
-							diskSortedStackWrapper[i].diskSortedStack.push( popRow );
-					}
+					pushRow( diskSortedStackWrapper[i], i, aggregationRow[i] );
 				}
-				if( !existReferenceDate )
+				if( !existReferenceDate && partitions == null )
 				{
 					List<Row4Aggregation> remainRows = this.mergeRow4Aggregations[i].getAll( );
 					for( int j = 0; j < remainRows.size(); j++ )
@@ -773,11 +859,216 @@ public class AggregationExecutor
 					this.mergeRow4Aggregations[i] = null;
 				}
 			}
+			if ( partitions != null )
+			{
+				finishPartitions( diskSortedStackWrapper );
+			}
 		}
 		catch ( BirtException e )
 		{
 			throw DataException.wrap( e );
 		}
+		finally
+		{
+			if ( executor != null )
+			{
+				executor.shutdown( );
+				executor = null;
+			}
+			partitions = null;
+			partitionTasks = null;
+		}
+	}
+	
+	/**
+	 * Push a fact row to the merger and the sorted stack of an aggregation
+	 * level set, or to the partition of the row in the partitioned mode.
+	 * 
+	 * @param diskSortedStackWrapper
+	 * @param index
+	 * @param row
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void pushRow( DiskSortedStackWrapper diskSortedStackWrapper,
+			int index, Row4Aggregation row ) throws IOException, DataException
+	{
+		if ( partitions != null )
+		{
+			int hashCode = row.getLevelMembers( ) == null ? 0
+					: Arrays.hashCode( row.getLevelMembers( ) );
+			partitions[( hashCode & Integer.MAX_VALUE ) % partitions.length].add( index,
+					row );
+			partitionBatchSize++;
+			if ( partitionBatchSize >= PARTITION_BATCH_SIZE )
+			{
+				submitPartitionBatches( );
+			}
+		}
+		else if( existReferenceDate )
+		{
+			diskSortedStackWrapper.diskSortedStack.push( row );
+		}
+		else
+		{
+			Row4Aggregation popRow = this.mergeRow4Aggregations[index].push( row );
+			if( popRow != null )
+				diskSortedStackWrapper.diskSortedStack.push( popRow );
+		}
+	}
+	
+	/**
+	 * Create a sorted stack of the fact rows, whose spilled segments are saved
+	 * in the off-heap pages if the off-heap spill size is set.
+	 * 
+	 * @param comparator
+	 * @return
+	 */
+	private DiskSortedStack createDiskSortedStack( Comparator comparator )
+	{
+		if ( offHeapSpillSize > 0 )
+		{
+			if ( pagePool == null )
+			{
+				pagePool = new OffHeapPagePool( OffHeapPagePool.DEFAULT_PAGE_SIZE,
+						offHeapSpillSize );
+			}
+			return new OffHeapSpillSortedStack( 100,
+					false,
+					comparator,
+					Row4Aggregation.getCreator( ),
+					pagePool );
+		}
+		return new DiskSortedStack( 100,
+				false,
+				comparator,
+				Row4Aggregation.getCreator( ) );
+	}
+	
+	/**
+	 * Create the partitions, each of them has its own mergers and sorted
+	 * stacks and shares the memory of the aggregation.
+	 * 
+	 * @throws DataException
+	 */
+	private void preparePartitions( ) throws DataException
+	{
+		partitions = new Row4AggregationPartition[executor.getParallelism( )];
+		partitionTasks = new Future[partitions.length];
+		partitionBatchSize = 0;
+		int bufferSize = Math.max( 1, sortedStackBufferSize / partitions.length );
+		for ( int i = 0; i < partitions.length; i++ )
+		{
+			MergeRow4Aggregation[] mergeRows = null;
+			if ( !existReferenceDate )
+			{
+				mergeRows = new MergeRow4Aggregation[allSortedFactRows.size( )];
+			}
+			DiskSortedStack[] diskSortedStacks = new DiskSortedStack[allSortedFactRows.size( )];
+			for ( int j = 0; j < diskSortedStacks.length; j++ )
+			{
+				DiskSortedStackWrapper diskSortedStackReader = (DiskSortedStackWrapper) allSortedFactRows.get( j );
+				diskSortedStacks[j] = createDiskSortedStack( diskSortedStackReader.comparator );
+				diskSortedStacks[j].setBufferSize( bufferSize );
+				if ( memoryCacheSize == 0 )
+				{
+					diskSortedStacks[j].setUseMemoryOnly( true );
+				}
+				if ( mergeRows != null )
+				{
+					mergeRows[j] = new MergeRow4Aggregation( bufferSize,
+							simpleFunc,
+							measureIndexes4Merge,
+							parameterColIndex4Merge );
+				}
+			}
+			partitions[i] = new Row4AggregationPartition( mergeRows,
+					diskSortedStacks );
+		}
+	}
+	
+	/**
+	 * Hand the rows collected by the partitions to the worker threads. A
+	 * partition is filled by one task at a time, so the task waits for the
+	 * previous task of the same partition.
+	 * 
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void submitPartitionBatches( ) throws IOException, DataException
+	{
+		for ( int i = 0; i < partitions.length; i++ )
+		{
+			if ( partitions[i].isBatchEmpty( ) )
+			{
+				continue;
+			}
+			waitForPartition( i );
+			final Row4AggregationPartition partition = partitions[i];
+			final List[] batch = partition.takeBatch( );
+			partitionTasks[i] = executor.submit( new Callable( ) {
+
+				public Object call( ) throws Exception
+				{
+					partition.push( batch );
+					return null;
+				}
+			} );
+		}
+		partitionBatchSize = 0;
+	}
+	
+	/**
+	 * Push the remaining rows of the partitions and set the sorted partitions
+	 * to the stack wrappers.
+	 * 
+	 * @param diskSortedStackWrapper
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private void finishPartitions(
+			DiskSortedStackWrapper[] diskSortedStackWrapper )
+			throws IOException, DataException
+	{
+		submitPartitionBatches( );
+		for ( int i = 0; i < partitions.length; i++ )
+		{
+			waitForPartition( i );
+			final Row4AggregationPartition partition = partitions[i];
+			partitionTasks[i] = executor.submit( new Callable( ) {
+
+				public Object call( ) throws Exception
+				{
+					partition.finish( );
+					return null;
+				}
+			} );
+		}
+		for ( int i = 0; i < partitions.length; i++ )
+		{
+			waitForPartition( i );
+		}
+		for ( int i = 0; i < diskSortedStackWrapper.length; i++ )
+		{
+			DiskSortedStack[] diskSortedStacks = new DiskSortedStack[partitions.length];
+			for ( int j = 0; j < partitions.length; j++ )
+			{
+				diskSortedStacks[j] = partitions[j].getDiskSortedStack( i );
+			}
+			diskSortedStackWrapper[i].setPartitions( diskSortedStacks );
+			this.mergeRow4Aggregations[i] = null;
+		}
+	}
+	
+	private void waitForPartition( int index ) throws IOException,
+			DataException
+	{
+		if ( partitionTasks[index] != null )
+		{
+			Future task = partitionTasks[index];
+			partitionTasks[index] = null;
+			MaterializeExecutor.get( task );
+		}
 	}
 	
 	protected Row4Aggregation createRow4Aggregation( )
@@ -889,10 +1180,7 @@ public class AggregationExecutor
 			}
 
 			Comparator comparator = new Row4AggregationComparator( levelSortType );
-			DiskSortedStack diskSortedStack = new DiskSortedStack( 100,
-					false,
-					comparator,
-					Row4Aggregation.getCreator( ) );
+			DiskSortedStack diskSortedStack = createDiskSortedStack( comparator );
 			if ( memoryCacheSize == 0 )
 			{
 				diskSortedStack.setBufferSize( 10000 );
@@ -901,6 +1189,7 @@ public class AggregationExecutor
 				
 			DiskSortedStackWrapper diskSortedStackReader = new DiskSortedStackWrapper( diskSortedStack,
 					levelIndex[aggregationIndex] );
+			diskSortedStackReader.comparator = comparator;
 			this.allSortedFactRows.add( diskSortedStackReader );
 
 			for ( int i = 0; i < aggregationCalculators.length; i++ )
@@ -931,6 +1220,7 @@ public class AggregationExecutor
 				diskSortedStackReader.getDiskSortedStack().setBufferSize( bufferSize );
 			}
 		}
+		sortedStackBufferSize = bufferSize;
 		for (int i = 0; i < allSortedFactRows.size( ); i++)
 		{
 			mergeRow4Aggregations[i] = new MergeRow4Aggregation( bufferSize, simpleFunc,
@@ -1185,6 +1475,9 @@ class DiskSortedStackWrapper
 	DiskSortedStack diskSortedStack = null;
 	Object currentObj = null;
 	int[] levelIndex = null;
+	Comparator comparator = null;
+	private DiskSortedStack[] partitions = null;
+	private Object[] partitionObjs = null;
 	
 	/**
 	 * 
@@ -1209,10 +1502,63 @@ class DiskSortedStackWrapper
 	 */
 	Object pop( ) throws IOException
 	{
+		if ( partitions != null )
+		{
+			return popFromPartitions( );
+		}
 		currentObj = diskSortedStack.pop( );
 		return currentObj;
 	}
 
+	/**
+	 * Set the sorted stacks of the partitions, whose rows are merged by the
+	 * comparator when they are popped.
+	 * 
+	 * @param partitions
+	 */
+	void setPartitions( DiskSortedStack[] partitions )
+	{
+		this.partitions = partitions;
+	}
+
+	/**
+	 * Pop the least row of the partitions, the rows of a group are in one
+	 * partition, so the equal rows of different partitions don't need an
+	 * order.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	private Object popFromPartitions( ) throws IOException
+	{
+		if ( partitionObjs == null )
+		{
+			partitionObjs = new Object[partitions.length];
+			for ( int i = 0; i < partitions.length; i++ )
+			{
+				partitionObjs[i] = partitions[i].pop( );
+			}
+		}
+		int index = -1;
+		for ( int i = 0; i < partitions.length; i++ )
+		{
+			if ( partitionObjs[i] != null
+					&& ( index == -1 || comparator.compare( partitionObjs[i],
+							partitionObjs[index] ) < 0 ) )
+			{
+				index = i;
+			}
+		}
+		if ( index == -1 )
+		{
+			currentObj = null;
+			return null;
+		}
+		currentObj = partitionObjs[index];
+		partitionObjs[index] = partitions[index].pop( );
+		return currentObj;
+	}
+
 	/**
 	 * 
 	 * @return
@@ -1222,3 +1568,137 @@ class DiskSortedStackWrapper
 		return currentObj;
 	}
 }
+
+/**
+ * A partition of the fact rows in the partitioned mode. For each aggregation
+ * level set, the partition has a merger and a sorted stack, which are filled
+ * by one worker thread at a time. The rows are collected in the batch by the
+ * calling thread before they are pushed.
+ */
+class Row4AggregationPartition
+{
+
+	private MergeRow4Aggregation[] mergeRow4Aggregations = null;
+	private DiskSortedStack[] diskSortedStacks = null;
+	private List[] batch = null;
+	private boolean isBatchEmpty = true;
+
+	/**
+	 * 
+	 * @param mergeRow4Aggregations
+	 *            the mergers, or null if the rows are not merged
+	 * @param diskSortedStacks
+	 */
+	Row4AggregationPartition( MergeRow4Aggregation[] mergeRow4Aggregations,
+			DiskSortedStack[] diskSortedStacks )
+	{
+		this.mergeRow4Aggregations = mergeRow4Aggregations;
+		this.diskSortedStacks = diskSortedStacks;
+		this.batch = createBatch( );
+	}
+
+	private List[] createBatch( )
+	{
+		List[] result = new List[diskSortedStacks.length];
+		for ( int i = 0; i < result.length; i++ )
+		{
+			result[i] = new ArrayList( );
+		}
+		return result;
+	}
+
+	/**
+	 * Add a row to the batch, called by the calling thread.
+	 * 
+	 * @param index
+	 * @param row
+	 */
+	void add( int index, Row4Aggregation row )
+	{
+		batch[index].add( row );
+		isBatchEmpty = false;
+	}
+
+	/**
+	 * 
+	 * @return
+	 */
+	boolean isBatchEmpty( )
+	{
+		return isBatchEmpty;
+	}
+
+	/**
+	 * Take the collected rows and start a new batch.
+	 * 
+	 * @return
+	 */
+	List[] takeBatch( )
+	{
+		List[] result = batch;
+		batch = createBatch( );
+		isBatchEmpty = true;
+		return result;
+	}
+
+	/**
+	 * Merge and sort the rows of a batch, called by a worker thread.
+	 * 
+	 * @param rows
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	void push( List[] rows ) throws IOException, DataException
+	{
+		for ( int i = 0; i < rows.length; i++ )
+		{
+			for ( int j = 0; j < rows[i].size( ); j++ )
+			{
+				Row4Aggregation row = (Row4Aggregation) rows[i].get( j );
+				if ( mergeRow4Aggregations == null )
+				{
+					diskSortedStacks[i].push( row );
+				}
+				else
+				{
+					Row4Aggregation popRow = mergeRow4Aggregations[i].push( row );
+					if ( popRow != null )
+						diskSortedStacks[i].push( popRow );
+				}
+			}
+		}
+	}
+
+	/**
+	 * Push the rows remaining in the mergers, called by a worker thread.
+	 * 
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	void finish( ) throws IOException, DataException
+	{
+		if ( mergeRow4Aggregations == null )
+		{
+			return;
+		}
+		for ( int i = 0; i < mergeRow4Aggregations.length; i++ )
+		{
+			List remainRows = mergeRow4Aggregations[i].getAll( );
+			for ( int j = 0; j < remainRows.size( ); j++ )
+			{
+				diskSortedStacks[i].push( remainRows.get( j ) );
+			}
+			mergeRow4Aggregations[i] = null;
+		}
+	}
+
+	/**
+	 * 
+	 * @param index
+	 * @return
+	 */
+	DiskSortedStack getDiskSortedStack( int index )
+	{
+		return diskSortedStacks[index];
+	}
+}
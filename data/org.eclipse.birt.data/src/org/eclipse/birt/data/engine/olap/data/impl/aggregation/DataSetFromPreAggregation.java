@@ -0,0 +1,288 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.aggregation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.i18n.DataResourceHandle;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+import org.eclipse.birt.data.engine.olap.data.api.DimLevel;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultRow;
+import org.eclipse.birt.data.engine.olap.data.api.MeasureInfo;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationFunctionDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.DimColumn;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Member;
+import org.eclipse.birt.data.engine.olap.data.util.DataType;
+
+/**
+ * The data prepared for aggregation is from the rows of a pre-aggregation. The
+ * dimensions are the ones of the pre-aggregation levels, and the measures are
+ * the aggregation values of the pre-aggregation, named by their functions.
+ */
+public class DataSetFromPreAggregation implements IDataSet4Aggregation
+{
+	private PreAggregation preAggregation;
+	private IDocumentObject documentObject;
+	private int rowIndex = 0;
+	private IAggregationResultRow currentRow = null;
+
+	private String[] dimensionNames;
+	// the index in the row of each level of each dimension
+	private int[][] levelPositions;
+	private MeasureInfo[] measureInfos;
+
+	/**
+	 *
+	 * @param preAggregation
+	 * @param documentObject
+	 */
+	DataSetFromPreAggregation( PreAggregation preAggregation,
+			IDocumentObject documentObject )
+	{
+		this.preAggregation = preAggregation;
+		this.documentObject = documentObject;
+
+		DimLevel[] levels = preAggregation.getLevels( );
+		List names = new ArrayList( );
+		for ( int i = 0; i < levels.length; i++ )
+		{
+			if ( !names.contains( levels[i].getDimensionName( ) ) )
+			{
+				names.add( levels[i].getDimensionName( ) );
+			}
+		}
+		this.dimensionNames = (String[]) names.toArray( new String[0] );
+		this.levelPositions = new int[dimensionNames.length][];
+		for ( int i = 0; i < dimensionNames.length; i++ )
+		{
+			List positions = new ArrayList( );
+			for ( int j = 0; j < levels.length; j++ )
+			{
+				if ( levels[j].getDimensionName( ).equals( dimensionNames[i] ) )
+				{
+					positions.add( Integer.valueOf( j ) );
+				}
+			}
+			levelPositions[i] = new int[positions.size( )];
+			for ( int j = 0; j < levelPositions[i].length; j++ )
+			{
+				levelPositions[i][j] = ( (Integer) positions.get( j ) ).intValue( );
+			}
+		}
+
+		AggregationFunctionDefinition[] functions = preAggregation.getFunctions( );
+		this.measureInfos = new MeasureInfo[functions.length];
+		for ( int i = 0; i < functions.length; i++ )
+		{
+			measureInfos[i] = new MeasureInfo( functions[i].getName( ),
+					preAggregation.getAggregationDataTypes( )[i] );
+		}
+	}
+
+	public MetaInfo getMetaInfo( )
+	{
+		return new IDataSet4Aggregation.MetaInfo( ) {
+
+			public MeasureInfo[] getMeasureInfos( )
+			{
+				return measureInfos;
+			}
+
+			public int getMeasureIndex( String measureName )
+			{
+				if ( measureName == null )
+				{
+					return -1;
+				}
+				for ( int i = 0; i < measureInfos.length; i++ )
+				{
+					if ( measureName.equals( measureInfos[i].getMeasureName( ) ) )
+					{
+						return i;
+					}
+				}
+				return -1;
+			}
+
+			public int getDimensionIndex( String dimensionName )
+			{
+				for ( int i = 0; i < dimensionNames.length; i++ )
+				{
+					if ( dimensionNames[i].equals( dimensionName ) )
+					{
+						return i;
+					}
+				}
+				return -1;
+			}
+
+			public int getLevelIndex( String dimensionName, String levelName )
+			{
+				int dimIndex = getDimensionIndex( dimensionName );
+				if ( dimIndex < 0 )
+				{
+					return -1;
+				}
+				DimLevel[] levels = preAggregation.getLevels( );
+				for ( int i = 0; i < levelPositions[dimIndex].length; i++ )
+				{
+					if ( levels[levelPositions[dimIndex][i]].getLevelName( )
+							.equals( levelName ) )
+					{
+						return i;
+					}
+				}
+				return -1;
+			}
+
+			public ColumnInfo getColumnInfo( DimColumn dimColumn )
+					throws DataException
+			{
+				int dimIndex = getDimensionIndex( dimColumn.getDimensionName( ) );
+				if ( dimIndex < 0 )
+				{
+					throw new DataException( DataResourceHandle.getInstance( )
+							.getMessage( ResourceConstants.NONEXISTENT_DIMENSION )
+							+ dimColumn.getDimensionName( ) );
+				}
+				int levelIndex = getLevelIndex( dimColumn.getDimensionName( ),
+						dimColumn.getLevelName( ) );
+				if ( levelIndex < 0 )
+				{
+					throw new DataException( DataResourceHandle.getInstance( )
+							.getMessage( ResourceConstants.NONEXISTENT_LEVEL )
+							+ "<"
+							+ dimColumn.getDimensionName( )
+							+ " , "
+							+ dimColumn.getLevelName( )
+							+ ">" );
+				}
+				int position = levelPositions[dimIndex][levelIndex];
+				String columnName = dimColumn.getColumnName( );
+				String[] keyNames = preAggregation.getKeyNames( )[position];
+				if ( keyNames != null )
+				{
+					for ( int i = 0; i < keyNames.length; i++ )
+					{
+						if ( keyNames[i].equals( columnName )
+								|| dimColumn.getLevelName( ).equals( columnName ) )
+						{
+							return new ColumnInfo( dimIndex,
+									levelIndex,
+									i,
+									getDataType( preAggregation.getKeyDataTypes( )[position],
+											i ),
+									true );
+						}
+					}
+				}
+				String[] attributeNames = preAggregation.getAttributeNames( )[position];
+				if ( attributeNames != null )
+				{
+					for ( int i = 0; i < attributeNames.length; i++ )
+					{
+						if ( attributeNames[i].equals( columnName ) )
+						{
+							return new ColumnInfo( dimIndex,
+									levelIndex,
+									i,
+									getDataType( preAggregation.getAttributeDataTypes( )[position],
+											i ),
+									false );
+						}
+					}
+				}
+				throw new DataException( DataResourceHandle.getInstance( )
+						.getMessage( ResourceConstants.NONEXISTENT_KEY_OR_ATTR )
+						+ "<"
+						+ dimColumn.getDimensionName( )
+						+ " , "
+						+ dimColumn.getLevelName( )
+						+ " , "
+						+ columnName + ">" );
+			}
+
+			public String[] getKeyNames( int dimIndex, int levelIndex )
+			{
+				return preAggregation.getKeyNames( )[levelPositions[dimIndex][levelIndex]];
+			}
+
+			public String[] getAttributeNames( int dimIndex, int levelIndex )
+			{
+				return preAggregation.getAttributeNames( )[levelPositions[dimIndex][levelIndex]];
+			}
+
+		};
+	}
+
+	private static int getDataType( int[] dataTypes, int index )
+	{
+		if ( dataTypes == null || index >= dataTypes.length )
+		{
+			return DataType.UNKNOWN_TYPE;
+		}
+		return dataTypes[index];
+	}
+
+	public boolean next( ) throws DataException, IOException
+	{
+		if ( rowIndex >= preAggregation.getRowCount( ) )
+		{
+			currentRow = null;
+			return false;
+		}
+		currentRow = PreAggregation.readRow( documentObject,
+				preAggregation.getLevels( ).length );
+		rowIndex++;
+		return true;
+	}
+
+	public void close( ) throws DataException, IOException
+	{
+		documentObject.close( );
+	}
+
+	public Object getMeasureValue( int measureIndex ) throws DataException,
+			IOException
+	{
+		Object[] values = currentRow.getAggregationValues( );
+		if ( values == null || measureIndex >= values.length )
+		{
+			return null;
+		}
+		return values[measureIndex];
+	}
+
+	public Member getMember( int dimIndex, int levelIndex )
+			throws DataException, IOException
+	{
+		return currentRow.getLevelMembers( )[levelPositions[dimIndex][levelIndex]];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.impl.aggregation.IDataSet4Aggregation#isDuplicatedRow()
+	 */
+	public boolean isDuplicatedRow( )
+	{
+		return false;
+	}
+
+	public int[] getDimensionPosition( )
+	{
+		return null;
+	}
+}
@@ -0,0 +1,514 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.aggregation;
+
+import java.io.IOException;
+
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.olap.data.api.DimLevel;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultRow;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentObjectUtil;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationFunctionDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
+import org.eclipse.birt.data.engine.olap.data.impl.dimension.Member;
+import org.eclipse.birt.data.engine.olap.data.util.DataType;
+
+/**
+ * A pre-aggregation (rollup) of a cube. It keeps the aggregation result of
+ * some levels, computed on the whole fact table when the cube is created, so a
+ * query on a subset of these levels can be aggregated again from its rows
+ * instead of the fact table rows. Only SUM, MAX and MIN can be aggregated
+ * again, other functions are always computed on the fact table.
+ * <p>
+ * The document object listing the pre-aggregations of a cube is saved as: the
+ * pre-aggregation count, then for each pre-aggregation its levels, its
+ * functions and its row count. The rows of each pre-aggregation are saved in a
+ * document object of their own, every value is saved after its data type.
+ */
+
+public class PreAggregation
+{
+	private static String[] reaggregatableFuncNames = new String[]{
+			"SUM", "MAX", "MIN"
+	};
+
+	private IDocumentManager documentManager;
+	private String docName;
+	private DimLevel[] levels;
+	private String[][] keyNames;
+	private String[][] attributeNames;
+	private int[][] keyDataTypes;
+	private int[][] attributeDataTypes;
+	private AggregationFunctionDefinition[] functions;
+	private int[] aggregationDataTypes;
+	private int rowCount;
+
+	private PreAggregation( IDocumentManager documentManager, String docName )
+	{
+		this.documentManager = documentManager;
+		this.docName = docName;
+	}
+
+	/**
+	 * Save the result sets of the pre-aggregations of a cube.
+	 *
+	 * @param documentManager
+	 * @param cubeName
+	 * @param resultSets
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	public static void save( IDocumentManager documentManager,
+			String cubeName, IAggregationResultSet[] resultSets )
+			throws IOException, DataException
+	{
+		IDocumentObject listObject = documentManager.createDocumentObject( NamingUtil.getPreAggregationListName( cubeName ) );
+		listObject.writeInt( resultSets.length );
+		for ( int i = 0; i < resultSets.length; i++ )
+		{
+			IAggregationResultSet resultSet = resultSets[i];
+			DimLevel[] levels = resultSet.getAllLevels( );
+			int levelCount = levels == null ? 0 : levels.length;
+			listObject.writeInt( levelCount );
+			for ( int j = 0; j < levelCount; j++ )
+			{
+				listObject.writeString( levels[j].getDimensionName( ) );
+				listObject.writeString( levels[j].getLevelName( ) );
+				writeStrings( listObject, resultSet.getLevelKeys( )[j] );
+				writeInts( listObject,
+						resultSet.getLevelKeyDataType( ) == null ? null
+								: resultSet.getLevelKeyDataType( )[j] );
+				writeStrings( listObject, resultSet.getLevelAttributes( )[j] );
+				writeInts( listObject,
+						resultSet.getLevelAttributeDataType( ) == null ? null
+								: resultSet.getLevelAttributeDataType( )[j] );
+			}
+			AggregationFunctionDefinition[] functions = resultSet.getAggregationDefinition( )
+					.getAggregationFunctions( );
+			int functionCount = functions == null ? 0 : functions.length;
+			listObject.writeInt( functionCount );
+			for ( int j = 0; j < functionCount; j++ )
+			{
+				listObject.writeString( functions[j].getName( ) );
+				listObject.writeString( functions[j].getMeasureName( ) );
+				listObject.writeString( functions[j].getFunctionName( ) );
+				listObject.writeInt( resultSet.getAggregationDataType( j ) );
+			}
+			listObject.writeInt( resultSet.length( ) );
+
+			IDocumentObject rowObject = documentManager.createDocumentObject( NamingUtil.getPreAggregationDocName( cubeName,
+					i ) );
+			for ( int j = 0; j < resultSet.length( ); j++ )
+			{
+				resultSet.seek( j );
+				writeRow( rowObject, resultSet.getCurrentRow( ) );
+			}
+			rowObject.close( );
+		}
+		listObject.close( );
+	}
+
+	/**
+	 * Load the pre-aggregations of a cube.
+	 *
+	 * @param documentManager
+	 * @param cubeName
+	 * @return the pre-aggregations, an empty array if the cube has none
+	 * @throws IOException
+	 */
+	public static PreAggregation[] load( IDocumentManager documentManager,
+			String cubeName ) throws IOException
+	{
+		String listName = NamingUtil.getPreAggregationListName( cubeName );
+		if ( !documentManager.exist( listName ) )
+		{
+			return new PreAggregation[0];
+		}
+		IDocumentObject listObject = documentManager.openDocumentObject( listName );
+		try
+		{
+			PreAggregation[] result = new PreAggregation[listObject.readInt( )];
+			for ( int i = 0; i < result.length; i++ )
+			{
+				result[i] = new PreAggregation( documentManager,
+						NamingUtil.getPreAggregationDocName( cubeName, i ) );
+				int levelCount = listObject.readInt( );
+				result[i].levels = new DimLevel[levelCount];
+				result[i].keyNames = new String[levelCount][];
+				result[i].keyDataTypes = new int[levelCount][];
+				result[i].attributeNames = new String[levelCount][];
+				result[i].attributeDataTypes = new int[levelCount][];
+				for ( int j = 0; j < levelCount; j++ )
+				{
+					String dimensionName = listObject.readString( );
+					result[i].levels[j] = new DimLevel( dimensionName,
+							listObject.readString( ) );
+					result[i].keyNames[j] = readStrings( listObject );
+					result[i].keyDataTypes[j] = readInts( listObject );
+					result[i].attributeNames[j] = readStrings( listObject );
+					result[i].attributeDataTypes[j] = readInts( listObject );
+				}
+				int functionCount = listObject.readInt( );
+				result[i].functions = new AggregationFunctionDefinition[functionCount];
+				result[i].aggregationDataTypes = new int[functionCount];
+				for ( int j = 0; j < functionCount; j++ )
+				{
+					String name = listObject.readString( );
+					String measureName = listObject.readString( );
+					result[i].functions[j] = new AggregationFunctionDefinition( name,
+							measureName,
+							listObject.readString( ) );
+					result[i].aggregationDataTypes[j] = listObject.readInt( );
+				}
+				result[i].rowCount = listObject.readInt( );
+			}
+			return result;
+		}
+		finally
+		{
+			listObject.close( );
+		}
+	}
+
+	/**
+	 * Rewrite an aggregation to be computed on the rows of this
+	 * pre-aggregation. The aggregation is compatible if its levels are all
+	 * kept by the pre-aggregation, and each of its functions is a SUM, MAX or
+	 * MIN without filter, parameter or time function whose measure is
+	 * aggregated by the same function in the pre-aggregation.
+	 *
+	 * @param aggregation
+	 * @return the aggregation on the measures of the pre-aggregation, or null
+	 *         if the aggregation is not compatible
+	 */
+	public AggregationDefinition rewrite( AggregationDefinition aggregation )
+	{
+		if ( aggregation.getDrilledInfo( ) != null )
+		{
+			return null;
+		}
+		DimLevel[] queryLevels = aggregation.getLevels( );
+		if ( queryLevels != null )
+		{
+			for ( int i = 0; i < queryLevels.length; i++ )
+			{
+				if ( getLevelIndex( queryLevels[i] ) < 0 )
+				{
+					return null;
+				}
+			}
+		}
+		AggregationFunctionDefinition[] queryFunctions = aggregation.getAggregationFunctions( );
+		if ( queryFunctions == null )
+		{
+			return aggregation;
+		}
+		AggregationFunctionDefinition[] rewritten = new AggregationFunctionDefinition[queryFunctions.length];
+		for ( int i = 0; i < queryFunctions.length; i++ )
+		{
+			AggregationFunctionDefinition function = findFunction( queryFunctions[i] );
+			if ( function == null )
+			{
+				return null;
+			}
+			rewritten[i] = new AggregationFunctionDefinition( queryFunctions[i].getName( ),
+					function.getName( ),
+					queryFunctions[i].getFunctionName( ) );
+		}
+		return new AggregationDefinition( queryLevels,
+				aggregation.getSortTypes( ),
+				rewritten );
+	}
+
+	/**
+	 *
+	 * @param queryFunction
+	 * @return the function of this pre-aggregation which the query function
+	 *         can be computed from
+	 */
+	private AggregationFunctionDefinition findFunction(
+			AggregationFunctionDefinition queryFunction )
+	{
+		if ( queryFunction.getMeasureName( ) == null
+				|| queryFunction.getParaCol( ) != null
+				|| queryFunction.getParaValue( ) != null
+				|| queryFunction.getFilterEvalHelper( ) != null
+				|| queryFunction.getTimeFunction( ) != null
+				|| queryFunction.getTimeFunctionFilter( ) != null
+				|| !isReaggregatable( queryFunction.getFunctionName( ) ) )
+		{
+			return null;
+		}
+		for ( int i = 0; i < functions.length; i++ )
+		{
+			if ( queryFunction.getMeasureName( )
+					.equals( functions[i].getMeasureName( ) )
+					&& queryFunction.getFunctionName( )
+							.equalsIgnoreCase( functions[i].getFunctionName( ) ) )
+			{
+				return functions[i];
+			}
+		}
+		return null;
+	}
+
+	private static boolean isReaggregatable( String functionName )
+	{
+		if ( functionName == null )
+		{
+			return false;
+		}
+		for ( int i = 0; i < reaggregatableFuncNames.length; i++ )
+		{
+			if ( reaggregatableFuncNames[i].equalsIgnoreCase( functionName ) )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @param level
+	 * @return the index of a level in the rows, -1 if it is not kept
+	 */
+	int getLevelIndex( DimLevel level )
+	{
+		for ( int i = 0; i < levels.length; i++ )
+		{
+			if ( levels[i].equals( level ) )
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 *
+	 * @return the data set reading the rows of this pre-aggregation
+	 * @throws IOException
+	 */
+	public IDataSet4Aggregation createDataSet( ) throws IOException
+	{
+		return new DataSetFromPreAggregation( this,
+				documentManager.openDocumentObject( docName ) );
+	}
+
+	/**
+	 *
+	 * @return the count of rows
+	 */
+	public int getRowCount( )
+	{
+		return rowCount;
+	}
+
+	/**
+	 *
+	 * @return the name of the document object keeping the rows
+	 */
+	public String getDocName( )
+	{
+		return docName;
+	}
+
+	DimLevel[] getLevels( )
+	{
+		return levels;
+	}
+
+	String[][] getKeyNames( )
+	{
+		return keyNames;
+	}
+
+	String[][] getAttributeNames( )
+	{
+		return attributeNames;
+	}
+
+	int[][] getKeyDataTypes( )
+	{
+		return keyDataTypes;
+	}
+
+	int[][] getAttributeDataTypes( )
+	{
+		return attributeDataTypes;
+	}
+
+	AggregationFunctionDefinition[] getFunctions( )
+	{
+		return functions;
+	}
+
+	int[] getAggregationDataTypes( )
+	{
+		return aggregationDataTypes;
+	}
+
+	private static void writeRow( IDocumentObject documentObject,
+			IAggregationResultRow row ) throws IOException, DataException
+	{
+		Member[] members = row.getLevelMembers( );
+		if ( members != null )
+		{
+			for ( int i = 0; i < members.length; i++ )
+			{
+				if ( members[i] == null )
+				{
+					documentObject.writeBoolean( false );
+					continue;
+				}
+				documentObject.writeBoolean( true );
+				writeValues( documentObject, members[i].getKeyValues( ) );
+				writeValues( documentObject, members[i].getAttributes( ) );
+			}
+		}
+		writeValues( documentObject, row.getAggregationValues( ) );
+	}
+
+	/**
+	 * Read a row written by <code>writeRow</code>.
+	 *
+	 * @param documentObject
+	 * @param levelCount
+	 * @return the row
+	 * @throws IOException
+	 */
+	static IAggregationResultRow readRow( IDocumentObject documentObject,
+			int levelCount ) throws IOException
+	{
+		Member[] members = new Member[levelCount];
+		for ( int i = 0; i < levelCount; i++ )
+		{
+			if ( !documentObject.readBoolean( ) )
+			{
+				continue;
+			}
+			members[i] = new Member( );
+			members[i].setKeyValues( readValues( documentObject ) );
+			members[i].setAttributes( readValues( documentObject ) );
+		}
+		return new AggregationResultRow( members, readValues( documentObject ) );
+	}
+
+	private static void writeValues( IDocumentObject documentObject,
+			Object[] values ) throws IOException, DataException
+	{
+		if ( values == null )
+		{
+			documentObject.writeInt( -1 );
+			return;
+		}
+		documentObject.writeInt( values.length );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			int dataType = DataType.UNKNOWN_TYPE;
+			if ( values[i] != null )
+			{
+				dataType = DataType.getDataType( values[i].getClass( ) );
+				if ( dataType == DataType.UNKNOWN_TYPE )
+				{
+					dataType = DataType.JAVA_OBJECT_TYPE;
+				}
+			}
+			documentObject.writeInt( dataType );
+			DocumentObjectUtil.writeValue( documentObject, dataType, values[i] );
+		}
+	}
+
+	private static Object[] readValues( IDocumentObject documentObject )
+			throws IOException
+	{
+		int count = documentObject.readInt( );
+		if ( count < 0 )
+		{
+			return null;
+		}
+		Object[] values = new Object[count];
+		for ( int i = 0; i < count; i++ )
+		{
+			int dataType = documentObject.readInt( );
+			values[i] = DocumentObjectUtil.readValue( documentObject, dataType );
+		}
+		return values;
+	}
+
+	private static void writeStrings( IDocumentObject documentObject,
+			String[] values ) throws IOException
+	{
+		if ( values == null )
+		{
+			documentObject.writeInt( -1 );
+			return;
+		}
+		documentObject.writeInt( values.length );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			documentObject.writeString( values[i] );
+		}
+	}
+
+	private static String[] readStrings( IDocumentObject documentObject )
+			throws IOException
+	{
+		int count = documentObject.readInt( );
+		if ( count < 0 )
+		{
+			return null;
+		}
+		String[] values = new String[count];
+		for ( int i = 0; i < count; i++ )
+		{
+			values[i] = documentObject.readString( );
+		}
+		return values;
+	}
+
+	private static void writeInts( IDocumentObject documentObject,
+			int[] values ) throws IOException
+	{
+		if ( values == null )
+		{
+			documentObject.writeInt( -1 );
+			return;
+		}
+		documentObject.writeInt( values.length );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			documentObject.writeInt( values[i] );
+		}
+	}
+
+	private static int[] readInts( IDocumentObject documentObject )
+			throws IOException
+	{
+		int count = documentObject.readInt( );
+		if ( count < 0 )
+		{
+			return null;
+		}
+		int[] values = new int[count];
+		for ( int i = 0; i < count; i++ )
+		{
+			values[i] = documentObject.readInt( );
+		}
+		return values;
+	}
+}
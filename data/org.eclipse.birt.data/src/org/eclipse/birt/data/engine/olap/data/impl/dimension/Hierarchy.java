@@ -14,6 +14,8 @@ package org.eclipse.birt.data.engine.olap.data.impl.dimension;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.data.engine.cache.Constants;
@@ -33,6 +35,7 @@ import org.eclipse.birt.data.engine.olap.data.util.DiskIndex;
 import org.eclipse.birt.data.engine.olap.data.util.DiskSortedStack;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
 import org.eclipse.birt.data.engine.olap.data.util.IndexKey;
+import org.eclipse.birt.data.engine.olap.data.util.MaterializeExecutor;
 
 /**
  * Describes a hierarchy. A hierarchy is composed of multi-levels.
@@ -47,6 +50,7 @@ public class Hierarchy implements IHierarchy
 	private String name = null;
 	private Map levelMap = new HashMap( );
 	private String dimensionName;
+	private int parallelism = 1;
 	
 	public Hierarchy( IDocumentManager documentManager, String dimensionName, String hierarchyName )
 	{
@@ -55,6 +59,18 @@ public class Hierarchy implements IHierarchy
 		this.name = hierarchyName;
 	}
 	
+	/**
+	 * Set the count of threads used to sort the index keys of the levels when
+	 * the hierarchy is created. The levels are sorted in the calling thread if
+	 * it is 1.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = parallelism;
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.birt.data.olap.data.api.IHierarchy#getLevels()
@@ -366,15 +382,59 @@ public class Hierarchy implements IHierarchy
 			obj = sortedDimensionSet.pop( );
 			currentIndex++;
 		}
-		validateDimensionMembers( sortedDimMembers );
 		DiskIndex[] diskIndex = new DiskIndex[indexKeyLists.length];
-		for ( int i = 0; i < indexKeyLists.length; i++ )
+		MaterializeExecutor executor = null;
+		if ( parallelism > 1 && currentIndex > 0 )
+		{
+			executor = new MaterializeExecutor( Math.min( parallelism,
+					indexKeyLists.length ) );
+		}
+		try
+		{
+			Future[] sortedKeyLists = null;
+			if ( executor != null )
+			{
+				// the keys of the levels are sorted while the members are
+				// validated, the indexes are written in this thread.
+				sortedKeyLists = new Future[indexKeyLists.length];
+				for ( int i = 0; i < indexKeyLists.length; i++ )
+				{
+					final IDiskArray keyList = indexKeyLists[i];
+					sortedKeyLists[i] = executor.submit( new Callable( ) {
+
+						public Object call( ) throws IOException
+						{
+							return DiskIndex.sortKeys( keyList );
+						}
+					} );
+				}
+			}
+			validateDimensionMembers( sortedDimMembers );
+			for ( int i = 0; i < indexKeyLists.length; i++ )
+			{
+				// create index for this level
+				if ( sortedKeyLists != null )
+				{
+					diskIndex[i] = DiskIndex.createIndex( documentManager,
+							NamingUtil.getLevelIndexDocName( dimensionName, levelDefs[i].getLevelName( ) ),
+							(IDiskArray) MaterializeExecutor.get( sortedKeyLists[i] ),
+							true );
+				}
+				else
+				{
+					diskIndex[i] = DiskIndex.createIndex( documentManager,
+							NamingUtil.getLevelIndexDocName( dimensionName, levelDefs[i].getLevelName( ) ),
+							indexKeyLists[i],
+							false );
+				}
+			}
+		}
+		finally
 		{
-			// create index for this level
-			diskIndex[i] = DiskIndex.createIndex( documentManager,
-					NamingUtil.getLevelIndexDocName( dimensionName, levelDefs[i].getLevelName( ) ),
-					indexKeyLists[i],
-					false );
+			if ( executor != null )
+			{
+				executor.shutdown( );
+			}
 		}
 		levels = new Level[levelDefs.length];
 		for ( int i = 0; i < levels.length; i++ )
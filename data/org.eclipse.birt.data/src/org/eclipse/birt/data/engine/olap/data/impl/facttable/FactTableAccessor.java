@@ -18,10 +18,13 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.core.exception.BirtException;
@@ -51,6 +54,7 @@ import org.eclipse.birt.data.engine.olap.data.util.BufferedStructureArray;
 import org.eclipse.birt.data.engine.olap.data.util.Bytes;
 import org.eclipse.birt.data.engine.olap.data.util.DiskSortedStack;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
+import org.eclipse.birt.data.engine.olap.data.util.MaterializeExecutor;
 import org.eclipse.birt.data.engine.olap.data.util.StructureDiskArray;
 
 /**
@@ -62,6 +66,11 @@ public class FactTableAccessor
 	private IDocumentManager documentManager =null;
 	private static Logger logger = Logger.getLogger( FactTableAccessor.class.getName( ) );
 	private long memoryCacheSize = 0;
+	private int parallelism = 1;
+	private boolean bitmapIndex = false;
+	
+	// the count of fact table rows encoded by a worker task
+	private static final int ENCODE_BATCH_SIZE = 4096;
 	
 	public FactTableAccessor( IDocumentManager documentManager )
 	{
@@ -121,72 +130,65 @@ public class FactTableAccessor
 				segmentCount );
 		
 		int[][][] columnIndex = getColumnIndex( DimJointColumnNames, dimensions );
-		DimensionPositionSeeker[] dimensionSeekers = new DimensionPositionSeeker[dimensions.length];
-		for ( int i = 0; i < dimensionSeekers.length; i++ )
+		MaterializeExecutor executor = MaterializeExecutor.create( parallelism );
+		try
 		{
-			dimensionSeekers[i] = new DimensionPositionSeeker( getDimCombinatedKey( columnIndex[i],
-					dimensions[i].getAllRows( stopSign ) ) );
-		}
-		
-		int[] dimensionPosition = new int[dimensions.length];
-		DocumentObjectCache documentObjectManager = new DocumentObjectCache( documentManager, (long) ( memoryCacheSize* 0.25 ) );
-		CombinedPositionContructor combinedPositionCalculator = new CombinedPositionContructor( subDimensions );
-		
-		FTSUNameSaveHelper saveHelper = new FTSUNameSaveHelper( documentManager, factTableName );
-		FactTableRow currentRow = sortedFactTableRows.pop( );
-		boolean invalidDimensionKey = false;
-		int invalidRowNumber = 0;
-		while ( currentRow != null && !stopSign.isStopped( ) )
-		{			
-			invalidDimensionKey = false;
-			for ( int i = 0; i < dimensionPosition.length; i++ )
+			DimensionPositionSeeker[] dimensionSeekers = createDimensionSeekers( columnIndex,
+					dimensions,
+					executor,
+					stopSign );
+
+			FactTableRowEncoder encoder = new FactTableRowEncoder( factTableName,
+					factTableJointColumnNames,
+					dimensions,
+					dimensionSeekers,
+					subDimensions );
+			DocumentObjectCache documentObjectManager = new DocumentObjectCache( documentManager, (long) ( memoryCacheSize* 0.25 ) );
+			FTSUNameSaveHelper saveHelper = new FTSUNameSaveHelper( documentManager, factTableName );
+			FactTableRowWriter writer = new FactTableRowWriter( factTableName,
+					documentObjectManager,
+					saveHelper,
+					measureInfo );
+			int invalidRowNumber;
+			if ( executor == null )
 			{
-				dimensionPosition[i] = dimensionSeekers[i].find( currentRow.getDimensionKeys()[i] );
-				if ( dimensionPosition[i] < 0 )
-				{
-					invalidDimensionKey = true;
-					logger.fine( "The fact table of cube " 
-							+ factTableName + 
-							" has an invalid data row where the value of dimension key " + 
-							Arrays.toString( factTableJointColumnNames[i] ) + " is " + 
-							currentRow.getDimensionKeys()[i].toString( ) + 
-							" which however does not exist in dimension "+ 
-							dimensions[i].getName( ) +"." );
-				}
+				invalidRowNumber = saveFactTableRows( sortedFactTableRows,
+						encoder,
+						writer,
+						stopSign );
 			}
-			if( invalidDimensionKey )
+			else
 			{
-				currentRow = sortedFactTableRows.pop( );
-				invalidRowNumber ++;
-				continue;
+				invalidRowNumber = saveFactTableRows( sortedFactTableRows,
+						encoder,
+						writer,
+						executor,
+						stopSign );
 			}
-			int[] subDimensionIndex = getSubDimensionIndex( dimensionPosition,
-					subDimensions );
-			String FTSUDocName = FTSUDocumentObjectNamingUtil.getDocumentObjectName( 
-					NamingUtil.getFactTableName( factTableName ),
-					subDimensionIndex );
-			saveHelper.add( FTSUDocName );
-			
-			IDocumentObject documentObject = documentObjectManager.getIDocumentObject( FTSUDocName );
-			documentObject.writeBytes( new Bytes( combinedPositionCalculator.
-					calculateCombinedPosition( subDimensionIndex, dimensionPosition ).toByteArray( ) ) );
-			for( int i=0;i<measureInfo.length;i++)
+			saveHelper.save( );
+			if( invalidRowNumber > 0 )
 			{
-				DocumentObjectUtil.writeValue( documentObject,
-						measureInfo[i].getDataType(),
-						currentRow.getMeasures()[i] );
+				logger.warning("The fact table of cube "
+					+ factTableName
+					+ " has " + invalidRowNumber 
+					+ "invalid rows where the value of dimension key does not exist in dimension.");
+			}
+			documentObjectManager.closeAll( );
+			if ( bitmapIndex )
+			{
+				saveBitmapIndexes( saveHelper,
+						new CombinedPositionContructor( subDimensions ),
+						measureInfo,
+						stopSign );
 			}
-			currentRow = sortedFactTableRows.pop( );
 		}
-		saveHelper.save( );
-		if( invalidRowNumber > 0 )
+		finally
 		{
-			logger.warning("The fact table of cube "
-				+ factTableName
-				+ " has " + invalidRowNumber 
-				+ "invalid rows where the value of dimension key does not exist in dimension.");
+			if ( executor != null )
+			{
+				executor.shutdown( );
+			}
 		}
-		documentObjectManager.closeAll( );
 		documentManager.flush( );
 		return new FactTable( factTableName,
 				documentManager,
@@ -528,6 +530,55 @@ public class FactTableAccessor
 	{
 		this.memoryCacheSize = memoryCacheSize;
 	}
+	
+	/**
+	 * Set the count of threads used to encode the fact table rows. The rows
+	 * are encoded in the calling thread if it is 1.
+	 * 
+	 * @param parallelism
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Set whether to save a bitmap index for each segment of the fact table,
+	 * which is used to read only the rows matching the selected dimension
+	 * positions.
+	 * 
+	 * @param bitmapIndex
+	 */
+	public void setBitmapIndex( boolean bitmapIndex )
+	{
+		this.bitmapIndex = bitmapIndex;
+	}
+	
+	/**
+	 * 
+	 * @param saveHelper
+	 * @param combinedPositionCalculator
+	 * @param measureInfo
+	 * @param stopSign
+	 * @throws IOException
+	 */
+	private void saveBitmapIndexes( FTSUNameSaveHelper saveHelper,
+			CombinedPositionContructor combinedPositionCalculator,
+			MeasureInfo[] measureInfo, StopSign stopSign ) throws IOException
+	{
+		Iterator iter = saveHelper.getSubDimensionIndexes( )
+				.entrySet( )
+				.iterator( );
+		while ( iter.hasNext( ) && !stopSign.isStopped( ) )
+		{
+			Map.Entry entry = (Map.Entry) iter.next( );
+			FactTableBitmapIndex.create( documentManager,
+					(String) entry.getKey( ),
+					(int[]) entry.getValue( ),
+					combinedPositionCalculator,
+					measureInfo );
+		}
+	}
 
 	private static int getObjectSize( int[] dataType) {
 		int size = 0;
@@ -687,7 +738,168 @@ public class FactTableAccessor
 	 * @param dimensionDivision
 	 * @return
 	 */
-	private static int[] getSubDimensionIndex( int[] dimensionPosition,
+	/**
+	 * Create the seekers of the dimension positions. The dimension rows are
+	 * read in this thread, and the dimension keys are sorted by the workers if
+	 * the executor is given.
+	 * 
+	 * @param columnIndex
+	 * @param dimensions
+	 * @param executor
+	 * @param stopSign
+	 * @return
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private static DimensionPositionSeeker[] createDimensionSeekers(
+			int[][][] columnIndex, Dimension[] dimensions,
+			MaterializeExecutor executor, StopSign stopSign )
+			throws IOException, DataException
+	{
+		DimensionPositionSeeker[] dimensionSeekers = new DimensionPositionSeeker[dimensions.length];
+		if ( executor == null )
+		{
+			for ( int i = 0; i < dimensionSeekers.length; i++ )
+			{
+				dimensionSeekers[i] = new DimensionPositionSeeker( getDimCombinatedKey( columnIndex[i],
+						dimensions[i].getAllRows( stopSign ) ) );
+			}
+			return dimensionSeekers;
+		}
+		Future[] futures = new Future[dimensions.length];
+		for ( int i = 0; i < dimensionSeekers.length; i++ )
+		{
+			final int[][] dimColumnIndex = columnIndex[i];
+			final IDiskArray dimRowArray = dimensions[i].getAllRows( stopSign );
+			futures[i] = executor.submit( new Callable( ) {
+
+				public Object call( ) throws IOException
+				{
+					return new DimensionPositionSeeker( getDimCombinatedKey( dimColumnIndex,
+							dimRowArray ) );
+				}
+			} );
+		}
+		for ( int i = 0; i < dimensionSeekers.length; i++ )
+		{
+			dimensionSeekers[i] = (DimensionPositionSeeker) MaterializeExecutor.get( futures[i] );
+		}
+		return dimensionSeekers;
+	}
+	
+	/**
+	 * Save the sorted fact table rows in this thread.
+	 * 
+	 * @param sortedFactTableRows
+	 * @param encoder
+	 * @param writer
+	 * @param stopSign
+	 * @return the count of the invalid rows
+	 * @throws IOException
+	 */
+	private static int saveFactTableRows(
+			FacttableRowContainer sortedFactTableRows,
+			FactTableRowEncoder encoder, FactTableRowWriter writer,
+			StopSign stopSign ) throws IOException
+	{
+		int invalidRowNumber = 0;
+		FactTableRow currentRow = sortedFactTableRows.pop( );
+		while ( currentRow != null && !stopSign.isStopped( ) )
+		{
+			if ( !writer.write( encoder.encode( currentRow ) ) )
+			{
+				invalidRowNumber++;
+			}
+			currentRow = sortedFactTableRows.pop( );
+		}
+		return invalidRowNumber;
+	}
+	
+	/**
+	 * Save the sorted fact table rows, the batches of rows are encoded by the
+	 * workers and written in this thread by the row order, so the result is
+	 * the same as the rows are saved in this thread.
+	 * 
+	 * @param sortedFactTableRows
+	 * @param encoder
+	 * @param writer
+	 * @param executor
+	 * @param stopSign
+	 * @return the count of the invalid rows
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private static int saveFactTableRows(
+			FacttableRowContainer sortedFactTableRows,
+			final FactTableRowEncoder encoder, FactTableRowWriter writer,
+			MaterializeExecutor executor, StopSign stopSign )
+			throws IOException, DataException
+	{
+		// at most this count of batches are held in memory
+		int maxPendingBatches = executor.getParallelism( ) * 2;
+		LinkedList pendingBatches = new LinkedList( );
+		int invalidRowNumber = 0;
+		FactTableRow currentRow = sortedFactTableRows.pop( );
+		while ( currentRow != null && !stopSign.isStopped( ) )
+		{
+			final FactTableRow[] batch = new FactTableRow[ENCODE_BATCH_SIZE];
+			int size = 0;
+			while ( currentRow != null && size < batch.length )
+			{
+				batch[size++] = currentRow;
+				currentRow = sortedFactTableRows.pop( );
+			}
+			final int batchSize = size;
+			pendingBatches.add( executor.submit( new Callable( ) {
+
+				public Object call( ) throws IOException
+				{
+					EncodedRow[] result = new EncodedRow[batchSize];
+					for ( int i = 0; i < batchSize; i++ )
+					{
+						result[i] = encoder.encode( batch[i] );
+					}
+					return result;
+				}
+			} ) );
+			while ( pendingBatches.size( ) >= maxPendingBatches )
+			{
+				invalidRowNumber += writeBatch( (Future) pendingBatches.removeFirst( ),
+						writer );
+			}
+		}
+		while ( !pendingBatches.isEmpty( ) )
+		{
+			invalidRowNumber += writeBatch( (Future) pendingBatches.removeFirst( ),
+					writer );
+		}
+		return invalidRowNumber;
+	}
+	
+	/**
+	 * 
+	 * @param batch
+	 * @param writer
+	 * @return the count of the invalid rows
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	private static int writeBatch( Future batch, FactTableRowWriter writer )
+			throws IOException, DataException
+	{
+		EncodedRow[] rows = (EncodedRow[]) MaterializeExecutor.get( batch );
+		int invalidRowNumber = 0;
+		for ( int i = 0; i < rows.length; i++ )
+		{
+			if ( !writer.write( rows[i] ) )
+			{
+				invalidRowNumber++;
+			}
+		}
+		return invalidRowNumber;
+	}
+	
+	static int[] getSubDimensionIndex( int[] dimensionPosition,
 			DimensionDivision[] dimensionDivision )
 	{
 		assert dimensionPosition.length == dimensionDivision.length;
@@ -839,15 +1051,25 @@ class FTSUNameSaveHelper
 	/**
 	 * 
 	 * @param name
+	 * @param subDimensionIndex
 	 */
-	void add( String name )
+	void add( String name, int[] subDimensionIndex )
 	{
 		if ( !map.containsKey( name ) )
 		{
-			map.put( name, null );
+			map.put( name, subDimensionIndex );
 		}
 	}
 	
+	/**
+	 * 
+	 * @return the sub dimension indexes of the segments, keyed by the names
+	 */
+	Map getSubDimensionIndexes( )
+	{
+		return map;
+	}
+	
 	/**
 	 * 
 	 * @throws IOException
@@ -865,7 +1087,133 @@ class FTSUNameSaveHelper
 	}
 }
 
+/**
+ * The positions of a fact table row, which are computed from its dimension
+ * keys.
+ */
+class EncodedRow
+{
+	FactTableRow row;
+	int[] subDimensionIndex;
+	byte[] combinedPosition;
+}
 
+/**
+ * Compute the positions of the fact table rows. It doesn't change any state,
+ * so the rows can be encoded by multiple threads.
+ */
+class FactTableRowEncoder
+{
+	private static Logger logger = Logger.getLogger( FactTableRowEncoder.class.getName( ) );
+	
+	private String factTableName;
+	private String[][] factTableJointColumnNames;
+	private Dimension[] dimensions;
+	private DimensionPositionSeeker[] dimensionSeekers;
+	private DimensionDivision[] subDimensions;
+	private CombinedPositionContructor combinedPositionCalculator;
+	
+	FactTableRowEncoder( String factTableName,
+			String[][] factTableJointColumnNames, Dimension[] dimensions,
+			DimensionPositionSeeker[] dimensionSeekers,
+			DimensionDivision[] subDimensions )
+	{
+		this.factTableName = factTableName;
+		this.factTableJointColumnNames = factTableJointColumnNames;
+		this.dimensions = dimensions;
+		this.dimensionSeekers = dimensionSeekers;
+		this.subDimensions = subDimensions;
+		this.combinedPositionCalculator = new CombinedPositionContructor( subDimensions );
+	}
+	
+	/**
+	 * 
+	 * @param row
+	 * @return the encoded row, whose positions are null if a dimension key of
+	 *         the row doesn't exist in the dimension.
+	 * @throws IOException
+	 */
+	EncodedRow encode( FactTableRow row ) throws IOException
+	{
+		EncodedRow result = new EncodedRow( );
+		result.row = row;
+		int[] dimensionPosition = new int[dimensionSeekers.length];
+		boolean invalidDimensionKey = false;
+		for ( int i = 0; i < dimensionPosition.length; i++ )
+		{
+			dimensionPosition[i] = dimensionSeekers[i].find( row.getDimensionKeys()[i] );
+			if ( dimensionPosition[i] < 0 )
+			{
+				invalidDimensionKey = true;
+				logger.fine( "The fact table of cube " 
+						+ factTableName + 
+						" has an invalid data row where the value of dimension key " + 
+						Arrays.toString( factTableJointColumnNames[i] ) + " is " + 
+						row.getDimensionKeys()[i].toString( ) + 
+						" which however does not exist in dimension "+ 
+						dimensions[i].getName( ) +"." );
+			}
+		}
+		if ( invalidDimensionKey )
+		{
+			return result;
+		}
+		result.subDimensionIndex = FactTableAccessor.getSubDimensionIndex( dimensionPosition,
+				subDimensions );
+		result.combinedPosition = combinedPositionCalculator.calculateCombinedPosition( result.subDimensionIndex,
+				dimensionPosition )
+				.toByteArray( );
+		return result;
+	}
+}
+
+/**
+ * Write the encoded fact table rows to the document objects of the segments.
+ */
+class FactTableRowWriter
+{
+	private String factTableName;
+	private DocumentObjectCache documentObjectManager;
+	private FTSUNameSaveHelper saveHelper;
+	private MeasureInfo[] measureInfo;
+	
+	FactTableRowWriter( String factTableName,
+			DocumentObjectCache documentObjectManager,
+			FTSUNameSaveHelper saveHelper, MeasureInfo[] measureInfo )
+	{
+		this.factTableName = NamingUtil.getFactTableName( factTableName );
+		this.documentObjectManager = documentObjectManager;
+		this.saveHelper = saveHelper;
+		this.measureInfo = measureInfo;
+	}
+	
+	/**
+	 * 
+	 * @param encodedRow
+	 * @return false if the row is invalid and isn't written
+	 * @throws IOException
+	 */
+	boolean write( EncodedRow encodedRow ) throws IOException
+	{
+		if ( encodedRow.combinedPosition == null )
+		{
+			return false;
+		}
+		String FTSUDocName = FactTableAccessor.FTSUDocumentObjectNamingUtil.getDocumentObjectName( factTableName,
+				encodedRow.subDimensionIndex );
+		saveHelper.add( FTSUDocName, encodedRow.subDimensionIndex );
+		
+		IDocumentObject documentObject = documentObjectManager.getIDocumentObject( FTSUDocName );
+		documentObject.writeBytes( new Bytes( encodedRow.combinedPosition ) );
+		for( int i=0;i<measureInfo.length;i++)
+		{
+			DocumentObjectUtil.writeValue( documentObject,
+					measureInfo[i].getDataType(),
+					encodedRow.row.getMeasures()[i] );
+		}
+		return true;
+	}
+}
 
 class DimensionDivider
 {
@@ -1040,7 +1388,7 @@ class DimensionDivider
 		 * @return
 		 * @throws IOException
 		 */
-		private int traverseFind( DimensionKey key ) throws IOException
+		private synchronized int traverseFind( DimensionKey key ) throws IOException
 		{
 			for ( int i = position; i < diskMemberArray.size( ); i++ )
 			{
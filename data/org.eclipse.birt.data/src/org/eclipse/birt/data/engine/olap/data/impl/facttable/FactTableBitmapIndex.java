@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.impl.facttable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.birt.data.engine.olap.data.api.MeasureInfo;
+import org.eclipse.birt.data.engine.olap.data.document.DocumentObjectUtil;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.document.IDocumentObject;
+import org.eclipse.birt.data.engine.olap.data.impl.NamingUtil;
+import org.eclipse.birt.data.engine.olap.data.impl.facttable.DimensionDivider.CombinedPositionContructor;
+import org.eclipse.birt.data.engine.olap.data.util.Bytes;
+import org.eclipse.birt.data.engine.olap.data.util.CompressedBitmap;
+
+/**
+ * The bitmap index of a fact table segment. For each dimension position used
+ * by the segment, the index keeps a compressed bitmap of the rows which have
+ * the position, and the offset of each row in the segment. So the rows
+ * matching the selected positions are found by intersecting the bitmaps,
+ * without reading the whole segment.
+ * <p>
+ * The index document object is saved as: the row count, the dimension count,
+ * the directory of each dimension (the position count, then the position and
+ * the bitmap offset of each position), the offset of each row, then the
+ * bitmaps.
+ */
+
+public class FactTableBitmapIndex
+{
+	private IDocumentObject documentObject;
+	private int rowCount;
+	private int[][] positions;
+	private int[][] bitmapOffsets;
+	private long rowOffsetStart;
+	private int[] rowOffsets;
+
+	private FactTableBitmapIndex( IDocumentObject documentObject )
+			throws IOException
+	{
+		this.documentObject = documentObject;
+		this.rowCount = documentObject.readInt( );
+		int dimensionCount = documentObject.readInt( );
+		this.positions = new int[dimensionCount][];
+		this.bitmapOffsets = new int[dimensionCount][];
+		for ( int i = 0; i < dimensionCount; i++ )
+		{
+			int count = documentObject.readInt( );
+			positions[i] = new int[count];
+			bitmapOffsets[i] = new int[count];
+			for ( int j = 0; j < count; j++ )
+			{
+				positions[i][j] = documentObject.readInt( );
+				bitmapOffsets[i][j] = documentObject.readInt( );
+			}
+		}
+		this.rowOffsetStart = documentObject.getFilePointer( );
+	}
+
+	/**
+	 * Open the bitmap index of a segment.
+	 *
+	 * @param documentManager
+	 * @param FTSUName
+	 * @return the index, or null if the segment has no index
+	 * @throws IOException
+	 */
+	public static FactTableBitmapIndex open( IDocumentManager documentManager,
+			String FTSUName ) throws IOException
+	{
+		String name = NamingUtil.getFTSUBitmapIndexName( FTSUName );
+		if ( !documentManager.exist( name ) )
+		{
+			return null;
+		}
+		return new FactTableBitmapIndex( documentManager.openDocumentObject( name ) );
+	}
+
+	/**
+	 *
+	 * @return the row count of the segment
+	 */
+	public int getRowCount( )
+	{
+		return rowCount;
+	}
+
+	/**
+	 * Get the rows having one of the positions of a dimension.
+	 *
+	 * @param dimensionIndex
+	 * @param selectedPositions
+	 *            the positions in ascending order
+	 * @return the row numbers, or null if all the rows are selected
+	 * @throws IOException
+	 */
+	public CompressedBitmap getRows( int dimensionIndex,
+			int[] selectedPositions ) throws IOException
+	{
+		int[] dimensionPositions = positions[dimensionIndex];
+		List offsets = new ArrayList( );
+		for ( int i = 0; i < selectedPositions.length; i++ )
+		{
+			int index = Arrays.binarySearch( dimensionPositions,
+					selectedPositions[i] );
+			if ( index >= 0 )
+			{
+				offsets.add( Integer.valueOf( bitmapOffsets[dimensionIndex][index] ) );
+			}
+		}
+		if ( offsets.size( ) == dimensionPositions.length )
+		{
+			return null;
+		}
+		CompressedBitmap result = new CompressedBitmap( );
+		for ( int i = 0; i < offsets.size( ); i++ )
+		{
+			documentObject.seek( ( (Integer) offsets.get( i ) ).intValue( ) );
+			result.or( CompressedBitmap.fromBytes( documentObject.readBytes( )
+					.bytesValue( ) ) );
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @return the offset of a row in the segment
+	 * @throws IOException
+	 */
+	public long getRowOffset( int row ) throws IOException
+	{
+		if ( rowOffsets == null )
+		{
+			documentObject.seek( rowOffsetStart );
+			rowOffsets = new int[rowCount];
+			for ( int i = 0; i < rowCount; i++ )
+			{
+				rowOffsets[i] = documentObject.readInt( );
+			}
+		}
+		return rowOffsets[row];
+	}
+
+	/**
+	 *
+	 * @throws IOException
+	 */
+	public void close( ) throws IOException
+	{
+		documentObject.close( );
+	}
+
+	/**
+	 * Read the rows of a saved segment and save the bitmap index of it.
+	 *
+	 * @param documentManager
+	 * @param FTSUName
+	 * @param subDimensionIndex
+	 * @param combinedPositionCalculator
+	 * @param measureInfo
+	 * @throws IOException
+	 */
+	static void create( IDocumentManager documentManager, String FTSUName,
+			int[] subDimensionIndex,
+			CombinedPositionContructor combinedPositionCalculator,
+			MeasureInfo[] measureInfo ) throws IOException
+	{
+		TreeMap[] rowsOfPosition = new TreeMap[subDimensionIndex.length];
+		for ( int i = 0; i < rowsOfPosition.length; i++ )
+		{
+			rowsOfPosition[i] = new TreeMap( );
+		}
+		IntList rowOffsets = new IntList( );
+		IDocumentObject segment = documentManager.openDocumentObject( FTSUName );
+		try
+		{
+			long length = segment.length( );
+			while ( segment.getFilePointer( ) < length )
+			{
+				int row = rowOffsets.size( );
+				rowOffsets.add( (int) segment.getFilePointer( ) );
+				Bytes combinedPosition = segment.readBytes( );
+				int[] dimensionPosition = combinedPositionCalculator.calculateDimensionPosition( subDimensionIndex,
+						combinedPosition.bytesValue( ) );
+				for ( int i = 0; i < dimensionPosition.length; i++ )
+				{
+					Integer key = Integer.valueOf( dimensionPosition[i] );
+					CompressedBitmap rows = (CompressedBitmap) rowsOfPosition[i].get( key );
+					if ( rows == null )
+					{
+						rows = new CompressedBitmap( );
+						rowsOfPosition[i].put( key, rows );
+					}
+					rows.add( row );
+				}
+				for ( int i = 0; i < measureInfo.length; i++ )
+				{
+					DocumentObjectUtil.readValue( segment,
+							measureInfo[i].getDataType( ) );
+				}
+			}
+		}
+		finally
+		{
+			segment.close( );
+		}
+
+		// the directory takes 4 bytes for the count and 8 bytes for each
+		// position, a bitmap takes 5 bytes besides its serialized bytes
+		int directorySize = 0;
+		for ( int i = 0; i < rowsOfPosition.length; i++ )
+		{
+			directorySize += 4 + rowsOfPosition[i].size( ) * 8;
+		}
+		int offset = 8 + directorySize + rowOffsets.size( ) * 4;
+		List bitmaps = new ArrayList( );
+		IDocumentObject documentObject = documentManager.createDocumentObject( NamingUtil.getFTSUBitmapIndexName( FTSUName ) );
+		documentObject.writeInt( rowOffsets.size( ) );
+		documentObject.writeInt( rowsOfPosition.length );
+		for ( int i = 0; i < rowsOfPosition.length; i++ )
+		{
+			documentObject.writeInt( rowsOfPosition[i].size( ) );
+			Iterator iter = rowsOfPosition[i].entrySet( ).iterator( );
+			while ( iter.hasNext( ) )
+			{
+				Map.Entry entry = (Map.Entry) iter.next( );
+				byte[] bitmap = ( (CompressedBitmap) entry.getValue( ) ).toBytes( );
+				documentObject.writeInt( ( (Integer) entry.getKey( ) ).intValue( ) );
+				documentObject.writeInt( offset );
+				bitmaps.add( bitmap );
+				offset += 5 + bitmap.length;
+			}
+		}
+		for ( int i = 0; i < rowOffsets.size( ); i++ )
+		{
+			documentObject.writeInt( rowOffsets.get( i ) );
+		}
+		for ( int i = 0; i < bitmaps.size( ); i++ )
+		{
+			documentObject.writeBytes( new Bytes( (byte[]) bitmaps.get( i ) ) );
+		}
+		documentObject.close( );
+	}
+
+	/**
+	 * A growable int array.
+	 */
+	private static class IntList
+	{
+		private int[] values = new int[256];
+		private int size;
+
+		void add( int value )
+		{
+			if ( size == values.length )
+			{
+				int[] newValues = new int[size * 2];
+				System.arraycopy( values, 0, newValues, 0, size );
+				values = newValues;
+			}
+			values[size++] = value;
+		}
+
+		int get( int index )
+		{
+			return values[index];
+		}
+
+		int size( )
+		{
+			return size;
+		}
+	}
+}
@@ -35,6 +35,7 @@ import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionResultIter
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Member;
 import org.eclipse.birt.data.engine.olap.data.impl.facttable.FactTableAccessor.FTSUDocumentObjectNamingUtil;
 import org.eclipse.birt.data.engine.olap.data.util.Bytes;
+import org.eclipse.birt.data.engine.olap.data.util.CompressedBitmap;
 import org.eclipse.birt.data.engine.olap.data.util.DataType;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
 import org.eclipse.birt.data.engine.olap.util.filter.ICubePosFilter;
@@ -88,6 +89,13 @@ public class FactTableRowIterator implements IFactTableRowIterator
 	private boolean lastFilterResult;
 	private boolean isDuplicatedRow;
 	
+	// the bitmap index is used if it selects no more rows than this ratio of
+	// the segment, otherwise the segment is read sequentially
+	private static final double BITMAP_INDEX_SELECTIVITY = 0.5;
+	private FactTableBitmapIndex bitmapIndex;
+	private int[] selectedRows;
+	private int selectedRowPointer;
+	
 	/**
 	 * 
 	 * @param factTable
@@ -236,6 +244,14 @@ public class FactTableRowIterator implements IFactTableRowIterator
 				{
 					return false;
 				}
+				if ( selectedRows != null )
+				{
+					if ( selectedRowPointer >= selectedRows.length )
+					{
+						break;
+					}
+					currentSegment.seek( bitmapIndex.getRowOffset( selectedRows[selectedRowPointer++] ) );
+				}
 				Bytes combinedDimensionPosition = currentSegment.readBytes( );
 				if( this.lastCombinedDimensionPosition == null )
 				{
@@ -360,6 +376,8 @@ public class FactTableRowIterator implements IFactTableRowIterator
 		}
 		if ( this.currentSegment!= null )
 			this.currentSegment.close( );
+		if ( this.bitmapIndex != null )
+			this.bitmapIndex.close( );
 	}
 	
 	/**
@@ -508,6 +526,13 @@ public class FactTableRowIterator implements IFactTableRowIterator
 			}
 			if ( !traversalor.next( ) )
 			{
+				// the current segment may be read by the selected rows, which
+				// doesn't end at its end
+				if ( currentSegment != null )
+				{
+					currentSegment.close( );
+					currentSegment = null;
+				}
 				return false;
 			}
 			currentSubDim = traversalor.getIntArray( );
@@ -519,11 +544,6 @@ public class FactTableRowIterator implements IFactTableRowIterator
 				continue;
 			}
 			
-			if( currentSegment != null )
-				currentSegment.close( );
-			
-			currentSegment = factTable.getDocumentManager( ).openDocumentObject( FTSUDocName );
-			
 			for ( int i = 0; i < dimensionIndex.length; i++ )
 			{
 				if ( dimensionIndex[i] != -1 )
@@ -539,11 +559,87 @@ public class FactTableRowIterator implements IFactTableRowIterator
 					}
 				}
 			}
+			if ( !selectRows( FTSUDocName ) )
+			{
+				continue;
+			}
+			
+			if( currentSegment != null )
+				currentSegment.close( );
+			
+			currentSegment = factTable.getDocumentManager( ).openDocumentObject( FTSUDocName );
 			break;
 		}
 		return true;
 	}
 
+	/**
+	 * Find the rows of a segment which match the selected positions by its
+	 * bitmap index. The selected rows are kept in selectedRows, which is null
+	 * if the segment should be read sequentially.
+	 * 
+	 * @param FTSUDocName
+	 * @return false if no row of the segment is selected
+	 * @throws IOException
+	 */
+	private boolean selectRows( String FTSUDocName ) throws IOException
+	{
+		selectedRows = null;
+		if ( bitmapIndex != null )
+		{
+			bitmapIndex.close( );
+			bitmapIndex = null;
+		}
+		if ( selectedPos.length == 0 )
+		{
+			return true;
+		}
+		FactTableBitmapIndex index = FactTableBitmapIndex.open( factTable.getDocumentManager( ),
+				FTSUDocName );
+		if ( index == null )
+		{
+			return true;
+		}
+		CompressedBitmap rows = null;
+		for ( int i = 0; i < dimensionIndex.length; i++ )
+		{
+			if ( dimensionIndex[i] == -1 )
+			{
+				continue;
+			}
+			CompressedBitmap rowsOfDimension = index.getRows( i,
+					selectedPosOfCurSegment[i] );
+			if ( rowsOfDimension == null )
+			{
+				continue;
+			}
+			if ( rows == null )
+			{
+				rows = rowsOfDimension;
+			}
+			else
+			{
+				rows.and( rowsOfDimension );
+			}
+			if ( rows.isEmpty( ) )
+			{
+				index.close( );
+				return false;
+			}
+		}
+		if ( rows == null
+				|| rows.getCardinality( ) > index.getRowCount( )
+						* BITMAP_INDEX_SELECTIVITY )
+		{
+			index.close( );
+			return true;
+		}
+		bitmapIndex = index;
+		selectedRows = rows.toArray( );
+		selectedRowPointer = 0;
+		return true;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.birt.data.engine.olap.data.impl.facttable.IFactTableRowIterator#getDimensionCount()
@@ -170,7 +170,7 @@ public class BaseDiskSortedStack
 			else
 			{
 				BaseDiskSortedStack temp = new BaseDiskSortedStack( this.forceDistinct, segments, this.comparator, this.buffer, this.bufferPos );
-				BaseDiskArray diskArray = this.creator == null ? new PrimitiveDiskArray():new StructureDiskArray( this.creator );
+				IDiskArray diskArray = createSegment( );
 				Object next = null;
 				while( ( next = temp.pop() )!= null )
 				{
@@ -206,6 +206,18 @@ public class BaseDiskSortedStack
 	{
 		throw new UnsupportedOperationException();
 	}
+
+	/**
+	 * Create the array of a sorted segment spilled from the buffer.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	protected IDiskArray createSegment( ) throws IOException
+	{
+		return this.creator == null ? new PrimitiveDiskArray( )
+				: new StructureDiskArray( this.creator );
+	}
 	/**
 	 * Sort an array of ResultObjects using stored comparator.
 	 * 
@@ -372,7 +384,7 @@ public class BaseDiskSortedStack
 	{
 		if ( segmentNo < segments.size( ) )
 		{
-			BaseDiskArray diskList = (BaseDiskArray) ( segments.get( segmentNo ) );
+			IDiskArray diskList = (IDiskArray) ( segments.get( segmentNo ) );
 			if ( pointers[segmentNo] < diskList.size( ) )
 				return diskList.get( pointers[segmentNo]++ );
 			else
@@ -395,7 +407,7 @@ public class BaseDiskSortedStack
 	{
 		for( int i=0;i<segments.size( );i++)
 		{
-			BaseDiskArray diskList = (BaseDiskArray) ( segments.get( i ) );
+			IDiskArray diskList = (IDiskArray) ( segments.get( i ) );
 			diskList.close( );
 		}
 	}
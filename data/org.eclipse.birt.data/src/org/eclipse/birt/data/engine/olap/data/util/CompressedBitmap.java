@@ -0,0 +1,625 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative integers. The integers are divided into
+ * chunks by their high 16 bits, a chunk is kept as a sorted array of the low
+ * 16 bits if it has no more than 4096 integers, or as a bitmap of 65536 bits
+ * otherwise. So a sparse set takes 2 bytes per integer and a dense set takes
+ * 1 bit per integer.
+ */
+
+public class CompressedBitmap
+{
+	// the max count of integers in an array chunk
+	private static final int ARRAY_LIMIT = 4096;
+	private static final int BITMAP_WORDS = 1024;
+
+	private static final byte ARRAY_CHUNK = 0;
+	private static final byte BITMAP_CHUNK = 1;
+
+	private int chunkCount;
+	private char[] keys;
+	// char[] for an array chunk, long[] for a bitmap chunk
+	private Object[] chunks;
+	private int[] cardinalities;
+
+	public CompressedBitmap( )
+	{
+		this.keys = new char[4];
+		this.chunks = new Object[4];
+		this.cardinalities = new int[4];
+	}
+
+	/**
+	 *
+	 * @param value
+	 */
+	public void add( int value )
+	{
+		if ( value < 0 )
+		{
+			throw new IllegalArgumentException( String.valueOf( value ) );
+		}
+		char key = (char) ( value >>> 16 );
+		char low = (char) value;
+		int index = findChunk( key );
+		if ( index < 0 )
+		{
+			index = -index - 1;
+			insertChunk( index, key, new char[4], 0 );
+		}
+		if ( chunks[index] instanceof long[] )
+		{
+			long[] bitmap = (long[]) chunks[index];
+			long bit = 1L << low;
+			if ( ( bitmap[low >>> 6] & bit ) == 0 )
+			{
+				bitmap[low >>> 6] |= bit;
+				cardinalities[index]++;
+			}
+			return;
+		}
+		char[] array = (char[]) chunks[index];
+		int cardinality = cardinalities[index];
+		int pos = Arrays.binarySearch( array, 0, cardinality, low );
+		if ( pos >= 0 )
+		{
+			return;
+		}
+		pos = -pos - 1;
+		if ( cardinality == ARRAY_LIMIT )
+		{
+			long[] bitmap = toBitmap( array, cardinality );
+			bitmap[low >>> 6] |= 1L << low;
+			chunks[index] = bitmap;
+			cardinalities[index]++;
+			return;
+		}
+		if ( cardinality == array.length )
+		{
+			char[] newArray = new char[Math.min( array.length * 2, ARRAY_LIMIT )];
+			System.arraycopy( array, 0, newArray, 0, cardinality );
+			array = newArray;
+			chunks[index] = array;
+		}
+		System.arraycopy( array, pos, array, pos + 1, cardinality - pos );
+		array[pos] = low;
+		cardinalities[index]++;
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return
+	 */
+	public boolean contains( int value )
+	{
+		if ( value < 0 )
+		{
+			return false;
+		}
+		int index = findChunk( (char) ( value >>> 16 ) );
+		if ( index < 0 )
+		{
+			return false;
+		}
+		char low = (char) value;
+		if ( chunks[index] instanceof long[] )
+		{
+			return ( ( (long[]) chunks[index] )[low >>> 6] & ( 1L << low ) ) != 0;
+		}
+		return Arrays.binarySearch( (char[]) chunks[index],
+				0,
+				cardinalities[index],
+				low ) >= 0;
+	}
+
+	/**
+	 *
+	 * @return the count of the integers in the set
+	 */
+	public int getCardinality( )
+	{
+		int result = 0;
+		for ( int i = 0; i < chunkCount; i++ )
+		{
+			result += cardinalities[i];
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public boolean isEmpty( )
+	{
+		return chunkCount == 0;
+	}
+
+	/**
+	 * Add all the integers of another set to this set.
+	 *
+	 * @param other
+	 */
+	public void or( CompressedBitmap other )
+	{
+		for ( int i = 0; i < other.chunkCount; i++ )
+		{
+			int index = findChunk( other.keys[i] );
+			if ( index < 0 )
+			{
+				insertChunk( -index - 1,
+						other.keys[i],
+						copyChunk( other.chunks[i] ),
+						other.cardinalities[i] );
+				continue;
+			}
+			long[] bitmap;
+			if ( chunks[index] instanceof long[] )
+			{
+				bitmap = (long[]) chunks[index];
+			}
+			else if ( other.chunks[i] instanceof long[] )
+			{
+				bitmap = (long[]) copyChunk( other.chunks[i] );
+				addAll( bitmap, (char[]) chunks[index], cardinalities[index] );
+				setChunk( index, bitmap, cardinality( bitmap ) );
+				continue;
+			}
+			else
+			{
+				setChunk( index, orArray( (char[]) chunks[index],
+						cardinalities[index],
+						(char[]) other.chunks[i],
+						other.cardinalities[i] ) );
+				continue;
+			}
+			if ( other.chunks[i] instanceof long[] )
+			{
+				long[] otherBitmap = (long[]) other.chunks[i];
+				for ( int j = 0; j < BITMAP_WORDS; j++ )
+				{
+					bitmap[j] |= otherBitmap[j];
+				}
+			}
+			else
+			{
+				addAll( bitmap, (char[]) other.chunks[i], other.cardinalities[i] );
+			}
+			cardinalities[index] = cardinality( bitmap );
+		}
+	}
+
+	/**
+	 * Remove the integers which don't exist in another set from this set.
+	 *
+	 * @param other
+	 */
+	public void and( CompressedBitmap other )
+	{
+		int count = 0;
+		for ( int i = 0; i < chunkCount; i++ )
+		{
+			int index = other.findChunk( keys[i] );
+			if ( index < 0 )
+			{
+				continue;
+			}
+			Object chunk = chunks[i];
+			Object otherChunk = other.chunks[index];
+			char[] array;
+			int cardinality;
+			if ( chunk instanceof long[] && otherChunk instanceof long[] )
+			{
+				long[] bitmap = (long[]) chunk;
+				long[] otherBitmap = (long[]) otherChunk;
+				for ( int j = 0; j < BITMAP_WORDS; j++ )
+				{
+					bitmap[j] &= otherBitmap[j];
+				}
+				cardinality = cardinality( bitmap );
+				if ( cardinality > ARRAY_LIMIT )
+				{
+					keys[count] = keys[i];
+					chunks[count] = bitmap;
+					cardinalities[count++] = cardinality;
+					continue;
+				}
+				array = toArray( bitmap, cardinality );
+			}
+			else if ( chunk instanceof long[] )
+			{
+				array = filter( (char[]) otherChunk,
+						other.cardinalities[index],
+						(long[]) chunk );
+				cardinality = array.length;
+			}
+			else if ( otherChunk instanceof long[] )
+			{
+				array = filter( (char[]) chunk,
+						cardinalities[i],
+						(long[]) otherChunk );
+				cardinality = array.length;
+			}
+			else
+			{
+				array = andArray( (char[]) chunk,
+						cardinalities[i],
+						(char[]) otherChunk,
+						other.cardinalities[index] );
+				cardinality = array.length;
+			}
+			if ( cardinality > 0 )
+			{
+				keys[count] = keys[i];
+				chunks[count] = array;
+				cardinalities[count++] = cardinality;
+			}
+		}
+		for ( int i = count; i < chunkCount; i++ )
+		{
+			chunks[i] = null;
+		}
+		chunkCount = count;
+	}
+
+	/**
+	 *
+	 * @return the integers of the set in ascending order
+	 */
+	public int[] toArray( )
+	{
+		int[] result = new int[getCardinality( )];
+		int pos = 0;
+		for ( int i = 0; i < chunkCount; i++ )
+		{
+			int high = keys[i] << 16;
+			if ( chunks[i] instanceof long[] )
+			{
+				long[] bitmap = (long[]) chunks[i];
+				for ( int j = 0; j < BITMAP_WORDS; j++ )
+				{
+					long word = bitmap[j];
+					while ( word != 0 )
+					{
+						result[pos++] = high
+								| ( j << 6 )
+								| Long.numberOfTrailingZeros( word );
+						word &= word - 1;
+					}
+				}
+			}
+			else
+			{
+				char[] array = (char[]) chunks[i];
+				for ( int j = 0; j < cardinalities[i]; j++ )
+				{
+					result[pos++] = high | array[j];
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @return the serialized bytes of the set
+	 */
+	public byte[] toBytes( )
+	{
+		int size = 4;
+		for ( int i = 0; i < chunkCount; i++ )
+		{
+			size += 7;
+			size += chunks[i] instanceof long[] ? BITMAP_WORDS * 8
+					: cardinalities[i] * 2;
+		}
+		byte[] result = new byte[size];
+		int pos = putInt( result, 0, chunkCount );
+		for ( int i = 0; i < chunkCount; i++ )
+		{
+			pos = putChar( result, pos, keys[i] );
+			pos = putInt( result, pos, cardinalities[i] );
+			if ( chunks[i] instanceof long[] )
+			{
+				result[pos++] = BITMAP_CHUNK;
+				long[] bitmap = (long[]) chunks[i];
+				for ( int j = 0; j < BITMAP_WORDS; j++ )
+				{
+					pos = putInt( result, pos, (int) ( bitmap[j] >>> 32 ) );
+					pos = putInt( result, pos, (int) bitmap[j] );
+				}
+			}
+			else
+			{
+				result[pos++] = ARRAY_CHUNK;
+				char[] array = (char[]) chunks[i];
+				for ( int j = 0; j < cardinalities[i]; j++ )
+				{
+					pos = putChar( result, pos, array[j] );
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 *
+	 * @param bytes
+	 *            the bytes returned by toBytes()
+	 * @return
+	 */
+	public static CompressedBitmap fromBytes( byte[] bytes )
+	{
+		CompressedBitmap result = new CompressedBitmap( );
+		int count = getInt( bytes, 0 );
+		int pos = 4;
+		result.keys = new char[Math.max( count, 1 )];
+		result.chunks = new Object[result.keys.length];
+		result.cardinalities = new int[result.keys.length];
+		for ( int i = 0; i < count; i++ )
+		{
+			result.keys[i] = getChar( bytes, pos );
+			result.cardinalities[i] = getInt( bytes, pos + 2 );
+			byte type = bytes[pos + 6];
+			pos += 7;
+			if ( type == BITMAP_CHUNK )
+			{
+				long[] bitmap = new long[BITMAP_WORDS];
+				for ( int j = 0; j < BITMAP_WORDS; j++ )
+				{
+					bitmap[j] = ( (long) getInt( bytes, pos ) << 32 )
+							| ( getInt( bytes, pos + 4 ) & 0xFFFFFFFFL );
+					pos += 8;
+				}
+				result.chunks[i] = bitmap;
+			}
+			else
+			{
+				char[] array = new char[result.cardinalities[i]];
+				for ( int j = 0; j < array.length; j++ )
+				{
+					array[j] = getChar( bytes, pos );
+					pos += 2;
+				}
+				result.chunks[i] = array;
+			}
+		}
+		result.chunkCount = count;
+		return result;
+	}
+
+	private int findChunk( char key )
+	{
+		// the integers are usually added in ascending order
+		if ( chunkCount > 0 && keys[chunkCount - 1] == key )
+		{
+			return chunkCount - 1;
+		}
+		return Arrays.binarySearch( keys, 0, chunkCount, key );
+	}
+
+	private void insertChunk( int index, char key, Object chunk,
+			int cardinality )
+	{
+		if ( chunkCount == keys.length )
+		{
+			int length = keys.length * 2;
+			char[] newKeys = new char[length];
+			Object[] newChunks = new Object[length];
+			int[] newCardinalities = new int[length];
+			System.arraycopy( keys, 0, newKeys, 0, chunkCount );
+			System.arraycopy( chunks, 0, newChunks, 0, chunkCount );
+			System.arraycopy( cardinalities,
+					0,
+					newCardinalities,
+					0,
+					chunkCount );
+			keys = newKeys;
+			chunks = newChunks;
+			cardinalities = newCardinalities;
+		}
+		System.arraycopy( keys, index, keys, index + 1, chunkCount - index );
+		System.arraycopy( chunks, index, chunks, index + 1, chunkCount
+				- index );
+		System.arraycopy( cardinalities,
+				index,
+				cardinalities,
+				index + 1,
+				chunkCount - index );
+		keys[index] = key;
+		chunks[index] = chunk;
+		cardinalities[index] = cardinality;
+		chunkCount++;
+	}
+
+	private void setChunk( int index, char[] array )
+	{
+		if ( array.length > ARRAY_LIMIT )
+		{
+			setChunk( index, toBitmap( array, array.length ), array.length );
+		}
+		else
+		{
+			setChunk( index, (Object) array, array.length );
+		}
+	}
+
+	private void setChunk( int index, Object chunk, int cardinality )
+	{
+		chunks[index] = chunk;
+		cardinalities[index] = cardinality;
+	}
+
+	private static Object copyChunk( Object chunk )
+	{
+		if ( chunk instanceof long[] )
+		{
+			return ( (long[]) chunk ).clone( );
+		}
+		return ( (char[]) chunk ).clone( );
+	}
+
+	private static long[] toBitmap( char[] array, int cardinality )
+	{
+		long[] bitmap = new long[BITMAP_WORDS];
+		addAll( bitmap, array, cardinality );
+		return bitmap;
+	}
+
+	private static char[] toArray( long[] bitmap, int cardinality )
+	{
+		char[] array = new char[cardinality];
+		int pos = 0;
+		for ( int j = 0; j < BITMAP_WORDS; j++ )
+		{
+			long word = bitmap[j];
+			while ( word != 0 )
+			{
+				array[pos++] = (char) ( ( j << 6 ) | Long.numberOfTrailingZeros( word ) );
+				word &= word - 1;
+			}
+		}
+		return array;
+	}
+
+	private static void addAll( long[] bitmap, char[] array, int cardinality )
+	{
+		for ( int i = 0; i < cardinality; i++ )
+		{
+			bitmap[array[i] >>> 6] |= 1L << array[i];
+		}
+	}
+
+	private static int cardinality( long[] bitmap )
+	{
+		int result = 0;
+		for ( int i = 0; i < BITMAP_WORDS; i++ )
+		{
+			result += Long.bitCount( bitmap[i] );
+		}
+		return result;
+	}
+
+	private static char[] filter( char[] array, int cardinality, long[] bitmap )
+	{
+		char[] buffer = new char[cardinality];
+		int count = 0;
+		for ( int i = 0; i < cardinality; i++ )
+		{
+			if ( ( bitmap[array[i] >>> 6] & ( 1L << array[i] ) ) != 0 )
+			{
+				buffer[count++] = array[i];
+			}
+		}
+		return trim( buffer, count );
+	}
+
+	private static char[] orArray( char[] a, int aSize, char[] b, int bSize )
+	{
+		char[] buffer = new char[aSize + bSize];
+		int i = 0, j = 0, count = 0;
+		while ( i < aSize && j < bSize )
+		{
+			if ( a[i] < b[j] )
+			{
+				buffer[count++] = a[i++];
+			}
+			else if ( a[i] > b[j] )
+			{
+				buffer[count++] = b[j++];
+			}
+			else
+			{
+				buffer[count++] = a[i++];
+				j++;
+			}
+		}
+		while ( i < aSize )
+		{
+			buffer[count++] = a[i++];
+		}
+		while ( j < bSize )
+		{
+			buffer[count++] = b[j++];
+		}
+		return trim( buffer, count );
+	}
+
+	private static char[] andArray( char[] a, int aSize, char[] b, int bSize )
+	{
+		char[] buffer = new char[Math.min( aSize, bSize )];
+		int i = 0, j = 0, count = 0;
+		while ( i < aSize && j < bSize )
+		{
+			if ( a[i] < b[j] )
+			{
+				i++;
+			}
+			else if ( a[i] > b[j] )
+			{
+				j++;
+			}
+			else
+			{
+				buffer[count++] = a[i++];
+				j++;
+			}
+		}
+		return trim( buffer, count );
+	}
+
+	private static char[] trim( char[] buffer, int count )
+	{
+		if ( count == buffer.length )
+		{
+			return buffer;
+		}
+		char[] result = new char[count];
+		System.arraycopy( buffer, 0, result, 0, count );
+		return result;
+	}
+
+	private static int putInt( byte[] bytes, int pos, int value )
+	{
+		bytes[pos] = (byte) ( value >>> 24 );
+		bytes[pos + 1] = (byte) ( value >>> 16 );
+		bytes[pos + 2] = (byte) ( value >>> 8 );
+		bytes[pos + 3] = (byte) value;
+		return pos + 4;
+	}
+
+	private static int putChar( byte[] bytes, int pos, char value )
+	{
+		bytes[pos] = (byte) ( value >>> 8 );
+		bytes[pos + 1] = (byte) value;
+		return pos + 2;
+	}
+
+	private static int getInt( byte[] bytes, int pos )
+	{
+		return ( ( bytes[pos] & 0xFF ) << 24 )
+				| ( ( bytes[pos + 1] & 0xFF ) << 16 )
+				| ( ( bytes[pos + 2] & 0xFF ) << 8 )
+				| ( bytes[pos + 3] & 0xFF );
+	}
+
+	private static char getChar( byte[] bytes, int pos )
+	{
+		return (char) ( ( ( bytes[pos] & 0xFF ) << 8 ) | ( bytes[pos + 1] & 0xFF ) );
+	}
+}
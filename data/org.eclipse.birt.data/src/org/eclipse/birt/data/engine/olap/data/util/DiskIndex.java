@@ -506,12 +506,14 @@ public class DiskIndex
 	}
 
 	/**
+	 * Sort the index keys and merge the keys of the same value. The result can
+	 * be passed to createIndex as a sorted key list.
 	 * 
 	 * @param keyList
 	 * @return
 	 * @throws IOException
 	 */
-	private IDiskArray sortKeys( IDiskArray keyList ) throws IOException
+	public static IDiskArray sortKeys( IDiskArray keyList ) throws IOException
 	{
 		DiskSortedStack sortStack = new DiskSortedStack( Math.min( keyList.size( ),
 				Constants.MAX_LIST_BUFFER_SIZE ),
@@ -555,7 +557,7 @@ public class DiskIndex
 		return reList;
 	}
 
-	private void addIndex(BufferedStructureArray reList, IndexKey curIndexKey,
+	private static void addIndex(BufferedStructureArray reList, IndexKey curIndexKey,
 			List<Integer> dimPos, List<Integer> dimOffset) throws IOException {
 		int[] iDimPos = new int[dimPos.size( )];
 		for( int j = 0; j < iDimPos.length; j++ )
@@ -20,20 +20,16 @@ import java.util.Comparator;
 
 public class DiskSortedStack extends BaseDiskSortedStack
 {
-	private IStructureCreator creator = null;
-
 	public DiskSortedStack( int bufferSize, boolean isAscending,
 			boolean forceDistinct, IStructureCreator creator )
 	{
 		super( bufferSize, isAscending, forceDistinct, creator);
-		this.creator = creator;
 	}
 	
 	public DiskSortedStack( int bufferSize, boolean forceDistinct,
 			Comparator comparator, IStructureCreator creator )
 	{
 		super( bufferSize, forceDistinct, comparator, creator );
-		this.creator = creator;
 	}
 
 	/*
@@ -42,7 +38,7 @@ public class DiskSortedStack extends BaseDiskSortedStack
 	 */
 	protected void saveToDisk( int fromIndex, int toIndex ) throws IOException
 	{
-		StructureDiskArray diskList = new StructureDiskArray( creator );
+		IDiskArray diskList = createSegment( );
 		for ( int i = fromIndex; i <= toIndex; i++ )
 		{
 			diskList.add( buffer[i] );
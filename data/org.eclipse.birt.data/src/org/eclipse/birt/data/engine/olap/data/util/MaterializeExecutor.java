@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.i18n.ResourceConstants;
+
+/**
+ * A pool of worker threads used to materialize or aggregate a cube. The
+ * workers only do the work which doesn't access the document manager, such as
+ * sorting and encoding, the results are written to the document manager by
+ * the calling thread. The workers share the temp path and the close listeners
+ * of the calling thread, so their temp files are cleaned the same as the files
+ * of the calling thread.
+ */
+
+public class MaterializeExecutor
+{
+	private ExecutorService executor;
+	private int parallelism;
+	private Object threadState;
+
+	/**
+	 *
+	 * @param parallelism
+	 *            the count of worker threads
+	 */
+	public MaterializeExecutor( int parallelism )
+	{
+		this( parallelism, "BIRT cube materializer" );
+	}
+
+	/**
+	 *
+	 * @param parallelism
+	 *            the count of worker threads
+	 * @param threadName
+	 *            the name prefix of the worker threads
+	 */
+	public MaterializeExecutor( int parallelism, final String threadName )
+	{
+		this.parallelism = parallelism;
+		this.threadState = DataEngineThreadLocal.getInstance( )
+				.getThreadState( );
+		this.executor = Executors.newFixedThreadPool( parallelism,
+				new ThreadFactory( ) {
+
+					private int count = 0;
+
+					public synchronized Thread newThread( Runnable r )
+					{
+						Thread thread = new Thread( r,
+								threadName + " " + ( ++count ) );
+						thread.setDaemon( true );
+						return thread;
+					}
+				} );
+	}
+
+	/**
+	 * Create an executor if the parallelism is greater than 1.
+	 *
+	 * @param parallelism
+	 * @return the executor, or null if the work should be done in the calling
+	 *         thread
+	 */
+	public static MaterializeExecutor create( int parallelism )
+	{
+		if ( parallelism <= 1 )
+			return null;
+		return new MaterializeExecutor( parallelism );
+	}
+
+	/**
+	 * Create an executor if the parallelism is greater than 1.
+	 *
+	 * @param parallelism
+	 * @param threadName
+	 * @return the executor, or null if the work should be done in the calling
+	 *         thread
+	 */
+	public static MaterializeExecutor create( int parallelism,
+			String threadName )
+	{
+		if ( parallelism <= 1 )
+			return null;
+		return new MaterializeExecutor( parallelism, threadName );
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getParallelism( )
+	{
+		return parallelism;
+	}
+
+	/**
+	 *
+	 * @param task
+	 * @return
+	 */
+	public Future submit( final Callable task )
+	{
+		return executor.submit( new Callable( ) {
+
+			public Object call( ) throws Exception
+			{
+				DataEngineThreadLocal.getInstance( ).setThreadState( threadState );
+				try
+				{
+					return task.call( );
+				}
+				finally
+				{
+					DataEngineThreadLocal.getInstance( ).removeThreadState( );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Wait for the result of a task, the IOException and DataException thrown
+	 * by the task are thrown as they are.
+	 *
+	 * @param future
+	 * @return
+	 * @throws IOException
+	 * @throws DataException
+	 */
+	public static Object get( Future future ) throws IOException,
+			DataException
+	{
+		try
+		{
+			return future.get( );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread( ).interrupt( );
+			throw new DataException( ResourceConstants.WRITE_TEMPFILE_ERROR,
+					e );
+		}
+		catch ( ExecutionException e )
+		{
+			Throwable cause = e.getCause( );
+			if ( cause instanceof IOException )
+				throw (IOException) cause;
+			if ( cause instanceof DataException )
+				throw (DataException) cause;
+			if ( cause instanceof RuntimeException )
+				throw (RuntimeException) cause;
+			throw new DataException( ResourceConstants.WRITE_TEMPFILE_ERROR,
+					cause );
+		}
+	}
+
+	/**
+	 * Stop the worker threads, the pending tasks are cancelled.
+	 */
+	public void shutdown( )
+	{
+		executor.shutdownNow( );
+	}
+}
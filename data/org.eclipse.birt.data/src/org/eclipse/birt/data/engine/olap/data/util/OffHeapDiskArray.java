@@ -0,0 +1,449 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A array whose elements are kept in the pages of a off-heap page pool. Each
+ * element is written as the field values of the structure, or as the value
+ * itself when no structure creator is given, so the elements don't take the
+ * Java heap and a new element is created when it is read. A element larger
+ * than a page is kept in the heap.
+ */
+
+public class OffHeapDiskArray implements IDiskArray
+{
+
+	private static final byte NULL_VALUE = 0;
+	private static final byte BOOLEAN_VALUE = 1;
+	private static final byte INTEGER_VALUE = 2;
+	private static final byte LONG_VALUE = 3;
+	private static final byte DOUBLE_VALUE = 4;
+	private static final byte STRING_VALUE = 5;
+	private static final byte DATE_VALUE = 6;
+	private static final byte SQL_DATE_VALUE = 7;
+	private static final byte SQL_TIME_VALUE = 8;
+	private static final byte TIMESTAMP_VALUE = 9;
+	private static final byte BIGDECIMAL_VALUE = 10;
+	private static final byte BYTES_VALUE = 11;
+	private static final byte BYTE_ARRAY_VALUE = 12;
+	private static final byte OBJECT_VALUE = 13;
+
+	private static final int NULL_STRUCTURE = -1;
+	private static final int RECORD_BUFFER_SIZE = 1024;
+
+	private static Logger logger = Logger.getLogger( OffHeapDiskArray.class.getName( ) );
+
+	private IStructureCreator creator;
+	private OffHeapPagePool pagePool;
+
+	private List pages = null;
+	// the duplicates of the pages, whose positions are moved by reading
+	private List pageViews = null;
+	private ByteBuffer currentPage = null;
+	private List overflowElements = null;
+	private ByteBuffer record = null;
+
+	// the page index in the high 32 bits and the offset in the low 32 bits,
+	// or the negative index in the overflow elements
+	private long[] addresses = null;
+	private int size = 0;
+
+	/**
+	 *
+	 * @param creator
+	 *            the creator of the structures, null if the elements are
+	 *            primitive values
+	 * @param pagePool
+	 */
+	public OffHeapDiskArray( IStructureCreator creator,
+			OffHeapPagePool pagePool )
+	{
+		this.creator = creator;
+		this.pagePool = pagePool;
+		this.pages = new ArrayList( );
+		this.pageViews = new ArrayList( );
+		this.overflowElements = new ArrayList( );
+		this.record = ByteBuffer.allocate( RECORD_BUFFER_SIZE );
+		this.addresses = new long[16];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IDiskArray#add(java.lang.Object)
+	 */
+	public boolean add( Object o ) throws IOException
+	{
+		checkPagePool( );
+		record.clear( );
+		if ( creator == null )
+		{
+			writeValue( o );
+		}
+		else if ( o == null )
+		{
+			ensureCapacity( 4 );
+			record.putInt( NULL_STRUCTURE );
+		}
+		else
+		{
+			Object[] fields = ( (IStructure) o ).getFieldValues( );
+			ensureCapacity( 4 );
+			record.putInt( fields.length );
+			for ( int i = 0; i < fields.length; i++ )
+			{
+				writeValue( fields[i] );
+			}
+		}
+		record.flip( );
+
+		long address;
+		if ( record.remaining( ) > pagePool.getPageSize( ) )
+		{
+			overflowElements.add( o );
+			address = -overflowElements.size( );
+		}
+		else
+		{
+			if ( currentPage == null
+					|| currentPage.remaining( ) < record.remaining( ) )
+			{
+				currentPage = pagePool.allocate( );
+				pages.add( currentPage );
+				pageViews.add( currentPage.duplicate( ) );
+			}
+			address = ( (long) ( pages.size( ) - 1 ) << 32 )
+					| currentPage.position( );
+			currentPage.put( record );
+		}
+		if ( size == addresses.length )
+		{
+			long[] temp = new long[addresses.length * 2];
+			System.arraycopy( addresses, 0, temp, 0, size );
+			addresses = temp;
+		}
+		addresses[size++] = address;
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IDiskArray#get(int)
+	 */
+	public Object get( int index ) throws IOException
+	{
+		if ( index >= size )
+			throw new IndexOutOfBoundsException( "Index: "
+					+ index + ", Size: " + size );
+		long address = addresses[index];
+		if ( address < 0 )
+		{
+			return overflowElements.get( (int) ( -address - 1 ) );
+		}
+		checkPagePool( );
+		ByteBuffer page = (ByteBuffer) pageViews.get( (int) ( address >>> 32 ) );
+		page.position( (int) address );
+		if ( creator == null )
+		{
+			return readValue( page );
+		}
+		int fieldCount = page.getInt( );
+		if ( fieldCount == NULL_STRUCTURE )
+		{
+			return null;
+		}
+		Object[] fields = new Object[fieldCount];
+		for ( int i = 0; i < fieldCount; i++ )
+		{
+			fields[i] = readValue( page );
+		}
+		return creator.createInstance( fields );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IDiskArray#size()
+	 */
+	public int size( )
+	{
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IDiskArray#clear()
+	 */
+	public void clear( ) throws IOException
+	{
+		for ( int i = 0; i < pages.size( ); i++ )
+		{
+			pagePool.release( (ByteBuffer) pages.get( i ) );
+		}
+		pages.clear( );
+		pageViews.clear( );
+		overflowElements.clear( );
+		currentPage = null;
+		size = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IDiskArray#close()
+	 */
+	public void close( ) throws IOException
+	{
+		clear( );
+	}
+
+	/**
+	 * The pages are unmapped once the pool is closed, they must not be
+	 * accessed after that.
+	 *
+	 * @throws IOException
+	 */
+	private void checkPagePool( ) throws IOException
+	{
+		if ( pagePool.isClosed( ) )
+		{
+			throw new IOException( "The page pool is closed." );
+		}
+	}
+
+	/**
+	 * Make sure the record buffer has the space of the given bytes.
+	 *
+	 * @param length
+	 */
+	private void ensureCapacity( int length )
+	{
+		if ( record.remaining( ) < length )
+		{
+			ByteBuffer temp = ByteBuffer.allocate( Math.max( record.capacity( ) * 2,
+					record.position( ) + length ) );
+			record.flip( );
+			temp.put( record );
+			record = temp;
+		}
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @throws IOException
+	 */
+	private void writeValue( Object value ) throws IOException
+	{
+		ensureCapacity( 1 );
+		if ( value == null )
+		{
+			record.put( NULL_VALUE );
+		}
+		else if ( value instanceof Integer )
+		{
+			record.put( INTEGER_VALUE );
+			ensureCapacity( 4 );
+			record.putInt( ( (Integer) value ).intValue( ) );
+		}
+		else if ( value instanceof Double )
+		{
+			record.put( DOUBLE_VALUE );
+			ensureCapacity( 8 );
+			record.putDouble( ( (Double) value ).doubleValue( ) );
+		}
+		else if ( value instanceof String )
+		{
+			String s = (String) value;
+			record.put( STRING_VALUE );
+			ensureCapacity( 4 + s.length( ) * 2 );
+			record.putInt( s.length( ) );
+			for ( int i = 0; i < s.length( ); i++ )
+			{
+				record.putChar( s.charAt( i ) );
+			}
+		}
+		else if ( value instanceof Boolean )
+		{
+			record.put( BOOLEAN_VALUE );
+			ensureCapacity( 1 );
+			record.put( (byte) ( ( (Boolean) value ).booleanValue( ) ? 1 : 0 ) );
+		}
+		else if ( value instanceof Long )
+		{
+			record.put( LONG_VALUE );
+			ensureCapacity( 8 );
+			record.putLong( ( (Long) value ).longValue( ) );
+		}
+		else if ( value.getClass( ) == java.sql.Timestamp.class )
+		{
+			record.put( TIMESTAMP_VALUE );
+			ensureCapacity( 12 );
+			record.putLong( ( (Date) value ).getTime( ) );
+			record.putInt( ( (java.sql.Timestamp) value ).getNanos( ) );
+		}
+		else if ( value.getClass( ) == Date.class
+				|| value.getClass( ) == java.sql.Date.class
+				|| value.getClass( ) == java.sql.Time.class )
+		{
+			record.put( value.getClass( ) == Date.class
+					? DATE_VALUE
+					: ( value.getClass( ) == java.sql.Date.class
+							? SQL_DATE_VALUE : SQL_TIME_VALUE ) );
+			ensureCapacity( 8 );
+			record.putLong( ( (Date) value ).getTime( ) );
+		}
+		else if ( value instanceof BigDecimal )
+		{
+			BigDecimal decimal = (BigDecimal) value;
+			record.put( BIGDECIMAL_VALUE );
+			ensureCapacity( 4 );
+			record.putInt( decimal.scale( ) );
+			writeBytes( decimal.unscaledValue( ).toByteArray( ) );
+		}
+		else if ( value instanceof Bytes )
+		{
+			record.put( BYTES_VALUE );
+			writeBytes( ( (Bytes) value ).bytesValue( ) );
+		}
+		else if ( value instanceof byte[] )
+		{
+			record.put( BYTE_ARRAY_VALUE );
+			writeBytes( (byte[]) value );
+		}
+		else
+		{
+			record.put( OBJECT_VALUE );
+			ByteArrayOutputStream buff = new ByteArrayOutputStream( );
+			ObjectOutputStream oo = new ObjectOutputStream( buff );
+			oo.writeObject( value );
+			oo.close( );
+			writeBytes( buff.toByteArray( ) );
+		}
+	}
+
+	/**
+	 *
+	 * @param bytes
+	 */
+	private void writeBytes( byte[] bytes )
+	{
+		ensureCapacity( 4 + bytes.length );
+		record.putInt( bytes.length );
+		record.put( bytes );
+	}
+
+	/**
+	 *
+	 * @param page
+	 * @return
+	 * @throws IOException
+	 */
+	private static Object readValue( ByteBuffer page ) throws IOException
+	{
+		byte type = page.get( );
+		switch ( type )
+		{
+			case NULL_VALUE :
+				return null;
+			case INTEGER_VALUE :
+				return Integer.valueOf( page.getInt( ) );
+			case DOUBLE_VALUE :
+				return new Double( page.getDouble( ) );
+			case STRING_VALUE :
+				char[] chars = new char[page.getInt( )];
+				for ( int i = 0; i < chars.length; i++ )
+				{
+					chars[i] = page.getChar( );
+				}
+				return new String( chars );
+			case BOOLEAN_VALUE :
+				return Boolean.valueOf( page.get( ) != 0 );
+			case LONG_VALUE :
+				return Long.valueOf( page.getLong( ) );
+			case TIMESTAMP_VALUE :
+				java.sql.Timestamp timestamp = new java.sql.Timestamp( page.getLong( ) );
+				timestamp.setNanos( page.getInt( ) );
+				return timestamp;
+			case DATE_VALUE :
+				return new Date( page.getLong( ) );
+			case SQL_DATE_VALUE :
+				return new java.sql.Date( page.getLong( ) );
+			case SQL_TIME_VALUE :
+				return new java.sql.Time( page.getLong( ) );
+			case BIGDECIMAL_VALUE :
+				int scale = page.getInt( );
+				return new BigDecimal( new BigInteger( readBytes( page ) ),
+						scale );
+			case BYTES_VALUE :
+				return new Bytes( readBytes( page ) );
+			case BYTE_ARRAY_VALUE :
+				return readBytes( page );
+			case OBJECT_VALUE :
+				return readObject( readBytes( page ) );
+			default :
+				throw new IOException( "Unknown value type: " + type );
+		}
+	}
+
+	/**
+	 *
+	 * @param page
+	 * @return
+	 */
+	private static byte[] readBytes( ByteBuffer page )
+	{
+		byte[] bytes = new byte[page.getInt( )];
+		page.get( bytes );
+		return bytes;
+	}
+
+	/**
+	 *
+	 * @param bytes
+	 * @return
+	 * @throws IOException
+	 */
+	private static Object readObject( byte[] bytes ) throws IOException
+	{
+		final ClassLoader loader = org.eclipse.birt.data.engine.impl.DataEngineSession.getCurrentClassLoader( );
+		ObjectInputStream oo = new ObjectInputStream( new ByteArrayInputStream( bytes ) ) {
+
+			protected Class resolveClass( ObjectStreamClass desc )
+					throws IOException, ClassNotFoundException
+			{
+				return Class.forName( desc.getName( ), false, loader );
+			}
+		};
+		try
+		{
+			return oo.readObject( );
+		}
+		catch ( ClassNotFoundException e )
+		{
+			logger.log( Level.WARNING, "Failed to read object", e );
+			return null;
+		}
+	}
+}
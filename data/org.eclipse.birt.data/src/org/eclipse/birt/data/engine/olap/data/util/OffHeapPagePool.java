@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.util.MappedBufferUtil;
+import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
+import org.eclipse.birt.data.engine.api.ICloseListener;
+import org.eclipse.birt.data.engine.core.security.FileSecurity;
+
+/**
+ * A pool of fixed size pages out of the Java heap. The pages are direct byte
+ * buffers until the direct memory size of the pool is used, then they are
+ * sliced from large memory-mapped chunks of a temp file, so the pages spilled
+ * are paged out by the operating system instead of being written by the pool.
+ * Mapping the chunks instead of each page keeps the count of mapped regions
+ * of the process low. The released pages are reused. When the pool is closed,
+ * all the pages and chunks are unmapped without waiting for the garbage
+ * collection and the temp file is deleted, so the pages must not be used
+ * after that. The pool can be shared by the threads.
+ */
+
+public class OffHeapPagePool implements ICloseListener
+{
+
+	private static Logger logger = Logger.getLogger( OffHeapPagePool.class.getName( ) );
+
+	private static final String fileNamePrefix = "OffHeapPagePool";
+	public static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+	private static final int MAPPED_CHUNK_SIZE = 64 * 1024 * 1024;
+
+	private int pageSize;
+	private long directMemorySize;
+	private long usedDirectMemorySize = 0;
+
+	private List freePages = null;
+	// the direct pages and the mapped chunks, to unmap them when the pool is
+	// closed. The pages sliced from a chunk are unmapped with the chunk.
+	private List directPages = null;
+	private List mappedChunks = null;
+	private ByteBuffer currentChunk = null;
+
+	private File mappedFile = null;
+	private RandomAccessFile randomAccessFile = null;
+	private FileChannel fileChannel = null;
+	private long mappedFileSize = 0;
+
+	private volatile boolean closed = false;
+
+	/**
+	 *
+	 * @param pageSize
+	 *            the size in bytes of each page
+	 * @param directMemorySize
+	 *            the size in bytes of the direct buffers, the pages exceeding
+	 *            it are mapped from a temp file
+	 */
+	public OffHeapPagePool( int pageSize, long directMemorySize )
+	{
+		if ( pageSize <= 0 )
+		{
+			throw new IllegalArgumentException( "Page size: " + pageSize );
+		}
+		this.pageSize = pageSize;
+		this.directMemorySize = directMemorySize;
+		this.freePages = new ArrayList( );
+		this.directPages = new ArrayList( );
+		this.mappedChunks = new ArrayList( );
+		DataEngineThreadLocal.getInstance( ).getCloseListener( ).add( this );
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public int getPageSize( )
+	{
+		return this.pageSize;
+	}
+
+	/**
+	 * Return a cleared page of the page size.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public synchronized ByteBuffer allocate( ) throws IOException
+	{
+		if ( closed )
+		{
+			throw new IOException( "The page pool is closed." );
+		}
+		if ( !freePages.isEmpty( ) )
+		{
+			ByteBuffer page = (ByteBuffer) freePages.remove( freePages.size( ) - 1 );
+			page.clear( );
+			return page;
+		}
+		if ( usedDirectMemorySize + pageSize <= directMemorySize )
+		{
+			usedDirectMemorySize += pageSize;
+			ByteBuffer page = ByteBuffer.allocateDirect( pageSize );
+			directPages.add( page );
+			return page;
+		}
+		return mapPage( );
+	}
+
+	/**
+	 * Return whether the pool is closed, the pages allocated by it are
+	 * unmapped then.
+	 *
+	 * @return
+	 */
+	public boolean isClosed( )
+	{
+		return closed;
+	}
+
+	/**
+	 * Give back a page allocated by this pool, it may be returned by the next
+	 * allocation.
+	 *
+	 * @param page
+	 */
+	public synchronized void release( ByteBuffer page )
+	{
+		if ( !closed && page != null )
+		{
+			freePages.add( page );
+		}
+	}
+
+	/**
+	 * Slice a page from the current mapped chunk, a new chunk is mapped if the
+	 * current one is used up.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	private ByteBuffer mapPage( ) throws IOException
+	{
+		if ( fileChannel == null )
+		{
+			String tempFileStr = DataEngineThreadLocal.getInstance( )
+					.getPathManager( )
+					.getTempFileName( fileNamePrefix, this.hashCode( ), "" );
+			mappedFile = new File( tempFileStr );
+			FileSecurity.createNewFile( mappedFile );
+			randomAccessFile = FileSecurity.createRandomAccessFile( mappedFile,
+					"rw" );
+			fileChannel = randomAccessFile.getChannel( );
+		}
+		if ( currentChunk == null || currentChunk.remaining( ) < pageSize )
+		{
+			int chunkSize = Math.max( 1, MAPPED_CHUNK_SIZE / pageSize )
+					* pageSize;
+			// mapping a region beyond the end of the file extends the file
+			currentChunk = fileChannel.map( FileChannel.MapMode.READ_WRITE,
+					mappedFileSize,
+					chunkSize );
+			mappedFileSize += chunkSize;
+			mappedChunks.add( currentChunk );
+		}
+		int position = currentChunk.position( );
+		currentChunk.limit( position + pageSize );
+		ByteBuffer page = currentChunk.slice( );
+		currentChunk.limit( currentChunk.capacity( ) );
+		currentChunk.position( position + pageSize );
+		return page;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.api.ICloseListener#close()
+	 */
+	public synchronized void close( ) throws IOException
+	{
+		if ( closed )
+		{
+			return;
+		}
+		closed = true;
+		freePages.clear( );
+		usedDirectMemorySize = 0;
+		for ( int i = 0; i < directPages.size( ); i++ )
+		{
+			MappedBufferUtil.unmap( (ByteBuffer) directPages.get( i ) );
+		}
+		directPages.clear( );
+		// the file can't be deleted on some platforms until its mapped chunks
+		// are unmapped
+		for ( int i = 0; i < mappedChunks.size( ); i++ )
+		{
+			MappedBufferUtil.unmap( (ByteBuffer) mappedChunks.get( i ) );
+		}
+		mappedChunks.clear( );
+		currentChunk = null;
+		if ( randomAccessFile != null )
+		{
+			randomAccessFile.close( );
+			randomAccessFile = null;
+			fileChannel = null;
+		}
+		if ( mappedFile != null )
+		{
+			if ( !FileSecurity.fileDelete( mappedFile ) )
+			{
+				logger.log( Level.WARNING, "Failed to delete the file "
+						+ mappedFile.getPath( ) );
+				FileSecurity.fileDeleteOnExit( mappedFile );
+			}
+			mappedFile = null;
+		}
+	}
+}
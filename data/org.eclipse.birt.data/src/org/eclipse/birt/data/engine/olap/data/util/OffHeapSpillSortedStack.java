@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.IOException;
+import java.util.Comparator;
+
+/**
+ * A disk sorted stack whose sorted segments are spilled into the pages of a
+ * off-heap page pool instead of the disk files. The pages of a segment are
+ * given back to the pool when the segment is closed. Only the spill is moved
+ * out of the heap, the sort buffer still holds the structures as objects.
+ */
+
+public class OffHeapSpillSortedStack extends DiskSortedStack
+{
+	private IStructureCreator creator = null;
+	private OffHeapPagePool pagePool = null;
+
+	/**
+	 *
+	 * @param bufferSize
+	 * @param forceDistinct
+	 * @param comparator
+	 * @param creator
+	 * @param pagePool
+	 */
+	public OffHeapSpillSortedStack( int bufferSize, boolean forceDistinct,
+			Comparator comparator, IStructureCreator creator,
+			OffHeapPagePool pagePool )
+	{
+		super( bufferSize, forceDistinct, comparator, creator );
+		this.creator = creator;
+		this.pagePool = pagePool;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.BaseDiskSortedStack#createSegment()
+	 */
+	protected IDiskArray createSegment( ) throws IOException
+	{
+		return new OffHeapDiskArray( creator, pagePool );
+	}
+}
@@ -785,6 +785,8 @@ public class DataRequestSessionImpl extends DataRequestSession
 					}
 				}
 				CubeMaterializer cm = getCubeMaterializer( size );
+				cm.setParallelism( getCubeMaterializeParallelism( appContext ) );
+				cm.setBitmapIndex( isCubeBitmapIndex( appContext ) );
 				createCube( (TabularCubeHandle) cubeHandle,
 						cm,
 						appContext );
@@ -792,6 +794,8 @@ public class DataRequestSessionImpl extends DataRequestSession
 			else if ( mode == DataEngineContext.MODE_GENERATION )
 			{
 				CubeMaterializer cm = getCubeMaterializer( 0 );
+				cm.setParallelism( getCubeMaterializeParallelism( appContext ) );
+				cm.setBitmapIndex( isCubeBitmapIndex( appContext ) );
 				createCube(  (TabularCubeHandle)cubeHandle, cm, appContext );
 				cm.saveCubeToReportDocument( cubeHandle.getQualifiedName( ),
 						this.sessionContext.getDocumentWriter( ),
@@ -804,6 +808,34 @@ public class DataRequestSessionImpl extends DataRequestSession
 		}
 	}
 
+	/**
+	 * 
+	 * @param appContext
+	 * @return the count of threads used to materialize the cube
+	 * @throws BirtException
+	 */
+	private static int getCubeMaterializeParallelism( Map appContext ) throws BirtException
+	{
+		Integer value = DataTypeUtil.toInteger( appContext.get( DataEngine.CUBE_MATERIALIZE_PARALLELISM ) );
+		if ( value != null && value.intValue( ) > 1 )
+		{
+			return value.intValue( );
+		}
+		return 1;
+	}
+
+	/**
+	 * 
+	 * @param appContext
+	 * @return whether to save the bitmap indexes of the fact table
+	 * @throws BirtException
+	 */
+	private static boolean isCubeBitmapIndex( Map appContext ) throws BirtException
+	{
+		Boolean value = DataTypeUtil.toBoolean( appContext.get( DataEngine.CUBE_BITMAP_INDEX ) );
+		return value != null && value.booleanValue( );
+	}
+
 	// Appcontext entries that may be temporarily modified during createCube call
 	protected static final String[] APPCONTEXT_BACKUP_KEYS = {
 				DataEngine.MEMORY_DATA_SET_CACHE,
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.report.data.oda.excel.impl.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.birt.report.data.oda.excel.ExcelODAConstants;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Reads the rows of xlsx sheets through the streaming xlsx reader.
+ */
+public class ExcelFileReaderTest
+{
+
+	private static final String SPREADSHEET_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main"; //$NON-NLS-1$
+	private static final String RELATIONSHIP_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships"; //$NON-NLS-1$
+
+	// the dimension is far wider than the cells, the rows have gaps
+	private static final String GAPS_SHEET = "<dimension ref=\"A1:XFD3\"/>" //$NON-NLS-1$
+			+ "<sheetData>" //$NON-NLS-1$
+			+ "<row r=\"1\"><c r=\"A1\" t=\"str\"><v>a</v></c><c r=\"C1\" t=\"str\"><v>c</v></c></row>" //$NON-NLS-1$
+			+ "<row r=\"2\"><c r=\"A2\"><v>1</v></c><c r=\"D2\"><v>2.5</v></c></row>" //$NON-NLS-1$
+			+ "<row r=\"3\"><c r=\"B3\" t=\"b\"><v>1</v></c></row>" //$NON-NLS-1$
+			+ "</sheetData>"; //$NON-NLS-1$
+
+	// the widest row is not the first one
+	private static final String NO_DIMENSION_SHEET = "<sheetData>" //$NON-NLS-1$
+			+ "<row r=\"1\"><c r=\"A1\" t=\"str\"><v>x</v></c></row>" //$NON-NLS-1$
+			+ "<row r=\"2\"><c r=\"C2\"><v>3</v></c></row>" //$NON-NLS-1$
+			+ "</sheetData>"; //$NON-NLS-1$
+
+	@Test
+	public void testRowWithGaps( ) throws Exception
+	{
+		ExcelFileReader reader = createReader( "Gaps" ); //$NON-NLS-1$
+		try
+		{
+			assertEquals( Arrays.asList( new Object[]{
+					"a", "", "c", "" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			} ), reader.readRow( ) );
+			assertEquals( Arrays.asList( new Object[]{
+					Double.valueOf( 1 ), "", "", Double.valueOf( 2.5 ) //$NON-NLS-1$ //$NON-NLS-2$
+			} ), reader.readRow( ) );
+			assertEquals( Arrays.asList( new Object[]{
+					"", Boolean.TRUE, "", "" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			} ), reader.readRow( ) );
+			assertNull( reader.readRow( ) );
+		}
+		finally
+		{
+			reader.close( );
+		}
+	}
+
+	@Test
+	public void testReadLine( ) throws Exception
+	{
+		ExcelFileReader reader = createReader( "Gaps" ); //$NON-NLS-1$
+		try
+		{
+			reader.readLine( );
+			assertEquals( Arrays.asList( new String[]{
+					"1", "", "", "2.5" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			} ), reader.readLine( ) );
+			assertEquals( Arrays.asList( new String[]{
+					"", "true", "", "" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			} ), reader.readLine( ) );
+		}
+		finally
+		{
+			reader.close( );
+		}
+	}
+
+	@Test
+	public void testSheetWithoutDimension( ) throws Exception
+	{
+		ExcelFileReader reader = createReader( "NoDimension" ); //$NON-NLS-1$
+		try
+		{
+			assertEquals( Arrays.asList( new Object[]{
+					"x", "", "" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			} ), reader.readRow( ) );
+			assertEquals( Arrays.asList( new Object[]{
+					"", "", Double.valueOf( 3 ) //$NON-NLS-1$ //$NON-NLS-2$
+			} ), reader.readRow( ) );
+			assertNull( reader.readRow( ) );
+		}
+		finally
+		{
+			reader.close( );
+		}
+	}
+
+	@Test
+	public void testCloseWhileParsing( ) throws Exception
+	{
+		// more rows than the queue holds, so the parser is blocked on it
+		StringBuffer sheet = new StringBuffer( "<sheetData>" ); //$NON-NLS-1$
+		int rowCount = ExcelODAConstants.XLSX_ROW_QUEUE_SIZE * 3;
+		for ( int i = 1; i <= rowCount; i++ )
+		{
+			sheet.append( "<row r=\"" + i + "\"><c r=\"A" + i + "\"><v>" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ i + "</v></c></row>" ); //$NON-NLS-1$
+		}
+		sheet.append( "</sheetData>" ); //$NON-NLS-1$
+		ExcelFileReader reader = new ExcelFileReader( new ByteArrayInputStream( createXlsx( new String[]{
+				"Large", sheet.toString( ) //$NON-NLS-1$
+		} ) ), ExcelODAConstants.XLSX_FORMAT, Arrays.asList( "Large" ), 0 ); //$NON-NLS-1$
+		List<Object> row = reader.readRow( );
+		assertEquals( Double.valueOf( 1 ), row.get( 0 ) );
+
+		reader.close( );
+		assertFalse( isParserRunning( ) );
+	}
+
+	private static boolean isParserRunning( )
+	{
+		Thread[] threads = new Thread[Thread.activeCount( ) + 10];
+		int count = Thread.enumerate( threads );
+		for ( int i = 0; i < count; i++ )
+		{
+			if ( "Excel ODA xlsx reader".equals( threads[i].getName( ) ) ) //$NON-NLS-1$
+				return true;
+		}
+		return false;
+	}
+
+	private static ExcelFileReader createReader( String sheetName )
+			throws IOException
+	{
+		byte[] xlsx = createXlsx( new String[]{
+				"Gaps", GAPS_SHEET, "NoDimension", NO_DIMENSION_SHEET //$NON-NLS-1$ //$NON-NLS-2$
+		} );
+		return new ExcelFileReader( new ByteArrayInputStream( xlsx ),
+				ExcelODAConstants.XLSX_FORMAT,
+				Arrays.asList( sheetName ),
+				0 );
+	}
+
+	/**
+	 * Writes a xlsx file with the sheets given as name and content pairs. The
+	 * cells have no shared strings and no styles.
+	 */
+	private static byte[] createXlsx( String[] sheets ) throws IOException
+	{
+		StringBuffer types = new StringBuffer( );
+		StringBuffer relationships = new StringBuffer( );
+		StringBuffer sheetList = new StringBuffer( );
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		ZipOutputStream zip = new ZipOutputStream( out );
+		for ( int i = 0; i < sheets.length / 2; i++ )
+		{
+			String part = "worksheets/sheet" + ( i + 1 ) + ".xml"; //$NON-NLS-1$ //$NON-NLS-2$
+			types.append( "<Override PartName=\"/xl/" + part //$NON-NLS-1$
+					+ "\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" ); //$NON-NLS-1$
+			relationships.append( "<Relationship Id=\"rId" + ( i + 1 ) //$NON-NLS-1$
+					+ "\" Type=\"" + RELATIONSHIP_NS + "/worksheet\" Target=\"" //$NON-NLS-1$ //$NON-NLS-2$
+					+ part + "\"/>" ); //$NON-NLS-1$
+			sheetList.append( "<sheet name=\"" + sheets[i * 2] + "\" sheetId=\"" //$NON-NLS-1$ //$NON-NLS-2$
+					+ ( i + 1 ) + "\" r:id=\"rId" + ( i + 1 ) + "\"/>" ); //$NON-NLS-1$ //$NON-NLS-2$
+			addEntry( zip, "xl/" + part, "<worksheet xmlns=\"" //$NON-NLS-1$ //$NON-NLS-2$
+					+ SPREADSHEET_NS + "\">" + sheets[i * 2 + 1] + "</worksheet>" ); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		addEntry( zip,
+				"[Content_Types].xml", //$NON-NLS-1$
+				"<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" //$NON-NLS-1$
+						+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" //$NON-NLS-1$
+						+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" //$NON-NLS-1$
+						+ "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" //$NON-NLS-1$
+						+ types + "</Types>" ); //$NON-NLS-1$
+		addEntry( zip,
+				"_rels/.rels", //$NON-NLS-1$
+				"<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" //$NON-NLS-1$
+						+ "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIP_NS //$NON-NLS-1$
+						+ "/officeDocument\" Target=\"xl/workbook.xml\"/>" //$NON-NLS-1$
+						+ "</Relationships>" ); //$NON-NLS-1$
+		addEntry( zip,
+				"xl/_rels/workbook.xml.rels", //$NON-NLS-1$
+				"<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" //$NON-NLS-1$
+						+ relationships + "</Relationships>" ); //$NON-NLS-1$
+		addEntry( zip, "xl/workbook.xml", "<workbook xmlns=\"" //$NON-NLS-1$ //$NON-NLS-2$
+				+ SPREADSHEET_NS + "\" xmlns:r=\"" + RELATIONSHIP_NS //$NON-NLS-1$
+				+ "\"><sheets>" + sheetList + "</sheets></workbook>" ); //$NON-NLS-1$ //$NON-NLS-2$
+		zip.close( );
+		return out.toByteArray( );
+	}
+
+	private static void addEntry( ZipOutputStream zip, String name,
+			String content ) throws IOException
+	{
+		zip.putNextEntry( new ZipEntry( name ) );
+		zip.write( ( "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + content ).getBytes( "UTF-8" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+		zip.closeEntry( );
+	}
+}
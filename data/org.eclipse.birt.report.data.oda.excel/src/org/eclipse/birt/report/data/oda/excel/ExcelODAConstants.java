@@ -41,5 +41,8 @@ public class ExcelODAConstants {
 	public static final String EMPTY_STRING = ""; //$NON-NLS-1$
 	public static final String ALL_SHEETS = "ALL"; //$NON-NLS-1$
 	public static final int BLANK_LOOK_AHEAD = 5;
+	public static final int XLSX_ROW_QUEUE_SIZE = 1000;
+	public static final int XLSX_COLUMN_SCAN_ROWS = 1000;
+	public static final String XLSX_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ssZ"; //$NON-NLS-1$
 
 }
@@ -19,8 +19,10 @@ import java.sql.Timestamp;
 import java.text.ParseException;
 import java.util.regex.Pattern;
 
+import org.eclipse.birt.report.data.oda.excel.ExcelODAConstants;
 import org.eclipse.birt.report.data.oda.excel.impl.i18n.Messages;
 import org.eclipse.birt.report.data.oda.excel.impl.util.DateUtil;
+import org.eclipse.birt.report.data.oda.excel.impl.util.ExcelFileReader;
 import org.eclipse.birt.report.data.oda.excel.impl.util.ExcelFileSource;
 import org.eclipse.datatools.connectivity.oda.IBlob;
 import org.eclipse.datatools.connectivity.oda.IClob;
@@ -29,6 +31,7 @@ import org.eclipse.datatools.connectivity.oda.IResultSetMetaData;
 import org.eclipse.datatools.connectivity.oda.OdaException;
 
 import com.ibm.icu.text.NumberFormat;
+import com.ibm.icu.text.SimpleDateFormat;
 import com.ibm.icu.util.ULocale;
 
 /**
@@ -39,7 +42,10 @@ public class ResultSet implements IResultSet {
 
 	public static final int DEFAULT_MAX_ROWS = 1000;
 	private static final int CURSOR_INITIAL_VALUE = -1;
-	private String[][] sourceData = null;
+	// the cells are String values or the Double, Boolean and Date values of
+	// a xlsx file
+	private Object[][] sourceData = null;
+	private SimpleDateFormat dateFormat;
 	private ResultSetMetaData resultSetMetaData = null;
 	private int maxRows = 0;
 	private int cursor = CURSOR_INITIAL_VALUE;
@@ -143,10 +149,7 @@ public class ResultSet implements IResultSet {
 	 * @see org.eclipse.datatools.connectivity.oda.IResultSet#getString(int)
 	 */
 	public String getString(int index) throws OdaException {
-		validateCursorState();
-		String result = sourceData[cursor][index - 1];
-		this.wasNull = result == null ? true : false;
-		return result;
+		return valueToString(getValue(index));
 	}
 
 	/*
@@ -164,7 +167,10 @@ public class ResultSet implements IResultSet {
 	 * @see org.eclipse.datatools.connectivity.oda.IResultSet#getInt(int)
 	 */
 	public int getInt(int index) throws OdaException {
-		return stringToInt(getString(index));
+		Object value = getValue(index);
+		if (value instanceof Number)
+			return ((Number) value).intValue();
+		return stringToInt(valueToString(value));
 	}
 
 	/*
@@ -173,14 +179,17 @@ public class ResultSet implements IResultSet {
 	 * )
 	 */
 	public int getInt(String columnName) throws OdaException {
-		return stringToInt(getString(columnName));
+		return getInt(findColumn(columnName));
 	}
 
 	/*
 	 * @see org.eclipse.datatools.connectivity.oda.IResultSet#getDouble(int)
 	 */
 	public double getDouble(int index) throws OdaException {
-		return stringToDouble(getString(index));
+		Object value = getValue(index);
+		if (value instanceof Number)
+			return ((Number) value).doubleValue();
+		return stringToDouble(valueToString(value));
 	}
 
 	/*
@@ -189,14 +198,17 @@ public class ResultSet implements IResultSet {
 	 * .String)
 	 */
 	public double getDouble(String columnName) throws OdaException {
-		return stringToDouble(getString(columnName));
+		return getDouble(findColumn(columnName));
 	}
 
 	/*
 	 * @see org.eclipse.datatools.connectivity.oda.IResultSet#getBigDecimal(int)
 	 */
 	public BigDecimal getBigDecimal(int index) throws OdaException {
-		return stringToBigDecimal(getString(index));
+		Object value = getValue(index);
+		if (value instanceof Double)
+			return BigDecimal.valueOf(((Double) value).doubleValue());
+		return stringToBigDecimal(valueToString(value));
 	}
 
 	/*
@@ -205,14 +217,17 @@ public class ResultSet implements IResultSet {
 	 * lang.String)
 	 */
 	public BigDecimal getBigDecimal(String columnName) throws OdaException {
-		return stringToBigDecimal(getString(columnName));
+		return getBigDecimal(findColumn(columnName));
 	}
 
 	/*
 	 * @see org.eclipse.datatools.connectivity.oda.IResultSet#getDate(int)
 	 */
 	public Date getDate(int index) throws OdaException {
-		return stringToDate(getString(index));
+		Object value = getValue(index);
+		if (value instanceof java.util.Date)
+			return DateUtil.toSqlDate(value);
+		return stringToDate(valueToString(value));
 	}
 
 	/*
@@ -221,7 +236,7 @@ public class ResultSet implements IResultSet {
 	 * )
 	 */
 	public Date getDate(String columnName) throws OdaException {
-		return stringToDate(getString(columnName));
+		return getDate(findColumn(columnName));
 	}
 
 	/*
@@ -230,7 +245,10 @@ public class ResultSet implements IResultSet {
 	public Time getTime( int index ) throws OdaException
 	{
 		try{
-			return stringToTime( getString( index ) );
+			Object value = getValue( index );
+			if ( value instanceof java.util.Date )
+				return DateUtil.toSqlTime( value );
+			return stringToTime( valueToString( value ) );
 		}catch (Exception e){
 			return null;
 		}
@@ -242,7 +260,7 @@ public class ResultSet implements IResultSet {
 	public Time getTime( String columnName ) throws OdaException
 	{
 		try{
-			return stringToTime( getString( columnName ) );
+			return getTime( findColumn( columnName ) );
 		}catch (Exception e){
 			return null;
 		}
@@ -254,7 +272,10 @@ public class ResultSet implements IResultSet {
 	public Timestamp getTimestamp( int index ) throws OdaException
 	{
 		try{
-			return stringToTimestamp( getString( index ) );
+			Object value = getValue( index );
+			if ( value instanceof java.util.Date )
+				return new Timestamp( ( (java.util.Date) value ).getTime( ) );
+			return stringToTimestamp( valueToString( value ) );
 		}catch (Exception e){
 			return null;
 		}
@@ -266,7 +287,7 @@ public class ResultSet implements IResultSet {
 	public Timestamp getTimestamp( String columnName ) throws OdaException
 	{
 		try{
-			return stringToTimestamp( getString( columnName ) );
+			return getTimestamp( findColumn( columnName ) );
 		}catch (Exception e){
 			return null;
 		}
@@ -310,7 +331,12 @@ public class ResultSet implements IResultSet {
 	 * @see org.eclipse.datatools.connectivity.oda.IResultSet#getBoolean(int)
 	 */
 	public boolean getBoolean(int index) throws OdaException {
-		return stringToBoolean(getString(index)).booleanValue();
+		Object value = getValue(index);
+		if (value instanceof Boolean)
+			return ((Boolean) value).booleanValue();
+		if (value instanceof Number)
+			return ((Number) value).intValue() != 0;
+		return stringToBoolean(valueToString(value)).booleanValue();
 	}
 
 	/*
@@ -321,7 +347,7 @@ public class ResultSet implements IResultSet {
 	 * .String)
 	 */
 	public boolean getBoolean(String columnName) throws OdaException {
-		return stringToBoolean(getString(columnName)).booleanValue();
+		return getBoolean(findColumn(columnName));
 	}
 
 	/*
@@ -372,6 +398,36 @@ public class ResultSet implements IResultSet {
 					Messages.getString("resultSet_CURSOR_HAS_NOT_BEEN_INITIALIZED")); //$NON-NLS-1$
 	}
 
+	/**
+	 * Returns the value of a column of the current row.
+	 *
+	 * @param index
+	 *            the 1-based column index
+	 * @throws OdaException
+	 *             if the cursor is not initialized
+	 */
+	private Object getValue(int index) throws OdaException {
+		validateCursorState();
+		Object value = sourceData[cursor][index - 1];
+		this.wasNull = value == null ? true : false;
+		return value;
+	}
+
+	/**
+	 * Transform a cell value to a String value
+	 *
+	 * @param value
+	 *            the cell value
+	 * @return Corresponding String value
+	 */
+	private String valueToString(Object value) {
+		if (value == null || value instanceof String)
+			return (String) value;
+		if (dateFormat == null)
+			dateFormat = new SimpleDateFormat(ExcelODAConstants.XLSX_DATE_FORMAT);
+		return ExcelFileReader.getStringValue(value, dateFormat);
+	}
+
 	/**
 	 * Transform a String value to an int value
 	 *
@@ -61,9 +61,16 @@ public class ExcelFileReader {
 	private int xlsxRowsToRead;
 	private XlsxRowCallBack callback;
 	private XlsxFileReader xlsxread;
+	private List<String> xlsxSheetRids;
 	Map<String, String> xlsxSheetRidNameMap;
     private SimpleDateFormat sdf;  
+	private SimpleDateFormat xlsxDateFormat;
 	public void setCurrentRowIndex(int currentRowIndex) {
+		// the xlsx rows are streamed, moving to another row restarts the
+		// parsing which then skips the rows before it
+		if (callback != null && currentRowIndex != this.currentRowIndex) {
+			stopXlsxStream();
+		}
 		this.currentRowIndex = currentRowIndex;
 	}
 
@@ -99,15 +106,39 @@ public class ExcelFileReader {
 		return true;
 	}
 	
+	/**
+	 * Returns the next row as text.
+	 */
 	public List<String> readLine() throws IOException, OdaException {
+		List<Object> row = readRow();
+		if (row == null)
+			return null;
+		if (xlsxDateFormat == null)
+			xlsxDateFormat = new SimpleDateFormat(ExcelODAConstants.XLSX_DATE_FORMAT);
+		List<String> rowData = new ArrayList<String>(row.size());
+		for (Object value : row) {
+			rowData.add(getStringValue(value, xlsxDateFormat));
+		}
+		return rowData;
+	}
+
+	/**
+	 * Returns the next row. The cells of a xlsx file are String, Double,
+	 * Boolean or Date values, the cells of a xls file are String values.
+	 */
+	public List<Object> readRow() throws IOException, OdaException {
 		if (!isInitialised)
 			initialise();
 
+		if (isXlsxFile(fileExtension)) {
+			return readXlsxLine();
+		}
+
 		if (currentRowIndex >= maxRowsInThisSheet) {
 			if (!initialiseNextSheet())
 				return null;
 		}
-		List<String> rowData = new ArrayList<String>();
+		List<Object> rowData = new ArrayList<Object>();
 		if (isXlsFile(fileExtension)) {
 			Row row = sheet.getRow(currentRowIndex);
 			if (row != null) {
@@ -130,8 +161,6 @@ public class ExcelFileReader {
 			} else {
 				return null;
 			}
-		} else if (isXlsxFile(fileExtension)){
-			rowData = callback.getRow(currentRowIndex);
 		}
 
 		currentRowIndex++;
@@ -139,7 +168,79 @@ public class ExcelFileReader {
 
 	}
 
+	private List<Object> readXlsxLine() throws IOException, OdaException {
+		if (callback == null) {
+			startXlsxStream();
+			for (int i = 0; i < currentRowIndex; i++) {
+				if (nextXlsxRow() == null)
+					return null;
+			}
+		}
+		List<Object> rowData = nextXlsxRow();
+		if (rowData != null)
+			currentRowIndex++;
+		return rowData;
+	}
+
+	private List<Object> nextXlsxRow() throws IOException, OdaException {
+		List<Object> rowData = callback.nextRow();
+		if (rowData == null) {
+			Throwable error = callback.getError();
+			if (error instanceof IOException)
+				throw (IOException) error;
+			if (error != null)
+				throw new OdaException(error);
+		}
+		return rowData;
+	}
+
+	/**
+	 * Parses the selected sheets in another thread, the rows are read from
+	 * the callback while the parsing continues.
+	 */
+	private void startXlsxStream() {
+		final XlsxRowCallBack rowCallBack = new XlsxRowCallBack();
+		final XlsxFileReader sheetReader = xlsxread;
+		final List<String> rids = xlsxSheetRids;
+		final int rowsToRead = xlsxRowsToRead;
+		rowCallBack.start(new Runnable() {
+
+			public void run() {
+				Throwable error = null;
+				try {
+					// the rows are handed out before the widest one may be
+					// parsed, so the width of the first rows of all the
+					// sheets is found first
+					for (String rid : rids) {
+						rowCallBack.columnExpansion(sheetReader.getColumnCount(
+								rid, rowCallBack, rowsToRead));
+					}
+					for (String rid : rids) {
+						sheetReader.processSheet(rid, rowCallBack, rowsToRead);
+					}
+				} catch (SAXException e) {
+					if (!XlsxFileReader.ROW_LIMIT_REACHED_EX_MSG.equals(e.getMessage())
+							&& !rowCallBack.isCancelled())
+						error = e;
+				} catch (Throwable e) {
+					error = e;
+				} finally {
+					rowCallBack.endOfRows(error);
+				}
+			}
+		});
+		callback = rowCallBack;
+	}
+
+	private void stopXlsxStream() {
+		if (callback != null) {
+			callback.cancel();
+			callback = null;
+		}
+	}
+
 	public void close() throws IOException {
+		stopXlsxStream();
 		this.fis.close();
 	}
 
@@ -147,18 +248,15 @@ public class ExcelFileReader {
 		try {
 			if (isXlsxFile(fileExtension)) {
 				xlsxread = new XlsxFileReader(fis);
-				callback = new XlsxRowCallBack();
 				xlsxSheetRidNameMap = xlsxread.getSheetNames();
+				xlsxSheetRids = new ArrayList<String>();
 
 				for (String sheetName : workSheetList) {
 					String rid = xlsxSheetRidNameMap.get(sheetName);
 					if (rid == null)
 						throw new OdaException(
 								Messages.getString("invalid_sheet_name")); //$NON-NLS-1$
-
-					xlsxread.processSheet(rid, callback, this.xlsxRowsToRead);
-					maxRowsInAllSheet = callback.getMaxRowsInSheet();
-					maxRowsInThisSheet = callback.getMaxRowsInSheet();
+					xlsxSheetRids.add(rid);
 				}
 
 			} else if ( isXlsFile( fileExtension ) ){
@@ -186,12 +284,7 @@ public class ExcelFileReader {
 		} catch (OpenXML4JException e) {
 			throw new OdaException(e);
 		} catch (SAXException e) {
-			if( e.getMessage().equalsIgnoreCase( XlsxFileReader.ROW_LIMIT_REACHED_EX_MSG ) ){
-				maxRowsInThisSheet = callback.getMaxRowsInSheet();
-				isInitialised = true;
-			}else{
-				throw new OdaException(e);
-			}
+			throw new OdaException(e);
 		}
 	}
 
@@ -270,6 +363,29 @@ public class ExcelFileReader {
 		return ExcelODAConstants.UNSUPPORT_FORMAT;
 	}
 
+	/**
+	 * Returns the text of a cell value returned by readRow.
+	 *
+	 * @param value
+	 *            the cell value
+	 * @param dateFormat
+	 *            the format of the Date values
+	 */
+	public static String getStringValue(Object value, SimpleDateFormat dateFormat) {
+		if (value == null || value instanceof String)
+			return (String) value;
+		if (value instanceof Double) {
+			double number = ((Double) value).doubleValue();
+			// as the cell is written in the file, without a decimal part
+			if (number == Math.rint(number) && Math.abs(number) < 1e15)
+				return Long.toString((long) number);
+			return value.toString();
+		}
+		if (value instanceof Date)
+			return dateFormat.format((Date) value);
+		return value.toString();
+	}
+
 	public String getCellValue(Cell cell) {
 		if (cell == null)
 			return ExcelODAConstants.EMPTY_STRING;
@@ -313,9 +429,15 @@ public class ExcelFileReader {
 		}
 	}
 
+	/**
+	 * Returns the number of rows in the selected sheets. The xlsx rows are
+	 * streamed, so for a xlsx file it is the number of rows read so far.
+	 */
 	public int getMaxRows() throws IOException, OdaException {
 		if (!isInitialised)
 			initialise();
+		if (isXlsxFile(fileExtension))
+			return currentRowIndex;
 		return maxRowsInAllSheet;
 	}
 
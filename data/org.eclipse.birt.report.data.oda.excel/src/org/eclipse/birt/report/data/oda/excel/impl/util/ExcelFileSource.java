@@ -51,7 +51,7 @@ public class ExcelFileSource {
 	private int[] selectColumIndexes;
 	private String[] originalColumnNames;
 	private boolean isFirstTimeToReadSourceData = true;
-	private List<String> nextDataLine;
+	private List<Object> nextDataLine;
 
 	// use Object type in case ResourceIdentifiers instance was loaded by a different classloader
     private Object resourceIdentifiers;
@@ -279,18 +279,25 @@ public class ExcelFileSource {
 	 * @return
 	 * @throws OdaException
 	 */
-	public String[][] getSourceData() throws OdaException {
+	public Object[][] getSourceData() throws OdaException {
+		boolean endOfData = true;
 		try {
 			initialiseReader();
-			List<String[]> v = fetchQueriedDataFromFileToList();
+			List<Object[]> v = fetchQueriedDataFromFileToList();
+			// the reader stays open for the next fetch, a xlsx reader would
+			// otherwise parse the sheets again up to the current row
+			endOfData = nextDataLine == null
+					|| ( this.maxRowsToRead > 0 && this.fetchCounter >= this.maxRowsToRead );
 			return copyDataFromListToTwoDimensionArray(v);
 		} catch (IOException e) {
 			throw new OdaException(e);
 		} finally {
-			try {
-				excelFileReader.close();
-			} catch (IOException e) {
-				//
+			if (endOfData) {
+				try {
+					excelFileReader.close();
+				} catch (IOException e) {
+					//
+				}
 			}
 		}
 	}
@@ -300,8 +307,8 @@ public class ExcelFileSource {
 	 * @return
 	 * @throws OdaException
 	 */
-	private List<String[]> fetchQueriedDataFromFileToList() throws OdaException {
-		List<String[]> result = new ArrayList<String[]>();
+	private List<Object[]> fetchQueriedDataFromFileToList() throws OdaException {
+		List<Object[]> result = new ArrayList<Object[]>();
 		try {
 			if (isFirstTimeToReadSourceData) {
 				excelFileReader.setCurrentRowIndex(0);
@@ -325,13 +332,13 @@ public class ExcelFileSource {
 				}
 
 				if (!this.hasColumnNames) {
-					while (isEmptyRow(nextDataLine = excelFileReader.readLine())) {
+					while (isEmptyRow(nextDataLine = excelFileReader.readRow())) {
 						continue;
 					}
 					this.originalColumnNames = createTempColumnNames(nextDataLine);
 					initNameIndexMap();
 				} else {
-					nextDataLine = excelFileReader.readLine();
+					nextDataLine = excelFileReader.readRow();
 				}
 				excelFileReader.setMaxColumnIndex(originalColumnNames.length);
 				isFirstTimeToReadSourceData = false;
@@ -350,7 +357,7 @@ public class ExcelFileSource {
 					fetchCounter++;
 					result.add(fetchQueriedDataFromRow(nextDataLine));
 				}
-				nextDataLine = excelFileReader.readLine();
+				nextDataLine = excelFileReader.readRow();
 			}
 
 			return result;
@@ -361,21 +368,23 @@ public class ExcelFileSource {
 
 	/**
 	 * Feed the row data from a List to a two-dimension array. The string value
-	 * is trimmed before being copied into array.
+	 * is trimmed before being copied into array, the other cell values are
+	 * copied as they are read.
 	 *
 	 * @param v
-	 * @return a String two dimension array with each horizontal array contains
-	 *         a row
+	 * @return a two dimension array with each horizontal array contains a row
 	 * @throws OdaException
 	 */
-	private String[][] copyDataFromListToTwoDimensionArray(List<String[]> v)
+	private Object[][] copyDataFromListToTwoDimensionArray(List<Object[]> v)
 			throws OdaException {
-		String[][] rowSet = new String[v.size()][this.rsmd.getColumnCount()];
+		Object[][] rowSet = new Object[v.size()][this.rsmd.getColumnCount()];
 		for (int i = 0; i < v.size(); i++) {
-			String[] temp = (String[]) v.get(i);
+			Object[] temp = v.get(i);
 			for (int j = 0; j < temp.length; j++) {
-				if (temp[j] != null)
-					rowSet[i][j] = temp[j].trim();
+				if (temp[j] instanceof String)
+					rowSet[i][j] = ((String) temp[j]).trim();
+				else if (temp[j] != null)
+					rowSet[i][j] = temp[j];
 				else
 					throw new OdaException(
 							Messages.getString("data_read_error")); //$NON-NLS-1$
@@ -406,7 +415,7 @@ public class ExcelFileSource {
 	 * @return
 	 * @throws OdaException
 	 */
-	private String[] createTempColumnNames(List<String> aRow)
+	private String[] createTempColumnNames(List<?> aRow)
 			throws OdaException {
 		String[] tempColumnNames = new String[aRow.size()];
 
@@ -431,9 +440,9 @@ public class ExcelFileSource {
 	 *         row. The "specified column names" are obtained from meta data
 	 * @throws OdaException
 	 */
-	private String[] fetchQueriedDataFromRow(List<String> aRow)
+	private Object[] fetchQueriedDataFromRow(List<Object> aRow)
 			throws OdaException {
-		String[] sArray = new String[rsmd.getColumnCount()];
+		Object[] sArray = new Object[rsmd.getColumnCount()];
 		for (int i = 0; i < sArray.length; i++) {
 			int location = selectColumIndexes[i];
 			if (location != -1) {
@@ -441,7 +450,7 @@ public class ExcelFileSource {
 					throw new OdaException(
 							Messages.getString("query_INVALID_EXCEL_FILE")); //$NON-NLS-1$
 				} else {
-					sArray[i] = aRow.get(location).toString();
+					sArray[i] = aRow.get(location);
 				}
 			}
 		}
@@ -540,12 +549,12 @@ public class ExcelFileSource {
 	 * @return
 	 * @throws OdaException
 	 */
-	public boolean isEmptyRow(List<String> line) throws OdaException {
+	public boolean isEmptyRow(List<?> line) throws OdaException {
 		if (line == null)
 			throw new OdaException(
 					Messages.getString("query_INVALID_EXCEL_FILE")); //$NON-NLS-1$
 
-		return line.isEmpty() || (line.size() == 1 && line.get(0).equals("")); //$NON-NLS-1$
+		return line.isEmpty() || (line.size() == 1 && "".equals(line.get(0))); //$NON-NLS-1$
 	}
 
 	public void close() throws OdaException {
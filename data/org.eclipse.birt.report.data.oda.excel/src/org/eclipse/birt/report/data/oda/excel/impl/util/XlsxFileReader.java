@@ -18,7 +18,6 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.LinkedHashMap;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
@@ -39,13 +38,15 @@ import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLReaderFactory;
 
-import com.ibm.icu.text.SimpleDateFormat;
-
 public class XlsxFileReader {
     final static String PARSER_CLASS_NAME = "org.apache.xerces.parsers.SAXParser"; //$NON-NLS-1$
     final static String ROW_LIMIT_REACHED_EX_MSG = "Row Limit Reached"; //$NON-NLS-1$
+    final static String READ_CANCELLED_EX_MSG = "Read Cancelled"; //$NON-NLS-1$
+    final static String COLUMN_COUNT_FOUND_EX_MSG = "Column Count Found"; //$NON-NLS-1$
 
     final private XSSFReader reader;
+    private SharedStringsTable sst;
+    private StylesTable st;
 
 	enum cDataType {
 		BOOL,
@@ -81,8 +82,11 @@ public class XlsxFileReader {
 
 	public void processSheet(String rid, XlsxRowCallBack callback, int xlsxRowsToRead)
 			throws InvalidFormatException, IOException, SAXException {
-		SharedStringsTable sst = reader.getSharedStringsTable();
-		StylesTable st = reader.getStylesTable();
+		// the tables are parsed once and shared by all the sheets
+		if (sst == null) {
+			sst = reader.getSharedStringsTable();
+			st = reader.getStylesTable();
+		}
 
 		XMLReader parser = fetchSheetParser(st, sst, callback, xlsxRowsToRead);
 		BufferedInputStream sheet = new BufferedInputStream(reader.getSheet(rid));
@@ -96,6 +100,35 @@ public class XlsxFileReader {
 	}
 
 	
+	/**
+	 * Returns the number of columns of a sheet, from the widest of its first
+	 * XLSX_COLUMN_SCAN_ROWS rows. The dimension element is only used to stop
+	 * the scan early, when a cell of its last column is found: it is written
+	 * by the application which saved the file and may be far wider than the
+	 * cells.
+	 */
+	public int getColumnCount(String rid, XlsxRowCallBack callback,
+			int xlsxRowsToRead) throws InvalidFormatException, IOException,
+			SAXException {
+		ColumnCountHandler handler = new ColumnCountHandler(callback,
+				xlsxRowsToRead);
+		XMLReader parser = getXMLReader( );
+		parser.setContentHandler(handler);
+		BufferedInputStream sheet = new BufferedInputStream(reader.getSheet(rid));
+		try {
+			InputSource sheetSource = new InputSource(sheet);
+			parser.parse(sheetSource);
+		} catch (SAXException e) {
+			if (!COLUMN_COUNT_FOUND_EX_MSG.equals(e.getMessage())
+					&& !ROW_LIMIT_REACHED_EX_MSG.equals(e.getMessage()))
+				throw e;
+		} finally {
+			if (sheet != null)
+				sheet.close();
+		}
+		return handler.columnCount;
+	}
+
 	private XMLReader getXMLReader( ) throws SAXException
 	{
 		try
@@ -143,13 +176,12 @@ public class XlsxFileReader {
 		final private SharedStringsTable sst;
 		final private StylesTable st;
 		final private XlsxRowCallBack callback;
-		private String lastContents;
+		private StringBuilder lastContents = new StringBuilder();
 		private ArrayList<Object> values;
 		private int currentColumn = 0;
 		private int xlsxRowsToRead=0;
 		private int currentXlsxRowNumber = 0;
-        private SimpleDateFormat sdf; 
-		
+
 		private SheetHandler(StylesTable st, SharedStringsTable sst, XlsxRowCallBack callback, int xlsxRowsToRead) {
 			this.sst = sst;
 			this.st = st;
@@ -157,7 +189,8 @@ public class XlsxFileReader {
 			values = new ArrayList<Object>();
 			this.cellDataType = cDataType.NUMBER;
 			this.xlsxRowsToRead = xlsxRowsToRead;
-			sdf = new SimpleDateFormat( "yyyy-MM-dd'T'HH:mm:ssZ" );//ISO date format
+			// start with the width found before the rows are parsed
+			this.columnCount = Math.max(1, callback.getColumnCount());
 		}
 
 		public void startElement(String uri, String localName, String qName,
@@ -218,13 +251,16 @@ public class XlsxFileReader {
 					values.add(i, ExcelODAConstants.EMPTY_STRING);
 				}
 			}
-			lastContents = ExcelODAConstants.EMPTY_STRING;
+			lastContents.setLength(0);
 		}
 
 		public void endElement(String uri, String localName, String name)
 				throws SAXException {
 			if (name.equals("row")) {
 				callback.handleRow(values);
+				if (callback.isCancelled()) {
+					throw new SAXException(READ_CANCELLED_EX_MSG);
+				}
 				values.clear();
 				currentColumn = -1;
 				currentXlsxRowNumber++;
@@ -239,7 +275,8 @@ public class XlsxFileReader {
 				return;
 			} else if (name.equals("v")) {
 
-				String val = ExcelODAConstants.EMPTY_STRING;
+				Object val = ExcelODAConstants.EMPTY_STRING;
+				String lastContents = this.lastContents.toString();
 
 				// Process the last contents as required.
 				// Do now, as characters() may be called more than once
@@ -248,28 +285,31 @@ public class XlsxFileReader {
 					idx = Integer.parseInt(lastContents);
 					val = new XSSFRichTextString(sst.getEntryAt(idx))
 							.toString();
-				} else if (cellDataType == cDataType.STATIC
-						|| cellDataType == cDataType.NUMBER) {
+				} else if (cellDataType == cDataType.STATIC) {
 					val = lastContents;
+				} else if (cellDataType == cDataType.NUMBER) {
+					// the value is parsed once here, the result set returns
+					// it without converting it from text again
+					try {
+						val = Double.valueOf(lastContents);
+					} catch (NumberFormatException e) {
+						val = lastContents;
+					}
 				}else if( cellDataType == cDataType.DATETIME || cellDataType == cDataType.DATE || cellDataType == cDataType.TIME ){
 
-					Date myjavadate = org.apache.poi.ss.usermodel.DateUtil.getJavaDate(Double.parseDouble(lastContents));
-					val = sdf.format( myjavadate );
+					val = org.apache.poi.ss.usermodel.DateUtil.getJavaDate(Double.parseDouble(lastContents));
 				}else if( cellDataType == cDataType.BOOL ){
 					if( lastContents.compareTo("1") == 0){
-						Boolean mybool = new Boolean(true);
-						val = mybool.toString();
+						val = Boolean.TRUE;
 					}else if( lastContents.compareTo("0") == 0 ){
-						Boolean mybool = new Boolean(false);
-						val = mybool.toString();
+						val = Boolean.FALSE;
 					}
 				}
 
 				// v => contents of a cell
 				if (val != null) {
 					if( currentColumn != -1){
-						values.remove(currentColumn);
-						values.add(currentColumn, val);
+						values.set(currentColumn, val);
 					}
 				}
 			}
@@ -277,10 +317,10 @@ public class XlsxFileReader {
 
 		public void characters(char[] ch, int start, int length)
 				throws SAXException {
-			lastContents += new String(ch, start, length);
+			lastContents.append(ch, start, length);
 		}
 
-		private int getColumnNumber(String colname) {
+		private static int getColumnNumber(String colname) {
 			int tmpcol = 0;
 			String drpNumber = colname;
 			for (int ch = 0; ch < colname.length(); ++ch) {
@@ -300,6 +340,64 @@ public class XlsxFileReader {
 		}
 	}
 
+	/**
+	 * Finds the number of columns of a sheet from the cells of its first
+	 * rows. The scan stops once a cell reaches the last column of the
+	 * dimension element, which precedes the rows.
+	 */
+	private static class ColumnCountHandler extends DefaultHandler {
+		final private XlsxRowCallBack callback;
+		private int columnCount = 0;
+		private int dimensionColumnCount = 0;
+		private int xlsxRowsToRead;
+		private int currentXlsxRowNumber = 0;
+
+		private ColumnCountHandler(XlsxRowCallBack callback, int xlsxRowsToRead) {
+			this.callback = callback;
+			this.xlsxRowsToRead = xlsxRowsToRead;
+		}
+
+		public void startElement(String uri, String localName, String qName,
+				Attributes attributes) throws SAXException {
+			// <dimension ref="A1:F20"/>
+			if (qName.equals("dimension")) {
+				String ref = attributes.getValue("ref");
+				int colon = ref == null ? -1 : ref.indexOf(':');
+				if (colon > 0) {
+					dimensionColumnCount = SheetHandler.getColumnNumber(ref
+							.substring(colon + 1)) + 1;
+				}
+			} else if (qName.equals("c")) {
+				String r = attributes.getValue("r");
+				if (r != null) {
+					columnCount = Math.max(columnCount,
+							SheetHandler.getColumnNumber(r) + 1);
+					if (dimensionColumnCount > 0
+							&& columnCount >= dimensionColumnCount) {
+						throw new SAXException(COLUMN_COUNT_FOUND_EX_MSG);
+					}
+				}
+			}
+		}
+
+		public void endElement(String uri, String localName, String name)
+				throws SAXException {
+			if (name.equals("row")) {
+				if (callback.isCancelled()) {
+					throw new SAXException(READ_CANCELLED_EX_MSG);
+				}
+				currentXlsxRowNumber++;
+				if (xlsxRowsToRead > 0
+						&& currentXlsxRowNumber > xlsxRowsToRead) {
+					throw new SAXException(ROW_LIMIT_REACHED_EX_MSG);
+				}
+				if (currentXlsxRowNumber >= ExcelODAConstants.XLSX_COLUMN_SCAN_ROWS) {
+					throw new SAXException(COLUMN_COUNT_FOUND_EX_MSG);
+				}
+			}
+		}
+	}
+
 	/**
 	 * See org.xml.sax.helpers.DefaultHandler javadocs
 	 */
@@ -13,63 +13,157 @@
 
 package org.eclipse.birt.report.data.oda.excel.impl.util;
 
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.eclipse.birt.report.data.oda.excel.ExcelODAConstants;
 
+/**
+ * Passes the rows of a xlsx sheet from the SAX parser to the reader. The
+ * parser runs in its own thread and blocks when it is more than
+ * XLSX_ROW_QUEUE_SIZE rows ahead of the reader, so the rows can be read while
+ * the sheet is still being parsed and the whole sheet is never kept in memory.
+ */
 public class XlsxRowCallBack implements RowCallBack {
-	private ArrayList<String[]> xlsxRowData = new ArrayList<String[]>();
+	private static final Object[] END_OF_ROWS = new Object[0];
+
+	private BlockingQueue<Object[]> xlsxRowData;
+	private Thread parserThread;
+	private volatile boolean cancelled;
+	private volatile Throwable error;
+	private volatile int columnCount;
+	private boolean finished;
+
+	public XlsxRowCallBack() {
+		this(ExcelODAConstants.XLSX_ROW_QUEUE_SIZE);
+	}
+
+	public XlsxRowCallBack(int queueSize) {
+		xlsxRowData = new ArrayBlockingQueue<Object[]>(queueSize);
+	}
 
 	public void handleRow(List<Object> values) {
 
-		if (values == null || values.size() == 0) {
+		if (values == null || values.size() == 0 || cancelled) {
 			return;
 		}
-		String[] valArray = new String[values.size()];
-		values.toArray(valArray);
-		xlsxRowData.add(valArray);
+		put(values.toArray());
 	}
 
-	public XlsxRowCallBack() {}
+	/**
+	 * Runs the parser in a new thread. The parser must call endOfRows when it
+	 * finishes, and stop as soon as isCancelled returns true.
+	 *
+	 * @param parser
+	 */
+	public void start(Runnable parser) {
+		parserThread = new Thread(parser, "Excel ODA xlsx reader"); //$NON-NLS-1$
+		parserThread.setDaemon(true);
+		parserThread.start();
+	}
 
-	public ArrayList<String> initArrayList(String[] strings) {
-		ArrayList<String> list = new ArrayList<String>();
-		for (String i : strings) {
-			list.add(i);
+	/**
+	 * Called by the parser when all the rows have been handled.
+	 *
+	 * @param error
+	 *            the error which stopped the parser, null if there is none
+	 */
+	public void endOfRows(Throwable error) {
+		this.error = error;
+		if (!cancelled) {
+			put(END_OF_ROWS);
 		}
-		return list;
 	}
 
-	public int getMaxRowsInSheet() {
-		return (xlsxRowData.size());
+	// Need this function because there is no easy way of determining the number of columns in xlsx with SAX Parser.
+	// The rows read after the expansion are given the new number of columns.
+	public void columnExpansion(int newColumnCount) {
+		if (newColumnCount > columnCount) {
+			columnCount = newColumnCount;
+		}
 	}
 
-	public ArrayList<String> getRow(int rownum) {
-		return (initArrayList(xlsxRowData.get(rownum)));
+	public int getColumnCount() {
+		return columnCount;
 	}
 
-	// Need this function because there is no easy way of determining the number of columns in xlsx with SAX Parser.
-	// This function expands all the previous data rows with blanks.
-	public void columnExpansion(int newColumnCount){
-		for(int i=0;i<xlsxRowData.size();i++)
-		{
-			String[] currentRow =(String[])xlsxRowData.get(i);
-			if( currentRow.length < newColumnCount){
-				String[] newRow = new String[newColumnCount];
-				//put in fake column names
-				if( i==0 ){
-					for (int j=0; j< newRow.length; j++){
-						newRow[j] = "column_"+j;
-					}
-				}else{
-					for (int j=0; j< newRow.length; j++) newRow[j] = ExcelODAConstants.EMPTY_STRING;
-				}
-				for (int g=0; g< currentRow.length; g++) newRow[g] = currentRow[g];
-				xlsxRowData.remove(i);
-				xlsxRowData.add(i, newRow);
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Stops the parser and discards the rows which have not been read.
+	 */
+	public void cancel() {
+		cancelled = true;
+		if (parserThread != null) {
+			parserThread.interrupt();
+			xlsxRowData.clear();
+			try {
+				parserThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 			}
+			parserThread = null;
+		}
+		xlsxRowData.clear();
+	}
+
+	/**
+	 * Returns the next row, waiting for the parser if needed. The row is
+	 * expanded to the number of columns found so far. The cells are String,
+	 * Double, Boolean or Date values.
+	 *
+	 * @return the row, null if there are no more rows or the parser failed
+	 * @throws InterruptedIOException
+	 */
+	public ArrayList<Object> nextRow() throws InterruptedIOException {
+		if (finished) {
+			return null;
+		}
+		Object[] row;
+		try {
+			row = xlsxRowData.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		if (row == END_OF_ROWS) {
+			finished = true;
+			return null;
+		}
+		ArrayList<Object> list = initArrayList(row);
+		for (int i = list.size(); i < columnCount; i++) {
+			list.add(ExcelODAConstants.EMPTY_STRING);
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the error which stopped the parser, it is set when nextRow
+	 * returns null.
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	public ArrayList<Object> initArrayList(Object[] values) {
+		ArrayList<Object> list = new ArrayList<Object>(Math.max(values.length, columnCount));
+		for (Object i : values) {
+			list.add(i);
+		}
+		return list;
+	}
+
+	private void put(Object[] row) {
+		try {
+			xlsxRowData.put(row);
+		} catch (InterruptedException e) {
+			cancelled = true;
 		}
 	}
 
-}
\ No newline at end of file
+}
@@ -218,7 +218,7 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 		}
 		else
 		{
-			jsScope = context.newObject( parent );
+			jsScope = getCurrentContext( ).newObject( parent );
 		}
 		jsScope.setParentScope( parent );
 		return jsScope;
@@ -232,12 +232,13 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 	public CompiledJavascript compile( ScriptContext scriptContext,
 			final String id, final int lineNumber, final String script ) throws BirtException
 	{
+		final Context cx = getCurrentContext( );
 		Script scriptObject = AccessController
 				.doPrivileged( new PrivilegedAction<Script>( ) {
 
 					public Script run( )
 					{
-						return context.compileString( script, id, lineNumber,
+						return cx.compileString( script, id, lineNumber,
 								ScriptUtil.getSecurityDomain( id ) );
 					}
 				} );
@@ -266,7 +267,7 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 		//Register writeStatus method in root context.
 		if ( parent == null )
 		{
-			cachedScript.exec( this.context, jsScope );
+			cachedScript.exec( getCurrentContext( ), jsScope );
 		}
 		Map<String, Object> attrs = context.getAttributes( );
 		for ( Entry<String, Object> entry : attrs.entrySet( ) )
@@ -288,7 +289,8 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 		{
 			Script script = ( (CompiledJavascript) compiledScript )
 					.getCompiledScript( );
-			Object value = script.exec( context, getJSScope( scriptContext ) );
+			Object value = script.exec( getCurrentContext( ),
+					getJSScope( scriptContext ) );
 			return jsToJava( value );
 		}
 		catch ( Throwable e )
@@ -374,7 +376,19 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 
 	public Context getJSContext( ScriptContext scriptContext )
 	{
-		return context;
+		return getCurrentContext( );
+	}
+
+	/**
+	 * The context is entered by the thread creating the engine, a Rhino
+	 * context must not be used by other threads. Another thread running the
+	 * scripts of the same engine, such as a query prefetching thread, enters
+	 * its own context, which is used instead.
+	 */
+	private Context getCurrentContext( )
+	{
+		Context cx = Context.getCurrentContext( );
+		return cx != null ? cx : context;
 	}
 
 	public Scriptable getJSScope( ScriptContext scriptContext )
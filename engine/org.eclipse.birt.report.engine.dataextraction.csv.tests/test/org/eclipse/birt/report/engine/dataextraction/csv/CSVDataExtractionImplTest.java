@@ -24,10 +24,13 @@ import java.sql.SQLException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
 
 import javax.sql.rowset.serial.SerialBlob;
 import javax.sql.rowset.serial.SerialException;
@@ -41,6 +44,7 @@ import org.eclipse.birt.report.engine.api.IResultMetaData;
 import org.eclipse.birt.report.engine.dataextraction.CSVDataExtractionOption;
 import org.eclipse.birt.report.engine.dataextraction.ICSVDataExtractionOption;
 import org.eclipse.birt.report.engine.dataextraction.ICommonDataExtractionOption;
+import org.eclipse.birt.report.engine.dataextraction.IDataExtractionProgressListener;
 import org.eclipse.birt.report.engine.dataextraction.csv.mock.MockExtractionResults;
 
 import junit.framework.TestCase;
@@ -514,6 +518,42 @@ public class CSVDataExtractionImplTest extends TestCase
 		subtestRegular( option, "testRegularTab.csv" ); //$NON-NLS-1$
 	}
 
+	public void testOutputGZip() throws Exception
+	{
+		option.setLocaleNeutralFormat( true );
+		option.setGZip( true );
+		CSVDataExtractionImpl extract = createExtraction( out, option );
+		extract.output( results );
+
+		GZIPInputStream input = new GZIPInputStream( new ByteArrayInputStream(
+				out.toByteArray( ) ) );
+		ByteArrayOutputStream content = new ByteArrayOutputStream( );
+		byte[] buffer = new byte[1024];
+		int size;
+		while ( ( size = input.read( buffer ) ) != -1 )
+		{
+			content.write( buffer, 0, size );
+		}
+		assertFileContent( ROOT_FOLDER + "testRegular.csv", content.toByteArray( ) ); //$NON-NLS-1$
+	}
+
+	public void testOutputProgress() throws Exception
+	{
+		final List<String> events = new ArrayList<String>( );
+		option.setProgressInterval( 3 );
+		option.setProgressListener( new IDataExtractionProgressListener( ) {
+
+			public void onProgress( long rowCount, boolean finished )
+			{
+				events.add( rowCount + ":" + finished ); //$NON-NLS-1$
+			}
+		} );
+		subtestRegular( option, "testRegular.csv" ); //$NON-NLS-1$
+		assertEquals( 2, events.size( ) );
+		assertEquals( "3:false", events.get( 0 ) ); //$NON-NLS-1$
+		assertEquals( "4:true", events.get( 1 ) ); //$NON-NLS-1$
+	}
+
 	/**
 	 * @throws BirtException
 	 */
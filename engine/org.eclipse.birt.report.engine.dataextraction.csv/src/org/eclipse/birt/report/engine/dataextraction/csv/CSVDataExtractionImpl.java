@@ -12,13 +12,13 @@ package org.eclipse.birt.report.engine.dataextraction.csv;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.zip.GZIPOutputStream;
 
 import org.eclipse.birt.core.data.DataType;
 import org.eclipse.birt.core.exception.BirtException;
@@ -29,6 +29,7 @@ import org.eclipse.birt.report.engine.api.IResultMetaData;
 import org.eclipse.birt.report.engine.api.script.IReportContext;
 import org.eclipse.birt.report.engine.dataextraction.CSVDataExtractionOption;
 import org.eclipse.birt.report.engine.dataextraction.ICSVDataExtractionOption;
+import org.eclipse.birt.report.engine.dataextraction.IDataExtractionProgressListener;
 import org.eclipse.birt.report.engine.dataextraction.ICommonDataExtractionOption;
 import org.eclipse.birt.report.engine.dataextraction.i18n.Messages;
 import org.eclipse.birt.report.engine.dataextraction.impl.CommonDataExtractionImpl;
@@ -49,6 +50,9 @@ public class CSVDataExtractionImpl extends CommonDataExtractionImpl
 	private boolean isExportColumnHeader;
 	private String[] selectedColumnNames;
 	private int columnLocalizeOption;
+	private boolean gzip;
+	private IDataExtractionProgressListener progressListener;
+	private int progressInterval;
 	
 	/**
 	 * @see org.eclipse.birt.report.engine.extension.IDataExtractionExtension#initialize(org.eclipse.birt.report.engine.api.script.IReportContext,
@@ -105,6 +109,13 @@ public class CSVDataExtractionImpl extends CommonDataExtractionImpl
 		isExportColumnHeader = csvOptions.isExportColumnHeader( );
 		selectedColumnNames = csvOptions.getSelectedColumns( );
 		columnLocalizeOption = csvOptions.getColumnLocalizeOption( );
+		gzip = csvOptions.isGZip( );
+		progressListener = csvOptions.getProgressListener( );
+		progressInterval = csvOptions.getProgressInterval( );
+		if ( progressInterval <= 0 )
+		{
+			progressInterval = 10000;
+		}
 	}
 
 	/**
@@ -169,18 +180,25 @@ public class CSVDataExtractionImpl extends CommonDataExtractionImpl
 				iData = results.nextResultIterator( );
 				if ( iData != null && columnNames.length > 0 )
 				{
+					OutputStream out = outputStream;
+					GZIPOutputStream gzipStream = null;
+					if ( gzip )
+					{
+						gzipStream = new GZIPOutputStream( outputStream,
+								CSVWriter.DEFAULT_BUFFER_SIZE );
+						out = gzipStream;
+					}
+					CSVWriter writer = new CSVWriter( out, encoding, sep, addCR );
 					if ( isExportColumnHeader )
 					{
 						if ( ( columnLocalizeOption & ICommonDataExtractionOption.OPTION_COLUMN_NAME ) != 0 )
 						{
-							output( CSVUtil.makeCSVRow( columnNames, sep, addCR ) );
+							writer.writeRow( columnNames );
 						}
 
 						if ( ( columnLocalizeOption & ICommonDataExtractionOption.OPTION_COLUMN_DISPLAY_NAME ) != 0 )
 						{
-							output( CSVUtil.makeCSVRow( columnLabels,
-									sep,
-									addCR ) );
+							writer.writeRow( columnLabels );
 						}
 					}
 
@@ -188,27 +206,56 @@ public class CSVDataExtractionImpl extends CommonDataExtractionImpl
 					// Column data type
 					if ( isExportDataType )
 					{
-						output( makeDataTypesRow( columnTypes ) );
+						writer.writeRow( getDataTypeNames( columnTypes ) );
 					}
 					
 					// Data
-					String[] values = new String[columnNames.length];
 					createFormatters( columnNames, columnTypes );
+					boolean[] neutralColumns = getLocaleNeutralColumns( columnNames.length );
+					long rowCount = 0;
 					while ( iData.next( ) )
 					{
 						for ( int i = 0; i < columnNames.length; i++ )
 						{
-							if ( columnTypes[i] != DataType.BLOB_TYPE && columnTypes[i] != DataType.BINARY_TYPE  )
+							if ( columnTypes[i] == DataType.BLOB_TYPE
+									|| columnTypes[i] == DataType.BINARY_TYPE )
+							{
+								writer.writeValue( null );
+								continue;
+							}
+							Object value = iData.getValue( columnNames[i] );
+							if ( value == null )
+							{
+								writer.writeValue( null );
+							}
+							else if ( neutralColumns[i]
+									&& ( value instanceof Integer || value instanceof Long ) )
 							{
-								values[i] = getStringValue( iData, columnNames, i );
+								// the locale neutral format of the integers
+								writer.writeValue( ( (Number) value ).longValue( ) );
 							}
 							else
 							{
-								values[i] = null;
+								writer.writeValue( formatValue( value, i ) );
 							}
 						}
-						
-						output( CSVUtil.makeCSVRow( values, sep, addCR ) );
+						writer.endRow( );
+
+						rowCount++;
+						if ( progressListener != null
+								&& rowCount % progressInterval == 0 )
+						{
+							progressListener.onProgress( rowCount, false );
+						}
+					}
+					writer.flush( );
+					if ( gzipStream != null )
+					{
+						gzipStream.finish( );
+					}
+					if ( progressListener != null )
+					{
+						progressListener.onProgress( rowCount, true );
 					}
 				}
 			}
@@ -223,18 +270,34 @@ public class CSVDataExtractionImpl extends CommonDataExtractionImpl
 	}
 
 	/**
-	 * Creates a CSV-row containing the data type names of the given types array.
-	 * @param types column typee array
-	 * @return CSV-row containing the data type names the result set
+	 * Returns the data type names of the given types array.
+	 * @param types column type array
+	 * @return the data type names the result set
 	 */
-	private String makeDataTypesRow( int[] types )
+	private String[] getDataTypeNames( int[] types )
 	{
 		String[] values = new String[types.length];
 		for ( int i = 0; i < types.length; i++ )
 		{
 			values[i] = DataType.getName( types[i] );
 		}
-		return CSVUtil.makeCSVRow( values, sep, addCR );
+		return values;
+	}
+
+	/**
+	 * Returns the locale neutral columns, their integer values are written
+	 * without the formatter.
+	 * @param count column count
+	 * @return flags of the columns
+	 */
+	private boolean[] getLocaleNeutralColumns( int count )
+	{
+		boolean[] flags = new boolean[count];
+		for ( int i = 0; i < count; i++ )
+		{
+			flags[i] = isLocaleNeutralColumn( i );
+		}
+		return flags;
 	}
 	
 	/**
@@ -273,16 +336,4 @@ public class CSVDataExtractionImpl extends CommonDataExtractionImpl
 		}
 		return types;
 	}
-
-	/**
-	 * Outputs a given String to the output stream using the configured
-	 * encoding.
-	 * @param s string to output
-	 * @throws IOException
-	 * @throws UnsupportedEncodingException
-	 */
-	private void output( String s ) throws IOException, UnsupportedEncodingException
-	{
-		outputStream.write( s.getBytes( encoding ) );
-	}
 }
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.report.engine.dataextraction.csv;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes the CSV rows into a stream.
+ * <p>
+ * The values are quoted by the same rules as CSVUtil.quoteCSVValue, but they
+ * are appended to a reusable char buffer instead of creating the strings of
+ * the rows. The chars are encoded into a byte buffer when the char buffer is
+ * full, and the bytes are written into the stream when the byte buffer is
+ * full. The unmappable chars are replaced the same as String.getBytes.
+ */
+public class CSVWriter
+{
+
+	public static final int DEFAULT_BUFFER_SIZE = 128 * 1024;
+
+	private OutputStream out;
+	private CharsetEncoder encoder;
+	private CharBuffer chars;
+	private ByteBuffer bytes;
+
+	private String sep;
+	private boolean addCR;
+
+	/**
+	 * the count of the values in the current row.
+	 */
+	private int columnCount;
+
+	/**
+	 * used to format the numbers.
+	 */
+	private char[] digits = new char[20];
+
+	/**
+	 * @param out
+	 *            the output stream, it isn't closed by the writer
+	 * @param encoding
+	 *            the encoding of the output
+	 * @param sep
+	 *            the separator of the values
+	 * @param addCR
+	 *            if use CR + LF as the line break
+	 */
+	public CSVWriter( OutputStream out, String encoding, String sep,
+			boolean addCR )
+	{
+		this( out, encoding, sep, addCR, DEFAULT_BUFFER_SIZE );
+	}
+
+	public CSVWriter( OutputStream out, String encoding, String sep,
+			boolean addCR, int bufferSize )
+	{
+		this.out = out;
+		this.sep = sep;
+		this.addCR = addCR;
+		encoder = Charset.forName( encoding ).newEncoder( );
+		encoder.onMalformedInput( CodingErrorAction.REPLACE );
+		encoder.onUnmappableCharacter( CodingErrorAction.REPLACE );
+		chars = CharBuffer.allocate( bufferSize );
+		bytes = ByteBuffer.allocate( Math.max( bufferSize,
+				(int) Math.ceil( encoder.maxBytesPerChar( ) ) * 16 ) );
+	}
+
+	/**
+	 * writes a row of the values.
+	 */
+	public void writeRow( String[] values ) throws IOException
+	{
+		for ( int i = 0; i < values.length; i++ )
+		{
+			writeValue( values[i] );
+		}
+		endRow( );
+	}
+
+	/**
+	 * writes a value of the current row, null value is written as empty.
+	 */
+	public void writeValue( String value ) throws IOException
+	{
+		writeSeparator( );
+		if ( value == null )
+		{
+			return;
+		}
+		int length = value.length( );
+		if ( length == 0 )
+		{
+			append( '"' );
+			append( '"' );
+			return;
+		}
+		if ( needQuote( value ) )
+		{
+			append( '"' );
+			for ( int i = 0; i < length; i++ )
+			{
+				char ch = value.charAt( i );
+				if ( ch == '"' )
+				{
+					append( '"' );
+				}
+				append( ch );
+			}
+			append( '"' );
+		}
+		else
+		{
+			append( value );
+		}
+	}
+
+	/**
+	 * writes a number of the current row, it is the same as
+	 * writeValue( Long.toString( value ) ).
+	 */
+	public void writeValue( long value ) throws IOException
+	{
+		if ( value == Long.MIN_VALUE || sep.indexOf( '-' ) != -1
+				|| Character.isDigit( sep.charAt( 0 ) ) )
+		{
+			writeValue( Long.toString( value ) );
+			return;
+		}
+		writeSeparator( );
+		boolean negative = value < 0;
+		if ( negative )
+		{
+			value = -value;
+		}
+		int pos = digits.length;
+		do
+		{
+			digits[--pos] = (char) ( '0' + value % 10 );
+			value /= 10;
+		} while ( value != 0 );
+		if ( negative )
+		{
+			digits[--pos] = '-';
+		}
+		if ( chars.remaining( ) < digits.length - pos )
+		{
+			encode( false );
+		}
+		chars.put( digits, pos, digits.length - pos );
+	}
+
+	/**
+	 * ends the current row.
+	 */
+	public void endRow( ) throws IOException
+	{
+		if ( addCR )
+		{
+			append( '\r' );
+		}
+		append( '\n' );
+		columnCount = 0;
+	}
+
+	/**
+	 * writes all the buffered data into the stream. It is called once all the
+	 * rows are written, as the encoder is reset for a new output.
+	 */
+	public void flush( ) throws IOException
+	{
+		encode( true );
+		while ( encoder.flush( bytes ).isOverflow( ) )
+		{
+			writeBytes( );
+		}
+		writeBytes( );
+		encoder.reset( );
+		out.flush( );
+	}
+
+	private boolean needQuote( String value )
+	{
+		char first = value.charAt( 0 );
+		char last = value.charAt( value.length( ) - 1 );
+		return first == ' ' || first == '\t' || last == ' ' || last == '\t'
+				|| value.indexOf( '"' ) != -1 || value.indexOf( '\n' ) != -1
+				|| value.indexOf( sep ) != -1;
+	}
+
+	private void writeSeparator( ) throws IOException
+	{
+		if ( columnCount++ > 0 )
+		{
+			append( sep );
+		}
+	}
+
+	private void append( char ch ) throws IOException
+	{
+		if ( !chars.hasRemaining( ) )
+		{
+			encode( false );
+		}
+		chars.put( ch );
+	}
+
+	private void append( String value ) throws IOException
+	{
+		int offset = 0;
+		int length = value.length( );
+		while ( offset < length )
+		{
+			if ( !chars.hasRemaining( ) )
+			{
+				encode( false );
+			}
+			int size = Math.min( length - offset, chars.remaining( ) );
+			chars.put( value, offset, offset + size );
+			offset += size;
+		}
+	}
+
+	/**
+	 * encodes the chars in the buffer. A high surrogate at the end of the
+	 * buffer is kept until the next char is appended.
+	 */
+	private void encode( boolean endOfInput ) throws IOException
+	{
+		chars.flip( );
+		while ( true )
+		{
+			CoderResult result = encoder.encode( chars, bytes, endOfInput );
+			if ( result.isOverflow( ) )
+			{
+				writeBytes( );
+			}
+			else
+			{
+				break;
+			}
+		}
+		chars.compact( );
+	}
+
+	private void writeBytes( ) throws IOException
+	{
+		if ( bytes.position( ) > 0 )
+		{
+			out.write( bytes.array( ), 0, bytes.position( ) );
+			bytes.clear( );
+		}
+	}
+}
@@ -59,5 +59,40 @@ public class CSVDataExtractionOption extends CommonDataExtractionOption
 	{
 		setOption( ADD_CR_LINE_BREAK, addCR );
 	}
+
+	public boolean isGZip( )
+	{
+		return getBooleanOption( OUTPUT_GZIP, false );
+	}
+
+	public void setGZip( boolean gzip )
+	{
+		setOption( OUTPUT_GZIP, gzip );
+	}
+
+	public IDataExtractionProgressListener getProgressListener( )
+	{
+		Object listener = getOption( PROGRESS_LISTENER );
+		if ( listener instanceof IDataExtractionProgressListener )
+		{
+			return (IDataExtractionProgressListener) listener;
+		}
+		return null;
+	}
+
+	public void setProgressListener( IDataExtractionProgressListener listener )
+	{
+		setOption( PROGRESS_LISTENER, listener );
+	}
+
+	public int getProgressInterval( )
+	{
+		return getIntOption( PROGRESS_INTERVAL, 10000 );
+	}
+
+	public void setProgressInterval( int rowCount )
+	{
+		setOption( PROGRESS_INTERVAL, rowCount );
+	}
 	
 }
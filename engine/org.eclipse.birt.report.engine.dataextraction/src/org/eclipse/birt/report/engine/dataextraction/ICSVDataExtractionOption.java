@@ -34,6 +34,23 @@ public interface ICSVDataExtractionOption extends ICommonDataExtractionOption
 	 */
 	public static final String ADD_CR_LINE_BREAK = "AddCR";
 
+	/**
+	 * the option checks if compressing the output in gzip format.
+	 */
+	public static final String OUTPUT_GZIP = "GZip"; //$NON-NLS-1$
+
+	/**
+	 * the listener of the progress, it is an instance of
+	 * IDataExtractionProgressListener.
+	 */
+	public static final String PROGRESS_LISTENER = "ProgressListener"; //$NON-NLS-1$
+
+	/**
+	 * the count of the rows between two progress notifications, default is
+	 * 10000.
+	 */
+	public static final String PROGRESS_INTERVAL = "ProgressInterval"; //$NON-NLS-1$
+
 	/**
 	 * Sets the output separator
 	 * 
@@ -51,4 +68,16 @@ public interface ICSVDataExtractionOption extends ICommonDataExtractionOption
 	boolean getAddCR( );
 
 	void setAddCR( boolean addCR );
+
+	boolean isGZip( );
+
+	void setGZip( boolean gzip );
+
+	IDataExtractionProgressListener getProgressListener( );
+
+	void setProgressListener( IDataExtractionProgressListener listener );
+
+	int getProgressInterval( );
+
+	void setProgressInterval( int rowCount );
 }
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.report.engine.dataextraction;
+
+/**
+ * Receives the progress of the data extraction.
+ */
+public interface IDataExtractionProgressListener
+{
+
+	/**
+	 * Called each time a number of rows, which is set by the option
+	 * PROGRESS_INTERVAL, are written, and once more after all the rows are
+	 * written.
+	 * 
+	 * @param rowCount
+	 *            the count of the rows written so far
+	 * @param finished
+	 *            if all the rows are written
+	 */
+	void onProgress( long rowCount, boolean finished );
+}
@@ -310,4 +310,33 @@ public class CommonDataExtractionImpl extends DataExtractionExtensionBase
 		return obj != null ? valueFormatters[index].formatValue( obj ) : null;
 	}
 
+	/**
+	 * Returns the string value of the column by the formatter created in
+	 * createFormatters.
+	 * 
+	 * @param value
+	 *            the value of the column, not null
+	 * @param index
+	 *            the column index
+	 * @return string representation of the object
+	 * @throws BirtException
+	 */
+	protected String formatValue( Object value, int index )
+			throws BirtException
+	{
+		return valueFormatters[index].formatValue( value );
+	}
+
+	/**
+	 * Checks if the column is output in the locale neutral format, so the
+	 * numbers of the column are output as Number.toString( ).
+	 * 
+	 * @param index
+	 *            the column index
+	 */
+	protected boolean isLocaleNeutralColumn( int index )
+	{
+		return valueFormatters[index] instanceof LocaleNeutralFormatter;
+	}
+
 }
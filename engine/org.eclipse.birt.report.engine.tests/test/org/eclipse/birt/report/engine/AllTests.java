@@ -97,6 +97,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.report.engine.emitter.XMLEncodeUtilTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.emitter.XMLWriterTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.emitter.HTMLClientInitializeTest.class );
+		suite.addTestSuite( org.eclipse.birt.report.engine.emitter.AsyncOutputStreamTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.executor.buffermgr.TableTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.executor.css.CssParserTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.executor.css.HTMLProcessorTest.class );
@@ -116,6 +117,8 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.report.engine.internal.document.v2.PageHintTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.internal.document.v2.ReportContentTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.internal.document.OffsetIndexReaderWriterTest.class );
+		suite.addTestSuite( org.eclipse.birt.report.engine.internal.document.v3.PackedReportContentTest.class );
+		suite.addTestSuite( org.eclipse.birt.report.engine.internal.index.v2.IndexWriterTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.internal.executor.doc.ReportPageReaderTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.ir.ActionTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.ir.CellTest.class );
@@ -152,6 +155,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.report.engine.layout.html.HTMLLayoutTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.layout.pdf.font.CharSegmentTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.layout.pdf.font.FontConfigReaderTest.class );
+		suite.addTestSuite( org.eclipse.birt.report.engine.layout.pdf.font.TextWidthCacheTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.layout.pdf.hyphen.DefaultWordRecognizerTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.layout.pdf.PDFImageLMTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.layout.pdf.PDFLineAreaLMTest.class );
@@ -179,6 +183,7 @@ public class AllTests
 		suite.addTestSuite( org.eclipse.birt.report.engine.presentation.HtmlPaginateEmitterTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.presentation.XMLContentReaderWriterTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.regression.Test_90378.class );
+		suite.addTestSuite( org.eclipse.birt.report.engine.toc.AsyncTOCWriterTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.toc.HugeTOCTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.toc.TOCBuilderTest.class );
 		suite.addTestSuite( org.eclipse.birt.report.engine.toc.TOCComparatorTest.class );
@@ -19,7 +19,10 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.birt.core.archive.compound.ArchiveFile;
@@ -30,6 +33,7 @@ import org.eclipse.birt.report.engine.api.impl.ReportDocumentConstants;
 import org.eclipse.birt.report.engine.api.impl.ReportDocumentReader;
 
 import com.ibm.icu.text.NumberFormat.SimpleNumberFormatFactory;
+import com.lowagie.text.pdf.PdfReader;
 
 public class RenderTaskTest extends EngineCase
 {
@@ -459,6 +463,59 @@ public class RenderTaskTest extends EngineCase
 		test( document, "html" );
 	}
 
+	public void testRenderPDFInParallel( ) throws Exception
+	{
+		String design = "org/eclipse/birt/report/engine/api/TestGetPageCount.rptdesign";
+		IReportDocument document = createReportDocument( design );
+		// the chunks of 2 pages do not split the ranges evenly
+		String[] pageRanges = {"1-3", "1,3"};
+		int[] pageCounts = {3, 2};
+		for ( int i = 0; i < pageRanges.length; i++ )
+		{
+			List<byte[]> pages = renderPDFPages( document, pageRanges[i], 1 );
+			List<byte[]> parallelPages = renderPDFPages( document,
+					pageRanges[i], 2 );
+			assertEquals( pageCounts[i], pages.size( ) );
+			assertEquals( pages.size( ), parallelPages.size( ) );
+			for ( int page = 0; page < pages.size( ); page++ )
+			{
+				assertTrue( pageRanges[i] + " page " + ( page + 1 ),
+						Arrays.equals( pages.get( page ),
+								parallelPages.get( page ) ) );
+			}
+		}
+		document.close( );
+	}
+
+	/**
+	 * renders the pages to PDF and returns the content of each output page.
+	 */
+	private List<byte[]> renderPDFPages( IReportDocument document,
+			String pageRange, int threads ) throws Exception
+	{
+		IRenderTask task = createRenderTask( document, "pdf" );
+		ByteArrayOutputStream output = new ByteArrayOutputStream( );
+		IRenderOption options = task.getRenderOption( );
+		options.setOutputStream( output );
+		options.setOption( IRenderOption.RENDER_THREADS, threads );
+		options.setOption( IRenderOption.RENDER_CHUNK_SIZE, 2 );
+		task.setPageRange( pageRange );
+		task.render( );
+		long pageCount = task.getPageCount( );
+		assertTrue( task.getErrors( ).isEmpty( ) );
+		task.close( );
+
+		PdfReader reader = new PdfReader( output.toByteArray( ) );
+		assertEquals( pageCount, reader.getNumberOfPages( ) );
+		List<byte[]> pages = new ArrayList<byte[]>( );
+		for ( int page = 1; page <= reader.getNumberOfPages( ); page++ )
+		{
+			pages.add( reader.getPageContent( page ) );
+		}
+		reader.close( );
+		return pages;
+	}
+
 /*	public void testGetParametersAndVariables( ) throws EngineException
 	{
 		String file = "org/eclipse/birt/report/engine/api/parametersAndVariables.rptdocument";
@@ -12,6 +12,7 @@
 package org.eclipse.birt.report.engine.api;
 
 import java.io.File;
+import java.io.InputStream;
 import java.net.URLDecoder;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -20,6 +21,7 @@ import java.util.Map;
 import org.eclipse.birt.report.engine.EngineCase;
 import org.eclipse.birt.report.engine.api.impl.ReportDocumentReader;
 import org.eclipse.birt.report.engine.api.impl.ScalarParameterDefn;
+import org.eclipse.birt.report.model.api.ReportDesignHandle;
 
 /**
  * 
@@ -81,6 +83,82 @@ public class ReportEngineTest extends EngineCase
 		}
 	}
 	
+	/**
+	 * the cached design is copied for each open and it is reloaded after the
+	 * design file is changed.
+	 */
+	public void testOpenCachedReportDesign( ) throws Exception
+	{
+		EngineConfig config = new EngineConfig( );
+		config.setReportDesignCacheSize( 2 );
+		ReportEngine engine = new ReportEngine( config );
+		try
+		{
+			IReportRunnable runnable1 = engine.openReportDesign( REPORT_DESIGN );
+			IReportRunnable runnable2 = engine.openReportDesign( REPORT_DESIGN );
+			assertTrue( runnable1 != runnable2 );
+			assertTrue( runnable1.getDesignHandle( ) != runnable2
+					.getDesignHandle( ) );
+			assertEquals( runnable1.getReportName( ), runnable2.getReportName( ) );
+
+			// touch the design, it is parsed again
+			File file = new File( REPORT_DESIGN );
+			file.setLastModified( file.lastModified( ) - 10000 );
+			IReportRunnable runnable3 = engine.openReportDesign( REPORT_DESIGN );
+			assertEquals( runnable1.getReportName( ), runnable3.getReportName( ) );
+			assertEquals( ( (ReportDesignHandle) runnable1.getDesignHandle( ) )
+					.getBody( ).getCount( ),
+					( (ReportDesignHandle) runnable3.getDesignHandle( ) )
+							.getBody( ).getCount( ) );
+			assertTrue( runnable3.getDesignHandle( ) != runnable1
+					.getDesignHandle( ) );
+		}
+		finally
+		{
+			engine.shutdown( );
+		}
+	}
+
+	/**
+	 * the design opened from a stream is never taken from the cache, even if
+	 * it has the name of a cached design.
+	 */
+	public void testOpenReportDesignStreamNotCached( ) throws Exception
+	{
+		EngineConfig config = new EngineConfig( );
+		config.setReportDesignCacheSize( 2 );
+		ReportEngine engine = new ReportEngine( config );
+		try
+		{
+			IReportRunnable cached = engine.openReportDesign( REPORT_DESIGN );
+			assertEquals( 0, ( (ReportDesignHandle) cached.getDesignHandle( ) )
+					.getBody( ).getCount( ) );
+
+			InputStream in = getClass( ).getClassLoader( ).getResourceAsStream(
+					"org/eclipse/birt/report/engine/api/empty_page.rptdesign" );
+			try
+			{
+				IReportRunnable runnable = engine.openReportDesign( cached
+						.getReportName( ), in, new HashMap( ) );
+				assertEquals( 3, ( (ReportDesignHandle) runnable
+						.getDesignHandle( ) ).getBody( ).getCount( ) );
+			}
+			finally
+			{
+				in.close( );
+			}
+
+			// the cached design is not replaced by the stream
+			IReportRunnable reopened = engine.openReportDesign( REPORT_DESIGN );
+			assertEquals( 0, ( (ReportDesignHandle) reopened.getDesignHandle( ) )
+					.getBody( ).getCount( ) );
+		}
+		finally
+		{
+			engine.shutdown( );
+		}
+	}
+
 	/**
 	 * API test on IReportEngine.createGetParameterDefinitionTask( ) method
 	 */
@@ -13,6 +13,7 @@ package org.eclipse.birt.report.engine.api.impl;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
@@ -28,6 +29,7 @@ import org.eclipse.birt.report.engine.api.IReportDocument;
 import org.eclipse.birt.report.engine.api.IReportRunnable;
 import org.eclipse.birt.report.engine.api.IRunTask;
 import org.eclipse.birt.report.engine.content.impl.BookmarkContent;
+import org.eclipse.birt.report.engine.internal.document.DocumentWriterQueue;
 import org.eclipse.birt.report.engine.ir.Report;
 import org.eclipse.birt.report.engine.parser.ReportParser;
 import org.eclipse.birt.report.model.api.ReportDesignHandle;
@@ -121,6 +123,50 @@ public class ReportDocumentTest extends EngineCase
 
 	}
 
+	/**
+	 * a task of the writer thread fails, the close stops the thread and
+	 * closes the indexes written before the error.
+	 */
+	public void testCloseAfterWriterError( ) throws Exception
+	{
+		IDocArchiveWriter archive = new FileArchiveWriter( REPORT_DOCUMENT );
+		ReportDocumentWriter document = new ReportDocumentWriter( engine,
+				archive );
+		document.setAsyncWriter( true );
+		createBookmarks( document );
+		document.getWriterQueue( ).submit( new DocumentWriterQueue.Task( ) {
+
+			public void run( ) throws IOException
+			{
+				throw new IOException( "write error" );
+			}
+		} );
+		document.close( );
+		assertNull( document.getWriterQueue( ) );
+		assertFalse( isWriterThreadRunning( ) );
+
+		IDocArchiveReader reader = new FileArchiveReader( REPORT_DOCUMENT );
+		IReportDocument docReader = engine.openReportDocument( null, reader,
+				null );
+		checkBookmarks( docReader );
+		docReader.close( );
+		reader.close( );
+	}
+
+	private boolean isWriterThreadRunning( )
+	{
+		Thread[] threads = new Thread[Thread.activeCount( ) + 10];
+		int count = Thread.enumerate( threads );
+		for ( int i = 0; i < count; i++ )
+		{
+			if ( "BIRT Document Writer".equals( threads[i].getName( ) ) )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
 	protected void createDocument( )
 	{
 		try
@@ -27,6 +27,7 @@ import org.eclipse.birt.core.archive.IDocArchiveWriter;
 import org.eclipse.birt.data.engine.api.IBaseQueryDefinition;
 import org.eclipse.birt.data.engine.api.IGroupDefinition;
 import org.eclipse.birt.data.engine.api.IQueryDefinition;
+import org.eclipse.birt.report.engine.api.EngineConstants;
 import org.eclipse.birt.report.engine.data.IDataEngine;
 import org.eclipse.birt.report.engine.executor.ExecutionContext;
 import org.eclipse.birt.report.engine.extension.IQueryResultSet;
@@ -43,6 +44,7 @@ public class DataEngineTest extends TestCase
 	private String SINGLE_DATASET_DESIGN = "SingleDataSet.xml";
 	private String NESTED_DATASET_DESIGN = "NestedDataSet.xml";
 	private String SUBQUERY_DATASET_DESIGN = "SubqueryDataSet.xml";
+	private String MULTIPLE_DATASET_DESIGN = "MultipleDataSet.xml";
 
 	private String ARCHIVE_PATH = "docArchive";
 	private String ARCHIVE_METANAME = "metaName";
@@ -137,6 +139,9 @@ public class DataEngineTest extends TestCase
 	{
 		doTestSingleQGeneration( );
 		doTestSingleQPresentation( );
+		doTestSingleQPrefetch( );
+		doTestSingleQPresentation( );
+		doTestMultipleQPrefetch( );
 		doTestNestedQGeneration( );
 		doTestNestedQPresentation( );
 		doTestSubqueryGeneration( );
@@ -180,6 +185,111 @@ public class DataEngineTest extends TestCase
 		assertEquals( goldenStr, resultStr );
 	}
 
+	public void doTestSingleQPrefetch( ) throws Exception
+	{
+		Report report = getReport( SINGLE_DATASET_DESIGN );
+		ExecutionContext context = new ExecutionContext( );
+		// a string value as set by the viewer
+		context.getAppContext( ).put(
+				EngineConstants.APPCONTEXT_QUERY_PREFETCH_THREADS,
+				"2" );
+		archWriter = new FileArchiveWriter( ARCHIVE_PATH );
+		archWriter.initialize( );
+		IDataEngine dataEngine = new DataGenerationEngine( null, context,
+				archWriter );
+		dataEngine.prepare( report, null );
+		dataEngine.prefetch( report );
+
+		Iterator iter = report.getQueries( ).iterator( );
+		IQueryResultSet resultSet = null;
+
+		String goldenFile = "SingleDataSet.txt";
+		String goldenStr = loadResource( goldenFile );
+		String resultStr = "";
+		while ( iter.hasNext( ) )
+		{
+			IQueryDefinition query = (IQueryDefinition) iter.next( );
+			Map map = query.getBindings( );
+			String[] columns = (String[]) map.keySet( )
+					.toArray( new String[]{} );
+			Arrays.sort( columns );
+			resultSet = (IQueryResultSet) dataEngine.execute( query );
+			int i = 0;
+			while ( resultSet.next( ) && i < 3 )
+			{
+				for ( int j = 0; j < columns.length; j++ )
+				{
+					resultStr += resultSet.getResultIterator( ).getString(
+							columns[j] );
+				}
+				i++;
+			}
+		}
+		resultSet.close( );
+		dataEngine.shutdown( );
+		archWriter.finish( );
+		assertEquals( goldenStr, resultStr );
+	}
+
+	/**
+	 * The computed columns of the data sets are evaluated by the prefetching
+	 * threads, each in its own script context, and give the same results as
+	 * the queries executed by the generating thread.
+	 */
+	public void doTestMultipleQPrefetch( ) throws Exception
+	{
+		String expectedStr = executeMultipleQ( 0 );
+		assertTrue( expectedStr.indexOf( "ATELIER GRAPHIQUE" ) != -1 );
+		for ( int i = 0; i < 3; i++ )
+		{
+			assertEquals( expectedStr, executeMultipleQ( 3 ) );
+		}
+	}
+
+	private String executeMultipleQ( int prefetchThreads ) throws Exception
+	{
+		Report report = getReport( MULTIPLE_DATASET_DESIGN );
+		ExecutionContext context = new ExecutionContext( );
+		if ( prefetchThreads > 0 )
+		{
+			context.getAppContext( ).put(
+					EngineConstants.APPCONTEXT_QUERY_PREFETCH_THREADS,
+					Integer.valueOf( prefetchThreads ) );
+		}
+		archWriter = new FileArchiveWriter( ARCHIVE_PATH );
+		archWriter.initialize( );
+		IDataEngine dataEngine = new DataGenerationEngine( null, context,
+				archWriter );
+		dataEngine.prepare( report, null );
+		dataEngine.prefetch( report );
+
+		Iterator iter = report.getQueries( ).iterator( );
+		String resultStr = "";
+		while ( iter.hasNext( ) )
+		{
+			IQueryDefinition query = (IQueryDefinition) iter.next( );
+			Map map = query.getBindings( );
+			String[] columns = (String[]) map.keySet( )
+					.toArray( new String[]{} );
+			Arrays.sort( columns );
+			IQueryResultSet resultSet = (IQueryResultSet) dataEngine
+					.execute( query );
+			while ( resultSet.next( ) )
+			{
+				for ( int j = 0; j < columns.length; j++ )
+				{
+					resultStr += resultSet.getResultIterator( ).getString(
+							columns[j] );
+				}
+				resultStr += "\n";
+			}
+			resultSet.close( );
+		}
+		dataEngine.shutdown( );
+		archWriter.finish( );
+		return resultStr;
+	}
+
 	public void doTestSingleQPresentation( ) throws Exception
 	{
 		Report report = getReport( SINGLE_DATASET_DESIGN );
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2009 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class AsyncOutputStreamTest extends TestCase
+{
+
+	public void testWrite( ) throws IOException
+	{
+		ByteArrayOutputStream expected = new ByteArrayOutputStream( );
+		ByteArrayOutputStream result = new ByteArrayOutputStream( );
+		AsyncOutputStream out = new AsyncOutputStream( result, 16 );
+		byte[] data = new byte[37];
+		for ( int i = 0; i < 1000; i++ )
+		{
+			if ( i % 3 == 0 )
+			{
+				out.write( i );
+				expected.write( i );
+			}
+			else
+			{
+				for ( int j = 0; j < data.length; j++ )
+				{
+					data[j] = (byte) ( i + j );
+				}
+				out.write( data, 1, i % data.length );
+				expected.write( data, 1, i % data.length );
+			}
+			if ( i % 100 == 0 )
+			{
+				out.flush( );
+			}
+		}
+		out.close( );
+		assertTrue( Arrays.equals( expected.toByteArray( ), result
+				.toByteArray( ) ) );
+	}
+
+	public void testBlockedTime( ) throws IOException
+	{
+		SlowOutputStream slow = new SlowOutputStream( );
+		AsyncOutputStream out = new AsyncOutputStream( slow, 8 );
+		for ( int i = 0; i < 5; i++ )
+		{
+			out.write( new byte[8] );
+		}
+		out.close( );
+		assertEquals( 40, slow.size );
+		assertTrue( slow.closed );
+		assertTrue( out.getBlockedTime( ) >= 50 );
+	}
+
+	public void testError( )
+	{
+		AsyncOutputStream out = new AsyncOutputStream( new OutputStream( ) {
+
+			public void write( int b ) throws IOException
+			{
+				throw new IOException( "write error" );
+			}
+		}, 8 );
+		try
+		{
+			for ( int i = 0; i < 100; i++ )
+			{
+				out.write( i );
+			}
+			out.close( );
+			fail( );
+		}
+		catch ( IOException ex )
+		{
+			assertEquals( "write error", ex.getMessage( ) );
+		}
+	}
+
+	public void testStop( ) throws IOException
+	{
+		SlowOutputStream slow = new SlowOutputStream( );
+		AsyncOutputStream out = new AsyncOutputStream( slow, 8 );
+		out.write( new byte[8] );
+		out.flush( );
+		out.write( new byte[4] );
+		out.stop( );
+		// the flushed data is written, the rest is dropped
+		out.close( );
+		assertEquals( 8, slow.size );
+		assertFalse( slow.closed );
+		try
+		{
+			out.write( new byte[8] );
+			fail( );
+		}
+		catch ( IOException ex )
+		{
+		}
+	}
+
+	private static class SlowOutputStream extends OutputStream
+	{
+
+		int size;
+		boolean closed;
+
+		public void write( int b ) throws IOException
+		{
+			size++;
+		}
+
+		public void write( byte[] b, int off, int len ) throws IOException
+		{
+			try
+			{
+				Thread.sleep( 20 );
+			}
+			catch ( InterruptedException ex )
+			{
+			}
+			size += len;
+		}
+
+		public void close( )
+		{
+			closed = true;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.internal.document.v3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.eclipse.birt.core.archive.RAInputStream;
+import org.eclipse.birt.core.archive.compound.ArchiveReader;
+import org.eclipse.birt.core.archive.compound.ArchiveWriter;
+import org.eclipse.birt.report.engine.EngineCase;
+import org.eclipse.birt.report.engine.api.DataID;
+import org.eclipse.birt.report.engine.api.DataSetID;
+import org.eclipse.birt.report.engine.api.InstanceID;
+import org.eclipse.birt.report.engine.content.ICellContent;
+import org.eclipse.birt.report.engine.content.IContent;
+import org.eclipse.birt.report.engine.content.IDataContent;
+import org.eclipse.birt.report.engine.content.IRowContent;
+import org.eclipse.birt.report.engine.content.IStyle;
+import org.eclipse.birt.report.engine.content.ITableContent;
+import org.eclipse.birt.report.engine.content.impl.ReportContent;
+
+public class PackedReportContentTest extends EngineCase
+{
+
+	static final String ARCHIVE_FILE = "./utest/packed_content.rptdocument";
+	static final String CONTENT_STREAM = "/content/content.dat";
+
+	static final int ROW_COUNT = 5000;
+
+	ReportContent report = new ReportContent( );
+
+	ArrayList<IContent> contents = new ArrayList<IContent>( );
+
+	ArrayList<Long> offsets = new ArrayList<Long>( );
+
+	public void setUp( )
+	{
+		removeFile( ARCHIVE_FILE );
+	}
+
+	public void tearDown( )
+	{
+		removeFile( ARCHIVE_FILE );
+	}
+
+	public void testPackedContentStream( ) throws IOException
+	{
+		writeContents( true );
+		checkContents( );
+	}
+
+	public void testContentStreamV1( ) throws IOException
+	{
+		writeContents( false );
+		checkContents( );
+	}
+
+	public void testPackedStreamIsSmaller( ) throws IOException
+	{
+		writeContents( false );
+		long size = getStreamSize( );
+		removeFile( ARCHIVE_FILE );
+		contents.clear( );
+		offsets.clear( );
+		writeContents( true );
+		// the index entries are not compressed
+		assertTrue( getStreamSize( ) * 3 < size * 2 );
+	}
+
+	protected void writeContents( boolean packed ) throws IOException
+	{
+		new File( ARCHIVE_FILE ).getParentFile( ).mkdirs( );
+		ArchiveWriter archive = new ArchiveWriter( ARCHIVE_FILE );
+		try
+		{
+			ReportContentWriterV3 writer = packed
+					? new PackedReportContentWriter( archive, CONTENT_STREAM )
+					: new ReportContentWriterV3( archive, CONTENT_STREAM );
+			try
+			{
+				writer.writeReport( report );
+
+				DataSetID dataSet = new DataSetID( "dataSet" );
+				ITableContent table = report.createTableContent( );
+				table.setInstanceID( new InstanceID( null, 1, 10, null ) );
+				write( writer, table );
+				for ( int i = 0; i < ROW_COUNT; i++ )
+				{
+					IRowContent row = report.createRowContent( );
+					row.setParent( table );
+					row.setInstanceID( new InstanceID( table.getInstanceID( ),
+							100 + i * 3, 11, new DataID( dataSet, i ) ) );
+					write( writer, row );
+
+					ICellContent cell = report.createCellContent( );
+					cell.setParent( row );
+					cell.setColumn( 0 );
+					IStyle style = report.createStyle( );
+					style.setColor( i % 2 == 0 ? "red" : "blue" );
+					cell.setInlineStyle( style );
+					cell.setInstanceID( new InstanceID( row.getInstanceID( ),
+							101 + i * 3, 12, null ) );
+					write( writer, cell );
+
+					IDataContent data = report.createDataContent( );
+					data.setParent( cell );
+					data.setText( "value " + i );
+					data.setInstanceID( new InstanceID( cell.getInstanceID( ),
+							102 + i * 3, 13, new DataID( dataSet, i ) ) );
+					write( writer, data );
+				}
+			}
+			finally
+			{
+				writer.close( );
+			}
+		}
+		finally
+		{
+			archive.finish( );
+		}
+	}
+
+	private void write( ReportContentWriterV3 writer, IContent content )
+			throws IOException
+	{
+		offsets.add( Long.valueOf( writer.writeContent( content ) ) );
+		contents.add( content );
+	}
+
+	protected void checkContents( ) throws IOException
+	{
+		ArchiveReader archive = new ArchiveReader( ARCHIVE_FILE );
+		try
+		{
+			RAInputStream in = archive.getStream( CONTENT_STREAM );
+			ReportContentReaderV3 reader = new ReportContentReaderV3(
+					new ReportContent( ), in, null );
+			try
+			{
+				// read the contents in the pre-order
+				reader.setOffset( reader.getRoot( ) );
+				for ( int i = 0; i < contents.size( ); i++ )
+				{
+					assertEquals( offsets.get( i ).longValue( ), reader
+							.getOffset( ) );
+					checkContent( contents.get( i ), reader.readContent( ) );
+				}
+				assertEquals( -1, reader.getOffset( ) );
+
+				// read the contents randomly
+				for ( int i = contents.size( ) - 1; i >= 0; i -= 997 )
+				{
+					checkContent( contents.get( i ), reader
+							.readContent( offsets.get( i ).longValue( ) ) );
+				}
+			}
+			finally
+			{
+				reader.close( );
+			}
+		}
+		finally
+		{
+			archive.close( );
+		}
+	}
+
+	private void checkContent( IContent expected, IContent content )
+	{
+		assertEquals( expected.getContentType( ), content.getContentType( ) );
+		assertEquals( expected.getInstanceID( ).toString( ), content
+				.getInstanceID( ).toString( ) );
+		if ( expected.getInlineStyle( ) != null )
+		{
+			assertEquals( expected.getInlineStyle( ).getColor( ), content
+					.getInlineStyle( ).getColor( ) );
+		}
+		else
+		{
+			assertNull( content.getInlineStyle( ) );
+		}
+		if ( expected instanceof IDataContent )
+		{
+			assertEquals( ( (IDataContent) expected ).getText( ),
+					( (IDataContent) content ).getText( ) );
+		}
+	}
+
+	private long getStreamSize( ) throws IOException
+	{
+		ArchiveReader archive = new ArchiveReader( ARCHIVE_FILE );
+		try
+		{
+			RAInputStream in = archive.getStream( CONTENT_STREAM );
+			try
+			{
+				return in.length( );
+			}
+			finally
+			{
+				in.close( );
+			}
+		}
+		finally
+		{
+			archive.close( );
+		}
+	}
+}
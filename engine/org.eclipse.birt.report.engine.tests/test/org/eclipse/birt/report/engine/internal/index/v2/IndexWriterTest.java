@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.internal.index.v2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.core.archive.compound.ArchiveFile;
+import org.eclipse.birt.core.archive.compound.ArchiveReader;
+import org.eclipse.birt.core.archive.compound.ArchiveWriter;
+import org.eclipse.birt.report.engine.content.impl.BookmarkContent;
+
+public class IndexWriterTest extends TestCase
+{
+
+	static final String ARCHIVE_FILE = "./utest/index.dat";
+	static final int ENTRY_SIZE = 2000;
+
+	int maxInlineEntry;
+	int maxMergeRuns;
+
+	protected void setUp( ) throws Exception
+	{
+		maxInlineEntry = IndexWriter.MAX_INLINE_INDEX_ENTRY;
+		maxMergeRuns = IndexWriter.MAX_MERGE_RUNS;
+		// spill many small runs, so the runs are merged in several passes
+		IndexWriter.MAX_INLINE_INDEX_ENTRY = 50;
+		IndexWriter.MAX_MERGE_RUNS = 4;
+		new File( ARCHIVE_FILE ).delete( );
+	}
+
+	protected void tearDown( ) throws Exception
+	{
+		IndexWriter.MAX_INLINE_INDEX_ENTRY = maxInlineEntry;
+		IndexWriter.MAX_MERGE_RUNS = maxMergeRuns;
+		new File( ARCHIVE_FILE ).delete( );
+	}
+
+	public void testOffsetIndex( ) throws IOException
+	{
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		try
+		{
+			ArchiveWriter writer = new ArchiveWriter( archive );
+			DocumentIndexWriterV2 indexWriter = new DocumentIndexWriterV2(
+					writer );
+			// add the keys out of order, each key is added twice
+			for ( int i = 0; i < ENTRY_SIZE; i++ )
+			{
+				int key = ( i * 7919 ) % ENTRY_SIZE;
+				indexWriter.setOffsetOfBookmark( "B" + key, key );
+			}
+			for ( int i = 0; i < ENTRY_SIZE; i++ )
+			{
+				indexWriter.setOffsetOfBookmark( "B" + i, -1 );
+			}
+			indexWriter.close( );
+
+			List<String> streams = writer.listAllStreams( );
+			for ( String stream : streams )
+			{
+				assertTrue( stream,
+						stream.indexOf( IndexWriter.RUN_STREAM_SUFFIX ) == -1 );
+			}
+
+			DocumentIndexReaderV2 reader = new DocumentIndexReaderV2(
+					new ArchiveReader( archive ) );
+			try
+			{
+				for ( int i = 0; i < ENTRY_SIZE; i++ )
+				{
+					// the first value is kept
+					assertEquals( i, reader.getOffsetOfBookmark( "B" + i ) );
+				}
+				assertEquals( -1, reader.getOffsetOfBookmark( "B" + ENTRY_SIZE ) );
+			}
+			finally
+			{
+				reader.close( );
+			}
+		}
+		finally
+		{
+			archive.close( );
+		}
+	}
+
+	public void testBookmarkIndex( ) throws IOException
+	{
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		try
+		{
+			DocumentIndexWriterV2 indexWriter = new DocumentIndexWriterV2(
+					new ArchiveWriter( archive ) );
+			for ( int i = ENTRY_SIZE - 1; i >= 0; i-- )
+			{
+				BookmarkContent content = new BookmarkContent( "B" + i, i );
+				content.setPageNumber( i + 1 );
+				indexWriter.setBookmark( "B" + i, content );
+			}
+			indexWriter.close( );
+
+			DocumentIndexReaderV2 reader = new DocumentIndexReaderV2(
+					new ArchiveReader( archive ) );
+			try
+			{
+				List<String> bookmarks = reader.getBookmarks( );
+				assertEquals( ENTRY_SIZE, bookmarks.size( ) );
+				for ( int i = 0; i < ENTRY_SIZE; i += 97 )
+				{
+					BookmarkContent content = reader.getBookmark( "B" + i );
+					assertEquals( "B" + i, content.getBookmark( ) );
+					assertEquals( i + 1, content.getPageNumber( ) );
+				}
+			}
+			finally
+			{
+				reader.close( );
+			}
+		}
+		finally
+		{
+			archive.close( );
+		}
+	}
+}
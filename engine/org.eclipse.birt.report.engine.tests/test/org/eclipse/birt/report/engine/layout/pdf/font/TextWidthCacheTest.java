@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.layout.pdf.font;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.pdf.BaseFont;
+
+public class TextWidthCacheTest extends TestCase
+{
+
+	public void testWidth( ) throws Exception
+	{
+		BaseFont helvetica = BaseFont.createFont( BaseFont.HELVETICA,
+				BaseFont.WINANSI, false );
+		BaseFont courier = BaseFont.createFont( BaseFont.COURIER,
+				BaseFont.WINANSI, false );
+		TextWidthCache cache = new TextWidthCache( 2, 4 );
+		String[] texts = new String[]{"$1,234.56", "Paid", "Overdue",
+				"Invoice Total", ""};
+		for ( int i = 0; i < 10; i++ )
+		{
+			for ( int j = 0; j < texts.length; j++ )
+			{
+				assertEquals( helvetica.getWidthPoint( texts[j], 10 ), cache
+						.getWidthPoint( helvetica, 10, texts[j] ), 0.0001f );
+				assertEquals( helvetica.getWidthPoint( texts[j], 12 ), cache
+						.getWidthPoint( helvetica, 12, texts[j] ), 0.0001f );
+				assertEquals( courier.getWidthPoint( texts[j], 10 ), cache
+						.getWidthPoint( courier, 10, texts[j] ), 0.0001f );
+			}
+		}
+		assertEquals( 150, cache.getHitCount( ) + cache.getMissCount( ) );
+		assertTrue( cache.getHitCount( ) > 0 );
+
+		cache.clear( );
+		assertEquals( 0, cache.getHitCount( ) );
+		assertEquals( 0, cache.getMissCount( ) );
+		assertEquals( 0.0, cache.getHitRate( ), 0.0 );
+	}
+
+	public void testHitRate( ) throws Exception
+	{
+		BaseFont helvetica = BaseFont.createFont( BaseFont.HELVETICA,
+				BaseFont.WINANSI, false );
+		TextWidthCache cache = new TextWidthCache( 16, 1024 );
+		for ( int i = 0; i < 100; i++ )
+		{
+			cache.getWidth( helvetica, "Status" );
+		}
+		assertEquals( 1, cache.getMissCount( ) );
+		assertEquals( 99, cache.getHitCount( ) );
+		assertEquals( 0.99, cache.getHitRate( ), 0.0001 );
+
+		// the long texts are not cached
+		StringBuffer buffer = new StringBuffer( );
+		for ( int i = 0; i <= TextWidthCache.MAX_TEXT_LENGTH; i++ )
+		{
+			buffer.append( 'a' );
+		}
+		String text = buffer.toString( );
+		assertEquals( helvetica.getWidth( text ), cache.getWidth( helvetica,
+				text ) );
+		assertEquals( 100, cache.getHitCount( ) + cache.getMissCount( ) );
+	}
+}
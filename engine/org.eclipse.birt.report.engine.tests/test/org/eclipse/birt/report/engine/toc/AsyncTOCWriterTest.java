@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.toc;
+
+import java.io.IOException;
+
+import org.eclipse.birt.report.engine.internal.document.DocumentWriterQueue;
+import org.eclipse.birt.report.engine.toc.document.AsyncTOCWriter;
+
+public class AsyncTOCWriterTest extends TOCReadWriteTest
+{
+
+	public void testAsyncWriter( ) throws IOException
+	{
+		// a small queue, so the builder waits for the writer thread
+		DocumentWriterQueue queue = new DocumentWriterQueue( 2 );
+		ByteArrayRAOutputStream out = new ByteArrayRAOutputStream( );
+		try
+		{
+			AsyncTOCWriter writer = new AsyncTOCWriter( out, queue );
+			TOCBuilder builder = new TOCBuilder( writer );
+			createTOCTest( builder );
+			writer.close( );
+		}
+		finally
+		{
+			queue.close( );
+		}
+		out.close( );
+
+		ByteArrayRAInputStream in = new ByteArrayRAInputStream( out
+				.toByteArray( ) );
+		TOCReader reader = new TOCReader( in, this.getClass( ).getClassLoader( ) );
+		ITreeNode treeNode = reader.readTree( );
+		String tocTree = toString( treeNode );
+		reader.close( );
+		in.close( );
+
+		assertEquals( GOLDEN_TOC_TEST.replaceAll( "\\s", "" ), tocTree
+				.replaceAll( "\\s", "" ) );
+	}
+
+	public void testWriterError( ) throws IOException
+	{
+		DocumentWriterQueue queue = new DocumentWriterQueue( 2 );
+		try
+		{
+			queue.submit( new DocumentWriterQueue.Task( ) {
+
+				public void run( ) throws IOException
+				{
+					throw new IOException( "write error" );
+				}
+			} );
+			queue.flush( );
+			fail( );
+		}
+		catch ( IOException ex )
+		{
+			assertEquals( "write error", ex.getCause( ).getMessage( ) );
+		}
+		finally
+		{
+			try
+			{
+				queue.close( );
+			}
+			catch ( IOException ex )
+			{
+			}
+		}
+	}
+}
@@ -490,6 +490,84 @@ public class EngineConfig extends PlatformConfig implements IEngineConfig
 		return 0;
 	}
 
+	/**
+	 * Set the max bytes of the block cache shared by the readers of the same
+	 * report document. The cache is shared by all the engines in the JVM, 0
+	 * disables it.
+	 * 
+	 * @param size
+	 *            the max bytes
+	 */
+	public void setSharedArchiveCacheSize( long size )
+	{
+		setProperty( SHARED_ARCHIVE_CACHE_SIZE, Long.valueOf( size ) );
+	}
+
+	/**
+	 * Get the max bytes of the shared block cache
+	 * 
+	 * @return the max bytes, -1 if it is not set
+	 */
+	public long getSharedArchiveCacheSize( )
+	{
+		Object size = getProperty( SHARED_ARCHIVE_CACHE_SIZE );
+		if ( size instanceof Number )
+		{
+			return ( (Number) size ).longValue( );
+		}
+		if ( size instanceof String )
+		{
+			try
+			{
+				return Long.parseLong( ( (String) size ).trim( ) );
+			}
+			catch ( NumberFormatException ex )
+			{
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Set the max number of the report designs cached by the engine. The
+	 * designs opened by the path of a local file are parsed once and each
+	 * open returns a copy of the cached design until the design or its
+	 * libraries are changed. The designs opened from the streams are never
+	 * cached. 0 disables the cache.
+	 * 
+	 * @param size
+	 *            the max number of the cached designs
+	 */
+	public void setReportDesignCacheSize( int size )
+	{
+		setProperty( REPORT_DESIGN_CACHE_SIZE, Integer.valueOf( size ) );
+	}
+
+	/**
+	 * Get the max number of the cached report designs
+	 * 
+	 * @return the max number, 0 if it is not set
+	 */
+	public int getReportDesignCacheSize( )
+	{
+		Object size = getProperty( REPORT_DESIGN_CACHE_SIZE );
+		if ( size instanceof Number )
+		{
+			return ( (Number) size ).intValue( );
+		}
+		if ( size instanceof String )
+		{
+			try
+			{
+				return Integer.parseInt( ( (String) size ).trim( ) );
+			}
+			catch ( NumberFormatException ex )
+			{
+			}
+		}
+		return 0;
+	}
+
 	/**
 	 * Sets default emitter for an output format.
 	 * 
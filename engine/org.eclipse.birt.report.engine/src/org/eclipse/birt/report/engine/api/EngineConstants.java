@@ -80,4 +80,37 @@ public class EngineConstants {
 	 * The Engine task owning the application context
 	 */
 	public final static String APPCONTEXT_ENGINE_TASK = "EngineTask";
+
+	/**
+	 * The option of openReportDocument. If it is set to True, the report
+	 * document file is mapped into memory and read without file reads, which
+	 * helps paging through large documents. The default value is false.
+	 */
+	public final static String OPTION_MEMORY_MAPPED_DOCUMENT = "MEMORY_MAPPED_DOCUMENT"; //$NON-NLS-1$
+
+	/**
+	 * The max count of the threads which execute the independent top level
+	 * queries of the report ahead of the report items. The queries are still
+	 * processed one by one, but the data sources run at the same time. The
+	 * value is an Integer or its string, and the queries are not prefetched if
+	 * it is not set, not a number or not positive.
+	 */
+	public final static String APPCONTEXT_QUERY_PREFETCH_THREADS = "QUERY_PREFETCH_THREADS"; //$NON-NLS-1$
+
+	/**
+	 * The option of the run task. If it is set to True, the contents are saved
+	 * into the report document in the packed content stream, in which the
+	 * contents are saved in the compressed blocks and the styles are shared by
+	 * the contents. The document is smaller and faster to render, but it can't
+	 * be opened by the engines before this option is added. The default value
+	 * is false.
+	 */
+	public final static String APPCONTEXT_PACKED_CONTENT_STREAM = "PACKED_CONTENT_STREAM"; //$NON-NLS-1$
+
+	/**
+	 * The option of the run task. If it is set to True, the TOC and the
+	 * bookmark indexes of the report document are written by a writer thread,
+	 * so the generation isn't blocked by them. The default value is false.
+	 */
+	public final static String APPCONTEXT_ASYNC_DOCUMENT_INDEX = "ASYNC_DOCUMENT_INDEX"; //$NON-NLS-1$
 }
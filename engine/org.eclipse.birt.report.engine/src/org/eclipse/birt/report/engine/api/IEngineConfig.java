@@ -64,4 +64,15 @@ public interface IEngineConfig extends IPlatformConfig
 	 * The max rows per query
 	 */
 	static final String MAX_ROWS_PER_QUERY = "maxRowsPerQuery";
+
+	/**
+	 * The max bytes of the block cache shared by the readers of the same
+	 * report document in the JVM.
+	 */
+	static final String SHARED_ARCHIVE_CACHE_SIZE = "sharedArchiveCacheSize";
+
+	/**
+	 * The max number of the parsed report designs cached by the engine.
+	 */
+	static final String REPORT_DESIGN_CACHE_SIZE = "reportDesignCacheSize";
 }
@@ -73,6 +73,31 @@ public interface IRenderOption extends ITaskOption
 	
 	public static final String REPORTLET_SIZE = "reportletSize";
 
+	/**
+	 * The number of threads which lay out the pages of the paper size outputs,
+	 * such as PDF and PostScript. The value is an Integer object, default is
+	 * 1, which lays out all the pages in the render thread. It only takes
+	 * effect when the pages are rendered one by one, that is when the report
+	 * uses the fixed layout or a part of the pages is rendered.
+	 */
+	public static final String RENDER_THREADS = "renderThreads"; //$NON-NLS-1$
+
+	/**
+	 * The number of pages a render thread lays out at a time. The value is an
+	 * Integer object, default is 50.
+	 */
+	public static final String RENDER_CHUNK_SIZE = "renderChunkSize"; //$NON-NLS-1$
+
+	/**
+	 * The size in bytes of the output buffers of the emitters. If it is set,
+	 * the emitter writes the output into one of the two buffers of this size
+	 * while the other one is written into the output stream or file in a
+	 * background thread, so the layout is not stalled by a slow output stream.
+	 * The value is an Integer object, default is 0, which writes the output in
+	 * the render thread.
+	 */
+	public static final String ASYNC_OUTPUT_BUFFER_SIZE = "asyncOutputBufferSize"; //$NON-NLS-1$
+
 	/**
 	 * @return
 	 * @deprecated use getOptions instead
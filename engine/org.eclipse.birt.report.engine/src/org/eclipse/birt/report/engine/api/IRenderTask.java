@@ -146,6 +146,15 @@ public interface IRenderTask extends IEngineTask
 	 */
 	public abstract long getPageCount( ) throws EngineException;
 
+	/**
+	 * Gets the time the emitter waited for its output writer thread during
+	 * the last render. It is 0 unless the render option
+	 * IRenderOption.ASYNC_OUTPUT_BUFFER_SIZE is set.
+	 * 
+	 * @return the blocked time in milliseconds
+	 */
+	public abstract long getOutputBlockedTime( );
+
 	/**
 	 * @return the visible page count in the report. 
 	 */
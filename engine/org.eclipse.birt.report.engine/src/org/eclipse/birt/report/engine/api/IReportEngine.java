@@ -109,6 +109,24 @@ public interface IReportEngine
 	public IReportRunnable openReportDesign( String designName,
 			IResourceLocator locator ) throws EngineException;
 
+	/**
+	 * Opens a report design file with the options used to parse the design.
+	 * Unlike the stream versions, the design may be taken from the design
+	 * cache of the engine.
+	 * 
+	 * @param  designName
+	 *            the full path of the report design file
+	 * @param  options
+	 *            options used to parse the design.
+	 * @return a report design runnable object
+	 * @throws EngineException
+	 *             throwed when the input file does not exist, or the file is
+	 *             invalid
+	 * @see EngineConfig#setReportDesignCacheSize(int)
+	 */
+	public IReportRunnable openReportDesign( String designName, Map options )
+			throws EngineException;
+
 	/**
 	 * Opens a report designHandle and creates a report design runnable. From the
 	 * ReportRunnable object, embedded images and parameter definitions can be
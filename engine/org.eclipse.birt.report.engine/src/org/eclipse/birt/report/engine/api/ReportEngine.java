@@ -379,6 +379,24 @@ public class ReportEngine implements IReportEngine
 		return engine.openReportDesign( designName, locator );
 	}
 
+	/**
+	 * opens a report design file with the options used to parse the design.
+	 * 
+	 * @param  designName
+	 *            the full path of the report design file
+	 * @param  options
+	 *            options used to parse the design.
+	 * @return a report design runnable object
+	 * @throws EngineException
+	 *             throwed when the input file does not exist, or the file is
+	 *             invalid
+	 */
+	public IReportRunnable openReportDesign( String designName, Map options )
+			throws EngineException
+	{
+		return engine.openReportDesign( designName, options );
+	}
+
 	/**
 	 * opens a report design stream and creates a report design runnable. From
 	 * the ReportRunnable object, embedded images and parameter definitions can
@@ -61,6 +61,7 @@ import org.eclipse.birt.report.engine.content.IContent;
 import org.eclipse.birt.report.engine.content.impl.ReportContent;
 import org.eclipse.birt.report.engine.css.dom.AbstractStyle;
 import org.eclipse.birt.report.engine.data.dte.DocumentDataSource;
+import org.eclipse.birt.report.engine.emitter.AsyncOutputStream;
 import org.eclipse.birt.report.engine.emitter.EngineEmitterServices;
 import org.eclipse.birt.report.engine.emitter.IContentEmitter;
 import org.eclipse.birt.report.engine.executor.EngineExtensionManager;
@@ -158,6 +159,12 @@ public abstract class EngineTask implements IEngineTask
 	 */
 	protected ExecutionContext executionContext;
 
+	/**
+	 * the services of the emitters initialized by the last render, they
+	 * track the output writer threads of the emitters.
+	 */
+	private List<EngineEmitterServices> emitterServices = new ArrayList<EngineEmitterServices>( );
+
 	/**
 	 * task identifier. Could be used for logging
 	 */
@@ -2331,6 +2338,10 @@ public abstract class EngineTask implements IEngineTask
 		IRenderOption options = executionContext.getRenderOption( );
 		EngineEmitterServices services = new EngineEmitterServices(
 				reportContext, options, configs );
+		synchronized ( emitterServices )
+		{
+			emitterServices.add( services );
+		}
 
 		// emitter is not null
 		emitter.initialize( services );
@@ -2341,6 +2352,62 @@ public abstract class EngineTask implements IEngineTask
 		return taskType;
 	}
 
+	/**
+	 * returns the time the emitters of the last render waited for their
+	 * output writer threads. It is 0 unless the render option
+	 * ASYNC_OUTPUT_BUFFER_SIZE is set.
+	 * 
+	 * @return the blocked time in milliseconds
+	 */
+	public long getOutputBlockedTime( )
+	{
+		long blockedTime = 0;
+		synchronized ( emitterServices )
+		{
+			for ( EngineEmitterServices services : emitterServices )
+			{
+				for ( AsyncOutputStream out : services
+						.getAsyncOutputStreams( ) )
+				{
+					blockedTime += out.getBlockedTime( );
+				}
+			}
+		}
+		return blockedTime;
+	}
+
+	/**
+	 * forgets the emitters of the previous render, it is called before a
+	 * render starts.
+	 */
+	protected void resetOutputWriters( )
+	{
+		synchronized ( emitterServices )
+		{
+			emitterServices.clear( );
+		}
+	}
+
+	/**
+	 * stops the output writer threads which are still running because the
+	 * emitter did not close its output, e.g. the render failed. It is called
+	 * when a render finishes.
+	 */
+	protected void stopOutputWriters( )
+	{
+		synchronized ( emitterServices )
+		{
+			for ( EngineEmitterServices services : emitterServices )
+			{
+				for ( AsyncOutputStream out : services
+						.getAsyncOutputStreams( ) )
+				{
+					out.stop( );
+				}
+			}
+		}
+	}
+
 	protected void changeStatusToRunning( )
 	{
 		runningStatus = STATUS_RUNNING;
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.birt.report.engine.api.EngineException;
+import org.eclipse.birt.report.engine.content.IPageContent;
+import org.eclipse.birt.report.engine.emitter.ContentEmitterAdapter;
+import org.eclipse.birt.report.engine.emitter.IContentEmitter;
+import org.eclipse.birt.report.engine.layout.html.HTMLLayoutContext;
+import org.eclipse.birt.report.engine.nLayout.LayoutContext;
+import org.eclipse.birt.report.engine.nLayout.LayoutEngine;
+
+/**
+ * Lays out a chunk of the pages for the parallel render of RenderTask.
+ * <p>
+ * The task has its own execution context and document reader, and it runs in
+ * a thread of the render pool. The laid out pages are kept instead of being
+ * written, the render task then outputs them in the page order through its
+ * own emitter.
+ */
+class PageChunkRenderTask extends RenderTask
+{
+
+	private PageCollector collector = new PageCollector( );
+
+	private LayoutEngine pageLayoutEngine;
+
+	private List renderErrors;
+
+	PageChunkRenderTask( ReportEngine engine, ReportDocumentReader reportDoc )
+	{
+		super( engine, reportDoc );
+	}
+
+	protected IContentEmitter createContentEmitter( ) throws EngineException
+	{
+		// the emitter decides the pagination and the render options
+		super.createContentEmitter( );
+		return collector;
+	}
+
+	protected LayoutEngine createPageLayoutEngine( HTMLLayoutContext context,
+			IContentEmitter emitter )
+	{
+		pageLayoutEngine = super.createPageLayoutEngine( context, emitter );
+		// the header of the first page is handled by the render task
+		pageLayoutEngine.setFirstPage( false );
+		return pageLayoutEngine;
+	}
+
+	public void close( )
+	{
+		// the errors are reported by the render task after this task is closed
+		renderErrors = getErrors( );
+		super.close( );
+	}
+
+	/**
+	 * @return the errors of the task, it is available after the task is closed.
+	 */
+	List getRenderErrors( )
+	{
+		return renderErrors;
+	}
+
+	/**
+	 * @return the pages laid out by the task
+	 */
+	List<IPageContent> getPages( )
+	{
+		return collector.pages;
+	}
+
+	/**
+	 * @return the context of the layout engine, null if no page is laid out.
+	 */
+	LayoutContext getLayoutContext( )
+	{
+		return pageLayoutEngine == null ? null : pageLayoutEngine.getContext( );
+	}
+
+	private class PageCollector extends ContentEmitterAdapter
+	{
+
+		private ArrayList<IPageContent> pages = new ArrayList<IPageContent>( );
+
+		public String getOutputFormat( )
+		{
+			return format;
+		}
+
+		public void startPage( IPageContent page )
+		{
+			pages.add( page );
+		}
+
+		public void endPage( IPageContent page )
+		{
+		}
+	}
+}
@@ -15,7 +15,15 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 
 import org.eclipse.birt.core.exception.BirtException;
@@ -32,6 +40,7 @@ import org.eclipse.birt.report.engine.api.IReportDocumentInfo;
 import org.eclipse.birt.report.engine.api.IReportRunnable;
 import org.eclipse.birt.report.engine.api.ITOCTree;
 import org.eclipse.birt.report.engine.api.InstanceID;
+import org.eclipse.birt.report.engine.api.RenderOption;
 import org.eclipse.birt.report.engine.content.IReportContent;
 import org.eclipse.birt.report.engine.emitter.IContentEmitter;
 import org.eclipse.birt.report.engine.executor.EngineExtensionManager;
@@ -57,6 +66,7 @@ import org.eclipse.birt.report.engine.layout.IReportLayoutEngine;
 import org.eclipse.birt.report.engine.layout.html.HTMLLayoutContext;
 import org.eclipse.birt.report.engine.layout.html.HTMLReportLayoutEngine;
 import org.eclipse.birt.report.engine.layout.pdf.emitter.LayoutEngineContext;
+import org.eclipse.birt.report.engine.nLayout.LayoutContext;
 import org.eclipse.birt.report.engine.nLayout.LayoutEngine;
 import org.eclipse.birt.report.engine.parser.ReportParser;
 import org.eclipse.birt.report.engine.presentation.IPageHint;
@@ -87,6 +97,11 @@ public class RenderTask extends EngineTask implements IRenderTask
 	// the html layout engine
 	private IReportLayoutEngine layoutEngine = null;
 
+	// the tasks which lay out the pages in the parallel render
+	private List<RenderTask> chunkTasks = new ArrayList<RenderTask>( );
+
+	private static final int DEFAULT_RENDER_CHUNK_SIZE = 50;
+
 	/**
 	 * @param engine
 	 *            the report engine
@@ -271,6 +286,7 @@ public class RenderTask extends EngineTask implements IRenderTask
 			progressMonitor.onProgress( IProgressMonitor.START_TASK,
 					TASK_RENDER );
 		}
+		resetOutputWriters( );
 		try
 		{
 			switchToOsgiClassLoader( );
@@ -326,6 +342,7 @@ public class RenderTask extends EngineTask implements IRenderTask
 		}
 		finally
 		{
+			stopOutputWriters( );
 			changeStatusToStopped( );
 			switchClassLoaderBack( );
 			if ( progressMonitor != null )
@@ -421,6 +438,24 @@ public class RenderTask extends EngineTask implements IRenderTask
 		{
 			layoutEngine.cancel( );
 		}
+		synchronized ( chunkTasks )
+		{
+			for ( RenderTask task : chunkTasks )
+			{
+				task.cancel( );
+			}
+		}
+	}
+
+	/**
+	 * creates the layout engine which paginates the content of the paper size
+	 * outputs.
+	 */
+	protected LayoutEngine createPageLayoutEngine( HTMLLayoutContext context,
+			IContentEmitter emitter )
+	{
+		return new LayoutEngine( context, emitter, renderOptions,
+				executionContext, getDocumentTotalPage( ) );
 	}
 
 	private interface InnerRender
@@ -603,11 +638,9 @@ public class RenderTask extends EngineTask implements IRenderTask
 			}
 			if ( ExtensionManager.PAPER_SIZE_PAGINATION.equals( pagination ) )
 			{
-				LayoutEngine pdfEmitter = new LayoutEngine(
+				LayoutEngine pdfEmitter = createPageLayoutEngine(
 						( (HTMLReportLayoutEngine) layoutEngine ).getContext( ),
-						emitter,
-						renderOptions, executionContext,
-						getDocumentTotalPage( ) );
+						emitter );
 				pdfEmitter.setPageHandler( layoutPageHandler );
 				
 				emitter = pdfEmitter;
@@ -646,9 +679,20 @@ public class RenderTask extends EngineTask implements IRenderTask
 			emitter.start( report );
 			layoutEngine.setTotalPageCount( getTotalPage( ) );
 
+			long parallelPageCount = -1;
 			if ( ExtensionManager.PAPER_SIZE_PAGINATION.equals( pagination ) )
 			{
-				if ( !paged )
+				List<long[]> chunks = null;
+				if ( paged && filteredTotalPage == totalPage )
+				{
+					chunks = getParallelRenderChunks( physicalPageSequences );
+				}
+				if ( chunks != null )
+				{
+					parallelPageCount = renderPagesInParallel(
+							(LayoutEngine) emitter, chunks );
+				}
+				else if ( !paged )
 				{
 					long pageNumber = iter.next( );
 					if ( pageNumber != 1 )
@@ -729,7 +773,9 @@ public class RenderTask extends EngineTask implements IRenderTask
 			{
 				layoutEngine.layout( executor, report, emitter, false );
 			}
-			outputPageCount = layoutEngine.getPageCount( );
+			outputPageCount = parallelPageCount >= 0
+					? parallelPageCount
+					: layoutEngine.getPageCount( );
 
 			layoutEngine.close( );
 			layoutEngine = null;
@@ -750,6 +796,240 @@ public class RenderTask extends EngineTask implements IRenderTask
 		}
 	}
 
+	/**
+	 * splits the pages into the chunks of the parallel render.
+	 * 
+	 * @return the chunks, null if the pages should be rendered in this thread.
+	 */
+	private List<long[]> getParallelRenderChunks( List<long[]> pageSequences )
+	{
+		if ( getIntOption( IRenderOption.RENDER_THREADS, 1 ) <= 1
+				|| !( reportDocument instanceof ReportDocumentReader ) )
+		{
+			return null;
+		}
+		int chunkSize = Math.max( 1, getIntOption(
+				IRenderOption.RENDER_CHUNK_SIZE, DEFAULT_RENDER_CHUNK_SIZE ) );
+		List<long[]> chunks = new ArrayList<long[]>( );
+		for ( long[] pages : pageSequences )
+		{
+			for ( long start = pages[0]; start <= pages[1]; start += chunkSize )
+			{
+				chunks.add( new long[]{start,
+						Math.min( pages[1], start + chunkSize - 1 )} );
+			}
+		}
+		return chunks.size( ) > 1 ? chunks : null;
+	}
+
+	private int getIntOption( String name, int defaultValue )
+	{
+		Object value = renderOptions.getOption( name );
+		if ( value instanceof Number )
+		{
+			return ( (Number) value ).intValue( );
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * lays out the chunks of pages in a thread pool and outputs the pages in
+	 * order. Each chunk is laid out by a PageChunkRenderTask which has its own
+	 * execution context and document reader.
+	 * 
+	 * @return the number of the output pages
+	 */
+	private long renderPagesInParallel( LayoutEngine pageEmitter,
+			List<long[]> chunks ) throws Exception
+	{
+		final int threads = getIntOption( IRenderOption.RENDER_THREADS, 1 );
+		ExecutorService service = Executors.newFixedThreadPool( threads,
+				new ThreadFactory( ) {
+
+					public Thread newThread( Runnable r )
+					{
+						Thread thread = new Thread( r, "BIRT Page Render" ); //$NON-NLS-1$
+						thread.setDaemon( true );
+						return thread;
+					}
+				} );
+		Map<String, Object> options = new HashMap<String, Object>(
+				renderOptions.getOptions( ) );
+		// the chunks are not written, so they never touch the output
+		options.remove( IRenderOption.OUTPUT_STREAM );
+		options.remove( IRenderOption.OUTPUT_FILE_NAME );
+		options.remove( IRenderOption.CLOSE_OUTPUTSTREAM_ON_EXIT );
+		options.put( IRenderOption.RENDER_THREADS, Integer.valueOf( 1 ) );
+
+		// keep more chunks than threads in progress, so the threads are busy
+		// while the finished chunks are written
+		LinkedList<PageChunkRender> pending = new LinkedList<PageChunkRender>( );
+		int next = 0;
+		try
+		{
+			while ( next < chunks.size( ) || !pending.isEmpty( ) )
+			{
+				while ( next < chunks.size( ) && pending.size( ) < threads * 2 )
+				{
+					PageChunkRender chunk = new PageChunkRender( options,
+							chunks.get( next++ ) );
+					chunk.future = service.submit( chunk );
+					pending.add( chunk );
+				}
+				if ( executionContext.isCanceled( ) )
+				{
+					break;
+				}
+				PageChunkRender chunk = pending.removeFirst( );
+				PageChunkRenderTask task;
+				try
+				{
+					task = chunk.future.get( );
+					// the pages still refer to the document of the chunk, it
+					// is closed once they are written
+					LayoutContext context = task.getLayoutContext( );
+					if ( context != null )
+					{
+						pageEmitter.outputPages( context, task.getPages( ) );
+					}
+				}
+				catch ( ExecutionException ex )
+				{
+					Throwable cause = ex.getCause( );
+					if ( cause instanceof Exception )
+					{
+						throw (Exception) cause;
+					}
+					throw ex;
+				}
+				finally
+				{
+					chunk.close( );
+				}
+				for ( Object error : task.getRenderErrors( ) )
+				{
+					if ( error instanceof BirtException )
+					{
+						executionContext.addException( (BirtException) error );
+					}
+				}
+			}
+		}
+		finally
+		{
+			if ( !pending.isEmpty( ) )
+			{
+				synchronized ( chunkTasks )
+				{
+					for ( RenderTask task : chunkTasks )
+					{
+						task.cancel( );
+					}
+				}
+				for ( PageChunkRender chunk : pending )
+				{
+					chunk.close( );
+				}
+			}
+			service.shutdownNow( );
+		}
+		return pageEmitter.getContext( ).getPageCount( );
+	}
+
+	/**
+	 * renders a chunk of pages in a thread of the parallel render. The task
+	 * and its document reader stay open after the render, until the render
+	 * task has written the pages and closes the chunk.
+	 */
+	private class PageChunkRender implements Callable<PageChunkRenderTask>
+	{
+
+		private Map<String, Object> options;
+		private long[] pages;
+		private Future<PageChunkRenderTask> future;
+
+		private ReportDocumentReader reader;
+		private PageChunkRenderTask task;
+		private boolean rendering;
+		private boolean closed;
+
+		PageChunkRender( Map<String, Object> options, long[] pages )
+		{
+			this.options = options;
+			this.pages = pages;
+		}
+
+		public PageChunkRenderTask call( ) throws Exception
+		{
+			ReportDocumentReader document = (ReportDocumentReader) reportDocument;
+			synchronized ( this )
+			{
+				if ( closed )
+				{
+					return null;
+				}
+				reader = new ReportDocumentReader( document.getSystemId( ),
+						engine, document.getArchive( ), true );
+				task = new PageChunkRenderTask( engine, reader );
+				rendering = true;
+			}
+			synchronized ( chunkTasks )
+			{
+				chunkTasks.add( task );
+			}
+			try
+			{
+				task.setAppContext( executionContext.getAppContext( ) );
+				task.setLocale( getULocale( ) );
+				task.setTimeZone( getTimeZone( ) );
+				task.setRenderOption( new RenderOption( new HashMap<String, Object>(
+						options ) ) );
+				task.setPageRange( pages[0] + "-" + pages[1] ); //$NON-NLS-1$
+				task.render( );
+				return task;
+			}
+			finally
+			{
+				synchronized ( chunkTasks )
+				{
+					chunkTasks.remove( task );
+				}
+				synchronized ( this )
+				{
+					rendering = false;
+					if ( closed )
+					{
+						closeTask( );
+					}
+				}
+			}
+		}
+
+		/**
+		 * closes the task and the reader of the chunk, or lets the render
+		 * close them when it ends if it is still running.
+		 */
+		synchronized void close( )
+		{
+			closed = true;
+			if ( !rendering )
+			{
+				closeTask( );
+			}
+		}
+
+		private void closeTask( )
+		{
+			if ( task != null )
+			{
+				task.close( );
+				reader.close( );
+				task = null;
+				reader = null;
+			}
+		}
+	}
+
 	protected class ReportletRender implements InnerRender
 	{
 
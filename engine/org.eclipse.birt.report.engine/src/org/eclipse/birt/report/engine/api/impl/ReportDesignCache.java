@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api.impl;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.report.model.api.LibraryHandle;
+import org.eclipse.birt.report.model.api.ReportDesignHandle;
+
+/**
+ * A LRU cache of the parsed report designs opened from the local files.
+ * <p>
+ * The cached runnable is never given out. Each hit returns a copy of it, so
+ * the runnables returned by the cache can be used by different threads. An
+ * entry is valid only if the design file and all the libraries it includes
+ * have the same last modified time and length as they had when the design
+ * was parsed.
+ */
+class ReportDesignCache
+{
+
+	private int capacity;
+
+	private LinkedHashMap<CacheKey, CacheEntry> entries;
+
+	ReportDesignCache( int capacity )
+	{
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<CacheKey, CacheEntry>( 16, 0.75f,
+				true );
+	}
+
+	/**
+	 * returns a copy of the cached runnable.
+	 *
+	 * @param designName
+	 *            the system id of the design
+	 * @param options
+	 *            the module options used to parse the design
+	 * @return the copy, null if the design is not cached or has been changed.
+	 */
+	ReportRunnable get( String designName, Map options )
+	{
+		CacheKey key = new CacheKey( designName, options );
+		CacheEntry entry;
+		synchronized ( this )
+		{
+			entry = entries.get( key );
+		}
+		if ( entry == null )
+		{
+			return null;
+		}
+		if ( !entry.isValid( ) )
+		{
+			synchronized ( this )
+			{
+				if ( entries.get( key ) == entry )
+				{
+					entries.remove( key );
+				}
+			}
+			return null;
+		}
+		return entry.copyRunnable( );
+	}
+
+	/**
+	 * caches the runnable. The runnable is owned by the cache after this call
+	 * and the caller should use the returned copy.
+	 *
+	 * @param designName
+	 *            the system id of the design
+	 * @param options
+	 *            the module options used to parse the design
+	 * @param runnable
+	 *            the parsed design
+	 * @return the copy of the runnable, or the runnable itself if it can't be
+	 *         cached.
+	 */
+	ReportRunnable put( String designName, Map options,
+			ReportRunnable runnable )
+	{
+		File[] files = getSourceFiles( designName, runnable.getReport( ) );
+		if ( files == null )
+		{
+			return runnable;
+		}
+		CacheEntry entry = new CacheEntry( runnable, files );
+		synchronized ( this )
+		{
+			entries.put( new CacheKey( designName, options ), entry );
+			if ( entries.size( ) > capacity )
+			{
+				Iterator<CacheKey> iter = entries.keySet( ).iterator( );
+				iter.next( );
+				iter.remove( );
+			}
+		}
+		return entry.copyRunnable( );
+	}
+
+	synchronized void clear( )
+	{
+		entries.clear( );
+	}
+
+	synchronized int size( )
+	{
+		return entries.size( );
+	}
+
+	/**
+	 * returns the design file followed by the files of the libraries, null if
+	 * any of them is not a local file.
+	 */
+	private File[] getSourceFiles( String designName,
+			ReportDesignHandle design )
+	{
+		List libraries = design.getAllLibraries( );
+		File[] files = new File[libraries.size( ) + 1];
+		files[0] = toFile( designName );
+		if ( files[0] == null )
+		{
+			return null;
+		}
+		for ( int i = 0; i < libraries.size( ); i++ )
+		{
+			LibraryHandle library = (LibraryHandle) libraries.get( i );
+			files[i + 1] = toFile( library.getFileName( ) );
+			if ( files[i + 1] == null )
+			{
+				return null;
+			}
+		}
+		return files;
+	}
+
+	private File toFile( String name )
+	{
+		if ( name == null )
+		{
+			return null;
+		}
+		try
+		{
+			URL url = new URL( name );
+			if ( "file".equals( url.getProtocol( ) ) ) //$NON-NLS-1$
+			{
+				File file = new File( new URI( url.toString( ).replace( " ", //$NON-NLS-1$
+						"%20" ) ) ); //$NON-NLS-1$
+				return file.isFile( ) ? file : null;
+			}
+			return null;
+		}
+		catch ( Exception ex )
+		{
+			File file = new File( name );
+			return file.isFile( ) ? file : null;
+		}
+	}
+
+	private static class CacheKey
+	{
+
+		private String designName;
+		private Map options;
+
+		CacheKey( String designName, Map options )
+		{
+			this.designName = designName;
+			this.options = options == null ? new HashMap( ) : new HashMap(
+					options );
+		}
+
+		public int hashCode( )
+		{
+			return designName.hashCode( ) * 31 + options.hashCode( );
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( !( obj instanceof CacheKey ) )
+			{
+				return false;
+			}
+			CacheKey key = (CacheKey) obj;
+			return designName.equals( key.designName )
+					&& options.equals( key.options );
+		}
+	}
+
+	private static class CacheEntry
+	{
+
+		private ReportRunnable runnable;
+		private File[] files;
+		private long[] lastModified;
+		private long[] length;
+
+		CacheEntry( ReportRunnable runnable, File[] files )
+		{
+			this.runnable = runnable;
+			this.files = files;
+			this.lastModified = new long[files.length];
+			this.length = new long[files.length];
+			for ( int i = 0; i < files.length; i++ )
+			{
+				lastModified[i] = files[i].lastModified( );
+				length[i] = files[i].length( );
+			}
+		}
+
+		boolean isValid( )
+		{
+			for ( int i = 0; i < files.length; i++ )
+			{
+				if ( files[i].lastModified( ) != lastModified[i]
+						|| files[i].length( ) != length[i] )
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * the model doesn't support the concurrent access to the same design,
+		 * so the copies are made one by one.
+		 */
+		synchronized ReportRunnable copyRunnable( )
+		{
+			return runnable.cloneRunnable( );
+		}
+	}
+}
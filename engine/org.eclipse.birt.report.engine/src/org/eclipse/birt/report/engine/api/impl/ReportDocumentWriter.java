@@ -30,6 +30,7 @@ import org.eclipse.birt.report.engine.api.IReportEngine;
 import org.eclipse.birt.report.engine.api.InstanceID;
 import org.eclipse.birt.report.engine.content.impl.BookmarkContent;
 import org.eclipse.birt.report.engine.i18n.MessageConstants;
+import org.eclipse.birt.report.engine.internal.document.DocumentWriterQueue;
 import org.eclipse.birt.report.engine.internal.index.DocumentIndexWriter;
 import org.eclipse.birt.report.engine.internal.util.BundleVersionUtil;
 import org.eclipse.birt.report.engine.ir.EngineIRWriter;
@@ -53,6 +54,7 @@ public class ReportDocumentWriter implements ReportDocumentConstants
 	private HashMap paramters = new HashMap( );
 	private HashMap globalVariables = new HashMap( );
 	private DocumentIndexWriter indexWriter;
+	private DocumentWriterQueue writerQueue;
 	private int checkpoint = CHECKPOINT_INIT;
 	private long pageCount = PAGECOUNT_INIT;
 	
@@ -102,6 +104,27 @@ public class ReportDocumentWriter implements ReportDocumentConstants
 		return this.archive;
 	}
 
+	/**
+	 * writes the TOC and the indexes in a writer thread, so the generation
+	 * isn't blocked by them. It must be set before the TOC is created.
+	 */
+	public void setAsyncWriter( boolean async )
+	{
+		if ( async && writerQueue == null )
+		{
+			writerQueue = new DocumentWriterQueue( );
+		}
+	}
+
+	/**
+	 * @return the queue of the writer thread, null if the TOC and the indexes
+	 *         are written in the generation thread.
+	 */
+	public DocumentWriterQueue getWriterQueue( )
+	{
+		return writerQueue;
+	}
+
 	protected boolean finished = false;
 	
 	public void finish()
@@ -122,17 +145,54 @@ public class ReportDocumentWriter implements ReportDocumentConstants
 	
 	public void close( )
 	{
+		if ( writerQueue != null )
+		{
+			IOException error = null;
+			try
+			{
+				writerQueue.submit( new DocumentWriterQueue.Task( ) {
+
+					public void run( ) throws IOException
+					{
+						closeIndexWriter( );
+					}
+				} );
+			}
+			catch ( IOException ex )
+			{
+				error = ex;
+			}
+			finally
+			{
+				try
+				{
+					writerQueue.close( );
+				}
+				catch ( IOException ex )
+				{
+					if ( error == null )
+					{
+						error = ex;
+					}
+				}
+				writerQueue = null;
+			}
+			if ( error != null )
+			{
+				logger.log( Level.SEVERE, "Failed to close the indexes", error );
+			}
+		}
+		// the writer thread skips the close of the indexes once a task fails
 		if ( indexWriter != null )
 		{
 			try
 			{
-				indexWriter.close( );
+				closeIndexWriter( );
 			}
 			catch ( IOException ex )
 			{
 				logger.log( Level.SEVERE, "Failed to close the indexes", ex );
 			}
-			indexWriter = null;
 		}
 		if ( !finished )
 		{
@@ -150,6 +210,21 @@ public class ReportDocumentWriter implements ReportDocumentConstants
 		
 	}
 
+	private void closeIndexWriter( ) throws IOException
+	{
+		if ( indexWriter != null )
+		{
+			try
+			{
+				indexWriter.close( );
+			}
+			finally
+			{
+				indexWriter = null;
+			}
+		}
+	}
+
 	public String getName( )
 	{
 		return archive.getName( );
@@ -262,6 +337,11 @@ public class ReportDocumentWriter implements ReportDocumentConstants
 
 	public void saveCoreStreams( ) throws Exception
 	{
+		if ( writerQueue != null )
+		{
+			// the TOC is complete in the checkpoint
+			writerQueue.flush( );
+		}
 		Object lock = archive.lock( CORE_STREAM );
 		try
 		{
@@ -400,17 +480,24 @@ public class ReportDocumentWriter implements ReportDocumentConstants
 		}
 	}
 	
-	public void setBookmark( String bookmark, BookmarkContent content )
+	public void setBookmark( final String bookmark,
+			final BookmarkContent content )
 	{
 		try
 		{
-			if ( indexWriter == null )
+			if ( writerQueue != null )
 			{
-				indexWriter = new DocumentIndexWriter( archive );
+				writerQueue.submit( new DocumentWriterQueue.Task( ) {
+
+					public void run( ) throws IOException
+					{
+						getIndexWriter( ).setBookmark( bookmark, content );
+					}
+				} );
 			}
-			if ( indexWriter != null )
+			else
 			{
-				indexWriter.setBookmark( bookmark, content );
+				getIndexWriter( ).setBookmark( bookmark, content );
 			}
 		}
 		catch ( IOException ex )
@@ -419,17 +506,24 @@ public class ReportDocumentWriter implements ReportDocumentConstants
 		}
 	}
 
-	public void setOffsetOfBookmark( String bookmark, long offset ) throws IOException
+	public void setOffsetOfBookmark( final String bookmark, final long offset )
+			throws IOException
 	{
 		try
 		{
-			if ( indexWriter == null )
+			if ( writerQueue != null )
 			{
-				indexWriter = new DocumentIndexWriter( archive );
+				writerQueue.submit( new DocumentWriterQueue.Task( ) {
+
+					public void run( ) throws IOException
+					{
+						getIndexWriter( ).setOffsetOfBookmark( bookmark, offset );
+					}
+				} );
 			}
-			if ( indexWriter != null )
+			else
 			{
-				indexWriter.setOffsetOfBookmark( bookmark, offset );
+				getIndexWriter( ).setOffsetOfBookmark( bookmark, offset );
 			}
 		}
 		catch ( IOException ex )
@@ -439,17 +533,25 @@ public class ReportDocumentWriter implements ReportDocumentConstants
 		}
 	}
 
-	public void setOffsetOfInstance( String instanceId, long offset ) throws IOException
+	public void setOffsetOfInstance( final String instanceId, final long offset )
+			throws IOException
 	{
 		try
 		{
-			if ( indexWriter == null )
+			if ( writerQueue != null )
 			{
-				indexWriter = new DocumentIndexWriter( archive );
+				writerQueue.submit( new DocumentWriterQueue.Task( ) {
+
+					public void run( ) throws IOException
+					{
+						getIndexWriter( ).setOffsetOfInstance( instanceId,
+								offset );
+					}
+				} );
 			}
-			if ( indexWriter != null )
+			else
 			{
-				indexWriter.setOffsetOfInstance( instanceId, offset );
+				getIndexWriter( ).setOffsetOfInstance( instanceId, offset );
 			}
 		}
 		catch ( IOException ex )
@@ -458,4 +560,17 @@ public class ReportDocumentWriter implements ReportDocumentConstants
 			throw ex;
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * the index writer is created once it is used, it is only used by the
+	 * writer thread if the writer queue is set.
+	 */
+	private DocumentIndexWriter getIndexWriter( ) throws IOException
+	{
+		if ( indexWriter == null )
+		{
+			indexWriter = new DocumentIndexWriter( archive );
+		}
+		return indexWriter;
+	}
+}
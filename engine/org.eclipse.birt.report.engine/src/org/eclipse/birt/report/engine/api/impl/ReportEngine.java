@@ -27,6 +27,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.core.archive.IDocArchiveReader;
+import org.eclipse.birt.core.archive.compound.ArchiveFile;
 import org.eclipse.birt.core.archive.compound.IArchiveFile;
 import org.eclipse.birt.core.framework.URLClassLoader;
 import org.eclipse.birt.report.engine.api.DataExtractionFormatInfo;
@@ -146,6 +147,7 @@ public class ReportEngine implements IReportEngine
 		}
 		
 		registerCustomFontConfig( );
+		setupSharedArchiveCache( );
 	}
 
 	private void mergeConfigToAppContext( )
@@ -239,6 +241,18 @@ public class ReportEngine implements IReportEngine
 		}
 	}
 
+	/**
+	 * set the size of the block cache shared by the report document readers.
+	 */
+	private void setupSharedArchiveCache( )
+	{
+		long size = config.getSharedArchiveCacheSize( );
+		if ( size >= 0 )
+		{
+			ArchiveFile.setSharedCacheSize( size );
+		}
+	}
+
 	/**
 	 * get the root scope used by the engine
 	 * 
@@ -600,6 +614,15 @@ public class ReportEngine implements IReportEngine
 		return helper.openReportDesign( designName, locator);
 	}
 
+	public IReportRunnable openReportDesign( String designName, Map options )
+			throws EngineException
+	{
+		logger.log( Level.FINE,
+				"ReportEngine.openReportDesign: design={0}, options={1} ",
+				new Object[]{designName, options} );
+		return helper.openReportDesign( designName, options );
+	}
+
 	public IReportRunnable openReportDesign( String name, InputStream designStream, IResourceLocator locator ) throws EngineException
 	{
 		logger.log( Level.FINE,
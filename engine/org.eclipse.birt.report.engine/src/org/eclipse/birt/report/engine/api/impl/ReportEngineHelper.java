@@ -29,6 +29,7 @@ import org.eclipse.birt.core.archive.compound.IArchiveFile;
 import org.eclipse.birt.report.engine.api.DataExtractionFormatInfo;
 import org.eclipse.birt.report.engine.api.EmitterInfo;
 import org.eclipse.birt.report.engine.api.EngineConfig;
+import org.eclipse.birt.report.engine.api.EngineConstants;
 import org.eclipse.birt.report.engine.api.EngineException;
 import org.eclipse.birt.report.engine.api.IDataExtractionTask;
 import org.eclipse.birt.report.engine.api.IDatasetPreviewTask;
@@ -69,6 +70,11 @@ public class ReportEngineHelper
 
 	private EmitterInfo[] emitterInfos;
 
+	/**
+	 * the parsed report designs, created on demand.
+	 */
+	private ReportDesignCache designCache;
+
 	/**
 	 * constructor
 	 * 
@@ -103,6 +109,31 @@ public class ReportEngineHelper
 	
 	public IReportRunnable openReportDesign( String designName,
 			IResourceLocator locator ) throws EngineException
+	{
+		HashMap options = new HashMap( );
+		if ( locator != null )
+		{
+			options.put( ModuleOption.RESOURCE_LOCATOR_KEY, locator );
+		}
+		return openReportDesign( designName, options );
+	}
+
+	/**
+	 * opens a report design file with the module options. The design is taken
+	 * from the design cache if it is enabled and the file and its libraries
+	 * are not changed since they are cached.
+	 * 
+	 * @param designName
+	 *            the full path of the report design file
+	 * @param options
+	 *            options used to parse the design
+	 * @return a report design runnable object
+	 * @throws EngineException
+	 *             throwed when the input file does not exist, or the file is
+	 *             invalid
+	 */
+	public IReportRunnable openReportDesign( String designName, Map options )
+			throws EngineException
 	{
 		File file = new File( designName );
 		if ( !file.exists( ) )
@@ -115,19 +146,54 @@ public class ReportEngineHelper
 					designName );
 		}
 
+		String systemId = designName;
+		try
+		{
+			systemId = file.toURI( ).toURL( ).toString( );
+		}
+		catch ( MalformedURLException ue )
+		{
+			systemId = designName;
+		}
+		if ( options == null )
+		{
+			options = new HashMap( );
+		}
+		intializeModuleOptions( options );
+		ReportDesignCache cache = getDesignCache( );
+		if ( cache != null )
+		{
+			ReportRunnable runnable = cache.get( systemId, options );
+			if ( runnable != null )
+			{
+				return runnable;
+			}
+		}
+
 		try
 		{
 			InputStream in = new FileInputStream( file );
-			String systemId = designName;
 			try
 			{
-				systemId = file.toURI( ).toURL( ).toString( );
+				ReportRunnable runnable = new ReportRunnable( engine,
+						getReportDesignHandle( systemId, in, options ) );
+				runnable.setReportName( systemId );
+				if ( cache != null )
+				{
+					return cache.put( systemId, options, runnable );
+				}
+				return runnable;
 			}
-			catch ( MalformedURLException ue )
+			finally
 			{
-				systemId = designName;
+				try
+				{
+					in.close( );
+				}
+				catch ( IOException ex )
+				{
+				}
 			}
-			return openReportDesign( systemId, in, locator);
 		}
 		catch ( FileNotFoundException ioe)
 		{
@@ -269,13 +335,44 @@ public class ReportEngineHelper
 			InputStream designStream, Map options )
 			throws EngineException
 	{
-		
+		// the stream may not be the content of the named file, so it is
+		// always parsed without the design cache
 		ReportRunnable runnable = new ReportRunnable( engine,
 				getReportDesignHandle( designName, designStream, options ) );
 		runnable.setReportName( designName );
 		return runnable;
 	}
 
+	/**
+	 * returns the cache of the designs opened from the files, null if it is
+	 * disabled by the engine config.
+	 */
+	private synchronized ReportDesignCache getDesignCache( )
+	{
+		if ( designCache == null )
+		{
+			EngineConfig config = engine.getConfig( );
+			int size = config == null ? 0 : config.getReportDesignCacheSize( );
+			if ( size <= 0 )
+			{
+				return null;
+			}
+			designCache = new ReportDesignCache( size );
+		}
+		return designCache;
+	}
+
+	/**
+	 * removes all the cached designs.
+	 */
+	public synchronized void clearDesignCache( )
+	{
+		if ( designCache != null )
+		{
+			designCache.clear( );
+		}
+	}
+
 	/**
 	 * creates a report design runnable based on a report design handle. From
 	 * the ReportRunnable object, embedded images and parameter definitions can
@@ -424,6 +521,7 @@ public class ReportEngineHelper
 			String docArchiveName, Map options ) throws EngineException
 	{
 		IDocArchiveReader reader = null;
+		boolean memoryMapped = isMemoryMappedDocument( options );
 		try
 		{
 			File file = new File( docArchiveName );
@@ -435,7 +533,8 @@ public class ReportEngineHelper
 				}
 				else
 				{
-					reader = new FileArchiveReader( docArchiveName );
+					reader = new FileArchiveReader( docArchiveName,
+							memoryMapped );
 				}
 			} 
 			else
@@ -447,7 +546,8 @@ public class ReportEngineHelper
 				}
 				else
 				{
-					reader = new FileArchiveReader( docArchiveName );
+					reader = new FileArchiveReader( docArchiveName,
+							memoryMapped );
 				}
 			}
 		}
@@ -459,6 +559,20 @@ public class ReportEngineHelper
 		return openReportDocument( systemId, reader, options );
 	}
 
+	private boolean isMemoryMappedDocument( Map options )
+	{
+		if ( options == null )
+		{
+			return false;
+		}
+		Object value = options.get( EngineConstants.OPTION_MEMORY_MAPPED_DOCUMENT );
+		if ( value instanceof Boolean )
+		{
+			return ( (Boolean) value ).booleanValue( );
+		}
+		return value != null && "true".equalsIgnoreCase( value.toString( ) );
+	}
+
 	public IReportDocument openReportDocument( String systemId,
 			IDocArchiveReader archive, IResourceLocator locator )
 			throws EngineException
@@ -70,6 +70,7 @@ public class RunAndRenderTask extends EngineTask implements IRunAndRenderTask
 			progressMonitor.onProgress( IProgressMonitor.START_TASK,
 					TASK_RUNANDRENDER );
 		}
+		resetOutputWriters( );
 		try
 		{
 			switchToOsgiClassLoader( );
@@ -78,6 +79,7 @@ public class RunAndRenderTask extends EngineTask implements IRunAndRenderTask
 		}
 		finally
 		{
+			stopOutputWriters( );
 			changeStatusToStopped( );
 			switchClassLoaderBack( );
 			if ( progressMonitor != null )
@@ -15,6 +15,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.birt.core.archive.FileArchiveWriter;
 import org.eclipse.birt.core.archive.FolderArchive;
@@ -22,6 +23,7 @@ import org.eclipse.birt.core.archive.FolderArchiveWriter;
 import org.eclipse.birt.core.archive.IDocArchiveWriter;
 import org.eclipse.birt.core.archive.compound.ArchiveWriter;
 import org.eclipse.birt.core.archive.compound.IArchiveFile;
+import org.eclipse.birt.report.engine.api.EngineConstants;
 import org.eclipse.birt.report.engine.api.EngineException;
 import org.eclipse.birt.report.engine.api.IEngineTask;
 import org.eclipse.birt.report.engine.api.IProgressMonitor;
@@ -164,6 +166,7 @@ public class RunTask extends AbstractRunTask implements IRunTask
 			String[] exts = executionContext.getEngineExtensions( );
 			writer = new ReportDocumentWriter( engine, archiveWriter, exts );
 			executionContext.setReportDocWriter( writer );
+			writer.setAsyncWriter( isAsyncDocumentIndex( ) );
 			DocumentDataSource ds = executionContext.getDataSource( );
 			if ( ds != null)
 			{
@@ -191,6 +194,22 @@ public class RunTask extends AbstractRunTask implements IRunTask
 		}
 	}
 
+	private boolean isAsyncDocumentIndex( )
+	{
+		Map appContext = executionContext.getAppContext( );
+		if ( appContext == null )
+		{
+			return false;
+		}
+		Object value = appContext
+				.get( EngineConstants.APPCONTEXT_ASYNC_DOCUMENT_INDEX );
+		if ( value instanceof Boolean )
+		{
+			return ( (Boolean) value ).booleanValue( );
+		}
+		return value != null && "true".equalsIgnoreCase( value.toString( ) ); //$NON-NLS-1$
+	}
+
 	private void closeReportDocument( )
 	{
 		writer.close( );
@@ -104,6 +104,12 @@ abstract public class AbstractContent extends AbstractElement
 	
 	transient protected int version = -1;
 
+	/**
+	 * the inline style and the instance id are not written by writeFields if
+	 * it is false.
+	 */
+	transient private boolean writeStyleAndID = true;
+
 	/**
 	 * Constructor of the AbstractContent
 	 * @param report report can't be null
@@ -694,7 +700,7 @@ abstract public class AbstractContent extends AbstractElement
 			IOUtil.writeShort( out, FIELD_HELPTEXT );
 			IOUtil.writeString( out, helpText );
 		}
-		if ( inlineStyle != null )
+		if ( inlineStyle != null && writeStyleAndID )
 		{
 			if( !inlineStyle.isEmpty( ) )
 			{
@@ -702,7 +708,7 @@ abstract public class AbstractContent extends AbstractElement
 				inlineStyle.write( out );
 			}
 		}
-		if ( instanceId != null )
+		if ( instanceId != null && writeStyleAndID )
 		{
 			IOUtil.writeShort( out, FIELD_INSTANCE_ID );
 			IOUtil.writeString( out, instanceId.toString( ) );
@@ -939,6 +945,25 @@ abstract public class AbstractContent extends AbstractElement
 	{
 		writeFields( out );
 	}
+
+	/**
+	 * writes the fields except the inline style and the instance id, which are
+	 * saved by the caller, such as the packed content stream which shares the
+	 * styles between the contents.
+	 */
+	public void writeContentWithoutStyleAndID( DataOutputStream out )
+			throws IOException
+	{
+		writeStyleAndID = false;
+		try
+		{
+			writeFields( out );
+		}
+		finally
+		{
+			writeStyleAndID = true;
+		}
+	}
 	
 	/**
 	 * @param iVersion
@@ -61,4 +61,11 @@ public class ObjectContent extends ImageContent
 		throw new IOException(
 				"Unsupported operation: Object content can not be serialized" );
 	}
+
+	public void writeContentWithoutStyleAndID( DataOutputStream out )
+			throws IOException
+	{
+		throw new IOException(
+				"Unsupported operation: Object content can not be serialized" );
+	}
 }
\ No newline at end of file
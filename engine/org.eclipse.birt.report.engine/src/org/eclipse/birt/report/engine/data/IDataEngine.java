@@ -59,6 +59,16 @@ public interface IDataEngine
 	 */
 	void prepare( Report report, Map appContext );
 
+	/**
+	 * start to execute the independent top level queries of the report
+	 * ahead of the report items, if it is enabled in the application context.
+	 * It is called after the report is prepared.
+	 * 
+	 * @param report
+	 *            the report design
+	 */
+	void prefetch( Report report );
+
 	void prepare( IDataQueryDefinition query ) throws BirtException;
 
 	/**
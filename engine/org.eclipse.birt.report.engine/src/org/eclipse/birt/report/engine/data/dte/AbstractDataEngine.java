@@ -193,6 +193,16 @@ public abstract class AbstractDataEngine implements IDataEngine
 		doPrepareQuery( report, appContext );
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.birt.report.engine.data.IDataEngine#prefetch(org.eclipse.birt.report.engine.ir.Report)
+	 */
+	public void prefetch( Report report )
+	{
+		// the queries are executed by the report items only
+	}
+
 	public void prepare( IDataQueryDefinition query ) throws BirtException
 	{
 
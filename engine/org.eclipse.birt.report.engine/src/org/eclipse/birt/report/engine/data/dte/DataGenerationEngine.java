@@ -59,6 +59,7 @@ public class DataGenerationEngine extends DteDataEngine
 		{
 			dteEngineContext.setTmpdir( tempDir );
 		}
+		initializePrefetch( dteEngineContext );
 
 		dteSession = DataRequestSession.newSession( dteSessionContext );
 
@@ -12,7 +12,9 @@
 package org.eclipse.birt.report.engine.data.dte;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
 import org.eclipse.birt.core.exception.BirtException;
@@ -29,6 +31,7 @@ import org.eclipse.birt.data.engine.olap.api.ICubeQueryResults;
 import org.eclipse.birt.data.engine.olap.api.query.ICubeQueryDefinition;
 import org.eclipse.birt.report.data.adapter.api.DataRequestSession;
 import org.eclipse.birt.report.data.adapter.api.DataSessionContext;
+import org.eclipse.birt.report.engine.api.EngineConstants;
 import org.eclipse.birt.report.engine.api.EngineException;
 import org.eclipse.birt.report.engine.data.DataEngineFactory;
 import org.eclipse.birt.report.engine.executor.ExecutionContext;
@@ -46,6 +49,16 @@ public class DteDataEngine extends AbstractDataEngine
 	
 	private boolean needCache;
 
+	/**
+	 * the lock shared by the threads prefetching the queries, it is null if
+	 * the queries are not prefetched.
+	 */
+	private ReentrantLock sessionLock;
+
+	private int prefetchThreads;
+
+	private QueryPrefetcher prefetcher;
+
 	/**
 	 * cache the query - result set mapping. 
 	 *
@@ -100,6 +113,7 @@ public class DteDataEngine extends AbstractDataEngine
 			{
 				dteEngineContext.setTmpdir( tempDir );
 			}
+			initializePrefetch( dteEngineContext );
 
 			dteSession = DataRequestSession.newSession( dteSessionContext );
 		}
@@ -149,7 +163,15 @@ public class DteDataEngine extends AbstractDataEngine
 			if ( parentResultSet == null )
 			{
 				// this is the root query
-				dteResults = dteSession.execute( pQuery, null, scriptContext );
+				if ( prefetcher != null )
+				{
+					dteResults = prefetcher.getResults( query );
+				}
+				if ( dteResults == null )
+				{
+					dteResults = dteSession.execute( pQuery, null,
+							scriptContext );
+				}
 			}
 			else
 			{
@@ -272,6 +294,92 @@ public class DteDataEngine extends AbstractDataEngine
 		super.doPrepareQuery( report, appContext );
 	}
 
+	/**
+	 * creates the session lock if the queries are prefetched. It must be
+	 * called before the DtE session is created.
+	 * 
+	 * @param dteEngineContext
+	 */
+	protected void initializePrefetch( DataEngineContext dteEngineContext )
+	{
+		Map appContext = context.getAppContext( );
+		if ( appContext == null )
+		{
+			return;
+		}
+		Object threads = appContext
+				.get( EngineConstants.APPCONTEXT_QUERY_PREFETCH_THREADS );
+		if ( threads == null )
+		{
+			return;
+		}
+		// the value may be a string from the viewer or a properties file
+		int count = 0;
+		try
+		{
+			count = Integer.parseInt( threads.toString( ).trim( ) );
+		}
+		catch ( NumberFormatException ex )
+		{
+			logger.log( Level.WARNING, "Invalid value of "
+					+ EngineConstants.APPCONTEXT_QUERY_PREFETCH_THREADS
+					+ ": " + threads );
+			return;
+		}
+		if ( count > 0 )
+		{
+			prefetchThreads = count;
+			sessionLock = new ReentrantLock( );
+			dteEngineContext.setSessionLock( sessionLock );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.eclipse.birt.report.engine.data.dte.AbstractDataEngine#prefetch(org.eclipse.birt.report.engine.ir.Report)
+	 */
+	public void prefetch( Report report )
+	{
+		if ( sessionLock == null || prefetcher != null )
+		{
+			return;
+		}
+		prefetcher = new QueryPrefetcher( dteSession,
+				context.getScriptContext( ),
+				sessionLock,
+				prefetchThreads );
+		Iterator iter = report.getQueries( ).iterator( );
+		while ( iter.hasNext( ) )
+		{
+			Object query = iter.next( );
+			if ( !( query instanceof IQueryDefinition ) )
+			{
+				continue;
+			}
+			IQueryDefinition queryDefn = (IQueryDefinition) query;
+			IPreparedQuery pQuery = (IPreparedQuery) queryMap.get( queryDefn );
+			if ( pQuery != null && QueryPrefetcher.isIndependent( queryDefn ) )
+			{
+				if ( needCache )
+				{
+					( (BaseQueryDefinition) queryDefn ).setCacheQueryResults( true );
+				}
+				prefetcher.prefetch( queryDefn, pQuery );
+			}
+		}
+	}
+
+	public void shutdown( )
+	{
+		if ( prefetcher != null )
+		{
+			prefetcher.close( );
+			prefetcher = null;
+		}
+		super.shutdown( );
+	}
+
 	protected void cacheResultID( IBaseResultSet parentResultSet,
 			IDataQueryDefinition query, IBaseResultSet resultSet )
 			throws BirtException
@@ -0,0 +1,309 @@
+/*******************************************************************************
+ * Copyright (c) 2004,2010 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.data.dte;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.script.ScriptContext;
+import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
+import org.eclipse.birt.data.engine.api.IBaseQueryResults;
+import org.eclipse.birt.data.engine.api.IPreparedQuery;
+import org.eclipse.birt.data.engine.api.IQueryDefinition;
+import org.eclipse.birt.data.engine.api.IQueryResults;
+import org.eclipse.birt.report.data.adapter.api.DataRequestSession;
+import org.mozilla.javascript.Context;
+
+/**
+ * Executes the independent top level queries of a report in a pool of threads
+ * before the report items ask for them.
+ * <p>
+ * The DtE session and the script context are confined to the thread which
+ * generates the report, so the pooled threads share the session lock with it:
+ * only one thread works on the session at a time. The lock is released while
+ * the ODA data set is executed (see DataEngineContext.setSessionLock()) and
+ * while the generating thread waits for a prefetched query, which lets the
+ * data sources of several queries work at the same time.
+ */
+class QueryPrefetcher
+{
+
+	protected static Logger logger = Logger.getLogger( QueryPrefetcher.class
+			.getName( ) );
+
+	private DataRequestSession dteSession;
+	private ScriptContext scriptContext;
+	private ReentrantLock lock;
+	private ExecutorService executor;
+
+	/**
+	 * the prefetched queries, the key is the query definition, the value is
+	 * the future of its IQueryResults.
+	 */
+	private HashMap<IQueryDefinition, Future<IBaseQueryResults>> results = new HashMap<IQueryDefinition, Future<IBaseQueryResults>>( );
+
+	// the thread local state of the generating thread
+	private Object threadState;
+	private Context jsContext;
+
+	/**
+	 * Constructor. It must be called in the thread generating the report,
+	 * which holds the lock until close().
+	 *
+	 * @param dteSession
+	 * @param scriptContext
+	 * @param lock
+	 *            the session lock set to the DataEngineContext
+	 * @param threadCount
+	 *            the max count of the prefetching threads
+	 */
+	QueryPrefetcher( DataRequestSession dteSession,
+			ScriptContext scriptContext, ReentrantLock lock, int threadCount )
+	{
+		this.dteSession = dteSession;
+		this.scriptContext = scriptContext;
+		this.lock = lock;
+		this.threadState = DataEngineThreadLocal.getInstance( )
+				.getThreadState( );
+		this.jsContext = Context.getCurrentContext( );
+		this.executor = Executors.newFixedThreadPool( threadCount,
+				new ThreadFactory( ) {
+
+					public Thread newThread( Runnable r )
+					{
+						Thread thread = new Thread( r, "BIRT Query Prefetch" ); //$NON-NLS-1$
+						thread.setDaemon( true );
+						return thread;
+					}
+				} );
+		lock.lock( );
+	}
+
+	/**
+	 * Tests if the query can be executed before the report items: it is a top
+	 * level query of a data set, and it doesn't use the results of the other
+	 * queries.
+	 *
+	 * @param query
+	 * @return
+	 */
+	static boolean isIndependent( IQueryDefinition query )
+	{
+		return query.getParentQuery( ) == null
+				&& query.getSourceQuery( ) == null
+				&& query.getQueryResultsID( ) == null
+				&& query.getDataSetName( ) != null;
+	}
+
+	/**
+	 * submits a query to the prefetching threads.
+	 *
+	 * @param query
+	 * @param pQuery
+	 *            the prepared query
+	 */
+	void prefetch( IQueryDefinition query, IPreparedQuery pQuery )
+	{
+		if ( !results.containsKey( query ) )
+		{
+			results.put( query, executor.submit( new PrefetchTask( pQuery ) ) );
+		}
+	}
+
+	/**
+	 * Returns the prefetched results of the query. Each results is returned
+	 * only once, the query is executed as usual by the caller after that.
+	 *
+	 * @param query
+	 * @return the results, null if the query isn't prefetched or the
+	 *         prefetching fails, in which case the query is executed again to
+	 *         report the error.
+	 */
+	IBaseQueryResults getResults( IQueryDefinition query )
+	{
+		Future<IBaseQueryResults> future = results.remove( query );
+		if ( future == null )
+		{
+			return null;
+		}
+		int holdCount = unlock( );
+		try
+		{
+			return future.get( );
+		}
+		catch ( InterruptedException ex )
+		{
+			Thread.currentThread( ).interrupt( );
+			results.put( query, future );
+		}
+		catch ( ExecutionException ex )
+		{
+			logger.log( Level.FINE, "failed to prefetch the query", ex //$NON-NLS-1$
+					.getCause( ) );
+		}
+		finally
+		{
+			relock( holdCount );
+		}
+		return null;
+	}
+
+	/**
+	 * stops the prefetching threads and closes the results which are not used
+	 * by the report.
+	 */
+	void close( )
+	{
+		ArrayList<Future<IBaseQueryResults>> futures = new ArrayList<Future<IBaseQueryResults>>( results
+				.values( ) );
+		results.clear( );
+		Iterator<Future<IBaseQueryResults>> iter = futures.iterator( );
+		while ( iter.hasNext( ) )
+		{
+			iter.next( ).cancel( false );
+		}
+		executor.shutdown( );
+		// let the running tasks finish
+		unlock( );
+		try
+		{
+			while ( !executor.awaitTermination( 1, TimeUnit.SECONDS ) )
+			{
+				logger.log( Level.FINE, "waiting for the prefetched queries" ); //$NON-NLS-1$
+			}
+		}
+		catch ( InterruptedException ex )
+		{
+			Thread.currentThread( ).interrupt( );
+		}
+		lock.lock( );
+		try
+		{
+			iter = futures.iterator( );
+			while ( iter.hasNext( ) )
+			{
+				Future<IBaseQueryResults> future = iter.next( );
+				if ( future.isCancelled( ) || !future.isDone( ) )
+				{
+					continue;
+				}
+				try
+				{
+					future.get( ).close( );
+				}
+				catch ( Exception ex )
+				{
+					logger.log( Level.FINE, ex.getMessage( ), ex );
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock( );
+		}
+	}
+
+	private int unlock( )
+	{
+		int holdCount = lock.getHoldCount( );
+		for ( int i = 0; i < holdCount; i++ )
+		{
+			lock.unlock( );
+		}
+		return holdCount;
+	}
+
+	private void relock( int holdCount )
+	{
+		for ( int i = 0; i < holdCount; i++ )
+		{
+			lock.lock( );
+		}
+	}
+
+	/**
+	 * enter a script context with the same settings as the generating thread.
+	 */
+	private void enterContext( )
+	{
+		Context cx = Context.enter( );
+		if ( jsContext != null )
+		{
+			cx.setWrapFactory( jsContext.getWrapFactory( ) );
+			cx.setOptimizationLevel( jsContext.getOptimizationLevel( ) );
+			cx.setLanguageVersion( jsContext.getLanguageVersion( ) );
+			cx.setLocale( jsContext.getLocale( ) );
+			cx.setApplicationClassLoader( jsContext
+					.getApplicationClassLoader( ) );
+		}
+	}
+
+	private class PrefetchTask implements Callable<IBaseQueryResults>
+	{
+
+		private IPreparedQuery pQuery;
+
+		PrefetchTask( IPreparedQuery pQuery )
+		{
+			this.pQuery = pQuery;
+		}
+
+		public IBaseQueryResults call( ) throws BirtException
+		{
+			lock.lock( );
+			try
+			{
+				DataEngineThreadLocal.getInstance( ).setThreadState(
+						threadState );
+				enterContext( );
+				IQueryResults queryResults = null;
+				try
+				{
+					queryResults = (IQueryResults) dteSession.execute( pQuery,
+							null, scriptContext );
+					// the data set is executed when the iterator is created
+					queryResults.getResultIterator( );
+					return queryResults;
+				}
+				catch ( BirtException ex )
+				{
+					if ( queryResults != null )
+					{
+						queryResults.close( );
+					}
+					throw ex;
+				}
+				finally
+				{
+					Context.exit( );
+					DataEngineThreadLocal.getInstance( ).removeThreadState( );
+				}
+			}
+			finally
+			{
+				lock.unlock( );
+			}
+		}
+	}
+}
@@ -0,0 +1,367 @@
+/*******************************************************************************
+ * Copyright (c) 2007 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An output stream which writes the data in a background thread.
+ * <p>
+ * The stream has two buffers of the same size. The emitter fills one buffer
+ * while the other one is written into the underlying stream by the writer
+ * thread. Once the buffer is full, the emitter waits until the writer thread
+ * finishes the other one, so at most two buffers of the data are kept in
+ * memory. The time the emitter is blocked by the writer thread is reported
+ * when the stream is closed.
+ * <p>
+ * The stream is written by one thread. The errors of the underlying stream
+ * are thrown by the next call to the stream.
+ */
+public class AsyncOutputStream extends OutputStream
+{
+
+	protected static Logger logger = Logger.getLogger( AsyncOutputStream.class
+			.getName( ) );
+
+	/**
+	 * the default size of each buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private OutputStream out;
+
+	/**
+	 * the buffer filled by the emitter.
+	 */
+	private byte[] buffer;
+
+	private int count;
+
+	/**
+	 * the buffer can be filled once the current one is full, null if it is
+	 * written by the writer thread.
+	 */
+	private byte[] freeBuffer;
+
+	/**
+	 * the buffer to be written by the writer thread, it is null if the writer
+	 * thread is waiting for the data.
+	 */
+	private byte[] pendingBuffer;
+
+	private int pendingCount;
+
+	private boolean pendingFlush;
+
+	private boolean closed;
+
+	private IOException error;
+
+	private long blockedTime;
+
+	private int blockedCount;
+
+	private Thread writer;
+
+	private Object lock = new Object( );
+
+	public AsyncOutputStream( OutputStream out )
+	{
+		this( out, DEFAULT_BUFFER_SIZE );
+	}
+
+	/**
+	 * @param out
+	 *            the underlying stream
+	 * @param bufferSize
+	 *            the size of each of the two buffers
+	 */
+	public AsyncOutputStream( OutputStream out, int bufferSize )
+	{
+		if ( bufferSize <= 0 )
+		{
+			throw new IllegalArgumentException( "Buffer size <= 0" ); //$NON-NLS-1$
+		}
+		this.out = out;
+		this.buffer = new byte[bufferSize];
+		this.freeBuffer = new byte[bufferSize];
+		writer = new Thread( new Writer( ), "BIRT Emitter Output Writer" ); //$NON-NLS-1$
+		writer.setDaemon( true );
+		writer.start( );
+	}
+
+	public void write( int b ) throws IOException
+	{
+		if ( count == buffer.length )
+		{
+			submit( false );
+		}
+		buffer[count++] = (byte) b;
+	}
+
+	public void write( byte[] b, int off, int len ) throws IOException
+	{
+		if ( off < 0 || len < 0 || off + len > b.length )
+		{
+			throw new IndexOutOfBoundsException( );
+		}
+		while ( len > 0 )
+		{
+			if ( count == buffer.length )
+			{
+				submit( false );
+			}
+			int size = Math.min( len, buffer.length - count );
+			System.arraycopy( b, off, buffer, count, size );
+			count += size;
+			off += size;
+			len -= size;
+		}
+	}
+
+	/**
+	 * passes the buffered data to the writer thread, the underlying stream is
+	 * flushed by the writer thread later.
+	 */
+	public void flush( ) throws IOException
+	{
+		checkOpen( );
+		submit( true );
+	}
+
+	/**
+	 * writes all the data, stops the writer thread and closes the underlying
+	 * stream.
+	 */
+	public void close( ) throws IOException
+	{
+		if ( closed )
+		{
+			return;
+		}
+		try
+		{
+			submit( true );
+			synchronized ( lock )
+			{
+				waitForWriter( );
+			}
+		}
+		finally
+		{
+			synchronized ( lock )
+			{
+				closed = true;
+				lock.notifyAll( );
+			}
+			try
+			{
+				out.close( );
+			}
+			finally
+			{
+				if ( logger.isLoggable( Level.FINE ) )
+				{
+					logger.log( Level.FINE, "The emitter was blocked " //$NON-NLS-1$
+							+ blockedCount + " times for " //$NON-NLS-1$
+							+ getBlockedTime( ) + " ms by the output writer." ); //$NON-NLS-1$
+				}
+			}
+		}
+		checkError( );
+	}
+
+	/**
+	 * stops the writer thread and waits until it writes the flushed data. The
+	 * data not flushed is dropped and the underlying stream is not closed. It is used
+	 * when the emitter stops before closing the stream, it does nothing if
+	 * the stream is closed.
+	 */
+	public void stop( )
+	{
+		synchronized ( lock )
+		{
+			if ( closed )
+			{
+				return;
+			}
+			closed = true;
+			lock.notifyAll( );
+		}
+		try
+		{
+			writer.join( );
+		}
+		catch ( InterruptedException ex )
+		{
+			Thread.currentThread( ).interrupt( );
+		}
+	}
+
+	/**
+	 * @return the time in milliseconds the emitter waits for the writer
+	 *         thread.
+	 */
+	public long getBlockedTime( )
+	{
+		synchronized ( lock )
+		{
+			return blockedTime / 1000000;
+		}
+	}
+
+	private void checkOpen( ) throws IOException
+	{
+		if ( closed )
+		{
+			throw new IOException( "Stream closed" ); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * passes the current buffer to the writer thread and takes the free
+	 * buffer. It waits if the writer thread is still writing the other
+	 * buffer.
+	 */
+	private void submit( boolean flush ) throws IOException
+	{
+		checkOpen( );
+		synchronized ( lock )
+		{
+			waitForWriter( );
+			pendingBuffer = buffer;
+			pendingCount = count;
+			pendingFlush = flush;
+			buffer = freeBuffer;
+			freeBuffer = null;
+			count = 0;
+			lock.notifyAll( );
+		}
+	}
+
+	/**
+	 * waits until the writer thread finishes the pending buffer, it must be
+	 * called in the lock.
+	 */
+	private void waitForWriter( ) throws IOException
+	{
+		if ( pendingBuffer != null && error == null )
+		{
+			long start = System.nanoTime( );
+			try
+			{
+				while ( pendingBuffer != null && error == null )
+				{
+					lock.wait( );
+				}
+			}
+			catch ( InterruptedException ex )
+			{
+				Thread.currentThread( ).interrupt( );
+				throw new InterruptedIOException( ex.getMessage( ) );
+			}
+			finally
+			{
+				blockedTime += System.nanoTime( ) - start;
+				blockedCount++;
+			}
+		}
+		checkError( );
+	}
+
+	private void checkError( ) throws IOException
+	{
+		synchronized ( lock )
+		{
+			if ( error != null )
+			{
+				IOException ex = new IOException( error.getMessage( ) );
+				ex.initCause( error );
+				throw ex;
+			}
+		}
+	}
+
+	private class Writer implements Runnable
+	{
+
+		public void run( )
+		{
+			while ( true )
+			{
+				byte[] data;
+				int size;
+				boolean flush;
+				synchronized ( lock )
+				{
+					try
+					{
+						while ( pendingBuffer == null && !closed )
+						{
+							lock.wait( );
+						}
+					}
+					catch ( InterruptedException ex )
+					{
+						error = new InterruptedIOException( ex.getMessage( ) );
+						lock.notifyAll( );
+						return;
+					}
+					if ( pendingBuffer == null )
+					{
+						return;
+					}
+					data = pendingBuffer;
+					size = pendingCount;
+					flush = pendingFlush;
+				}
+				try
+				{
+					out.write( data, 0, size );
+					if ( flush )
+					{
+						out.flush( );
+					}
+				}
+				catch ( IOException ex )
+				{
+					synchronized ( lock )
+					{
+						error = ex;
+						lock.notifyAll( );
+					}
+					return;
+				}
+				catch ( RuntimeException ex )
+				{
+					synchronized ( lock )
+					{
+						error = new IOException( ex.getMessage( ) );
+						error.initCause( ex );
+						lock.notifyAll( );
+					}
+					return;
+				}
+				synchronized ( lock )
+				{
+					freeBuffer = data;
+					pendingBuffer = null;
+					lock.notifyAll( );
+				}
+			}
+		}
+	}
+}
@@ -32,6 +32,7 @@ import javax.swing.ImageIcon;
 
 import org.eclipse.birt.report.engine.api.EngineException;
 import org.eclipse.birt.report.engine.api.IHTMLActionHandler;
+import org.eclipse.birt.report.engine.api.IRenderOption;
 import org.eclipse.birt.report.engine.api.IReportRunnable;
 import org.eclipse.birt.report.engine.api.RenderOption;
 import org.eclipse.birt.report.engine.api.impl.Action;
@@ -113,6 +114,45 @@ public class EmitterUtil
 				}
 			}
 		}
+		return getAsyncOutputStream( services, out );
+	}
+
+	/**
+	 * wraps the stream by AsyncOutputStream if the option
+	 * ASYNC_OUTPUT_BUFFER_SIZE is set.
+	 */
+	private static OutputStream getAsyncOutputStream(
+			IEmitterServices services, OutputStream out )
+	{
+		int bufferSize = 0;
+		Object value = services
+				.getOption( IRenderOption.ASYNC_OUTPUT_BUFFER_SIZE );
+		if ( value instanceof Number )
+		{
+			bufferSize = ( (Number) value ).intValue( );
+		}
+		else if ( value instanceof String )
+		{
+			try
+			{
+				bufferSize = Integer.parseInt( ( (String) value ).trim( ) );
+			}
+			catch ( NumberFormatException ex )
+			{
+				logger.log( Level.WARNING, "Invalid output buffer size: " //$NON-NLS-1$
+						+ value );
+			}
+		}
+		if ( bufferSize > 0 )
+		{
+			AsyncOutputStream asyncOut = new AsyncOutputStream( out, bufferSize );
+			if ( services instanceof EngineEmitterServices )
+			{
+				( (EngineEmitterServices) services )
+						.addAsyncOutputStream( asyncOut );
+			}
+			return asyncOut;
+		}
 		return out;
 	}
 
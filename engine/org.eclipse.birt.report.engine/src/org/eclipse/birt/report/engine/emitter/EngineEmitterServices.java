@@ -11,7 +11,9 @@
 
 package org.eclipse.birt.report.engine.emitter;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import org.eclipse.birt.report.engine.api.IRenderOption;
 import org.eclipse.birt.report.engine.api.IReportEngine;
@@ -39,6 +41,11 @@ public class EngineEmitterServices implements IEmitterServices
 	 */
 	protected IReportContext reportContext;
 
+	/**
+	 * the output streams with a writer thread created for the emitter
+	 */
+	protected List<AsyncOutputStream> asyncOutputStreams = new ArrayList<AsyncOutputStream>( );
+
 	/**
 	 * @param task
 	 *            he engine task that results in the creation of emitter
@@ -127,6 +134,20 @@ public class EngineEmitterServices implements IEmitterServices
 		return reportContext;
 	}
 
+	/**
+	 * registers an output stream created for the emitter, so the task can
+	 * report its blocked time and stop its writer thread.
+	 */
+	public synchronized void addAsyncOutputStream( AsyncOutputStream out )
+	{
+		asyncOutputStreams.add( out );
+	}
+
+	public synchronized List<AsyncOutputStream> getAsyncOutputStreams( )
+	{
+		return new ArrayList<AsyncOutputStream>( asyncOutputStreams );
+	}
+
 	public IReportEngine getReportEngine( )
 	{
 		if ( reportContext != null )
@@ -30,7 +30,7 @@ import org.eclipse.birt.core.btree.BTree;
 import org.eclipse.birt.core.btree.BTreeOption;
 import org.eclipse.birt.core.btree.BTreeSerializer;
 import org.eclipse.birt.core.btree.BTreeUtils;
-import org.eclipse.birt.core.btree.FileBTreeFile;
+import org.eclipse.birt.core.btree.OffHeapBTreeFile;
 import org.eclipse.birt.report.engine.api.EngineException;
 
 public class BookmarkManager
@@ -38,6 +38,12 @@ public class BookmarkManager
 
 	static final Integer VALUE = new Integer( 0 );
 
+	/**
+	 * the memory used by the bookmark btree, the other blocks are saved in the
+	 * temporary file
+	 */
+	static final long BTREE_MEMORY_SIZE = 8 * 1024 * 1024;
+
 	int sequenceID = 0;
 	BookmarkHashSet hashset;
 	ExecutionContext context;
@@ -195,17 +201,15 @@ public class BookmarkManager
 						}
 					} );
 
-			for ( Map.Entry<String, Integer> entry : entries )
-			{
-				btree.insert( entry.getKey( ), VALUE );
-			}
+			btree.bulkLoad( entries.iterator( ) );
 		}
 
 		protected BTree<String, Integer> createBtree( ) throws IOException
 		{
 			String tmpdir = context.getEngine( ).getConfig( ).getTempDir( );
 			fileName = tmpdir + File.separator + UUID.randomUUID( );
-			FileBTreeFile file = new FileBTreeFile( fileName );
+			OffHeapBTreeFile file = new OffHeapBTreeFile( BTREE_MEMORY_SIZE,
+					fileName );
 			BTreeOption<String, Integer> option = new BTreeOption<String, Integer>( );
 			option.setHasValue( true );
 			option.setKeySerializer( new StringSerializer( ) );
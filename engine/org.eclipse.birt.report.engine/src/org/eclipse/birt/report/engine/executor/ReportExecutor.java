@@ -128,6 +128,8 @@ public class ReportExecutor implements IReportExecutor
 		{
 			// create execution optimize policy
 			context.optimizeExecution( );
+			// start the independent queries before the report items
+			context.getDataEngine( ).prefetch( report );
 		}
 
 		// prepare to execute the child
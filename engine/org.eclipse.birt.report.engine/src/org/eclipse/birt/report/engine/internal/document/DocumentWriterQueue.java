@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.internal.document;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * runs the writes of the report document, such as the TOC and the indexes, in
+ * a writer thread.
+ * <p>
+ * The tasks are run in the order they are submitted. The queue is bounded, the
+ * generation thread waits if the writer thread falls behind, so the memory
+ * used by the pending tasks doesn't grow with the document. The error of a
+ * task is thrown by the next call of the generation thread, the tasks after
+ * it are skipped.
+ */
+public class DocumentWriterQueue
+{
+
+	public static interface Task
+	{
+
+		void run( ) throws IOException;
+	}
+
+	static final int DEFAULT_CAPACITY = 1024;
+
+	private static final Task STOP = new Task( ) {
+
+		public void run( )
+		{
+		}
+	};
+
+	private ArrayBlockingQueue<Task> queue;
+
+	private Thread thread;
+
+	private Object lock = new Object( );
+
+	private long submitted;
+
+	private long finished;
+
+	private IOException error;
+
+	private boolean closed;
+
+	public DocumentWriterQueue( )
+	{
+		this( DEFAULT_CAPACITY );
+	}
+
+	public DocumentWriterQueue( int capacity )
+	{
+		queue = new ArrayBlockingQueue<Task>( capacity );
+		thread = new Thread( new Runnable( ) {
+
+			public void run( )
+			{
+				runTasks( );
+			}
+		}, "BIRT Document Writer" ); //$NON-NLS-1$
+		thread.setDaemon( true );
+		thread.start( );
+	}
+
+	/**
+	 * adds the task to the queue, it waits if the queue is full.
+	 */
+	public void submit( Task task ) throws IOException
+	{
+		if ( closed )
+		{
+			throw new IOException( "The document writer is closed" ); //$NON-NLS-1$
+		}
+		checkError( );
+		synchronized ( lock )
+		{
+			submitted++;
+		}
+		try
+		{
+			queue.put( task );
+		}
+		catch ( InterruptedException ex )
+		{
+			synchronized ( lock )
+			{
+				submitted--;
+			}
+			Thread.currentThread( ).interrupt( );
+			throw new InterruptedIOException( ex.getMessage( ) );
+		}
+	}
+
+	/**
+	 * waits until all the submitted tasks are finished.
+	 */
+	public void flush( ) throws IOException
+	{
+		synchronized ( lock )
+		{
+			try
+			{
+				while ( finished < submitted )
+				{
+					lock.wait( );
+				}
+			}
+			catch ( InterruptedException ex )
+			{
+				Thread.currentThread( ).interrupt( );
+				throw new InterruptedIOException( ex.getMessage( ) );
+			}
+		}
+		checkError( );
+	}
+
+	/**
+	 * finishes all the submitted tasks and stops the writer thread. The error
+	 * of a task is thrown after the thread is stopped.
+	 */
+	public void close( ) throws IOException
+	{
+		if ( closed )
+		{
+			return;
+		}
+		try
+		{
+			flush( );
+		}
+		finally
+		{
+			closed = true;
+			if ( !queue.offer( STOP ) )
+			{
+				// the flush is interrupted before the tasks are finished
+				thread.interrupt( );
+			}
+			try
+			{
+				thread.join( );
+			}
+			catch ( InterruptedException ex )
+			{
+				Thread.currentThread( ).interrupt( );
+			}
+		}
+	}
+
+	private void checkError( ) throws IOException
+	{
+		synchronized ( lock )
+		{
+			if ( error != null )
+			{
+				IOException ex = new IOException( error.getMessage( ) );
+				ex.initCause( error );
+				throw ex;
+			}
+		}
+	}
+
+	private void runTasks( )
+	{
+		while ( true )
+		{
+			Task task;
+			try
+			{
+				task = queue.take( );
+			}
+			catch ( InterruptedException ex )
+			{
+				return;
+			}
+			if ( task == STOP )
+			{
+				return;
+			}
+			IOException taskError = null;
+			try
+			{
+				boolean skip;
+				synchronized ( lock )
+				{
+					skip = error != null;
+				}
+				if ( !skip )
+				{
+					task.run( );
+				}
+			}
+			catch ( IOException ex )
+			{
+				taskError = ex;
+			}
+			catch ( Throwable ex )
+			{
+				// keep the thread running, so the waiting threads are notified
+				taskError = new IOException( ex.getMessage( ) );
+				taskError.initCause( ex );
+			}
+			synchronized ( lock )
+			{
+				if ( taskError != null && error == null )
+				{
+					error = taskError;
+				}
+				finished++;
+				lock.notifyAll( );
+			}
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.internal.document.v3;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.birt.core.archive.RAInputStream;
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.report.engine.api.DataID;
+import org.eclipse.birt.report.engine.api.DataSetID;
+import org.eclipse.birt.report.engine.api.InstanceID;
+
+/**
+ * decodes a block of the packed content stream written by ContentBlockWriter.
+ * The whole block is decoded once it is loaded, as the instance ids are saved
+ * as the differences to the previous ones.
+ */
+class ContentBlockReader
+{
+
+	private byte[] data;
+	private int[] contentTypes;
+	private byte[][] styles;
+	private InstanceID[] instanceIds;
+	private int[] fieldOffsets;
+	private int[] fieldSizes;
+
+	/**
+	 * loads the block from the stream.
+	 *
+	 * @param stream
+	 *            the content stream
+	 * @param offset
+	 *            the offset of the block, the version is excluded
+	 * @param inflater
+	 *            used to uncompress the block
+	 */
+	ContentBlockReader( RAInputStream stream, long offset, Inflater inflater )
+			throws IOException
+	{
+		stream.seek( ReportContentReaderV3.VERSION_SIZE + offset );
+		int count = stream.readInt( );
+		int size = stream.readInt( );
+		int compressedSize = stream.readInt( );
+		byte[] compressed = new byte[compressedSize];
+		stream.readFully( compressed, 0, compressedSize );
+
+		data = new byte[size];
+		inflater.reset( );
+		inflater.setInput( compressed );
+		try
+		{
+			int length = 0;
+			while ( length < size && !inflater.finished( ) )
+			{
+				int read = inflater.inflate( data, length, size - length );
+				if ( read == 0 )
+				{
+					break;
+				}
+				length += read;
+			}
+			if ( length != size )
+			{
+				throw new IOException( "Invalid content block at offset "
+						+ offset );
+			}
+		}
+		catch ( DataFormatException ex )
+		{
+			IOException ioex = new IOException( "Invalid content block at offset "
+					+ offset );
+			ioex.initCause( ex );
+			throw ioex;
+		}
+		decode( count );
+	}
+
+	private void decode( int count ) throws IOException
+	{
+		contentTypes = new int[count];
+		styles = new byte[count][];
+		instanceIds = new InstanceID[count];
+		fieldOffsets = new int[count];
+		fieldSizes = new int[count];
+
+		ArrayList<byte[]> styleTable = new ArrayList<byte[]>( );
+		long lastUid = 0;
+		long lastDesignId = 0;
+		long lastRowId = 0;
+		DataSetID lastDataSet = null;
+
+		ByteArrayInputStream buffer = new ByteArrayInputStream( data );
+		DataInputStream in = new DataInputStream( buffer );
+		for ( int i = 0; i < count; i++ )
+		{
+			contentTypes[i] = (int) readVarLong( in );
+
+			int styleRef = (int) readVarLong( in );
+			if ( styleRef > 0 )
+			{
+				if ( styleRef > styleTable.size( ) )
+				{
+					byte[] style = new byte[(int) readVarLong( in )];
+					in.readFully( style );
+					styleTable.add( style );
+				}
+				styles[i] = styleTable.get( styleRef - 1 );
+			}
+
+			int flags = in.readByte( );
+			if ( ( flags & ContentBlockWriter.ID_EXIST ) != 0 )
+			{
+				long uid = lastUid + readVarLong( in );
+				long designId = lastDesignId + readVarLong( in );
+				lastUid = uid;
+				lastDesignId = designId;
+				DataID dataId = null;
+				if ( ( flags & ContentBlockWriter.ID_DATA ) != 0 )
+				{
+					if ( ( flags & ContentBlockWriter.ID_SAME_DATA_SET ) == 0 )
+					{
+						String dataSet = IOUtil.readString( in );
+						lastDataSet = dataSet == null ? null : DataSetID
+								.parse( dataSet );
+					}
+					if ( ( flags & ContentBlockWriter.ID_CELL ) != 0 )
+					{
+						dataId = new DataID( lastDataSet, IOUtil
+								.readString( in ) );
+					}
+					else
+					{
+						long rowId = lastRowId + readVarLong( in );
+						lastRowId = rowId;
+						dataId = new DataID( lastDataSet, rowId );
+					}
+				}
+				instanceIds[i] = new InstanceID( null, uid, designId, dataId );
+			}
+
+			int fieldSize = (int) readVarLong( in );
+			fieldOffsets[i] = data.length - buffer.available( );
+			fieldSizes[i] = fieldSize;
+			in.skipBytes( fieldSize );
+		}
+	}
+
+	int getCount( )
+	{
+		return contentTypes.length;
+	}
+
+	int getContentType( int position )
+	{
+		return contentTypes[position];
+	}
+
+	/**
+	 * @return the serialized inline style, null if the content has no inline
+	 *         style.
+	 */
+	byte[] getStyle( int position )
+	{
+		return styles[position];
+	}
+
+	InstanceID getInstanceID( int position )
+	{
+		return instanceIds[position];
+	}
+
+	/**
+	 * @return the stream of the fields except the inline style and the
+	 *         instance id.
+	 */
+	DataInputStream getFields( int position )
+	{
+		return new DataInputStream( new ByteArrayInputStream( data,
+				fieldOffsets[position], fieldSizes[position] ) );
+	}
+
+	static long readVarLong( DataInputStream in ) throws IOException
+	{
+		long value = 0;
+		int shift = 0;
+		int b;
+		do
+		{
+			b = in.readByte( );
+			value |= (long) ( b & 0x7F ) << shift;
+			shift += 7;
+		} while ( ( b & 0x80 ) != 0 );
+		return ( value >>> 1 ) ^ -( value & 1 );
+	}
+}
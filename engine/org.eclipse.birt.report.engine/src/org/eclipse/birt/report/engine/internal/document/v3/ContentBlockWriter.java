@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.internal.document.v3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.zip.Deflater;
+
+import org.eclipse.birt.core.archive.RAOutputStream;
+import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.report.engine.api.DataID;
+import org.eclipse.birt.report.engine.api.DataSetID;
+import org.eclipse.birt.report.engine.api.InstanceID;
+import org.eclipse.birt.report.engine.content.IContent;
+import org.eclipse.birt.report.engine.content.IStyle;
+import org.eclipse.birt.report.engine.content.impl.AbstractContent;
+
+/**
+ * collects the contents of a block in the packed content stream.
+ * <p>
+ * Each content is saved as:
+ * <li>content type</li>
+ * <li>the style reference, 0 means no inline style, a new style is saved
+ * following its reference for the first time it is used in the block.</li>
+ * <li>the instance id, saved as the difference to the previous one in the
+ * block.</li>
+ * <li>the length and the other fields of the content.</li>
+ * <p>
+ * The block is saved in the stream as the content count, the size, the
+ * compressed size and the compressed data.
+ */
+class ContentBlockWriter
+{
+
+	static final int ID_NONE = 0;
+	static final int ID_EXIST = 1;
+	static final int ID_DATA = 2;
+	static final int ID_SAME_DATA_SET = 4;
+	static final int ID_CELL = 8;
+
+	/**
+	 * the content count, the size and the compressed size.
+	 */
+	static final int BLOCK_HEADER_SIZE = 12;
+
+	/**
+	 * the index of the contents in the block.
+	 */
+	private long[] indexes = new long[64];
+
+	private int count;
+
+	private ByteArrayOutputStream buffer = new ByteArrayOutputStream( );
+
+	private DataOutputStream out = new DataOutputStream( buffer );
+
+	private ByteArrayOutputStream fieldBuffer = new ByteArrayOutputStream( );
+
+	private DataOutputStream fieldOut = new DataOutputStream( fieldBuffer );
+
+	private HashMap<ByteBuffer, Integer> styles = new HashMap<ByteBuffer, Integer>( );
+
+	private long lastUid;
+	private long lastDesignId;
+	private long lastRowId;
+	private DataSetID lastDataSet;
+
+	/**
+	 * @return the count of the contents in the block.
+	 */
+	int getCount( )
+	{
+		return count;
+	}
+
+	/**
+	 * @return the size of the uncompressed block.
+	 */
+	int getSize( )
+	{
+		return buffer.size( );
+	}
+
+	/**
+	 * adds the content into the block.
+	 *
+	 * @param index
+	 *            the index of the content in the stream
+	 * @param content
+	 *            the content
+	 * @return the position of the content in the block
+	 */
+	int add( long index, IContent content ) throws IOException
+	{
+		if ( count == indexes.length )
+		{
+			long[] newIndexes = new long[count * 2];
+			System.arraycopy( indexes, 0, newIndexes, 0, count );
+			indexes = newIndexes;
+		}
+		indexes[count] = index;
+
+		writeVarLong( out, content.getContentType( ) );
+		if ( content instanceof AbstractContent )
+		{
+			writeStyle( content.getInlineStyle( ) );
+			writeInstanceID( content.getInstanceID( ) );
+			fieldBuffer.reset( );
+			( (AbstractContent) content )
+					.writeContentWithoutStyleAndID( fieldOut );
+		}
+		else
+		{
+			writeStyle( null );
+			writeInstanceID( null );
+			fieldBuffer.reset( );
+			content.writeContent( fieldOut );
+		}
+		fieldOut.flush( );
+		writeVarLong( out, fieldBuffer.size( ) );
+		fieldBuffer.writeTo( out );
+		return count++;
+	}
+
+	private void writeStyle( IStyle style ) throws IOException
+	{
+		if ( style == null || style.isEmpty( ) )
+		{
+			writeVarLong( out, 0 );
+			return;
+		}
+		fieldBuffer.reset( );
+		style.write( fieldOut );
+		fieldOut.flush( );
+		ByteBuffer key = ByteBuffer.wrap( fieldBuffer.toByteArray( ) );
+		Integer ref = styles.get( key );
+		if ( ref != null )
+		{
+			writeVarLong( out, ref.intValue( ) + 1 );
+			return;
+		}
+		int size = styles.size( );
+		styles.put( key, Integer.valueOf( size ) );
+		writeVarLong( out, size + 1 );
+		writeVarLong( out, key.capacity( ) );
+		out.write( key.array( ) );
+	}
+
+	private void writeInstanceID( InstanceID id ) throws IOException
+	{
+		if ( id == null )
+		{
+			out.writeByte( ID_NONE );
+			return;
+		}
+		DataID dataId = id.getDataID( );
+		DataSetID dataSet = null;
+		int flags = ID_EXIST;
+		if ( dataId != null )
+		{
+			flags |= ID_DATA;
+			dataSet = dataId.getDataSetID( );
+			if ( dataSet == lastDataSet
+					|| ( dataSet != null && dataSet.equals( lastDataSet ) ) )
+			{
+				flags |= ID_SAME_DATA_SET;
+			}
+			if ( dataId.getRowID( ) == -1 )
+			{
+				flags |= ID_CELL;
+			}
+		}
+		out.writeByte( flags );
+		writeVarLong( out, id.getUniqueID( ) - lastUid );
+		writeVarLong( out, id.getComponentID( ) - lastDesignId );
+		lastUid = id.getUniqueID( );
+		lastDesignId = id.getComponentID( );
+		if ( dataId != null )
+		{
+			if ( ( flags & ID_SAME_DATA_SET ) == 0 )
+			{
+				IOUtil.writeString( out, dataSet == null ? null : dataSet
+						.toString( ) );
+				lastDataSet = dataSet;
+			}
+			if ( ( flags & ID_CELL ) != 0 )
+			{
+				IOUtil.writeString( out, dataId.getCellID( ) );
+			}
+			else
+			{
+				writeVarLong( out, dataId.getRowID( ) - lastRowId );
+				lastRowId = dataId.getRowID( );
+			}
+		}
+	}
+
+	/**
+	 * writes the compressed block into the stream and updates the index of
+	 * the contents to refer the block.
+	 *
+	 * @param stream
+	 *            the content stream
+	 * @param offset
+	 *            the offset of the block in the stream
+	 * @param deflater
+	 *            used to compress the block
+	 * @return the size of the block in the stream.
+	 */
+	int write( RAOutputStream stream, long offset, Deflater deflater )
+			throws IOException
+	{
+		out.flush( );
+		byte[] data = buffer.toByteArray( );
+		deflater.reset( );
+		deflater.setInput( data );
+		deflater.finish( );
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+				data.length / 4 + 64 );
+		byte[] bytes = new byte[4096];
+		while ( !deflater.finished( ) )
+		{
+			int size = deflater.deflate( bytes );
+			compressed.write( bytes, 0, size );
+		}
+
+		stream.seek( PackedReportContentWriter.VERSION_SIZE + offset );
+		stream.writeInt( count );
+		stream.writeInt( data.length );
+		stream.writeInt( compressed.size( ) );
+		compressed.writeTo( stream );
+		for ( int i = 0; i < count; i++ )
+		{
+			stream.seek( PackedReportContentWriter.VERSION_SIZE + indexes[i]
+					+ PackedReportContentWriter.INDEX_ENTRY_SIZE );
+			stream.writeLong( offset );
+		}
+		return BLOCK_HEADER_SIZE + compressed.size( );
+	}
+
+	/**
+	 * writes the value with 7 bits in each byte, the value is zigzag encoded
+	 * so the small negative values are saved in a few bytes too.
+	 */
+	static void writeVarLong( DataOutputStream out, long value )
+			throws IOException
+	{
+		value = ( value << 1 ) ^ ( value >> 63 );
+		while ( ( value & ~0x7FL ) != 0 )
+		{
+			out.writeByte( (int) ( ( value & 0x7F ) | 0x80 ) );
+			value >>>= 7;
+		}
+		out.writeByte( (int) value );
+	}
+}
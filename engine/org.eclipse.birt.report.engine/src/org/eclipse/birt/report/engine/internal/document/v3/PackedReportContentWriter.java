@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.internal.document.v3;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.Deflater;
+
+import org.eclipse.birt.core.archive.IDocArchiveWriter;
+import org.eclipse.birt.report.engine.api.InstanceID;
+import org.eclipse.birt.report.engine.content.IContent;
+
+/**
+ * writes the content stream of version 2.
+ * <p>
+ * The index of the contents is the same as version 1, followed by the offset
+ * of the block and the position in the block where the content is saved. The
+ * contents are saved in the compressed blocks, and the contents of the same
+ * table row design, include the contents in the rows, are saved in the same
+ * blocks, so the block is compressed well. The block is written when it is
+ * full or the writer is flushed, the contents in the pending blocks can't be
+ * read until then.
+ * <p>
+ * The report content is saved in the same way as version 1.
+ */
+public class PackedReportContentWriter extends ReportContentWriterV3
+{
+
+	protected final static int VERSION_2 = 2;
+
+	/**
+	 * the offset of the block and the position of the content in the block.
+	 */
+	final static int BLOCK_ENTRY_SIZE = 12;
+
+	/**
+	 * a block is written once its size exceeds it.
+	 */
+	final static int MAX_BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * the max count of the pending blocks, the largest one is written if the
+	 * count exceeds it.
+	 */
+	final static int MAX_PENDING_BLOCKS = 16;
+
+	/**
+	 * the key of the block used by the contents not in any row.
+	 */
+	private static final Long SHARED_BLOCK = Long.valueOf( -1 );
+
+	private LinkedHashMap<Long, ContentBlockWriter> blocks = new LinkedHashMap<Long, ContentBlockWriter>( );
+
+	private Deflater deflater = new Deflater( );
+
+	public PackedReportContentWriter( IDocArchiveWriter writer, String name )
+			throws IOException
+	{
+		super( writer, name, VERSION_2 );
+	}
+
+	public void close( )
+	{
+		if ( cntStream != null )
+		{
+			try
+			{
+				flush( );
+			}
+			catch ( IOException ex )
+			{
+				logger.log( Level.SEVERE, "Failed to write the content blocks",
+						ex );
+			}
+		}
+		deflater.end( );
+		super.close( );
+	}
+
+	public long writeContent( IContent content ) throws IOException
+	{
+		long index = cntOffset;
+		updateIndex( content );
+		// reserve the block entry before any block is written
+		long entryOffset = cntOffset;
+		cntStream.seek( VERSION_SIZE + entryOffset );
+		cntStream.writeLong( -1 );
+		cntStream.writeInt( -1 );
+		cntOffset += BLOCK_ENTRY_SIZE;
+
+		Long key = getBlockKey( content );
+		ContentBlockWriter block = blocks.get( key );
+		if ( block == null )
+		{
+			if ( blocks.size( ) >= MAX_PENDING_BLOCKS )
+			{
+				writeBlock( getLargestBlock( ) );
+			}
+			block = new ContentBlockWriter( );
+			blocks.put( key, block );
+		}
+		int position = block.add( index, content );
+
+		cntStream.seek( VERSION_SIZE + entryOffset + 8 );
+		cntStream.writeInt( position );
+
+		if ( block.getSize( ) >= MAX_BLOCK_SIZE )
+		{
+			writeBlock( key );
+		}
+		return index;
+	}
+
+	/**
+	 * writes all the pending blocks into the stream.
+	 */
+	public void flush( ) throws IOException
+	{
+		if ( cntStream == null )
+		{
+			return;
+		}
+		ArrayList<Long> keys = new ArrayList<Long>( blocks.keySet( ) );
+		for ( Long key : keys )
+		{
+			writeBlock( key );
+		}
+	}
+
+	private void writeBlock( Long key ) throws IOException
+	{
+		ContentBlockWriter block = blocks.remove( key );
+		cntOffset += block.write( cntStream, cntOffset, deflater );
+	}
+
+	private Long getLargestBlock( )
+	{
+		Long largest = null;
+		int size = -1;
+		Iterator<Map.Entry<Long, ContentBlockWriter>> iter = blocks
+				.entrySet( ).iterator( );
+		while ( iter.hasNext( ) )
+		{
+			Map.Entry<Long, ContentBlockWriter> entry = iter.next( );
+			if ( entry.getValue( ).getSize( ) > size )
+			{
+				size = entry.getValue( ).getSize( );
+				largest = entry.getKey( );
+			}
+		}
+		return largest;
+	}
+
+	/**
+	 * the contents are grouped by the design of the row which contains them.
+	 */
+	private Long getBlockKey( IContent content )
+	{
+		while ( content != null )
+		{
+			if ( content.getContentType( ) == IContent.ROW_CONTENT )
+			{
+				InstanceID id = content.getInstanceID( );
+				if ( id != null && id.getComponentID( ) != -1 )
+				{
+					return Long.valueOf( id.getComponentID( ) );
+				}
+				return SHARED_BLOCK;
+			}
+			Object parent = content.getParent( );
+			content = parent instanceof IContent ? (IContent) parent : null;
+		}
+		return SHARED_BLOCK;
+	}
+}
@@ -14,12 +14,17 @@ package org.eclipse.birt.report.engine.internal.document.v3;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.Inflater;
 
 import org.eclipse.birt.core.archive.RAInputStream;
 import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.report.engine.api.InstanceID;
 import org.eclipse.birt.report.engine.content.IContent;
+import org.eclipse.birt.report.engine.content.IStyle;
 import org.eclipse.birt.report.engine.content.impl.AbstractContent;
 import org.eclipse.birt.report.engine.content.impl.ReportContent;
 import org.eclipse.birt.report.engine.internal.document.DocumentExtension;
@@ -43,8 +48,17 @@ public class ReportContentReaderV3
 
 	protected final static int VERSION_0 = 0;
 	protected final static int VERSION_1 = 1;
+	/**
+	 * the content stream written by PackedReportContentWriter.
+	 */
+	protected final static int VERSION_2 = 2;
 	protected final static int VERSION_SIZE = 4;
 
+	/**
+	 * the max count of the blocks cached by the reader in version 2.
+	 */
+	protected final static int MAX_CACHED_BLOCKS = 8;
+
 	/**
 	 * the current offset of the stream.
 	 */
@@ -55,6 +69,14 @@ public class ReportContentReaderV3
 	protected boolean isEmpty = false;
 
 	protected ClassLoader loader;
+
+	/**
+	 * the decoded blocks in version 2, the least recently used one is removed
+	 * if the cache is full.
+	 */
+	private LinkedHashMap<Long, ContentBlockReader> blocks;
+
+	private Inflater inflater;
 	
 	public ReportContentReaderV3( ReportContent reportContent,
 			RAInputStream stream, ClassLoader loader ) throws IOException
@@ -71,7 +93,7 @@ public class ReportContentReaderV3
 			{
 				version = VERSION_0;
 			}
-			else if ( version == VERSION_1 )
+			else if ( version == VERSION_1 || version == VERSION_2 )
 			{
 				if ( length == 4 )
 				{
@@ -112,6 +134,12 @@ public class ReportContentReaderV3
 			}
 			stream = null;
 		}
+		if ( inflater != null )
+		{
+			inflater.end( );
+			inflater = null;
+			blocks = null;
+		}
 	}
 
 	public long getRoot() 
@@ -165,8 +193,20 @@ public class ReportContentReaderV3
 		stream.readFully( buffer, 0, size );
 		DataInputStream oi = new DataInputStream( new ByteArrayInputStream(
 				buffer ) );
-		AbstractContent object = null;
 		int contentType = IOUtil.readInt( oi );
+		AbstractContent object = createContent( contentType, offset );
+		object.setVersion( version );
+		object.readContent( oi, loader );
+		return object;
+	}
+
+	/**
+	 * creates an empty content of the content type.
+	 */
+	protected AbstractContent createContent( int contentType, long offset )
+			throws IOException
+	{
+		AbstractContent object = null;
 		switch ( contentType )
 		{
 			case IContent.CELL_CONTENT :
@@ -222,11 +262,81 @@ public class ReportContentReaderV3
 				throw new IOException( "Found invalid contentType"
 						+ contentType + " at object offset " + offset );
 		}
-		object.setVersion( version );
-		object.readContent( oi, loader );
 		return object;
 	}
 
+	/**
+	 * read the content object saved in a block of the version 2 stream.
+	 * 
+	 * @param offset
+	 *            the offset of the index entry of the content
+	 */
+	protected IContent readObjectV2( long offset ) throws IOException
+	{
+		stream.seek( VERSION_SIZE + offset + INDEX_ENTRY_SIZE_V1 );
+		long blockOffset = stream.readLong( );
+		int position = stream.readInt( );
+		if ( blockOffset == -1 )
+		{
+			throw new IOException( "The content at offset " + offset
+					+ " has not been saved" );
+		}
+		ContentBlockReader block = loadBlock( blockOffset );
+		if ( position < 0 || position >= block.getCount( ) )
+		{
+			throw new IOException( "Invalid content position " + position
+					+ " at object offset " + offset );
+		}
+		AbstractContent object = createContent( block
+				.getContentType( position ), offset );
+		object.setVersion( VERSION_1 );
+		object.readContent( block.getFields( position ), loader );
+		byte[] styleData = block.getStyle( position );
+		if ( styleData != null )
+		{
+			IStyle style = reportContent.createStyle( );
+			style.read( new DataInputStream( new ByteArrayInputStream(
+					styleData ) ) );
+			if ( !style.isEmpty( ) )
+			{
+				object.setInlineStyle( style );
+			}
+		}
+		InstanceID id = block.getInstanceID( position );
+		if ( id != null )
+		{
+			object.setInstanceID( id );
+		}
+		return object;
+	}
+
+	private ContentBlockReader loadBlock( long blockOffset ) throws IOException
+	{
+		if ( blocks == null )
+		{
+			inflater = new Inflater( );
+			blocks = new LinkedHashMap<Long, ContentBlockReader>( 16, 0.75f,
+					true ) {
+
+				private static final long serialVersionUID = 1L;
+
+				protected boolean removeEldestEntry(
+						Map.Entry<Long, ContentBlockReader> eldest )
+				{
+					return size( ) > MAX_CACHED_BLOCKS;
+				}
+			};
+		}
+		Long key = Long.valueOf( blockOffset );
+		ContentBlockReader block = blocks.get( key );
+		if ( block == null )
+		{
+			block = new ContentBlockReader( stream, blockOffset, inflater );
+			blocks.put( key, block );
+		}
+		return block;
+	}
+
 	/**
 	 * read the content object out from the input stream in the curretn offset.
 	 * After call this methods, the offset is position to the next element in
@@ -287,6 +397,10 @@ public class ReportContentReaderV3
 		{
 			return readContentV1( index );
 		}
+		else if ( VERSION_2 == version )
+		{
+			return readContentV2( index );
+		}
 		else
 		{
 			throw new IOException( "unrecognized stream version!" );
@@ -319,6 +433,14 @@ public class ReportContentReaderV3
 		return content;
 	}
 
+	private IContent readContentV2( long index ) throws IOException
+	{
+		DocumentExtension docExt = readDocumentExtensionV1( index );
+		IContent content = readObjectV2( index );
+		content.setExtension( IContent.DOCUMENT_EXTENSION, docExt );
+		return content;
+	}
+
 	private DocumentExtension readDocumentExtension( long index )
 			throws IOException
 	{
@@ -326,7 +448,7 @@ public class ReportContentReaderV3
 		{
 			return readDocumentExtensionV0( index );
 		}
-		else if ( VERSION_1 == version )
+		else if ( VERSION_1 == version || VERSION_2 == version )
 		{
 			return readDocumentExtensionV1( index );
 		}
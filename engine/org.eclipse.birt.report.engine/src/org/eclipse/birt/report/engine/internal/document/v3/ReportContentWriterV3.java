@@ -51,10 +51,16 @@ public class ReportContentWriterV3 implements IReportContentWriter
 
 	public ReportContentWriterV3( IDocArchiveWriter writer, String name )
 			throws IOException
+	{
+		this( writer, name, VERSION_1 );
+	}
+
+	protected ReportContentWriterV3( IDocArchiveWriter writer, String name,
+			int version ) throws IOException
 	{
 		cntStream = writer.createRandomAccessStream( name );
 		// write the version information
-		cntStream.writeInt( VERSION_1 );
+		cntStream.writeInt( version );
 		cntOffset = 0;
 		rootOffset = -1;
 	}
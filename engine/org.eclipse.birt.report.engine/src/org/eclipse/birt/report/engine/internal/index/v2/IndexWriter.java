@@ -11,31 +11,72 @@
 
 package org.eclipse.birt.report.engine.internal.index.v2;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.Map.Entry;
 
 import org.eclipse.birt.core.archive.IDocArchiveWriter;
+import org.eclipse.birt.core.archive.RAInputStream;
 import org.eclipse.birt.core.archive.RAOutputStream;
 import org.eclipse.birt.core.util.IOUtil;
 import org.eclipse.birt.report.engine.content.impl.BookmarkContent;
 
+/**
+ * writes the index into the archive.
+ * <p>
+ * The entries are kept in memory until there are MAX_INLINE_INDEX_ENTRY
+ * entries. If there are more entries, each batch of the entries is sorted and
+ * saved as a run into a temporary stream. The runs are merged once the writer
+ * is closed and the btree is built from the merged entries by bulk loading,
+ * so the memory used by the writer doesn't grow with the index. If a key is
+ * added more than once, the first value is kept.
+ */
 public class IndexWriter implements IndexConstants
 {
 
 	public static int MAX_INLINE_INDEX_ENTRY = MAX_INLINE_ENTIRES;
 
+	/**
+	 * the max count of the runs merged at the same time, each run keeps an
+	 * input stream opened.
+	 */
+	static int MAX_MERGE_RUNS = 64;
+
+	static final String RUN_STREAM_SUFFIX = ".runs"; //$NON-NLS-1$
+
+	static final Comparator<Map.Entry<String, Object>> KEY_COMPARATOR = new Comparator<Map.Entry<String, Object>>( ) {
+
+		public int compare( Entry<String, Object> o1, Entry<String, Object> o2 )
+		{
+			return o1.getKey( ).compareTo( o2.getKey( ) );
+		}
+	};
+
 	IDocArchiveWriter archive;
 	String name;
 
 	int type;
 	HashMap<String, Object> inlineMap;
-	BTreeMap btree;
+
+	/**
+	 * the runs saved in the run stream.
+	 */
+	ArrayList<Run> runs = new ArrayList<Run>( );
+	String runStreamName;
+	RAOutputStream runStream;
+	DataOutputStream runOutput;
+	int runStreamIndex;
 
 	int entrySize;
 
@@ -54,7 +95,7 @@ public class IndexWriter implements IndexConstants
 		}
 		if ( inlineMap.size( ) >= MAX_INLINE_INDEX_ENTRY )
 		{
-			flushBtree( );
+			flushRun( );
 			inlineMap.clear( );
 		}
 		if ( !inlineMap.containsKey( key ) )
@@ -73,7 +114,7 @@ public class IndexWriter implements IndexConstants
 		}
 		if ( inlineMap.size( ) >= MAX_INLINE_INDEX_ENTRY )
 		{
-			flushBtree( );
+			flushRun( );
 			inlineMap.clear( );
 		}
 		if ( !inlineMap.containsKey( bookmark ) )
@@ -85,7 +126,7 @@ public class IndexWriter implements IndexConstants
 
 	void close( ) throws IOException
 	{
-		if ( btree == null )
+		if ( runs.isEmpty( ) )
 		{
 			RAOutputStream stream = archive.createOutputStream( name );
 			try
@@ -122,35 +163,362 @@ public class IndexWriter implements IndexConstants
 			{
 				stream.close( );
 			}
+			return;
 		}
-		if ( btree != null )
+		try
 		{
-			flushBtree( );
-			btree.close( );
+			flushRun( );
+			inlineMap.clear( );
+			closeRunStream( );
+			// merge the runs until they can be merged at the same time
+			while ( runs.size( ) > MAX_MERGE_RUNS )
+			{
+				mergeRuns( );
+			}
+			BTreeMap btree = BTreeMap.createTreeMap( archive, name, type );
+			try
+			{
+				RunMerger merger = new RunMerger( runs );
+				try
+				{
+					btree.bulkLoad( merger );
+				}
+				catch ( MergeException ex )
+				{
+					throw ex.getIOException( );
+				}
+				finally
+				{
+					merger.close( );
+				}
+			}
+			finally
+			{
+				btree.close( );
+			}
+		}
+		finally
+		{
+			closeRunStream( );
+			if ( runStreamName != null )
+			{
+				archive.dropStream( runStreamName );
+				runStreamName = null;
+			}
+			runs.clear( );
 		}
 	}
 
-	protected void flushBtree( ) throws IOException
+	/**
+	 * sorts the entries in memory and saves them as a run.
+	 */
+	protected void flushRun( ) throws IOException
 	{
-		if ( btree == null )
+		if ( inlineMap.isEmpty( ) )
 		{
-			btree = BTreeMap.createTreeMap( archive, name, type );
+			return;
 		}
 		ArrayList<Map.Entry<String, Object>> entries = new ArrayList<Map.Entry<String, Object>>(
 				inlineMap.entrySet( ) );
-		Collections.sort( entries,
-				new Comparator<Map.Entry<String, Object>>( ) {
+		Collections.sort( entries, KEY_COMPARATOR );
+
+		if ( runOutput == null )
+		{
+			openRunStream( );
+		}
+		Run run = new Run( runStreamName, runStream.getOffset( ) );
+		for ( Map.Entry<String, Object> entry : entries )
+		{
+			writeEntry( entry.getKey( ), entry.getValue( ) );
+			run.size++;
+		}
+		runOutput.flush( );
+		runs.add( run );
+	}
+
+	/**
+	 * merges the first MAX_MERGE_RUNS runs into one run at a time, the merged
+	 * runs are saved into a new run stream.
+	 */
+	protected void mergeRuns( ) throws IOException
+	{
+		String oldStreamName = runStreamName;
+		ArrayList<Run> oldRuns = runs;
+		runs = new ArrayList<Run>( );
+		openRunStream( );
+		for ( int start = 0; start < oldRuns.size( ); start += MAX_MERGE_RUNS )
+		{
+			int end = Math.min( start + MAX_MERGE_RUNS, oldRuns.size( ) );
+			Run run = new Run( runStreamName, runStream.getOffset( ) );
+			RunMerger merger = new RunMerger( oldRuns.subList( start, end ) );
+			try
+			{
+				while ( merger.hasNext( ) )
+				{
+					Map.Entry<String, Object> entry = merger.next( );
+					writeEntry( entry.getKey( ), entry.getValue( ) );
+					run.size++;
+				}
+			}
+			catch ( MergeException ex )
+			{
+				throw ex.getIOException( );
+			}
+			finally
+			{
+				merger.close( );
+			}
+			runOutput.flush( );
+			runs.add( run );
+		}
+		closeRunStream( );
+		archive.dropStream( oldStreamName );
+	}
+
+	private void openRunStream( ) throws IOException
+	{
+		runStreamName = name + RUN_STREAM_SUFFIX + runStreamIndex++;
+		runStream = archive.createOutputStream( runStreamName );
+		runOutput = new DataOutputStream( runStream );
+	}
+
+	private void closeRunStream( ) throws IOException
+	{
+		if ( runStream != null )
+		{
+			runStream.close( );
+			runStream = null;
+			runOutput = null;
+		}
+	}
+
+	private void writeEntry( String key, Object value ) throws IOException
+	{
+		IOUtil.writeString( runOutput, key );
+		if ( type == BTreeMap.LONG_VALUE )
+		{
+			IOUtil.writeLong( runOutput, (Long) value );
+		}
+		else
+		{
+			( (BookmarkContent) value ).writeStream( runOutput );
+		}
+	}
+
+	/**
+	 * the sorted entries saved in the run stream.
+	 */
+	static class Run
+	{
+
+		String streamName;
+		long offset;
+		int size;
+
+		Run( String streamName, long offset )
+		{
+			this.streamName = streamName;
+			this.offset = offset;
+		}
+	}
+
+	/**
+	 * reads the entries of a run one by one.
+	 */
+	private class RunReader
+	{
+
+		int index;
+		RAInputStream stream;
+		DataInputStream input;
+		int remain;
+		String key;
+		Object value;
+
+		RunReader( Run run, int index ) throws IOException
+		{
+			this.index = index;
+			this.remain = run.size;
+			stream = archive.getInputStream( run.streamName );
+			stream.seek( run.offset );
+			input = new DataInputStream( new BufferedInputStream( stream ) );
+		}
+
+		boolean next( ) throws IOException
+		{
+			if ( remain == 0 )
+			{
+				key = null;
+				value = null;
+				return false;
+			}
+			remain--;
+			key = IOUtil.readString( input );
+			if ( type == BTreeMap.LONG_VALUE )
+			{
+				value = Long.valueOf( IOUtil.readLong( input ) );
+			}
+			else
+			{
+				BookmarkContent content = new BookmarkContent( );
+				content.readStream( input );
+				value = content;
+			}
+			return true;
+		}
+
+		void close( ) throws IOException
+		{
+			stream.close( );
+		}
+	}
+
+	/**
+	 * merges the sorted runs into one sorted sequence. If a key exists in
+	 * several runs, only the value of the first run is returned.
+	 */
+	private class RunMerger implements Iterator<Map.Entry<String, Object>>
+	{
+
+		ArrayList<RunReader> readers = new ArrayList<RunReader>( );
+		PriorityQueue<RunReader> queue;
+		String lastKey;
 
-					public int compare( Entry<String, Object> o1,
-							Entry<String, Object> o2 )
+		RunMerger( List<Run> runs ) throws IOException
+		{
+			queue = new PriorityQueue<RunReader>( Math.max( runs.size( ), 1 ),
+					new Comparator<RunReader>( ) {
+
+						public int compare( RunReader r1, RunReader r2 )
+						{
+							int result = r1.key.compareTo( r2.key );
+							if ( result == 0 )
+							{
+								return r1.index - r2.index;
+							}
+							return result;
+						}
+					} );
+			try
+			{
+				for ( int i = 0; i < runs.size( ); i++ )
+				{
+					RunReader reader = new RunReader( runs.get( i ), i );
+					readers.add( reader );
+					if ( reader.next( ) )
 					{
-						return o1.getKey( ).compareTo( o2.getKey( ) );
+						queue.add( reader );
 					}
-				} );
+				}
+			}
+			catch ( IOException ex )
+			{
+				close( );
+				throw ex;
+			}
+		}
 
-		for ( Map.Entry<String, Object> entry : entries )
+		public boolean hasNext( )
+		{
+			// skip the keys returned by the previous runs
+			while ( !queue.isEmpty( ) && lastKey != null
+					&& lastKey.equals( queue.peek( ).key ) )
+			{
+				advance( queue.poll( ) );
+			}
+			return !queue.isEmpty( );
+		}
+
+		public Map.Entry<String, Object> next( )
+		{
+			if ( !hasNext( ) )
+			{
+				throw new NoSuchElementException( );
+			}
+			RunReader reader = queue.poll( );
+			Map.Entry<String, Object> entry = new IndexEntry( reader.key,
+					reader.value );
+			lastKey = reader.key;
+			advance( reader );
+			return entry;
+		}
+
+		public void remove( )
+		{
+			throw new UnsupportedOperationException( );
+		}
+
+		private void advance( RunReader reader )
+		{
+			try
+			{
+				if ( reader.next( ) )
+				{
+					queue.add( reader );
+				}
+			}
+			catch ( IOException ex )
+			{
+				throw new MergeException( ex );
+			}
+		}
+
+		void close( ) throws IOException
+		{
+			for ( RunReader reader : readers )
+			{
+				reader.close( );
+			}
+			readers.clear( );
+			queue.clear( );
+		}
+	}
+
+	static class IndexEntry implements Map.Entry<String, Object>
+	{
+
+		String key;
+		Object value;
+
+		IndexEntry( String key, Object value )
+		{
+			this.key = key;
+			this.value = value;
+		}
+
+		public String getKey( )
+		{
+			return key;
+		}
+
+		public Object getValue( )
+		{
+			return value;
+		}
+
+		public Object setValue( Object value )
+		{
+			throw new UnsupportedOperationException( );
+		}
+	}
+
+	/**
+	 * wraps the IOException thrown in reading the runs, as the merger is an
+	 * iterator.
+	 */
+	static class MergeException extends RuntimeException
+	{
+
+		private static final long serialVersionUID = 1L;
+
+		MergeException( IOException cause )
+		{
+			super( cause );
+		}
+
+		IOException getIOException( )
 		{
-			btree.insert( entry.getKey( ), entry.getValue( ) );
+			return (IOException) getCause( );
 		}
 	}
 }
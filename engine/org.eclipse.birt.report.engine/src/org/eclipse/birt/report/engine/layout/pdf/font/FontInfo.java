@@ -199,7 +199,7 @@ public class FontInfo
 			return word.length( ) * ( fontSize / 2 );
 		}
 
-		return bf.getWidthPoint( word, fontSize );
+		return TextWidthCache.getInstance( ).getWidthPoint( bf, fontSize, word );
 	}
 	
 	public int getItalicAdjust( )
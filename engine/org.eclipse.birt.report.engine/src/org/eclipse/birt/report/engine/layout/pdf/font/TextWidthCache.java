@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2008 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.layout.pdf.font;
+
+import com.lowagie.text.pdf.BaseFont;
+
+/**
+ * Caches the widths of the words measured by the layout.
+ * <p>
+ * The width is cached in the font units (1/1000 of the font size), so the
+ * same word in the same font shares the entry for all the font sizes. The
+ * cache has a fixed number of slots kept in arrays, a new entry replaces the
+ * one in the same slot, so the memory used by the cache is bounded. The slots
+ * are divided into segments which are locked separately, so the cache can be
+ * shared by the layout threads.
+ */
+public class TextWidthCache
+{
+
+	/**
+	 * the words longer than it are measured every time, they are seldom
+	 * repeated.
+	 */
+	static final int MAX_TEXT_LENGTH = 64;
+
+	static final int SEGMENT_COUNT = 16;
+
+	static final int SEGMENT_SIZE = 1024;
+
+	private static TextWidthCache instance = new TextWidthCache(
+			SEGMENT_COUNT, SEGMENT_SIZE );
+
+	private Segment[] segments;
+
+	private int segmentShift;
+
+	private int segmentMask;
+
+	/**
+	 * @return the cache shared by the layout of all the reports.
+	 */
+	public static TextWidthCache getInstance( )
+	{
+		return instance;
+	}
+
+	/**
+	 * @param segmentCount
+	 *            the count of the segments, must be power of 2
+	 * @param segmentSize
+	 *            the slot count of each segment, must be power of 2
+	 */
+	TextWidthCache( int segmentCount, int segmentSize )
+	{
+		segments = new Segment[segmentCount];
+		for ( int i = 0; i < segmentCount; i++ )
+		{
+			segments[i] = new Segment( segmentSize );
+		}
+		segmentShift = Integer.numberOfTrailingZeros( segmentSize );
+		segmentMask = segmentCount - 1;
+	}
+
+	/**
+	 * Gets the width of the text in the points.
+	 *
+	 * @param font
+	 *            the font
+	 * @param fontSize
+	 *            the font size
+	 * @param text
+	 *            the text
+	 * @return the same value as BaseFont.getWidthPoint( text, fontSize )
+	 */
+	public float getWidthPoint( BaseFont font, float fontSize, String text )
+	{
+		return getWidth( font, text ) * 0.001f * fontSize;
+	}
+
+	/**
+	 * Gets the width of the text in the font units.
+	 *
+	 * @return the same value as BaseFont.getWidth( text )
+	 */
+	public int getWidth( BaseFont font, String text )
+	{
+		if ( text.length( ) > MAX_TEXT_LENGTH )
+		{
+			return font.getWidth( text );
+		}
+		int hash = hash( font, text );
+		Segment segment = segments[( hash >>> segmentShift ) & segmentMask];
+		int index = hash & ( segment.widths.length - 1 );
+		synchronized ( segment )
+		{
+			if ( segment.fonts[index] == font
+					&& text.equals( segment.texts[index] ) )
+			{
+				segment.hits++;
+				return segment.widths[index];
+			}
+			segment.misses++;
+		}
+		// measure it out of the lock, the font is thread safe
+		int width = font.getWidth( text );
+		synchronized ( segment )
+		{
+			segment.fonts[index] = font;
+			segment.texts[index] = text;
+			segment.widths[index] = width;
+		}
+		return width;
+	}
+
+	private int hash( BaseFont font, String text )
+	{
+		int h = text.hashCode( ) * 31 + System.identityHashCode( font );
+		// spread the bits, the same as HashMap
+		h ^= ( h >>> 20 ) ^ ( h >>> 12 );
+		return h ^ ( h >>> 7 ) ^ ( h >>> 4 );
+	}
+
+	/**
+	 * @return the count of the widths found in the cache.
+	 */
+	public long getHitCount( )
+	{
+		long count = 0;
+		for ( int i = 0; i < segments.length; i++ )
+		{
+			synchronized ( segments[i] )
+			{
+				count += segments[i].hits;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the count of the widths measured as they are not in the cache.
+	 *         The words longer than MAX_TEXT_LENGTH are not counted.
+	 */
+	public long getMissCount( )
+	{
+		long count = 0;
+		for ( int i = 0; i < segments.length; i++ )
+		{
+			synchronized ( segments[i] )
+			{
+				count += segments[i].misses;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the ratio of the hits to all the lookups, 0 if there is no
+	 *         lookup.
+	 */
+	public double getHitRate( )
+	{
+		long hits = getHitCount( );
+		long total = hits + getMissCount( );
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * removes all the widths and resets the statistics.
+	 */
+	public void clear( )
+	{
+		for ( int i = 0; i < segments.length; i++ )
+		{
+			Segment segment = segments[i];
+			synchronized ( segment )
+			{
+				int size = segment.widths.length;
+				segment.fonts = new BaseFont[size];
+				segment.texts = new String[size];
+				segment.hits = 0;
+				segment.misses = 0;
+			}
+		}
+	}
+
+	private static class Segment
+	{
+
+		BaseFont[] fonts;
+		String[] texts;
+		int[] widths;
+		long hits;
+		long misses;
+
+		Segment( int size )
+		{
+			fonts = new BaseFont[size];
+			texts = new String[size];
+			widths = new int[size];
+		}
+	}
+}
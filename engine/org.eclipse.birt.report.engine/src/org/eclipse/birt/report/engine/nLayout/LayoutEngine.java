@@ -13,6 +13,7 @@ package org.eclipse.birt.report.engine.nLayout;
 
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.birt.core.exception.BirtException;
@@ -981,4 +982,49 @@ public class LayoutEngine extends LayoutEmitterAdapter
 		
 	}
 
+	public LayoutContext getContext( )
+	{
+		return context;
+	}
+
+	/**
+	 * set if the next page is the first page of the output, the header of the
+	 * first page is removed if the master page doesn't show it.
+	 * 
+	 * @param isFirst
+	 */
+	public void setFirstPage( boolean isFirst )
+	{
+		this.isFirst = isFirst;
+	}
+
+	/**
+	 * output the pages laid out by another layout engine of the same report,
+	 * for example by a worker of the parallel render. The pages are counted
+	 * by this engine, so the total page is resolved when the report ends.
+	 * 
+	 * @param source
+	 *            the layout context of the engine which laid out the pages
+	 * @param pages
+	 *            the pages in the output order
+	 * @throws BirtException
+	 */
+	public void outputPages( LayoutContext source, List<IPageContent> pages )
+			throws BirtException
+	{
+		if ( source.getUnresolvedContent( ) != null )
+		{
+			context.addUnresolvedContent( source.getUnresolvedContent( ) );
+			context.setTotalPageTemplateWidth( source
+					.getTotalPageTemplateWidth( ) );
+			context.setMaxWidth( source.getMaxWidth( ) );
+			context.setMaxHeight( source.getMaxHeight( ) );
+		}
+		for ( IPageContent page : pages )
+		{
+			context.pageNumber = page.getPageNumber( );
+			outputPage( page );
+		}
+	}
+
 }
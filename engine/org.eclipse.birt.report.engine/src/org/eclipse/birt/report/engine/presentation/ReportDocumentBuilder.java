@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,6 +27,7 @@ import org.eclipse.birt.core.archive.IDocArchiveWriter;
 import org.eclipse.birt.core.archive.RAOutputStream;
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.report.engine.api.EngineConstants;
 import org.eclipse.birt.report.engine.api.EngineException;
 import org.eclipse.birt.report.engine.api.IEngineTask;
 import org.eclipse.birt.report.engine.api.IPageHandler;
@@ -58,6 +60,7 @@ import org.eclipse.birt.report.engine.extension.internal.ExtensionManager;
 import org.eclipse.birt.report.engine.internal.document.DocumentExtension;
 import org.eclipse.birt.report.engine.internal.document.IPageHintWriter;
 import org.eclipse.birt.report.engine.internal.document.IReportContentWriter;
+import org.eclipse.birt.report.engine.internal.document.v3.PackedReportContentWriter;
 import org.eclipse.birt.report.engine.internal.document.v3.ReportContentWriterV3;
 import org.eclipse.birt.report.engine.internal.document.v4.FixedLayoutPageHintWriter;
 import org.eclipse.birt.report.engine.internal.document.v4.PageHintWriterV4;
@@ -129,6 +132,10 @@ public class ReportDocumentBuilder
 	 * used to write the content stream
 	 */
 	protected CompositeContentEmitter contentEmitter;
+	/**
+	 * the emitter which saves the contents into the content stream.
+	 */
+	protected ContentEmitter contentWriter;
 	/**
 	 * used to write the page content stream.
 	 */
@@ -187,7 +194,8 @@ public class ReportDocumentBuilder
 				executionContext ) );
 		// used to write the content stream.
 		contentEmitter = new CompositeContentEmitter( );
-		contentEmitter.addEmitter( new ContentEmitter( ) );
+		contentWriter = new ContentEmitter( );
+		contentEmitter.addEmitter( contentWriter );
 
 		// prepare the document extension
 		String[] exts = context.getEngineExtensions( );
@@ -318,6 +326,22 @@ public class ReportDocumentBuilder
 		return writer.writeContent( content );
 	}
 
+	private boolean isPackedContentStream( )
+	{
+		Map appContext = executionContext.getAppContext( );
+		if ( appContext == null )
+		{
+			return false;
+		}
+		Object value = appContext
+				.get( EngineConstants.APPCONTEXT_PACKED_CONTENT_STREAM );
+		if ( value instanceof Boolean )
+		{
+			return ( (Boolean) value ).booleanValue( );
+		}
+		return value != null && "true".equalsIgnoreCase( value.toString( ) ); //$NON-NLS-1$
+	}
+
 	private boolean needSave( IContent content )
 	{
 		InstanceID id = content.getInstanceID( );
@@ -363,8 +387,16 @@ public class ReportDocumentBuilder
 		{
 			try
 			{
-				writer = new ReportContentWriterV3( document.getArchive( ),
-						ReportDocumentConstants.CONTENT_STREAM );
+				if ( isPackedContentStream( ) )
+				{
+					writer = new PackedReportContentWriter( document
+							.getArchive( ), ReportDocumentConstants.CONTENT_STREAM );
+				}
+				else
+				{
+					writer = new ReportContentWriterV3( document.getArchive( ),
+							ReportDocumentConstants.CONTENT_STREAM );
+				}
 				writer.writeReport( report );
 
 				pageWriter = new ReportContentWriterV3( document.getArchive( ),
@@ -408,6 +440,18 @@ public class ReportDocumentBuilder
 			}
 		}
 
+		/**
+		 * writes the pending contents, so the contents of the finished pages
+		 * can be read at the check point.
+		 */
+		protected void flush( ) throws IOException
+		{
+			if ( writer instanceof PackedReportContentWriter )
+			{
+				( (PackedReportContentWriter) writer ).flush( );
+			}
+		}
+
 		public void start( IReportContent report )
 		{
 			open( report );
@@ -824,6 +868,7 @@ public class ReportDocumentBuilder
 					try
 					{
 						IDocArchiveWriter archive = document.getArchive( );
+						contentWriter.flush( );
 						writePageVariables( );
 						writeTotalPage( pageNumber );
 						document
@@ -956,6 +1001,7 @@ public class ReportDocumentBuilder
 					try
 					{
 						IDocArchiveWriter archive = document.getArchive( );
+						contentWriter.flush( );
 						writePageVariables( );
 						writeTotalPage( pageNumber );
 						document
@@ -16,6 +16,8 @@ import java.io.IOException;
 import org.eclipse.birt.core.archive.IDocArchiveWriter;
 import org.eclipse.birt.report.engine.api.impl.ReportDocumentWriter;
 import org.eclipse.birt.report.engine.executor.ExecutionContext;
+import org.eclipse.birt.report.engine.internal.document.DocumentWriterQueue;
+import org.eclipse.birt.report.engine.toc.document.AsyncTOCWriter;
 import org.eclipse.birt.report.engine.toc.document.MemTOCWriter;
 
 /**
@@ -49,7 +51,16 @@ public class TOCBuilder implements ITOCConstants
 		if ( document != null )
 		{
 			IDocArchiveWriter archive = document.getArchive( );
-			writer = new TOCWriter( archive );
+			DocumentWriterQueue queue = document.getWriterQueue( );
+			if ( queue != null )
+			{
+				writer = new AsyncTOCWriter( archive
+						.createOutputStream( TOC_STREAM ), queue );
+			}
+			else
+			{
+				writer = new TOCWriter( archive );
+			}
 		}
 		else
 		{
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Copyright (c) 2004 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.toc.document;
+
+import java.io.IOException;
+
+import org.eclipse.birt.core.archive.RAOutputStream;
+import org.eclipse.birt.report.engine.internal.document.DocumentWriterQueue;
+import org.eclipse.birt.report.engine.toc.ITOCConstants;
+import org.eclipse.birt.report.engine.toc.ITOCWriter;
+import org.eclipse.birt.report.engine.toc.ITreeNode;
+import org.eclipse.birt.report.engine.toc.TOCEntry;
+
+/**
+ * writes the TOC in the same format as TOCWriterV3, but the nodes are written
+ * by the writer thread of the document.
+ * <p>
+ * The tree node of an entry is created in the generation thread, as the
+ * builder uses it to link the entries, and it is written into the stream by
+ * the writer thread. Only the nodes of the open entries are referred by the
+ * builder, so the memory doesn't grow with the TOC.
+ */
+public class AsyncTOCWriter implements ITOCWriter, ITOCConstants
+{
+
+	private TOCWriterV3 writer;
+
+	private DocumentWriterQueue queue;
+
+	public AsyncTOCWriter( RAOutputStream out, DocumentWriterQueue queue )
+			throws IOException
+	{
+		this.writer = new TOCWriterV3( out );
+		this.queue = queue;
+	}
+
+	public ITreeNode getTree( )
+	{
+		return writer.getTree( );
+	}
+
+	public void startTOCEntry( TOCEntry entry ) throws IOException
+	{
+		final DocTreeNode node = writer.createTreeNode( entry );
+		queue.submit( new DocumentWriterQueue.Task( ) {
+
+			public void run( ) throws IOException
+			{
+				writer.writeTreeNode( node );
+			}
+		} );
+	}
+
+	public void closeTOCEntry( TOCEntry entry ) throws IOException
+	{
+		final DocTreeNode node = (DocTreeNode) entry.getTreeNode( );
+		if ( node != null )
+		{
+			queue.submit( new DocumentWriterQueue.Task( ) {
+
+				public void run( ) throws IOException
+				{
+					writer.closeTreeNode( node );
+				}
+			} );
+		}
+	}
+
+	public void close( ) throws IOException
+	{
+		queue.submit( new DocumentWriterQueue.Task( ) {
+
+			public void run( ) throws IOException
+			{
+				writer.close( );
+			}
+		} );
+		queue.flush( );
+	}
+}
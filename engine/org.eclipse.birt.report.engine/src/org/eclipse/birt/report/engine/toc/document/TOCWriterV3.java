@@ -44,7 +44,6 @@ public class TOCWriterV3 implements ITOCWriter, ITOCConstants
 		offset = out.getOffset( );
 		root = new DocTreeNode( );
 		root.setNodeId( "/" );
-		root.offset = (int) offset;
 		writeTreeNode( root );
 	}
 
@@ -65,22 +64,31 @@ public class TOCWriterV3 implements ITOCWriter, ITOCConstants
 
 	public void startTOCEntry( TOCEntry tocEntry ) throws IOException
 	{
-		DocTreeNode node = new DocTreeNode( tocEntry );
-		node.offset = (int) offset;
+		writeTreeNode( createTreeNode( tocEntry ) );
+	}
+
+	public void closeTOCEntry( TOCEntry entry ) throws IOException
+	{
+		closeTreeNode( (DocTreeNode) entry.getTreeNode( ) );
+	}
 
-		// get parent entry
-		DocTreeNode parent = getParent( tocEntry );
-		node.setParent( parent );
-		parent.childCount++;
-		
-		writeTreeNode( node );
-		
+	/**
+	 * creates the tree node of the entry, the node is written by
+	 * writeTreeNode later.
+	 */
+	DocTreeNode createTreeNode( TOCEntry tocEntry )
+	{
+		DocTreeNode node = new DocTreeNode( tocEntry );
+		node.setParent( getParent( tocEntry ) );
 		tocEntry.setTreeNode( node );
+		return node;
 	}
 
-	public void closeTOCEntry( TOCEntry entry ) throws IOException
+	/**
+	 * updates the child count of the node once all its children are written.
+	 */
+	void closeTreeNode( DocTreeNode node ) throws IOException
 	{
-		DocTreeNode node = (DocTreeNode) entry.getTreeNode( );
 		if ( node != null )
 		{
 			// update the total child
@@ -119,6 +127,12 @@ public class TOCWriterV3 implements ITOCWriter, ITOCConstants
 	synchronized protected void writeTreeNode( DocTreeNode node )
 			throws IOException
 	{
+		node.offset = (int) offset;
+		DocTreeNode parent = node.getParent( );
+		if ( parent != null )
+		{
+			parent.childCount++;
+		}
 		out.seek( node.offset );
 		out.writeInt( node.next );
 		out.writeInt( node.child );
@@ -77,6 +77,9 @@ public class ReportRunner {
 	
 	protected Integer spannedRowHeight = null;
 	
+	protected Boolean streamingXlsx = null;
+	protected Integer streamingXlsxWindow = null;
+	
 	protected String templateFile = null;
 	
 	protected Map<String,Object> parameters = new HashMap<String, Object>();
@@ -556,6 +559,12 @@ public class ReportRunner {
 		if( templateFile != null ) {
 			renderOptions.setOption( ExcelEmitter.TEMPLATE_FILE, templateFile );
 		}
+		if( streamingXlsx != null ) {
+			renderOptions.setOption( ExcelEmitter.STREAMING_XLSX, streamingXlsx );
+		}
+		if( streamingXlsxWindow != null ) {
+			renderOptions.setOption( ExcelEmitter.STREAMING_XLSX_WINDOW, streamingXlsxWindow );
+		}
 		
 		return renderOptions;
 	}
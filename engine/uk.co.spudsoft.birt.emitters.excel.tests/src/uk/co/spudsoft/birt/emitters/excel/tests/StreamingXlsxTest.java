@@ -0,0 +1,115 @@
+/*************************************************************************************
+ * Copyright (c) 2011, 2012, 2013 James Talbut.
+ *  jim-emitters@spudsoft.co.uk
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     James Talbut - Initial implementation.
+ ************************************************************************************/
+
+package uk.co.spudsoft.birt.emitters.excel.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.eclipse.birt.core.exception.BirtException;
+import org.junit.Test;
+
+public class StreamingXlsxTest extends ReportRunner {
+
+	private static final int RECORDS = 250;
+	private static final int WINDOW = 10;
+
+	private XSSFWorkbook render( boolean streaming ) throws BirtException, IOException {
+		streamingXlsx = streaming;
+		streamingXlsxWindow = streaming ? WINDOW : null;
+		InputStream inputStream = runAndRenderReport("StreamingXlsx.rptdesign", "xlsx");
+		assertNotNull(inputStream);
+		try {
+			XSSFWorkbook workbook = new XSSFWorkbook(inputStream);
+			assertNotNull(workbook);
+			return workbook;
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private Set<String> mergedRegions( Sheet sheet ) {
+		Set<String> result = new HashSet<String>();
+		for( int i = 0; i < sheet.getNumMergedRegions(); ++i ) {
+			result.add( sheet.getMergedRegion(i).formatAsString() );
+		}
+		return result;
+	}
+
+	@Test
+	public void testSpansAcrossFlushedRows() throws BirtException, IOException {
+
+		debug = false;
+		XSSFWorkbook workbook = render( true );
+
+		assertEquals( 1, workbook.getNumberOfSheets() );
+		Sheet sheet = workbook.getSheetAt(0);
+
+		// two header rows, then two rows for each record, far more than the window
+		assertEquals( 1 + 2 * RECORDS, this.lastRow(sheet) );
+		assertTrue( this.lastRow(sheet) > 10 * WINDOW );
+
+		assertTrue( mergedRegion( sheet, 0, 0, 0, 2 ) );
+		for( int i = 0; i < RECORDS; ++i ) {
+			int top = 2 + 2 * i;
+			assertTrue( "Row span of record " + i, mergedRegion( sheet, top, 0, top + 1, 0 ) );
+			assertTrue( "Col span of record " + i, mergedRegion( sheet, top + 1, 1, top + 1, 2 ) );
+		}
+		assertEquals( 1 + 2 * RECORDS, sheet.getNumMergedRegions() );
+
+		DataFormatter formatter = new DataFormatter();
+		assertEquals( "1",                          formatter.formatCellValue(sheet.getRow(2).getCell(0)));
+		assertEquals( "Name 1",                     formatter.formatCellValue(sheet.getRow(2).getCell(1)));
+		assertEquals( "Description of row 1",       formatter.formatCellValue(sheet.getRow(3).getCell(1)));
+		assertEquals( "250",                        formatter.formatCellValue(sheet.getRow(500).getCell(0)));
+		assertEquals( "1750",                       formatter.formatCellValue(sheet.getRow(500).getCell(2)));
+		assertEquals( "Description of row 250",     formatter.formatCellValue(sheet.getRow(501).getCell(1)));
+	}
+
+	@Test
+	public void testMatchesInMemoryWorkbook() throws BirtException, IOException {
+
+		debug = false;
+		XSSFWorkbook expected = render( false );
+		XSSFWorkbook actual = render( true );
+
+		assertEquals( expected.getNumberOfSheets(), actual.getNumberOfSheets() );
+		Sheet expectedSheet = expected.getSheetAt(0);
+		Sheet actualSheet = actual.getSheetAt(0);
+		assertEquals( expectedSheet.getSheetName(), actualSheet.getSheetName() );
+		assertEquals( this.lastRow(expectedSheet), this.lastRow(actualSheet) );
+		assertEquals( mergedRegions(expectedSheet), mergedRegions(actualSheet) );
+
+		DataFormatter formatter = new DataFormatter();
+		for( Row expectedRow : expectedSheet ) {
+			Row actualRow = actualSheet.getRow( expectedRow.getRowNum() );
+			assertNotNull( "Row " + expectedRow.getRowNum(), actualRow );
+			assertEquals( "Row " + expectedRow.getRowNum(), expectedRow.getHeight(), actualRow.getHeight() );
+			assertEquals( "Row " + expectedRow.getRowNum(), expectedRow.getLastCellNum(), actualRow.getLastCellNum() );
+			for( int col = 0; col < expectedRow.getLastCellNum(); ++col ) {
+				assertEquals( "Cell " + expectedRow.getRowNum() + "," + col
+						, formatter.formatCellValue( expectedRow.getCell(col) )
+						, formatter.formatCellValue( actualRow.getCell(col) ) );
+			}
+		}
+	}
+
+}
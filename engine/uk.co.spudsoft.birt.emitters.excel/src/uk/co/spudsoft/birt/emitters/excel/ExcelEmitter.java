@@ -84,6 +84,10 @@ public abstract class ExcelEmitter implements IContentEmitter {
 	public static final String DISPLAYZEROS_PROP = "ExcelEmitter.DisplayZeros";
 
 	public static final String TEMPLATE_FILE = "ExcelEmitter.TemplateFile";
+
+	public static final String STREAMING_XLSX = "ExcelEmitter.StreamingXlsx";
+	public static final String STREAMING_XLSX_WINDOW = "ExcelEmitter.StreamingXlsxWindow";
+	public static final int STREAMING_XLSX_DEFAULT_WINDOW = 100;
 	
 	/**
 	 * Logger.
@@ -163,6 +167,29 @@ public abstract class ExcelEmitter implements IContentEmitter {
 	 */
 	protected abstract Workbook openWorkbook( File templateFile ) throws IOException;
 	
+	/**
+	 * <p>
+	 * Wraps a workbook so that the finished rows are written out while the report is processed.
+	 * </p><p>
+	 * The default implementation returns null, meaning that the format does not support streaming.
+	 * </p>
+	 * @param wb
+	 * The workbook created by createWorkbook or openWorkbook.
+	 * @return
+	 * The streaming workbook, or null.
+	 */
+	protected Workbook createStreamingWorkbook( Workbook wb ) {
+		return null;
+	}
+	
+	/**
+	 * Release any temporary resources held by the workbook after it has been written.
+	 * @param wb
+	 * The workbook that has been written.
+	 */
+	protected void disposeWorkbook( Workbook wb ) {
+	}
+	
 	
 	public void initialize( IEmitterServices service ) throws BirtException {
 		renderOptions = service.getRenderOption();
@@ -210,12 +237,23 @@ public abstract class ExcelEmitter implements IContentEmitter {
 		    wb = createWorkbook();
 		}
 		
+		int streamingWindow = 0;
+		if( EmitterServices.booleanOption( renderOptions, report, STREAMING_XLSX, false ) ) {
+			Workbook streamingWb = createStreamingWorkbook( wb );
+			if( streamingWb != null ) {
+				wb = streamingWb;
+				streamingWindow = Math.max( 1, EmitterServices.integerOption( renderOptions, (IContent)null, STREAMING_XLSX_WINDOW, STREAMING_XLSX_DEFAULT_WINDOW ) );
+				log.debug( "Streaming workbook with a window of ", streamingWindow, " rows" );
+			}
+		}
+		
 	    CSSEngine cssEngine = report.getRoot().getCSSEngine();
 		StyleManagerUtils smu = utilsFactory.create(log);
 	    
 	    StyleManager sm = new StyleManager( wb, log, smu, cssEngine, report.getReportContext().getLocale() );
 	    
 		handlerState = new HandlerState(this, log, smu, wb, sm, renderOptions);
+		handlerState.streamingWindow = streamingWindow;
 		handlerState.setHandler( new PageHandler(log, null) );
 
 		if( EmitterServices.booleanOption( handlerState.getRenderOptions(), report, ExcelEmitter.SINGLE_SHEET_PAGE_BREAKS, false ) ) {
@@ -275,6 +313,7 @@ public abstract class ExcelEmitter implements IContentEmitter {
 					log.debug("ex:", ex.toString());
 				}
 			}
+			disposeWorkbook( handlerState.getWb() );
 			handlerState = null;
 			reportOutputFilename = null;			
 			reportOutputStream = null;
@@ -99,6 +99,14 @@ public class HandlerState {
 	 * Set to true when end() is called and pageEnd has to be called
 	 */
 	public boolean reportEnding;
+	/**
+	 * The number of finished rows kept in memory when the workbook is streamed, 0 if the workbook is not streamed
+	 */
+	public int streamingWindow;
+	/**
+	 * The rows of the current sheet before this index have been flushed and can no longer be accessed
+	 */
+	public int flushedRowNum;
 	
 
 	/**
@@ -166,6 +174,10 @@ public class HandlerState {
 		return reportEngine;
 	}
 
+	public boolean isStreaming() {
+		return streamingWindow > 0;
+	}
+
 	public IHandler getHandler() {
 		return handler;
 	}
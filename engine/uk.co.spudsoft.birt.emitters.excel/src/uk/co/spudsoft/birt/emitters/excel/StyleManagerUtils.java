@@ -880,6 +880,17 @@ public abstract class StyleManagerUtils {
 	 */
 	public abstract void prepareMarginDimensions(Sheet sheet, IPageContent page);
 	
+	/**
+	 * Write all but the last rows of a streamed sheet out of memory.
+	 * The default implementation does nothing, as only the XSSF sheets can be streamed.
+	 * @param sheet
+	 * The sheet to flush.
+	 * @param remaining
+	 * The number of rows to keep in memory.
+	 */
+	public void flushRows(Sheet sheet, int remaining) throws IOException {
+	}
+	
 
 	/**
 	 * Place a border around a region on the current sheet.
@@ -13,6 +13,8 @@
 
 package uk.co.spudsoft.birt.emitters.excel;
 
+import java.io.IOException;
+
 import org.apache.poi.ss.usermodel.BorderStyle;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.FillPatternType;
@@ -20,6 +22,7 @@ import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.apache.poi.xssf.usermodel.XSSFFont;
@@ -267,4 +270,11 @@ public class StyleManagerXUtils extends StyleManagerUtils {
 		}
 	}
 	
+	@Override
+	public void flushRows(Sheet sheet, int remaining) throws IOException {
+		if( sheet instanceof SXSSFSheet ) {
+			((SXSSFSheet)sheet).flushRows(remaining);
+		}
+	}
+	
 }
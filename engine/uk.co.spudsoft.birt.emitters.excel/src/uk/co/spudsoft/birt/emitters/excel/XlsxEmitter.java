@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 /**
@@ -52,4 +53,18 @@ public class XlsxEmitter extends ExcelEmitter {
 		}
 	}
 
+	/**
+	 * The rows are flushed by the handlers (see PageHandler.flushRows), so the workbook
+	 * is created without an automatic row window.
+	 */
+	protected Workbook createStreamingWorkbook( Workbook wb ) {
+		return new SXSSFWorkbook( (XSSFWorkbook)wb, -1 );
+	}
+
+	protected void disposeWorkbook( Workbook wb ) {
+		if( wb instanceof SXSSFWorkbook ) {
+			((SXSSFWorkbook)wb).dispose();
+		}
+	}
+
 }
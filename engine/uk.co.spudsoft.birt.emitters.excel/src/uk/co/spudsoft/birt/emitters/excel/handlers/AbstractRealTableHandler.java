@@ -46,6 +46,8 @@ public class AbstractRealTableHandler extends AbstractHandler implements ITableH
 	private AreaBorders borderDefn;
 	
 	private List< NestedTableHandler > nestedTables;
+	
+	private boolean columnsSized;
 
 	public AbstractRealTableHandler(Logger log, IHandler parent, ITableContent table) {
 		super(log, parent, table);
@@ -136,25 +138,7 @@ public class AbstractRealTableHandler extends AbstractHandler implements ITableH
 		log.debug( "Details rows from ", startDetailsRow, " to ", endDetailsRow );
 		
 		if( ( startDetailsRow > 0 ) && ( endDetailsRow > startDetailsRow ) ) {
-			boolean forceAutoColWidths = EmitterServices.booleanOption( state.getRenderOptions(), table, ExcelEmitter.FORCEAUTOCOLWIDTHS_PROP, false );
-			for( int col = 0; col < table.getColumnCount(); ++col ) {
-				int oldWidth = state.currentSheet.getColumnWidth(col);
-				if( forceAutoColWidths || ( oldWidth == 256 * state.currentSheet.getDefaultColumnWidth() ) ) {
-					FilteredSheet filteredSheet = new FilteredSheet( state.currentSheet, startDetailsRow, Math.min(endDetailsRow, startDetailsRow + 12) );
-			        double calcWidth = SheetUtil.getColumnWidth( filteredSheet, col, false );
-
-			        if (calcWidth > 1.0) {
-			        	calcWidth *= 256;
-			            int maxColumnWidth = 255*256; // The maximum column width for an individual cell is 255 characters
-			            if (calcWidth > maxColumnWidth) {
-			            	calcWidth = maxColumnWidth;
-			            }
-			            if( calcWidth > oldWidth ) {
-			            	state.currentSheet.setColumnWidth( col, (int)(calcWidth) );
-			            }
-			        }
-				}
-			}
+			autoSizeColumns(state, table, endDetailsRow);
 		}
 		
 		if( ( table.getBookmark() != null ) && ( state.rowNum > startRow ) && ( table.getColumnCount() > 1 ) ) {
@@ -175,6 +159,38 @@ public class AbstractRealTableHandler extends AbstractHandler implements ITableH
 		}
 	}
 
+	/**
+	 * Set the widths of the columns without a width from the first details rows, this is only done once for each table.
+	 * @param lastRow
+	 * The last details row that may be used.
+	 */
+	protected void autoSizeColumns(HandlerState state, ITableContent table, int lastRow) {
+		if( columnsSized ) {
+			return;
+		}
+		columnsSized = true;
+		
+		boolean forceAutoColWidths = EmitterServices.booleanOption( state.getRenderOptions(), table, ExcelEmitter.FORCEAUTOCOLWIDTHS_PROP, false );
+		for( int col = 0; col < table.getColumnCount(); ++col ) {
+			int oldWidth = state.currentSheet.getColumnWidth(col);
+			if( forceAutoColWidths || ( oldWidth == 256 * state.currentSheet.getDefaultColumnWidth() ) ) {
+				FilteredSheet filteredSheet = new FilteredSheet( state.currentSheet, startDetailsRow, Math.min(lastRow, startDetailsRow + 12) );
+		        double calcWidth = SheetUtil.getColumnWidth( filteredSheet, col, false );
+
+		        if (calcWidth > 1.0) {
+		        	calcWidth *= 256;
+		            int maxColumnWidth = 255*256; // The maximum column width for an individual cell is 255 characters
+		            if (calcWidth > maxColumnWidth) {
+		            	calcWidth = maxColumnWidth;
+		            }
+		            if( calcWidth > oldWidth ) {
+		            	state.currentSheet.setColumnWidth( col, (int)(calcWidth) );
+		            }
+		        }
+			}
+		}
+	}
+
 	@Override
 	public void startTableBand(HandlerState state, ITableBandContent band) throws BirtException {
 		if( ( band.getBandType() == ITableBandContent.BAND_DETAIL ) && ( startDetailsRow < 0 ) ) {
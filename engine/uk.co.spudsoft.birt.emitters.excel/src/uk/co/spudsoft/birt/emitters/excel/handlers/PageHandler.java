@@ -13,7 +13,9 @@
 
 package uk.co.spudsoft.birt.emitters.excel.handlers;
 
+import java.io.IOException;
 import java.util.Collection;
+import java.util.Iterator;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.ClientAnchor;
@@ -38,6 +40,7 @@ import org.eclipse.birt.report.engine.content.impl.CellContent;
 import org.eclipse.birt.report.engine.ir.DimensionType;
 import org.eclipse.birt.report.engine.presentation.ContentEmitterVisitor;
 
+import uk.co.spudsoft.birt.emitters.excel.Area;
 import uk.co.spudsoft.birt.emitters.excel.CellImage;
 import uk.co.spudsoft.birt.emitters.excel.ClientAnchorConversions;
 import uk.co.spudsoft.birt.emitters.excel.Coordinate;
@@ -244,12 +247,64 @@ public class PageHandler extends AbstractHandler {
 		state.images.clear();
 		state.rowNum = 0;
 		state.colNum = 0;
+		state.flushedRowNum = 0;
 		state.clearRowSpans();
 		state.areaBorders.clear();
 		
 		state.currentSheet = null;
 	}
 	
+	/**
+	 * <p>
+	 * Write the finished rows of the current sheet out of a streamed workbook, keeping the last streamingWindow rows in memory.
+	 * </p><p>
+	 * Rows covered by a row span that has not finished are kept, as their heights may still change.
+	 * The images on the rows being flushed are placed on the sheet first.
+	 * </p>
+	 */
+	public void flushRows(HandlerState state) throws BirtException {
+		int flushBefore = state.rowNum - state.streamingWindow;
+		for( Area area : state.rowSpans ) {
+			if( ( area.getY().getRow() >= state.rowNum ) && ( area.getX().getRow() < flushBefore ) ) {
+				flushBefore = area.getX().getRow();
+			}
+		}
+		if( flushBefore <= state.flushedRowNum ) {
+			return;
+		}
+		
+		Drawing drawing = null;
+		for( Iterator<CellImage> iter = state.images.iterator(); iter.hasNext(); ) {
+			CellImage cellImage = iter.next();
+			if( cellImage.location.getRow() < flushBefore ) {
+				if( drawing == null ) {
+					drawing = state.currentSheet.createDrawingPatriarch();
+				}
+				processCellImage(state,drawing,cellImage);
+				iter.remove();
+			}
+		}
+		
+		int remaining = 0;
+		for( int row = flushBefore; row <= state.currentSheet.getLastRowNum(); ++row ) {
+			if( state.currentSheet.getRow(row) != null ) {
+				++remaining;
+			}
+		}
+		log.debug( "Flushing rows before ", flushBefore, ", keeping ", remaining, " rows" );
+		try {
+			state.getSmu().flushRows(state.currentSheet, remaining);
+		} catch( IOException ex ) {
+			throw new BirtException( EmitterServices.getPluginName()
+					, "Unable to flush rows before {0}"
+					, new Object[] { flushBefore }
+					, null
+					, ex 
+					);
+		}
+		state.flushedRowNum = flushBefore;
+	}
+	
 	private CellRangeAddress getMergedRegionBegunBy( Sheet sheet, int row, int col ) {
 		for( int i = 0; i < sheet.getNumMergedRegions(); ++i ) {
 			CellRangeAddress range = sheet.getMergedRegion(i);
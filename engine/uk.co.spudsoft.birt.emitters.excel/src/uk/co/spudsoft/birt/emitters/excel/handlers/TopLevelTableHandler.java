@@ -73,6 +73,17 @@ public class TopLevelTableHandler extends AbstractRealTableHandler {
 		state.setHandler(parent);
 	}
 
+	/**
+	 * Flush the finished rows of a streamed workbook.
+	 * The column widths are calculated before the first details rows are flushed, as they can't be read afterwards.
+	 */
+	public void flushRows(HandlerState state) throws BirtException {
+		if( ( startDetailsRow > 0 ) && ( state.rowNum - state.streamingWindow > startDetailsRow ) ) {
+			autoSizeColumns(state, (ITableContent)element, state.rowNum - 1);
+		}
+		getAncestor(PageHandler.class).flushRows(state);
+	}
+
 	@Override
 	public void startRow(HandlerState state, IRowContent row) throws BirtException {
 		state.setHandler(new TopLevelTableRowHandler(log, this, row));
@@ -116,6 +127,12 @@ public class TopLevelTableHandler extends AbstractRealTableHandler {
 				disableGrouping = true;
 			}
 
+			// The rows that have been flushed can no longer be grouped
+			if( start < state.flushedRowNum ) {
+				log.debug( "TableGroup from ", start, " not grouped, rows before ", state.flushedRowNum, " have been flushed" );
+				disableGrouping = true;
+			}
+
 			if( ! disableGrouping ) {
 				if( state.currentSheet.getRowSumsBelow() ) {
 					log.debug( "TableGroup of rows below ", start, " - ", state.rowNum - 2 );
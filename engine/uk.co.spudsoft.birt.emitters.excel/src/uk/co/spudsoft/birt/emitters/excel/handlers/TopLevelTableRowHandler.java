@@ -32,6 +32,14 @@ public class TopLevelTableRowHandler extends AbstractRealTableRowHandler {
 		state.rowOffset = 0;
 	}
 
+	@Override
+	public void endRow(HandlerState state, IRowContent row) throws BirtException {
+		super.endRow(state, row);
+		if( state.isStreaming() ) {
+			((TopLevelTableHandler)parent).flushRows(state);
+		}
+	}
+
 	@Override
 	public void startCell(HandlerState state, ICellContent cell) throws BirtException {
 		state.setHandler(new TopLevelTableCellHandler(state.getEmitter(), log, this, cell));
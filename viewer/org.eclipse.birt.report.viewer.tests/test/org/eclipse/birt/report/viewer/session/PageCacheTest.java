@@ -0,0 +1,182 @@
+/*************************************************************************************
+ * Copyright (c) 2008 Actuate Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Actuate Corporation - Initial implementation.
+ ************************************************************************************/
+
+package org.eclipse.birt.report.viewer.session;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.report.session.PageCache;
+
+/**
+ * TestCases for PageCache class.
+ */
+public class PageCacheTest extends TestCase
+{
+
+	private File folder;
+
+	protected void setUp( ) throws Exception
+	{
+		folder = new File( System.getProperty( "java.io.tmpdir" ), //$NON-NLS-1$
+				"BIRTPAGE_TEST" ); //$NON-NLS-1$
+	}
+
+	protected void tearDown( ) throws Exception
+	{
+		File[] files = folder.listFiles( );
+		if ( files != null )
+		{
+			for ( int i = 0; i < files.length; i++ )
+			{
+				files[i].delete( );
+			}
+		}
+		folder.delete( );
+	}
+
+	public void testMemoryCache( ) throws IOException
+	{
+		PageCache cache = new PageCache( folder.getPath( ), 250, 0 );
+		List ids = new ArrayList( );
+		ids.add( "id1" ); //$NON-NLS-1$
+		cache.put( "page1", new PageCache.Page( new byte[100], ids ) ); //$NON-NLS-1$
+		cache.put( "page2", new PageCache.Page( new byte[100], null ) ); //$NON-NLS-1$
+
+		PageCache.Page page = cache.get( "page1" ); //$NON-NLS-1$
+		assertNotNull( page );
+		List pageIds = new ArrayList( );
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		page.writeTo( out, pageIds, "session1" ); //$NON-NLS-1$
+		assertEquals( 100, out.size( ) );
+		assertEquals( ids, pageIds );
+
+		// page2 is the least recently used one
+		cache.put( "page3", new PageCache.Page( new byte[100], null ) ); //$NON-NLS-1$
+		assertFalse( cache.contains( "page2" ) ); //$NON-NLS-1$
+		assertTrue( cache.contains( "page3" ) ); //$NON-NLS-1$
+		assertNull( cache.get( "page2" ) ); //$NON-NLS-1$
+		assertNotNull( cache.get( "page1" ) ); //$NON-NLS-1$
+		assertNotNull( cache.get( "page3" ) ); //$NON-NLS-1$
+		assertEquals( 3, cache.getHitCount( ) );
+		assertEquals( 1, cache.getMissCount( ) );
+
+		// too large to cache
+		cache.put( "page4", new PageCache.Page( new byte[300], null ) ); //$NON-NLS-1$
+		assertNull( cache.get( "page4" ) ); //$NON-NLS-1$
+	}
+
+	public void testDiskCache( ) throws IOException
+	{
+		PageCache cache = new PageCache( folder.getPath( ), 150, 250 );
+		for ( int i = 0; i < 4; i++ )
+		{
+			byte[] content = new byte[100];
+			content[0] = (byte) i;
+			List ids = new ArrayList( );
+			ids.add( "id" + i ); //$NON-NLS-1$
+			cache.put( "page" + i, new PageCache.Page( content, ids ) ); //$NON-NLS-1$
+		}
+		assertEquals( 106, cache.getMemoryUsed( ) );
+		assertEquals( 212, cache.getDiskUsed( ) );
+
+		// page0 is deleted from the disk
+		assertFalse( cache.contains( "page0" ) ); //$NON-NLS-1$
+		assertTrue( cache.contains( "page1" ) ); //$NON-NLS-1$
+		assertNull( cache.get( "page0" ) ); //$NON-NLS-1$
+		for ( int i = 1; i < 4; i++ )
+		{
+			PageCache.Page page = cache.get( "page" + i ); //$NON-NLS-1$
+			assertNotNull( page );
+			assertEquals( i, page.getContent( )[0] );
+			List ids = new ArrayList( );
+			page.writeTo( new ByteArrayOutputStream( ), ids, "session1" ); //$NON-NLS-1$
+			assertEquals( 1, ids.size( ) );
+			assertEquals( "id" + i, ids.get( 0 ) ); //$NON-NLS-1$
+		}
+
+		cache.clear( );
+		assertEquals( 0, cache.getMemoryUsed( ) );
+		assertEquals( 0, cache.getDiskUsed( ) );
+		assertNull( cache.get( "page3" ) ); //$NON-NLS-1$
+	}
+
+	public void testSharedPage( ) throws IOException
+	{
+		PageCache cache = new PageCache( folder.getPath( ), 150, 250 );
+		String content = "<a href=\"/frameset?__report=a&amp;__sessionId=20130101_1\">" //$NON-NLS-1$
+				+ "20130101_1</a>"; //$NON-NLS-1$
+		// the session id isn't only in the session parameter
+		assertNull( PageCache.Page.createSharedPage( content.getBytes( "UTF-8" ), //$NON-NLS-1$
+				null,
+				"20130101_1", //$NON-NLS-1$
+				true ) );
+
+		content = "<a href=\"/frameset?__report=a&amp;__sessionId=20130101_1\">link</a>"; //$NON-NLS-1$
+		assertNull( PageCache.Page.createSharedPage( content.getBytes( "UTF-8" ), //$NON-NLS-1$
+				null,
+				"20130101_1", //$NON-NLS-1$
+				false ) );
+		// the images are in the session folder
+		assertNull( PageCache.Page.createSharedPage( ( content + "<img src=\"/preview?__sessionId=20130101_1&amp;__imageid=a.png\">" ).getBytes( "UTF-8" ), //$NON-NLS-1$ //$NON-NLS-2$
+				null,
+				"20130101_1", //$NON-NLS-1$
+				true ) );
+
+		PageCache.Page page = PageCache.Page.createSharedPage( content.getBytes( "UTF-8" ), //$NON-NLS-1$
+				null,
+				"20130101_1", //$NON-NLS-1$
+				true );
+		assertNotNull( page );
+		cache.put( "page1", page ); //$NON-NLS-1$
+		// move page1 to the disk
+		cache.put( "page2", new PageCache.Page( new byte[100], null ) ); //$NON-NLS-1$
+		cache.put( "page3", new PageCache.Page( new byte[100], null ) ); //$NON-NLS-1$
+		assertTrue( cache.getDiskUsed( ) > 0 );
+
+		page = cache.get( "page1" ); //$NON-NLS-1$
+		assertNotNull( page );
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		page.writeTo( out, null, "20130202_2" ); //$NON-NLS-1$
+		assertEquals( "<a href=\"/frameset?__report=a&amp;__sessionId=20130202_2\">link</a>", //$NON-NLS-1$
+				out.toString( "UTF-8" ) ); //$NON-NLS-1$
+
+		// the pages without the session are written as they are
+		page = PageCache.Page.createSharedPage( "<p>text</p>".getBytes( "UTF-8" ), //$NON-NLS-1$ //$NON-NLS-2$
+				null,
+				"20130101_1", //$NON-NLS-1$
+				false );
+		assertNotNull( page );
+		out = new ByteArrayOutputStream( );
+		page.writeTo( out, null, "20130202_2" ); //$NON-NLS-1$
+		assertEquals( "<p>text</p>", out.toString( "UTF-8" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+
+		// no temporary file is left
+		String[] files = folder.list( );
+		for ( int i = 0; i < files.length; i++ )
+		{
+			assertTrue( files[i].endsWith( ".page" ) ); //$NON-NLS-1$
+		}
+	}
+
+	public void testETag( )
+	{
+		String eTag = PageCache.getETag( "page1" ); //$NON-NLS-1$
+		assertTrue( eTag.startsWith( "\"" ) && eTag.endsWith( "\"" ) ); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals( eTag, PageCache.getETag( "page1" ) ); //$NON-NLS-1$
+		assertFalse( eTag.equals( PageCache.getETag( "page2" ) ) ); //$NON-NLS-1$
+	}
+}
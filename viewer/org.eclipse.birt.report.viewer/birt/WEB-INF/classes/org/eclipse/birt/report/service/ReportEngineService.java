@@ -13,12 +13,9 @@ package org.eclipse.birt.report.service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.MalformedURLException;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -73,7 +70,6 @@ import org.eclipse.birt.report.engine.api.InstanceID;
 import org.eclipse.birt.report.engine.api.PDFRenderOption;
 import org.eclipse.birt.report.engine.api.RenderOption;
 import org.eclipse.birt.report.engine.api.ReportParameterConverter;
-import org.eclipse.birt.report.engine.i18n.MessageConstants;
 import org.eclipse.birt.report.exception.ViewerException;
 import org.eclipse.birt.report.model.api.DataSetHandle;
 import org.eclipse.birt.report.model.api.DataSourceHandle;
@@ -86,6 +82,7 @@ import org.eclipse.birt.report.resource.ResourceConstants;
 import org.eclipse.birt.report.service.api.InputOptions;
 import org.eclipse.birt.report.service.api.ReportServiceException;
 import org.eclipse.birt.report.session.IViewingSession;
+import org.eclipse.birt.report.session.PageCache;
 import org.eclipse.birt.report.session.ViewingSessionUtil;
 import org.eclipse.birt.report.soapengine.api.Column;
 import org.eclipse.birt.report.soapengine.api.ResultSet;
@@ -225,6 +222,9 @@ public class ReportEngineService
 		// set maxrows
 		config.setMaxRowsPerQuery( ParameterAccessor.maxRows );
 
+		// set the size of the report design cache
+		config.setReportDesignCacheSize( ParameterAccessor.reportDesignCacheSize );
+
 		// configure the loggers
 		LoggingUtil.configureLoggers( ParameterAccessor.loggers,
 				level,
@@ -373,32 +373,8 @@ public class ReportEngineService
 	public IReportRunnable openReportDesign( String report, Map options )
 			throws EngineException
 	{
-		File file = new File( report );
-		if ( !file.exists( ) )
-		{
-			throw new EngineException( MessageConstants.DESIGN_FILE_NOT_FOUND_EXCEPTION,
-					report );
-		}
-
-		try
-		{
-			InputStream in = new FileInputStream( file );
-			String systemId = report;
-			try
-			{
-				systemId = file.toURI( ).toURL( ).toString( );
-			}
-			catch ( MalformedURLException ue )
-			{
-				systemId = report;
-			}
-			return engine.openReportDesign( systemId, in, options );
-		}
-		catch ( FileNotFoundException ioe )
-		{
-			throw new EngineException( MessageConstants.DESIGN_FILE_NOT_FOUND_EXCEPTION,
-					report );
-		}
+		// opened by the path, so the engine may return the cached design
+		return engine.openReportDesign( report, options );
 	}
 
 	/**
@@ -1505,7 +1481,12 @@ public class ReportEngineService
 	}
 
 	/**
-	 * Render report page.
+	 * Render report page. A single page is got from the page cache if it has
+	 * been rendered with the same options. The page is shared by the viewing
+	 * sessions if it doesn't refer to the session it is rendered in, or only
+	 * by the session parameter of the URLs in the HTML output, which is
+	 * replaced when the page is written. Otherwise it is cached for the
+	 * session only.
 	 */
 	public void renderReport( OutputStream out, IReportDocument reportDocument,
 			long pageNumber, String pageRange, InputOptions inputOptions,
@@ -1514,6 +1495,235 @@ public class ReportEngineService
 		if ( out == null )
 			return;
 
+		PageCache pageCache = getPageCache( );
+		String cacheKey = null;
+		if ( pageCache != null && reportDocument != null )
+		{
+			cacheKey = getPageCacheKey( reportDocument.getName( ),
+					pageNumber,
+					pageRange,
+					inputOptions,
+					activeIds != null );
+		}
+		if ( cacheKey == null )
+		{
+			renderPage( out,
+					reportDocument,
+					pageNumber,
+					pageRange,
+					inputOptions,
+					activeIds );
+			return;
+		}
+
+		String sessionId = getSessionId( inputOptions );
+		String sessionKey = cacheKey + '|' + sessionId;
+		PageCache.Page page = pageCache.get( cacheKey );
+		if ( page == null )
+		{
+			page = pageCache.get( sessionKey );
+		}
+		if ( page == null )
+		{
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream( );
+			List pageIds = activeIds == null ? null : new ArrayList( );
+			boolean succeed = renderPage( buffer,
+					reportDocument,
+					pageNumber,
+					pageRange,
+					inputOptions,
+					pageIds );
+			byte[] content = buffer.toByteArray( );
+			page = new PageCache.Page( content, pageIds );
+			// the pages with errors are rendered again
+			if ( succeed )
+			{
+				PageCache.Page sharedPage = PageCache.Page.createSharedPage( content,
+						pageIds,
+						sessionId,
+						IBirtConstants.HTML_RENDER_FORMAT.equalsIgnoreCase( getFormat( inputOptions ) ) );
+				if ( sharedPage != null )
+				{
+					pageCache.put( cacheKey, sharedPage );
+				}
+				else
+				{
+					pageCache.put( sessionKey, page );
+				}
+			}
+		}
+		try
+		{
+			page.writeTo( out, activeIds, sessionId );
+		}
+		catch ( IOException e )
+		{
+			throwDummyException( e );
+		}
+	}
+
+	/**
+	 * Returns the entity tag of the rendered page, which is changed once the
+	 * document or the render options are changed. It also contains the
+	 * viewing session, as the URLs in the page sent to the browser refer to
+	 * it. Only the pages in the cache have a tag, as the failed renders are
+	 * not cached.
+	 * 
+	 * @param docName
+	 *            document file name
+	 * @param pageNumber
+	 *            page number
+	 * @param pageRange
+	 *            page range
+	 * @param inputOptions
+	 *            input options
+	 * @return quoted entity tag, or null if the page isn't cached
+	 */
+	public String getPageETag( String docName, long pageNumber,
+			String pageRange, InputOptions inputOptions )
+	{
+		PageCache pageCache = getPageCache( );
+		if ( pageCache == null )
+		{
+			return null;
+		}
+		String key = getPageCacheKey( docName,
+				pageNumber,
+				pageRange,
+				inputOptions,
+				false );
+		if ( key == null )
+		{
+			return null;
+		}
+		String sessionKey = key + '|' + getSessionId( inputOptions );
+		if ( !pageCache.contains( key ) && !pageCache.contains( sessionKey ) )
+		{
+			return null;
+		}
+		return PageCache.getETag( sessionKey );
+	}
+
+	private String getSessionId( InputOptions inputOptions )
+	{
+		HttpServletRequest request = (HttpServletRequest) inputOptions.getOption( InputOptions.OPT_REQUEST );
+		return ViewingSessionUtil.getSession( request ).getId( );
+	}
+
+	private String getFormat( InputOptions inputOptions )
+	{
+		String format = (String) inputOptions.getOption( InputOptions.OPT_FORMAT );
+		if ( format == null )
+		{
+			HttpServletRequest request = (HttpServletRequest) inputOptions.getOption( InputOptions.OPT_REQUEST );
+			format = ParameterAccessor.getFormat( request );
+		}
+		return format;
+	}
+
+	private PageCache getPageCache( )
+	{
+		if ( ViewingSessionUtil.viewingCache == null )
+		{
+			return null;
+		}
+		return ViewingSessionUtil.viewingCache.getPageCache( );
+	}
+
+	/**
+	 * Returns the key of the rendered page in the page cache. The key
+	 * contains the modification stamp of the document, the options used to
+	 * render the page and the request parameters, as some render options are
+	 * read from the request. The viewing session parameter isn't part of the
+	 * key, so the page is shared by the sessions.
+	 * 
+	 * @return page key, or null if the page isn't cached
+	 */
+	private String getPageCacheKey( String docName, long pageNumber,
+			String pageRange, InputOptions inputOptions, boolean hasActiveIds )
+	{
+		// only a single page of a document file is cached
+		if ( docName == null || pageNumber <= 0 || pageRange != null )
+		{
+			return null;
+		}
+		File file = new File( docName );
+		if ( !file.isFile( ) )
+		{
+			return null;
+		}
+		HttpServletRequest request = (HttpServletRequest) inputOptions.getOption( InputOptions.OPT_REQUEST );
+		if ( request == null )
+		{
+			return null;
+		}
+		IViewingSession session = ViewingSessionUtil.getSession( request );
+		if ( session == null )
+		{
+			return null;
+		}
+		String servletPath = (String) inputOptions.getOption( InputOptions.OPT_SERVLET_PATH );
+		if ( servletPath == null )
+			servletPath = request.getServletPath( );
+		TimeZone timeZone = (TimeZone) inputOptions.getOption( InputOptions.OPT_TIMEZONE );
+
+		StringBuffer key = new StringBuffer( );
+		key.append( file.getAbsolutePath( ) ).append( '|' );
+		key.append( file.lastModified( ) ).append( '|' );
+		key.append( file.length( ) ).append( '|' );
+		key.append( pageNumber ).append( '|' );
+		key.append( inputOptions.getOption( InputOptions.OPT_FORMAT ) ).append( '|' );
+		key.append( inputOptions.getOption( InputOptions.OPT_EMITTER_ID ) ).append( '|' );
+		key.append( inputOptions.getOption( InputOptions.OPT_LOCALE ) ).append( '|' );
+		key.append( timeZone == null ? null : timeZone.getID( ) ).append( '|' );
+		key.append( inputOptions.getOption( InputOptions.OPT_IS_MASTER_PAGE_CONTENT ) ).append( '|' );
+		key.append( inputOptions.getOption( InputOptions.OPT_SVG_FLAG ) ).append( '|' );
+		key.append( isRtl( inputOptions ) ).append( '|' );
+		key.append( isDesigner( inputOptions ) ).append( '|' );
+		key.append( getPageOverflow( inputOptions ) ).append( '|' );
+		key.append( hasActiveIds ).append( '|' );
+		key.append( servletPath ).append( '|' );
+		key.append( removeSessionParameter( request.getQueryString( ) ) );
+		return key.toString( );
+	}
+
+	/**
+	 * Removes the viewing session parameter from the query string.
+	 */
+	private String removeSessionParameter( String queryString )
+	{
+		if ( queryString == null )
+		{
+			return null;
+		}
+		String prefix = ParameterAccessor.PARAM_VIEWING_SESSION_ID + "="; //$NON-NLS-1$
+		StringBuffer buffer = new StringBuffer( );
+		String[] params = queryString.split( "&" ); //$NON-NLS-1$
+		for ( int i = 0; i < params.length; i++ )
+		{
+			if ( params[i].startsWith( prefix ) )
+			{
+				continue;
+			}
+			if ( buffer.length( ) > 0 )
+			{
+				buffer.append( '&' );
+			}
+			buffer.append( params[i] );
+		}
+		return buffer.toString( );
+	}
+
+	/**
+	 * Renders the report page with a new render task.
+	 * 
+	 * @return true if the page is rendered without errors
+	 */
+	private boolean renderPage( OutputStream out,
+			IReportDocument reportDocument, long pageNumber, String pageRange,
+			InputOptions inputOptions, List activeIds ) throws RemoteException
+	{
+		boolean succeed = false;
 		HttpServletRequest request = (HttpServletRequest) inputOptions.getOption( InputOptions.OPT_REQUEST );
 		String format = (String) inputOptions.getOption( InputOptions.OPT_FORMAT );
 		String iServletPath = (String) inputOptions.getOption( InputOptions.OPT_SERVLET_PATH );
@@ -1553,6 +1763,7 @@ public class ReportEngineService
 			}
 
 			renderTask.render( );
+			succeed = renderTask.getErrors( ).isEmpty( );
 		}
 		catch ( EngineException e )
 		{
@@ -1571,6 +1782,7 @@ public class ReportEngineService
 
 			renderTask.close( );
 		}
+		return succeed;
 	}
 
 	/**
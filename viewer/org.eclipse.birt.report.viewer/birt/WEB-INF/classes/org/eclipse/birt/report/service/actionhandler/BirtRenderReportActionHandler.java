@@ -13,9 +13,14 @@ package org.eclipse.birt.report.service.actionhandler;
 
 import java.io.OutputStream;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.birt.report.IBirtConstants;
 import org.eclipse.birt.report.context.IContext;
 import org.eclipse.birt.report.context.ViewerAttributeBean;
 import org.eclipse.birt.report.service.BirtReportServiceFactory;
+import org.eclipse.birt.report.service.ReportEngineService;
 import org.eclipse.birt.report.service.api.IViewerReportService;
 import org.eclipse.birt.report.service.api.InputOptions;
 import org.eclipse.birt.report.service.api.ReportServiceException;
@@ -62,10 +67,53 @@ public class BirtRenderReportActionHandler extends AbstractBaseActionHandler
 		InputOptions options = createInputOptions( attrBean, ParameterAccessor
 				.getSVGFlag( context.getRequest( ) ) );
 
+		if ( isNotModified( attrBean, docName, options ) )
+		{
+			return;
+		}
+
 		getReportService( ).renderReport( docName, attrBean.getReportPage( ),
 				attrBean.getReportPageRange( ), options, os );
 	}
 
+	/**
+	 * Sets the entity tag of the cached page into the response. If the browser
+	 * has the page of the same tag, the response is "304 Not Modified" and the
+	 * page isn't rendered. A page rendered for the first time has no tag, so
+	 * a failed render never gets one.
+	 * 
+	 * @return true if the page in the browser is not modified
+	 */
+	private boolean isNotModified( ViewerAttributeBean attrBean,
+			String docName, InputOptions options )
+	{
+		HttpServletRequest request = context.getRequest( );
+		HttpServletResponse response = context.getResponse( );
+		// the printed page isn't written into the response
+		if ( response == null
+				|| IBirtConstants.ACTION_PRINT.equalsIgnoreCase( attrBean
+						.getAction( ) ) )
+		{
+			return false;
+		}
+		String eTag = ReportEngineService.getInstance( ).getPageETag( docName,
+				attrBean.getReportPage( ),
+				attrBean.getReportPageRange( ),
+				options );
+		if ( eTag == null )
+		{
+			return false;
+		}
+		response.setHeader( "ETag", eTag ); //$NON-NLS-1$
+		String match = request.getHeader( "If-None-Match" ); //$NON-NLS-1$
+		if ( match != null && match.indexOf( eTag ) != -1 )
+		{
+			response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+			return true;
+		}
+		return false;
+	}
+
 	protected IViewerReportService getReportService( )
 	{
 		return BirtReportServiceFactory.getReportService( );
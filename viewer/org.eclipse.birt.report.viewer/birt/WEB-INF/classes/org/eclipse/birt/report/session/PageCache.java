@@ -0,0 +1,706 @@
+/*************************************************************************************
+ * Copyright (c) 2008 Actuate Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Actuate Corporation - Initial implementation.
+ ************************************************************************************/
+
+package org.eclipse.birt.report.session;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.report.utility.ParameterAccessor;
+
+/**
+ * Cache of the rendered pages, shared by all the viewing sessions.
+ * <p>
+ * The pages are kept in memory until the memory size is reached, then the
+ * least recently used pages are moved to the disk folder. The pages on disk
+ * are deleted once the disk size is reached. A page is found by a key, which
+ * must contain everything the rendered content depends on, including the
+ * modification stamp of the report document, so a regenerated document never
+ * gets the old pages.
+ * <p>
+ * The pages are written to and read from the disk outside the lock of the
+ * cache. A page is written to a temporary file, which is renamed once the
+ * page is written, so a page file is always complete. Until then the page is
+ * kept in memory.
+ */
+public class PageCache
+{
+
+	private static Logger logger = Logger.getLogger( PageCache.class.getName( ) );
+
+	private static final String PAGE_FILE_SUFFIX = ".page"; //$NON-NLS-1$
+
+	private static final String TEMP_FILE_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	/**
+	 * The viewing session parameter in the shared pages. It contains zero
+	 * bytes, so it never appears in the rendered content.
+	 */
+	private static final byte[] SESSION_PARAMETER = getBytes( ParameterAccessor.PARAM_VIEWING_SESSION_ID
+			+ "=\u0000SESSION\u0000" ); //$NON-NLS-1$
+
+	/**
+	 * Folder to put the pages moved out of memory.
+	 */
+	private String folder;
+
+	private long memorySize;
+
+	private long diskSize;
+
+	/**
+	 * The pages in memory, in the access order.
+	 */
+	private LinkedHashMap<String, Page> memoryPages = new LinkedHashMap<String, Page>(
+			16, 0.75f, true );
+
+	private long memoryUsed;
+
+	/**
+	 * The size of the pages on disk, in the access order.
+	 */
+	private LinkedHashMap<String, Long> diskPages = new LinkedHashMap<String, Long>(
+			16, 0.75f, true );
+
+	private long diskUsed;
+
+	/**
+	 * The pages being written to disk. They are already counted in the disk
+	 * size.
+	 */
+	private Map<String, Page> savingPages = new HashMap<String, Page>( );
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Instantiates a new page cache.
+	 *
+	 * @param folder
+	 *            folder to put the pages on disk
+	 * @param memorySize
+	 *            max bytes of the pages kept in memory
+	 * @param diskSize
+	 *            max bytes of the pages kept on disk, 0 to keep the pages in
+	 *            memory only
+	 */
+	public PageCache( String folder, long memorySize, long diskSize )
+	{
+		this.folder = folder;
+		if ( !this.folder.endsWith( File.separator ) )
+		{
+			this.folder += File.separator;
+		}
+		this.memorySize = memorySize;
+		this.diskSize = diskSize;
+	}
+
+	/**
+	 * Returns the cached page.
+	 *
+	 * @param key
+	 *            page key
+	 * @return the page, or null if it isn't cached
+	 */
+	public Page get( String key )
+	{
+		synchronized ( this )
+		{
+			Page page = memoryPages.get( key );
+			if ( page == null )
+			{
+				page = savingPages.get( key );
+			}
+			if ( page != null )
+			{
+				hits++;
+				return page;
+			}
+			if ( !diskPages.containsKey( key ) )
+			{
+				misses++;
+				return null;
+			}
+		}
+
+		Page page = loadPage( key );
+		List<String> pagesToSave = new ArrayList<String>( );
+		synchronized ( this )
+		{
+			if ( page == null )
+			{
+				misses++;
+				if ( !savingPages.containsKey( key ) )
+				{
+					removeDiskPage( key );
+				}
+				return null;
+			}
+			hits++;
+			if ( diskPages.containsKey( key ) && !memoryPages.containsKey( key ) )
+			{
+				addMemoryPage( key, page, pagesToSave );
+			}
+		}
+		savePages( pagesToSave );
+		return page;
+	}
+
+	/**
+	 * Checks whether the page is cached, without loading it from disk.
+	 *
+	 * @param key
+	 *            page key
+	 * @return true if the page is cached
+	 */
+	public synchronized boolean contains( String key )
+	{
+		return memoryPages.containsKey( key )
+				|| savingPages.containsKey( key )
+				|| diskPages.containsKey( key );
+	}
+
+	/**
+	 * Adds a rendered page. The pages larger than the memory size are not
+	 * cached.
+	 *
+	 * @param key
+	 *            page key
+	 * @param page
+	 *            rendered page
+	 */
+	public void put( String key, Page page )
+	{
+		if ( page.getSize( ) > memorySize )
+		{
+			return;
+		}
+		List<String> pagesToSave = new ArrayList<String>( );
+		synchronized ( this )
+		{
+			removeDiskPage( key );
+			Page old = memoryPages.remove( key );
+			if ( old != null )
+			{
+				memoryUsed -= old.getSize( );
+			}
+			addMemoryPage( key, page, pagesToSave );
+		}
+		savePages( pagesToSave );
+	}
+
+	/**
+	 * Removes all the pages.
+	 */
+	public synchronized void clear( )
+	{
+		memoryPages.clear( );
+		memoryUsed = 0;
+		Iterator<String> iter = diskPages.keySet( ).iterator( );
+		while ( iter.hasNext( ) )
+		{
+			getPageFile( iter.next( ) ).delete( );
+		}
+		diskPages.clear( );
+		savingPages.clear( );
+		diskUsed = 0;
+	}
+
+	/**
+	 * Returns the entity tag of the page, which is changed once the key is
+	 * changed.
+	 *
+	 * @param key
+	 *            page key
+	 * @return quoted entity tag
+	 */
+	public static String getETag( String key )
+	{
+		return "\"" + digest( key ) + "\""; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * @return count of the pages found in the cache
+	 */
+	public synchronized long getHitCount( )
+	{
+		return hits;
+	}
+
+	/**
+	 * @return count of the pages not found in the cache
+	 */
+	public synchronized long getMissCount( )
+	{
+		return misses;
+	}
+
+	/**
+	 * @return bytes of the pages in memory
+	 */
+	public synchronized long getMemoryUsed( )
+	{
+		return memoryUsed;
+	}
+
+	/**
+	 * @return bytes of the pages on disk
+	 */
+	public synchronized long getDiskUsed( )
+	{
+		return diskUsed;
+	}
+
+	private void addMemoryPage( String key, Page page, List<String> pagesToSave )
+	{
+		memoryPages.put( key, page );
+		memoryUsed += page.getSize( );
+		// move the least recently used pages to disk
+		Iterator<Map.Entry<String, Page>> iter = memoryPages.entrySet( )
+				.iterator( );
+		while ( memoryUsed > memorySize && iter.hasNext( ) )
+		{
+			Map.Entry<String, Page> entry = iter.next( );
+			if ( entry.getValue( ) == page )
+			{
+				continue;
+			}
+			iter.remove( );
+			memoryUsed -= entry.getValue( ).getSize( );
+			if ( !diskPages.containsKey( entry.getKey( ) ) )
+			{
+				reserveDiskPage( entry.getKey( ), entry.getValue( ), pagesToSave );
+			}
+		}
+	}
+
+	/**
+	 * Counts the page in the disk size and keeps it in memory until it is
+	 * written by savePages.
+	 */
+	private void reserveDiskPage( String key, Page page, List<String> pagesToSave )
+	{
+		long size = page.getSize( );
+		if ( size > diskSize )
+		{
+			return;
+		}
+		// delete the least recently used pages on disk
+		Iterator<Map.Entry<String, Long>> iter = diskPages.entrySet( )
+				.iterator( );
+		while ( diskUsed + size > diskSize && iter.hasNext( ) )
+		{
+			Map.Entry<String, Long> entry = iter.next( );
+			iter.remove( );
+			diskUsed -= entry.getValue( ).longValue( );
+			savingPages.remove( entry.getKey( ) );
+			getPageFile( entry.getKey( ) ).delete( );
+		}
+		diskPages.put( key, Long.valueOf( size ) );
+		diskUsed += size;
+		savingPages.put( key, page );
+		pagesToSave.add( key );
+	}
+
+	/**
+	 * Writes the reserved pages to disk. It is called outside the lock, the
+	 * page file is replaced by the written temporary file only if the page
+	 * is still reserved.
+	 */
+	private void savePages( List<String> keys )
+	{
+		for ( int i = 0; i < keys.size( ); i++ )
+		{
+			String key = keys.get( i );
+			Page page;
+			synchronized ( this )
+			{
+				page = savingPages.get( key );
+			}
+			if ( page == null )
+			{
+				continue;
+			}
+			File file = getPageFile( key );
+			File tempFile = null;
+			try
+			{
+				file.getParentFile( ).mkdirs( );
+				tempFile = File.createTempFile( file.getName( ),
+						TEMP_FILE_SUFFIX,
+						file.getParentFile( ) );
+				writePage( tempFile, key, page );
+			}
+			catch ( IOException e )
+			{
+				logger.log( Level.WARNING, e.getMessage( ), e );
+				if ( tempFile != null )
+				{
+					tempFile.delete( );
+				}
+				synchronized ( this )
+				{
+					if ( savingPages.get( key ) == page )
+					{
+						removeDiskPage( key );
+					}
+				}
+				continue;
+			}
+			synchronized ( this )
+			{
+				if ( savingPages.get( key ) == page )
+				{
+					savingPages.remove( key );
+					file.delete( );
+					if ( !tempFile.renameTo( file ) )
+					{
+						logger.log( Level.WARNING,
+								"Can't rename " + tempFile + " to " + file ); //$NON-NLS-1$ //$NON-NLS-2$
+						removeDiskPage( key );
+					}
+				}
+			}
+			// the page is removed or replaced while it is written
+			tempFile.delete( );
+		}
+	}
+
+	private void writePage( File file, String key, Page page )
+			throws IOException
+	{
+		DataOutputStream out = new DataOutputStream( new BufferedOutputStream(
+				new FileOutputStream( file ) ) );
+		try
+		{
+			out.writeUTF( key );
+			String[] ids = page.activeIds;
+			out.writeInt( ids.length );
+			for ( int i = 0; i < ids.length; i++ )
+			{
+				out.writeUTF( ids[i] );
+			}
+			out.writeBoolean( page.hasSessionParameter );
+			out.writeInt( page.content.length );
+			out.write( page.content );
+		}
+		finally
+		{
+			out.close( );
+		}
+	}
+
+	/**
+	 * Reads the page file, it is called outside the lock.
+	 * 
+	 * @return the page, or null if the file can't be read or it is the page
+	 *         of another key of the same digest
+	 */
+	private Page loadPage( String key )
+	{
+		File file = getPageFile( key );
+		try
+		{
+			DataInputStream in = new DataInputStream( new BufferedInputStream(
+					new FileInputStream( file ) ) );
+			try
+			{
+				// another key of the same digest
+				if ( !key.equals( in.readUTF( ) ) )
+				{
+					return null;
+				}
+				String[] ids = new String[in.readInt( )];
+				for ( int i = 0; i < ids.length; i++ )
+				{
+					ids[i] = in.readUTF( );
+				}
+				boolean hasSessionParameter = in.readBoolean( );
+				byte[] content = new byte[in.readInt( )];
+				in.readFully( content );
+				return new Page( content, ids, hasSessionParameter );
+			}
+			finally
+			{
+				in.close( );
+			}
+		}
+		catch ( FileNotFoundException e )
+		{
+			// the page is deleted from the disk after it is looked up
+			return null;
+		}
+		catch ( IOException e )
+		{
+			logger.log( Level.WARNING, e.getMessage( ), e );
+			return null;
+		}
+	}
+
+	private void removeDiskPage( String key )
+	{
+		savingPages.remove( key );
+		Long size = diskPages.remove( key );
+		if ( size != null )
+		{
+			diskUsed -= size.longValue( );
+			getPageFile( key ).delete( );
+		}
+	}
+
+	private File getPageFile( String key )
+	{
+		return new File( folder + digest( key ) + PAGE_FILE_SUFFIX );
+	}
+
+	private static String digest( String key )
+	{
+		try
+		{
+			byte[] bytes = MessageDigest.getInstance( "SHA-1" ).digest( //$NON-NLS-1$
+					key.getBytes( "UTF-8" ) ); //$NON-NLS-1$
+			StringBuffer buffer = new StringBuffer( bytes.length * 2 );
+			for ( int i = 0; i < bytes.length; i++ )
+			{
+				int value = bytes[i] & 0xFF;
+				if ( value < 0x10 )
+				{
+					buffer.append( '0' );
+				}
+				buffer.append( Integer.toHexString( value ) );
+			}
+			return buffer.toString( );
+		}
+		catch ( NoSuchAlgorithmException e )
+		{
+			return Integer.toHexString( key.hashCode( ) );
+		}
+		catch ( UnsupportedEncodingException e )
+		{
+			return Integer.toHexString( key.hashCode( ) );
+		}
+	}
+
+	private static byte[] getBytes( String value )
+	{
+		try
+		{
+			return value.getBytes( "UTF-8" ); //$NON-NLS-1$
+		}
+		catch ( UnsupportedEncodingException e )
+		{
+			return value.getBytes( );
+		}
+	}
+
+	private static byte[] getSessionParameter( String sessionId )
+	{
+		return getBytes( ParameterAccessor.PARAM_VIEWING_SESSION_ID
+				+ "=" + sessionId ); //$NON-NLS-1$
+	}
+
+	private static int indexOf( byte[] content, byte[] pattern, int from )
+	{
+		for ( int i = from; i <= content.length - pattern.length; i++ )
+		{
+			int j = 0;
+			while ( j < pattern.length && content[i + j] == pattern[j] )
+			{
+				j++;
+			}
+			if ( j == pattern.length )
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int count( byte[] content, byte[] pattern )
+	{
+		int count = 0;
+		int index = indexOf( content, pattern, 0 );
+		while ( index != -1 )
+		{
+			count++;
+			index = indexOf( content, pattern, index + pattern.length );
+		}
+		return count;
+	}
+
+	private static byte[] replace( byte[] content, byte[] pattern,
+			byte[] replacement )
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream( content.length );
+		int start = 0;
+		int index = indexOf( content, pattern, 0 );
+		while ( index != -1 )
+		{
+			out.write( content, start, index - start );
+			out.write( replacement, 0, replacement.length );
+			start = index + pattern.length;
+			index = indexOf( content, pattern, start );
+		}
+		out.write( content, start, content.length - start );
+		return out.toByteArray( );
+	}
+
+	/**
+	 * A rendered page.
+	 */
+	public static class Page
+	{
+
+		private byte[] content;
+
+		private String[] activeIds;
+
+		/**
+		 * True if the viewing session parameters in the content are replaced
+		 * by the placeholder.
+		 */
+		private boolean hasSessionParameter;
+
+		/**
+		 * @param content
+		 *            rendered bytes
+		 * @param activeIds
+		 *            instance ids of the page, may be null
+		 */
+		public Page( byte[] content, List activeIds )
+		{
+			this( content, activeIds == null
+					? new String[0]
+					: (String[]) activeIds.toArray( new String[activeIds
+							.size( )] ), false );
+		}
+
+		Page( byte[] content, String[] activeIds, boolean hasSessionParameter )
+		{
+			this.content = content;
+			this.activeIds = activeIds;
+			this.hasSessionParameter = hasSessionParameter;
+		}
+
+		/**
+		 * Creates a page shared by all the viewing sessions. The viewing
+		 * session parameter of the action URLs in the page is replaced by the
+		 * one of the session the page is written to. The pages referring to
+		 * the session otherwise, like the images written to the image folder
+		 * of the session, are not shared.
+		 * 
+		 * @param content
+		 *            rendered bytes
+		 * @param activeIds
+		 *            instance ids of the page, may be null
+		 * @param sessionId
+		 *            id of the viewing session the page is rendered in
+		 * @param rewriteUrls
+		 *            false if the session parameters can't be replaced in
+		 *            the content, like in the PDF output
+		 * @return the shared page, or null if the page can't be shared
+		 */
+		public static Page createSharedPage( byte[] content, List activeIds,
+				String sessionId, boolean rewriteUrls )
+		{
+			int count = count( content, getBytes( sessionId ) );
+			if ( count == 0 )
+			{
+				return new Page( content, activeIds );
+			}
+			byte[] parameter = getSessionParameter( sessionId );
+			if ( !rewriteUrls
+					|| count( content, parameter ) != count
+					|| count( content,
+							getBytes( ParameterAccessor.PARAM_IMAGEID ) ) > 0 )
+			{
+				return null;
+			}
+			Page page = new Page( replace( content,
+					parameter,
+					SESSION_PARAMETER ), activeIds );
+			page.hasSessionParameter = true;
+			return page;
+		}
+
+		/**
+		 * Writes the rendered bytes.
+		 *
+		 * @param out
+		 *            output stream
+		 * @param ids
+		 *            list to add the instance ids of the page, may be null
+		 * @param sessionId
+		 *            id of the viewing session the page is written to
+		 * @throws IOException
+		 */
+		public void writeTo( OutputStream out, List ids, String sessionId )
+				throws IOException
+		{
+			if ( hasSessionParameter )
+			{
+				out.write( replace( content,
+						SESSION_PARAMETER,
+						getSessionParameter( sessionId ) ) );
+			}
+			else
+			{
+				out.write( content );
+			}
+			if ( ids != null )
+			{
+				for ( int i = 0; i < activeIds.length; i++ )
+				{
+					ids.add( activeIds[i] );
+				}
+			}
+		}
+
+		public byte[] getContent( )
+		{
+			return content;
+		}
+
+		/**
+		 * @return the estimated bytes of the page
+		 */
+		long getSize( )
+		{
+			long size = content.length;
+			for ( int i = 0; i < activeIds.length; i++ )
+			{
+				size += activeIds[i].length( ) * 2;
+			}
+			return size;
+		}
+	}
+}
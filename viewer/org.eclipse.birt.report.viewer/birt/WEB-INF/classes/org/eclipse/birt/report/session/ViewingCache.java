@@ -33,6 +33,11 @@ public class ViewingCache implements Serializable
 	 */
 	private static final String PREFIX_SUB_IMAGE_FOLDER = "BIRTIMG"; //$NON-NLS-1$	
 
+	/**
+	 * Name of the folder to put the cached pages
+	 */
+	private static final String PAGE_CACHE_FOLDER = "BIRTPAGE"; //$NON-NLS-1$
+
 	/**
 	 * Document folder to put the report files and created documents.
 	 */
@@ -43,6 +48,11 @@ public class ViewingCache implements Serializable
 	 */
 	public String imageFolder = null;
 
+	/**
+	 * Cache of the rendered pages, null if it is disabled.
+	 */
+	private transient PageCache pageCache = null;
+
 	/**
 	 * Instantiates a new cache manager.
 	 * @param documentFolder base folder to use for cached documents
@@ -65,6 +75,42 @@ public class ViewingCache implements Serializable
 		clearTempFiles( );
 	}
 
+	/**
+	 * Initializes the cache of the rendered pages, which is shared by all the
+	 * sessions.
+	 * 
+	 * @param memorySize
+	 *            max bytes of the pages kept in memory, 0 to disable the cache
+	 * @param diskSize
+	 *            max bytes of the pages kept in the document folder
+	 */
+	public void initPageCache( long memorySize, long diskSize )
+	{
+		if ( pageCache != null )
+		{
+			pageCache.clear( );
+		}
+		if ( memorySize > 0 )
+		{
+			pageCache = new PageCache( documentFolder + PAGE_CACHE_FOLDER,
+					memorySize, Math.max( diskSize, 0 ) );
+		}
+		else
+		{
+			pageCache = null;
+		}
+	}
+
+	/**
+	 * Returns the cache of the rendered pages.
+	 * 
+	 * @return page cache, or null if it is disabled
+	 */
+	public PageCache getPageCache( )
+	{
+		return pageCache;
+	}
+
 	/**
 	 * Create the file path of the the document. The document will be put under
 	 * the document folder based on different session id.
@@ -180,7 +226,8 @@ public class ViewingCache implements Serializable
 			String[] children = file.list( );
 			for ( int i = 0; i < children.length; i++ )
 			{
-				if ( children[i].startsWith( PREFIX_SUB_DOC_FOLDER ) )
+				if ( children[i].startsWith( PREFIX_SUB_DOC_FOLDER )
+						|| children[i].equals( PAGE_CACHE_FOLDER ) )
 					deleteDir( new File( file, children[i] ) );
 			}
 		}
@@ -301,6 +301,11 @@ public class BirtUtility
 		options.put( IModuleOption.RESOURCE_FOLDER_KEY,
 				ParameterAccessor.getResourceFolder( request ) );
 		options.put( IModuleOption.PARSER_SEMANTIC_CHECK_KEY, Boolean.FALSE );
+		if ( ParameterAccessor.isMemoryMappedDocument )
+		{
+			options.put( EngineConstants.OPTION_MEMORY_MAPPED_DOCUMENT,
+					Boolean.TRUE );
+		}
 		return options;
 	}
 
@@ -434,6 +434,12 @@ public class ParameterAccessor
 	 */
 	public static final String INIT_PARAM_VIEWER_MAXROWS = "BIRT_VIEWER_MAX_ROWS"; //$NON-NLS-1$
 
+	/**
+	 * Context parameter name that gives the max number of the report designs
+	 * cached by the engine.
+	 */
+	public static final String INIT_PARAM_REPORT_DESIGN_CACHE_SIZE = "BIRT_REPORT_DESIGN_CACHE_SIZE"; //$NON-NLS-1$
+
 	/**
 	 * Context parameter name that gives preview report cube fetch levels
 	 * limited.
@@ -466,6 +472,11 @@ public class ParameterAccessor
 	 */
 	public static final String INIT_PARAM_AGENTSTYLE_ENGINE = "HTML_ENABLE_AGENTSTYLE_ENGINE"; //$NON-NLS-1$
 
+	/**
+	 * Context parameter name that if map report documents into memory.
+	 */
+	public static final String INIT_PARAM_MEMORY_MAPPED_DOCUMENT = "BIRT_VIEWER_MEMORY_MAPPED_DOCUMENT"; //$NON-NLS-1$
+
 	/**
 	 * Class name to use for the export filename generator.
 	 */
@@ -521,6 +532,11 @@ public class ParameterAccessor
 	 */
 	public static int maxRows;
 
+	/**
+	 * Max number of the cached report designs
+	 */
+	public static int reportDesignCacheSize;
+
 	/**
 	 * Preview report max cube fetch levels
 	 */
@@ -638,6 +654,11 @@ public class ParameterAccessor
 	 */
 	public static boolean isAgentStyle = true;
 
+	/**
+	 * Memory mapped report document flag
+	 */
+	public static boolean isMemoryMappedDocument = false;
+
 	/**
 	 * Run in designer or not
 	 */
@@ -1586,6 +1607,18 @@ public class ParameterAccessor
 			maxRows = -1;
 		}
 
+		// Get the report design cache size from ServletContext
+		String s_designCacheSize = context.getInitParameter( INIT_PARAM_REPORT_DESIGN_CACHE_SIZE );
+		try
+		{
+			reportDesignCacheSize = Integer.valueOf( s_designCacheSize )
+					.intValue( );
+		}
+		catch ( NumberFormatException e )
+		{
+			reportDesignCacheSize = 0;
+		}
+
 		// Get preview report max cube fetch levels parameter from
 		// ServletContext
 		String s_maxRowLevels = context.getInitParameter( INIT_PARAM_VIEWER_MAXCUBE_ROWLEVELS );
@@ -1690,6 +1723,10 @@ public class ParameterAccessor
 		if ( "false".equalsIgnoreCase( s_agentstyle ) ) //$NON-NLS-1$
 			isAgentStyle = false;
 
+		// get memory mapped document flag
+		String s_memoryMapped = context.getInitParameter( INIT_PARAM_MEMORY_MAPPED_DOCUMENT );
+		isMemoryMappedDocument = "true".equalsIgnoreCase( DataUtil.trimString( s_memoryMapped ) ); //$NON-NLS-1$
+
 		// try from servlet context
 		String exportFilenameGeneratorClassName = context.getInitParameter( INIT_PARAM_FILENAME_GENERATOR_CLASS );
 		if ( exportFilenameGeneratorClassName != null )
@@ -1742,6 +1779,8 @@ public class ParameterAccessor
 		// class
 		ViewingSessionUtil.viewingCache = new ViewingCache( documentFolder,
 				imageFolder );
+		ViewingSessionUtil.viewingCache.initPageCache( getLongInitProp( "viewer.pageCache.memorySize" ), //$NON-NLS-1$
+				getLongInitProp( "viewer.pageCache.diskSize" ) ); //$NON-NLS-1$
 		ViewingSessionUtil.defaultConfig = new ViewingSessionConfig( );
 		long sessionTimeout = getLongInitProp( "viewer.session.timeout" ); //$NON-NLS-1$
 		if ( sessionTimeout <= 0l )